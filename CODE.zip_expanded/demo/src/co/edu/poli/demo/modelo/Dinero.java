@@ -0,0 +1,349 @@
+package co.edu.poli.demo.modelo;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.Currency;
+import java.util.Objects;
+
+/**
+ * Cantidad de dinero en punto fijo: un número entero de unidades menores de una moneda
+ * (centavos para el peso colombiano) y el código de la moneda. Reemplaza a los importes
+ * {@code double}, que acumulan errores de centavos al sumar muchos valores.
+ * <p>
+ * Las sumas y restas son exactas. Las operaciones que producen fracciones de unidad menor
+ * (multiplicar por una fracción, aplicar un porcentaje) redondean al entero más cercano y,
+ * en caso de empate, alejándose de cero (redondeo comercial). Los porcentajes se expresan en
+ * puntos básicos, centésimas de punto porcentual, para que el cálculo sea exacto: 19 % son
+ * 1900 puntos básicos.
+ * <p>
+ * Operar con importes de monedas distintas lanza {@link IllegalArgumentException}; un
+ * desbordamiento de {@code long} lanza {@link ArithmeticException}. Los objetos son inmutables.
+ * Para sumar millones de importes sin crear objetos se acumulan las unidades con
+ * {@link #getUnidades()} en un {@code long}.
+ */
+public final class Dinero implements Comparable<Dinero>, Serializable {
+
+    /**
+     * Versión de serialización de la clase.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Moneda de los importes que no indican otra: el peso colombiano.
+     */
+    public static final Currency MONEDA_LOCAL = Currency.getInstance("COP");
+
+    /**
+     * Puntos básicos de un cien por ciento.
+     */
+    public static final long PUNTOS_BASICOS_TOTAL = 10_000;
+
+    /**
+     * Cero en la moneda local.
+     */
+    public static final Dinero CERO = new Dinero(0, MONEDA_LOCAL);
+
+    /**
+     * Cantidad de unidades menores.
+     */
+    private final long unidades;
+
+    /**
+     * Moneda del importe.
+     */
+    private final Currency moneda;
+
+    private Dinero(long unidades, Currency moneda) {
+        this.unidades = unidades;
+        this.moneda = Objects.requireNonNull(moneda, "La moneda no puede ser nula.");
+    }
+
+    /**
+     * Crea un importe a partir de su cantidad de unidades menores.
+     *
+     * @param unidades Cantidad de unidades menores, por ejemplo 150 para 1,50.
+     * @param moneda   Moneda del importe.
+     * @return El importe.
+     */
+    public static Dinero deUnidades(long unidades, Currency moneda) {
+        return unidades == 0 && moneda == MONEDA_LOCAL ? CERO : new Dinero(unidades, moneda);
+    }
+
+    /**
+     * Crea un importe en moneda local a partir de su cantidad de unidades menores.
+     *
+     * @param unidades Cantidad de unidades menores.
+     * @return El importe.
+     */
+    public static Dinero deUnidades(long unidades) {
+        return deUnidades(unidades, MONEDA_LOCAL);
+    }
+
+    /**
+     * Crea un importe a partir de un valor decimal, redondeando a la unidad menor de la moneda.
+     * El valor se toma con su representación decimal más corta, así que 0.1 es exactamente
+     * una décima.
+     *
+     * @param valor  Valor en unidades mayores, por ejemplo 1.5.
+     * @param moneda Moneda del importe.
+     * @return El importe.
+     */
+    public static Dinero de(double valor, Currency moneda) {
+        if (Double.isNaN(valor) || Double.isInfinite(valor)) {
+            throw new IllegalArgumentException("El valor no es un número finito: " + valor);
+        }
+        return de(BigDecimal.valueOf(valor), moneda);
+    }
+
+    /**
+     * Crea un importe en moneda local a partir de un valor decimal.
+     *
+     * @param valor Valor en unidades mayores.
+     * @return El importe.
+     */
+    public static Dinero de(double valor) {
+        return de(valor, MONEDA_LOCAL);
+    }
+
+    /**
+     * Crea un importe a partir de un valor decimal exacto, redondeando a la unidad menor.
+     *
+     * @param valor  Valor en unidades mayores.
+     * @param moneda Moneda del importe.
+     * @return El importe.
+     */
+    public static Dinero de(BigDecimal valor, Currency moneda) {
+        BigDecimal escalado = valor.setScale(decimales(moneda), RoundingMode.HALF_UP);
+        return deUnidades(escalado.unscaledValue().longValueExact(), moneda);
+    }
+
+    /**
+     * Interpreta un importe escrito como número decimal con punto, seguido opcionalmente de
+     * un espacio y el código de la moneda: {@code "1234.5"} o {@code "12.50 USD"}. Sin código,
+     * la moneda es la local.
+     *
+     * @param texto Texto a interpretar.
+     * @return El importe.
+     * @throws IllegalArgumentException Si el texto no es un importe válido.
+     */
+    public static Dinero interpretar(String texto) {
+        String limpio = texto.trim();
+        Currency moneda = MONEDA_LOCAL;
+        int espacio = limpio.lastIndexOf(' ');
+        if (espacio > 0) {
+            moneda = Currency.getInstance(limpio.substring(espacio + 1));
+            limpio = limpio.substring(0, espacio).trim();
+        }
+        try {
+            return de(new BigDecimal(limpio), moneda);
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new IllegalArgumentException("Importe inválido: " + texto, e);
+        }
+    }
+
+    /**
+     * Obtiene el cero de una moneda.
+     *
+     * @param moneda La moneda.
+     * @return El importe cero.
+     */
+    public static Dinero cero(Currency moneda) {
+        return deUnidades(0, moneda);
+    }
+
+    public long getUnidades() {
+        return unidades;
+    }
+
+    public Currency getMoneda() {
+        return moneda;
+    }
+
+    /**
+     * Obtiene la cantidad de decimales de la moneda, es decir, cuántas unidades menores tiene
+     * una mayor como potencia de diez.
+     *
+     * @return Los decimales de la moneda.
+     */
+    public int getDecimales() {
+        return decimales(moneda);
+    }
+
+    public Dinero sumar(Dinero otro) {
+        verificarMoneda(otro);
+        return deUnidades(Math.addExact(unidades, otro.unidades), moneda);
+    }
+
+    public Dinero restar(Dinero otro) {
+        verificarMoneda(otro);
+        return deUnidades(Math.subtractExact(unidades, otro.unidades), moneda);
+    }
+
+    /**
+     * Multiplica el importe por un número entero.
+     *
+     * @param factor Factor.
+     * @return El producto exacto.
+     */
+    public Dinero multiplicar(long factor) {
+        return deUnidades(Math.multiplyExact(unidades, factor), moneda);
+    }
+
+    /**
+     * Multiplica el importe por una fracción, redondeando a la unidad menor.
+     *
+     * @param numerador   Numerador de la fracción.
+     * @param denominador Denominador de la fracción, positivo.
+     * @return El producto redondeado.
+     */
+    public Dinero multiplicar(long numerador, long denominador) {
+        return deUnidades(escalar(unidades, numerador, denominador), moneda);
+    }
+
+    /**
+     * Calcula un porcentaje del importe, redondeado a la unidad menor.
+     *
+     * @param puntosBasicos Porcentaje en puntos básicos (1900 para 19 %).
+     * @return El porcentaje del importe.
+     */
+    public Dinero porcentaje(long puntosBasicos) {
+        return multiplicar(puntosBasicos, PUNTOS_BASICOS_TOTAL);
+    }
+
+    public boolean esCero() {
+        return unidades == 0;
+    }
+
+    public boolean esNegativo() {
+        return unidades < 0;
+    }
+
+    /**
+     * Convierte el importe a un decimal exacto en unidades mayores.
+     *
+     * @return El valor decimal.
+     */
+    public BigDecimal aDecimal() {
+        return BigDecimal.valueOf(unidades, getDecimales());
+    }
+
+    /**
+     * Convierte el importe a {@code double}, solo para mostrarlo o para cálculos aproximados.
+     *
+     * @return El valor en unidades mayores.
+     */
+    public double aDouble() {
+        return aDecimal().doubleValue();
+    }
+
+    /**
+     * Escribe el valor en unidades mayores con punto decimal y todos los decimales de la
+     * moneda, sin el código de la moneda: {@code "1234.50"}.
+     *
+     * @return El valor como texto.
+     */
+    public String aTextoDecimal() {
+        return aDecimal().toPlainString();
+    }
+
+    /**
+     * Calcula {@code valor * numerador / denominador} redondeando a la unidad más cercana y,
+     * en caso de empate, alejándose de cero. Solo usa aritmética de {@code long} mientras el
+     * producto no se desborde.
+     *
+     * @param valor       Valor a escalar.
+     * @param numerador   Numerador.
+     * @param denominador Denominador, positivo.
+     * @return El valor escalado y redondeado.
+     */
+    public static long escalar(long valor, long numerador, long denominador) {
+        if (denominador <= 0) {
+            throw new IllegalArgumentException("El denominador debe ser positivo.");
+        }
+        long alto = Math.multiplyHigh(valor, numerador);
+        long producto = valor * numerador;
+        if ((alto == 0 && producto >= 0) || (alto == -1 && producto < 0)) {
+            return redondear(producto, denominador);
+        }
+        BigInteger[] division = BigInteger.valueOf(valor).multiply(BigInteger.valueOf(numerador))
+                .divideAndRemainder(BigInteger.valueOf(denominador));
+        BigInteger cociente = division[0];
+        if (division[1].abs().shiftLeft(1).compareTo(BigInteger.valueOf(denominador)) >= 0) {
+            cociente = cociente.add(BigInteger.valueOf(division[1].signum()));
+        }
+        return cociente.longValueExact();
+    }
+
+    /**
+     * Divide redondeando al entero más cercano y, en caso de empate, alejándose de cero.
+     *
+     * @param dividendo Dividendo.
+     * @param divisor   Divisor, positivo.
+     * @return El cociente redondeado.
+     */
+    public static long redondear(long dividendo, long divisor) {
+        long cociente = dividendo / divisor;
+        long resto = dividendo % divisor;
+        if (Math.abs(resto) >= divisor - Math.abs(resto)) {
+            cociente += Long.signum(resto);
+        }
+        return cociente;
+    }
+
+    /**
+     * Convierte un porcentaje decimal a puntos básicos, redondeando a la centésima de punto.
+     *
+     * @param porcentaje Porcentaje, por ejemplo 19.5.
+     * @return Los puntos básicos, por ejemplo 1950.
+     */
+    public static long puntosBasicos(double porcentaje) {
+        return Math.round(porcentaje * 100);
+    }
+
+    private static int decimales(Currency moneda) {
+        return Math.max(0, moneda.getDefaultFractionDigits());
+    }
+
+    private void verificarMoneda(Dinero otro) {
+        if (!moneda.equals(otro.moneda)) {
+            throw new IllegalArgumentException("No se pueden combinar importes en " + moneda.getCurrencyCode()
+                    + " y " + otro.moneda.getCurrencyCode() + ".");
+        }
+    }
+
+    /**
+     * Ordena por código de moneda y, dentro de una moneda, por valor.
+     */
+    @Override
+    public int compareTo(Dinero otro) {
+        int porMoneda = moneda.getCurrencyCode().compareTo(otro.moneda.getCurrencyCode());
+        return porMoneda != 0 ? porMoneda : Long.compare(unidades, otro.unidades);
+    }
+
+    @Override
+    public boolean equals(Object otro) {
+        if (this == otro) {
+            return true;
+        }
+        if (!(otro instanceof Dinero)) {
+            return false;
+        }
+        Dinero dinero = (Dinero) otro;
+        return unidades == dinero.unidades && moneda.equals(dinero.moneda);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(unidades) * 31 + moneda.hashCode();
+    }
+
+    /**
+     * Representación con el código de la moneda: {@code "1234.50 COP"}.
+     */
+    @Override
+    public String toString() {
+        return aTextoDecimal() + " " + moneda.getCurrencyCode();
+    }
+}
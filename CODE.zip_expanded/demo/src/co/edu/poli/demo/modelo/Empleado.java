@@ -1,5 +1,9 @@
 package co.edu.poli.demo.modelo;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
@@ -11,6 +15,18 @@ import java.util.List;
 public class Empleado extends Usuario implements Serializable {
     private static final long serialVersionUID = 1L;
 
+    /**
+     * Campos de la forma serializada. Se conserva {@code salario} como double, que es como lo
+     * guardaban las versiones anteriores, para poder leer sus archivos; el importe exacto va en
+     * {@code salarioExacto}. Ver {@link #readObject}.
+     */
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("cargo", String.class),
+        new ObjectStreamField("salario", double.class),
+        new ObjectStreamField("salarioExacto", Dinero.class),
+        new ObjectStreamField("tareasAsignadas", List.class)
+    };
+
     /**
      * Cargo del empleado en la empresa.
      */
@@ -19,7 +35,7 @@ public class Empleado extends Usuario implements Serializable {
     /**
      * Salario del empleado.
      */
-    private double salario;
+    private Dinero salario;
 
     /**
      * Lista de tareas asignadas al empleado.
@@ -37,13 +53,36 @@ public class Empleado extends Usuario implements Serializable {
      * @param cargo     Cargo que desempeña el empleado.
      * @param salario   Salario asignado al empleado.
      */
-    public Empleado(String idUsuario, String nombre, String correo, String telefono, boolean esAdmin, String cargo, double salario) {
+    public Empleado(String idUsuario, String nombre, String correo, String telefono, boolean esAdmin, String cargo, Dinero salario) {
         super(idUsuario, nombre, correo, telefono, esAdmin);
         this.cargo = cargo;
         this.salario = salario;
         this.tareasAsignadas = new ArrayList<>(); // Usamos ArrayList para mayor flexibilidad
     }
 
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField campos = out.putFields();
+        campos.put("cargo", cargo);
+        campos.put("salario", salario == null ? 0 : salario.aDouble());
+        campos.put("salarioExacto", salario);
+        campos.put("tareasAsignadas", tareasAsignadas);
+        out.writeFields();
+    }
+
+    /**
+     * Lee un empleado serializado. Los archivos de versiones anteriores no traen
+     * {@code salarioExacto}; su salario double se convierte a moneda local, como hace
+     * {@code CodificadorBinario} con los archivos binarios de la versión 1.
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField campos = in.readFields();
+        cargo = (String) campos.get("cargo", null);
+        salario = campos.defaulted("salarioExacto") ? Dinero.de(campos.get("salario", 0.0))
+                : (Dinero) campos.get("salarioExacto", null);
+        tareasAsignadas = (List<String>) campos.get("tareasAsignadas", null);
+    }
+
     /**
      * Obtiene el cargo del empleado.
      * 
@@ -67,7 +106,7 @@ public class Empleado extends Usuario implements Serializable {
      * 
      * @return El salario del empleado.
      */
-    public double getSalario() {
+    public Dinero getSalario() {
         return salario;
     }
 
@@ -76,7 +115,7 @@ public class Empleado extends Usuario implements Serializable {
      * 
      * @param salario El nuevo salario del empleado.
      */
-    public void setSalario(double salario) {
+    public void setSalario(Dinero salario) {
         this.salario = salario;
     }
 
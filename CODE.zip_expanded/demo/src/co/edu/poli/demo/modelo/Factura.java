@@ -1,24 +1,142 @@
 package co.edu.poli.demo.modelo;
 
+import java.time.LocalDateTime;
+
 /**
  * Clase que representa una factura.
  * Esta clase permite gestionar el monto de una factura, aplicar descuentos
  * y calcular el monto con impuestos.
+ * El monto se guarda en punto fijo ({@link Dinero}); los porcentajes se convierten
+ * a puntos básicos y cada cálculo se redondea a centavos, con los empates alejándose de cero.
+ * <p>
+ * Las facturas de una corrida de facturación además identifican al usuario facturado, el
+ * periodo y la cantidad de reservas que cubren, y guardan la tasa de impuesto que se les aplica.
  */
 public class Factura {
 
+    /**
+     * Identificador de la factura, o null si no se generó en una corrida de facturación.
+     */
+    private String idFactura;
+
+    /**
+     * Usuario facturado.
+     */
+    private Usuario usuario;
+
+    /**
+     * Inicio del periodo facturado.
+     */
+    private LocalDateTime inicioPeriodo;
+
+    /**
+     * Fin del periodo facturado (exclusivo).
+     */
+    private LocalDateTime finPeriodo;
+
+    /**
+     * Cantidad de reservas incluidas en la factura.
+     */
+    private int cantidadReservas;
+
     /**
      * Monto de la factura.
      */
-    private double monto;
+    private Dinero monto;
+
+    /**
+     * Suma de los descuentos ya restados del monto.
+     */
+    private Dinero descuento;
+
+    /**
+     * Tasa de impuesto de la factura, en porcentaje.
+     */
+    private double tasaImpuesto;
 
     /**
      * Constructor que inicializa el monto de la factura.
      *
      * @param monto El monto inicial de la factura.
      */
-    public Factura(double monto) {
+    public Factura(Dinero monto) {
         this.monto = monto;
+        this.descuento = monto == null ? null : Dinero.cero(monto.getMoneda());
+    }
+
+    /**
+     * Constructor de una factura de un usuario por las reservas de un periodo.
+     *
+     * @param idFactura        Identificador de la factura.
+     * @param usuario          Usuario facturado.
+     * @param inicioPeriodo    Inicio del periodo facturado.
+     * @param finPeriodo       Fin del periodo facturado (exclusivo).
+     * @param cantidadReservas Cantidad de reservas incluidas.
+     * @param subtotal         Suma de las tarifas de las reservas, antes de descuentos.
+     * @param descuento        Descuento total, que se resta del subtotal para obtener el monto.
+     * @param tasaImpuesto     Tasa de impuesto, en porcentaje.
+     */
+    public Factura(String idFactura, Usuario usuario, LocalDateTime inicioPeriodo, LocalDateTime finPeriodo,
+                   int cantidadReservas, Dinero subtotal, Dinero descuento, double tasaImpuesto) {
+        this.idFactura = idFactura;
+        this.usuario = usuario;
+        this.inicioPeriodo = inicioPeriodo;
+        this.finPeriodo = finPeriodo;
+        this.cantidadReservas = cantidadReservas;
+        this.monto = subtotal.restar(descuento);
+        this.descuento = descuento;
+        this.tasaImpuesto = tasaImpuesto;
+    }
+
+    public String getIdFactura() {
+        return idFactura;
+    }
+
+    public Usuario getUsuario() {
+        return usuario;
+    }
+
+    public LocalDateTime getInicioPeriodo() {
+        return inicioPeriodo;
+    }
+
+    public LocalDateTime getFinPeriodo() {
+        return finPeriodo;
+    }
+
+    public int getCantidadReservas() {
+        return cantidadReservas;
+    }
+
+    /**
+     * Obtiene la suma de los descuentos aplicados a la factura.
+     *
+     * @return El descuento total.
+     */
+    public Dinero getDescuento() {
+        return descuento;
+    }
+
+    /**
+     * Obtiene el monto antes de descuentos: el monto actual más los descuentos aplicados.
+     *
+     * @return El subtotal de la factura.
+     */
+    public Dinero getSubtotal() {
+        return descuento == null ? monto : monto.sumar(descuento);
+    }
+
+    public double getTasaImpuesto() {
+        return tasaImpuesto;
+    }
+
+    /**
+     * Obtiene el total a pagar: el monto con la tasa de impuesto de la factura.
+     *
+     * @return El monto con impuestos.
+     */
+    public Dinero getTotal() {
+        return calcularMontoConImpuesto(tasaImpuesto);
     }
 
     /**
@@ -26,7 +144,7 @@ public class Factura {
      *
      * @return El monto de la factura.
      */
-    public double getMonto() {
+    public Dinero getMonto() {
         return monto;
     }
 
@@ -35,7 +153,7 @@ public class Factura {
      *
      * @param monto El nuevo monto de la factura.
      */
-    public void setMonto(double monto) {
+    public void setMonto(Dinero monto) {
         this.monto = monto;
     }
 
@@ -49,7 +167,9 @@ public class Factura {
      */
     public void aplicarDescuento(double porcentajeDescuento) {
         if (porcentajeDescuento > 0 && porcentajeDescuento <= 100) {
-            monto -= monto * (porcentajeDescuento / 100);
+            Dinero rebaja = monto.porcentaje(Dinero.puntosBasicos(porcentajeDescuento));
+            monto = monto.restar(rebaja);
+            descuento = descuento == null ? rebaja : descuento.sumar(rebaja);
         }
     }
 
@@ -63,9 +183,9 @@ public class Factura {
      * @return El monto total con impuestos.
      *         Si la tasa de impuesto es menor o igual a 0, se devuelve el monto original.
      */
-    public double calcularMontoConImpuesto(double tasaImpuesto) {
+    public Dinero calcularMontoConImpuesto(double tasaImpuesto) {
         if (tasaImpuesto > 0) {
-            return monto + (monto * tasaImpuesto / 100);
+            return monto.sumar(monto.porcentaje(Dinero.puntosBasicos(tasaImpuesto)));
         }
         return monto;
     }
@@ -78,7 +198,12 @@ public class Factura {
      */
     @Override
     public String toString() {
-        return "Factura con monto: " + monto;
+        if (idFactura == null) {
+            return "Factura con monto: " + monto;
+        }
+        return "Factura [idFactura=" + idFactura + ", usuario=" + (usuario == null ? null : usuario.getIdUsuario())
+                + ", reservas=" + cantidadReservas + ", subtotal=" + getSubtotal() + ", descuento=" + descuento
+                + ", monto=" + monto + ", total=" + getTotal() + "]";
     }
 }
 
@@ -36,9 +36,11 @@ public class Reserva {
     private LocalDateTime fechaFin;
     
     /**
-     * Costo total de la reserva.
+     * Costo de la reserva: la tarifa de la zona por su duración, sin descuentos ni impuestos,
+     * que se aplican al facturar. Al crearla se calcula con las horas completas; al repreciarla
+     * es el subtotal que cotiza el motor de precios.
      */
-    private double costo;
+    private Dinero costo;
 
     /**
      * Constructor de la clase Reserva.
@@ -151,20 +153,20 @@ public class Reserva {
     }
 
     /**
-     * Obtiene el costo total de la reserva.
+     * Obtiene el costo de la reserva, sin descuentos ni impuestos.
      * 
-     * @return El costo total de la reserva.
+     * @return El costo de la reserva.
      */
-    public double getCosto() {
+    public Dinero getCosto() {
         return costo;
     }
 
     /**
-     * Establece el costo total de la reserva.
+     * Establece el costo de la reserva, sin descuentos ni impuestos.
      * 
-     * @param costo El costo total de la reserva.
+     * @param costo El costo de la reserva.
      */
-    public void setCosto(double costo) {
+    public void setCosto(Dinero costo) {
         this.costo = costo;
     }
 
@@ -175,7 +177,7 @@ public class Reserva {
      * @return El costo total de la reserva.
      * @throws IllegalArgumentException Si la fecha de inicio es posterior a la fecha de fin.
      */
-    private double calcularCosto() {
+    private Dinero calcularCosto() {
         // Calcular la duración de la reserva en horas
         Duration duration = Duration.between(fechaInicio, fechaFin);
         long horas = duration.toHours();
@@ -184,7 +186,7 @@ public class Reserva {
         if (horas < 0) {
             throw new IllegalArgumentException("La fecha de inicio no puede ser posterior a la fecha de fin.");
         }
-        return zona.getCostoPorHora() * horas;
+        return zona.getCostoPorHora().multiplicar(horas);
     }
 
     /**
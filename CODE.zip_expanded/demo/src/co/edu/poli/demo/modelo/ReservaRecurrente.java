@@ -0,0 +1,422 @@
+package co.edu.poli.demo.modelo;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * Clase que representa una reserva que se repite, por ejemplo una liga que usa la misma
+ * cancha todos los martes durante un año. En lugar de guardar cada ocurrencia se guarda la
+ * regla: la primera ocurrencia, su duración, cada cuántos días se repite, hasta qué fecha y
+ * las fechas excluidas. Las ocurrencias se calculan solo cuando se consulta un rango de
+ * tiempo, así que la memoria no depende de cuántas veces se repite la reserva.
+ * <p>
+ * Cada ocurrencia empieza el mismo número de días después de la anterior, a la misma hora,
+ * y se identifica por su fecha de inicio. Las ocurrencias de una misma regla no se solapan
+ * entre sí: la duración no puede superar el periodo.
+ */
+public class ReservaRecurrente {
+
+    /**
+     * Frecuencia base de la repetición.
+     */
+    public enum Frecuencia {
+        DIARIA(1),
+        SEMANAL(7);
+
+        private final int dias;
+
+        Frecuencia(int dias) {
+            this.dias = dias;
+        }
+
+        /**
+         * Obtiene la cantidad de días de la frecuencia.
+         *
+         * @return Los días entre dos ocurrencias con intervalo 1.
+         */
+        public int getDias() {
+            return dias;
+        }
+    }
+
+    /**
+     * Última fecha en que puede empezar una ocurrencia de una regla sin fin, con margen para
+     * que las fechas calculadas no se salgan del rango de {@link LocalDateTime}.
+     */
+    private static final LocalDate SIN_FIN = LocalDate.MAX.minusYears(1);
+
+    private static final long SEGUNDOS_POR_DIA = 86_400L;
+
+    /**
+     * Identificador único de la regla. Las ocurrencias se identifican con él y su fecha.
+     */
+    private final String idRecurrencia;
+
+    /**
+     * El usuario que realiza la reserva.
+     */
+    private final Usuario usuario;
+
+    /**
+     * La zona del parque que se reserva en cada ocurrencia.
+     */
+    private final Zona zona;
+
+    /**
+     * Fecha y hora de inicio de la primera ocurrencia.
+     */
+    private final LocalDateTime primerInicio;
+
+    /**
+     * Duración de cada ocurrencia.
+     */
+    private final Duration duracion;
+
+    private final Frecuencia frecuencia;
+
+    /**
+     * Cantidad de periodos de la frecuencia entre dos ocurrencias: 2 con frecuencia semanal
+     * es cada dos semanas.
+     */
+    private final int intervalo;
+
+    /**
+     * Última fecha en que puede empezar una ocurrencia, o null si la regla no tiene fin.
+     */
+    private final LocalDate hasta;
+
+    /**
+     * Fechas de inicio de las ocurrencias que no se realizan.
+     */
+    private final TreeSet<LocalDate> excepciones;
+
+    private final long periodoDias;
+
+    /**
+     * Número de la última ocurrencia, contando desde 0, sin descontar las excepciones.
+     */
+    private final long ultima;
+
+    /**
+     * Constructor de la clase ReservaRecurrente.
+     *
+     * @param idRecurrencia Identificador único de la regla.
+     * @param usuario       El usuario que realiza la reserva.
+     * @param zona          La zona que se reserva.
+     * @param primerInicio  Fecha y hora de inicio de la primera ocurrencia.
+     * @param duracion      Duración de cada ocurrencia.
+     * @param frecuencia    Frecuencia de la repetición.
+     * @param intervalo     Cantidad de periodos de la frecuencia entre ocurrencias (1 o más).
+     * @param hasta         Última fecha en que puede empezar una ocurrencia, o null si no tiene fin.
+     * @throws IllegalArgumentException Si falta un dato, el intervalo no es positivo, la duración
+     *                                  no es positiva o supera el periodo, o el fin es anterior a
+     *                                  la primera ocurrencia.
+     */
+    public ReservaRecurrente(String idRecurrencia, Usuario usuario, Zona zona, LocalDateTime primerInicio,
+                             Duration duracion, Frecuencia frecuencia, int intervalo, LocalDate hasta) {
+        if (zona == null || primerInicio == null || duracion == null || frecuencia == null) {
+            throw new IllegalArgumentException("La zona, el inicio, la duración y la frecuencia son obligatorios.");
+        }
+        if (intervalo < 1) {
+            throw new IllegalArgumentException("El intervalo de repetición debe ser positivo.");
+        }
+        long periodo = (long) frecuencia.getDias() * intervalo;
+        if (duracion.isNegative() || duracion.isZero() || duracion.compareTo(Duration.ofDays(periodo)) > 0) {
+            throw new IllegalArgumentException("La duración debe ser positiva y no superar el periodo de repetición.");
+        }
+        LocalDate limite = hasta == null ? SIN_FIN : hasta;
+        if (limite.isBefore(primerInicio.toLocalDate()) || limite.isAfter(SIN_FIN)) {
+            throw new IllegalArgumentException("La fecha final de la repetición no es válida.");
+        }
+        this.idRecurrencia = idRecurrencia;
+        this.usuario = usuario;
+        this.zona = zona;
+        this.primerInicio = primerInicio;
+        this.duracion = duracion;
+        this.frecuencia = frecuencia;
+        this.intervalo = intervalo;
+        this.hasta = hasta;
+        this.excepciones = new TreeSet<>();
+        this.periodoDias = periodo;
+        this.ultima = ChronoUnit.DAYS.between(primerInicio.toLocalDate(), limite) / periodo;
+    }
+
+    /**
+     * Constructor que copia otra regla, con sus excepciones.
+     *
+     * @param otra La regla a copiar.
+     */
+    public ReservaRecurrente(ReservaRecurrente otra) {
+        this(otra.idRecurrencia, otra.usuario, otra.zona, otra.primerInicio, otra.duracion, otra.frecuencia,
+                otra.intervalo, otra.hasta);
+        this.excepciones.addAll(otra.excepciones);
+    }
+
+    // Getters
+
+    public String getIdRecurrencia() {
+        return idRecurrencia;
+    }
+
+    public Usuario getUsuario() {
+        return usuario;
+    }
+
+    public Zona getZona() {
+        return zona;
+    }
+
+    public LocalDateTime getPrimerInicio() {
+        return primerInicio;
+    }
+
+    public Duration getDuracion() {
+        return duracion;
+    }
+
+    public Frecuencia getFrecuencia() {
+        return frecuencia;
+    }
+
+    public int getIntervalo() {
+        return intervalo;
+    }
+
+    public LocalDate getHasta() {
+        return hasta;
+    }
+
+    /**
+     * Obtiene los días entre el inicio de dos ocurrencias seguidas.
+     *
+     * @return El periodo en días.
+     */
+    public long getPeriodoDias() {
+        return periodoDias;
+    }
+
+    /**
+     * Obtiene el fin de la última ocurrencia posible, sin descontar las excepciones.
+     *
+     * @return La fecha y hora de fin, o null si la regla no tiene fin.
+     */
+    public LocalDateTime getUltimoFin() {
+        return hasta == null ? null : finDe(ultima);
+    }
+
+    /**
+     * Obtiene las fechas excluidas, en orden.
+     *
+     * @return Vista de solo lectura de las excepciones.
+     */
+    public NavigableSet<LocalDate> getExcepciones() {
+        return Collections.unmodifiableNavigableSet(excepciones);
+    }
+
+    /**
+     * Excluye la ocurrencia que empieza en una fecha, por ejemplo un festivo. Para que el
+     * cambio quede registrado, la regla debe actualizarse después en el almacén.
+     *
+     * @param fecha Fecha de inicio de la ocurrencia.
+     * @return true si la fecha tenía una ocurrencia que no estaba excluida.
+     */
+    public boolean excluir(LocalDate fecha) {
+        return esFechaDeOcurrencia(fecha) && excepciones.add(fecha);
+    }
+
+    /**
+     * Vuelve a incluir una ocurrencia excluida.
+     *
+     * @param fecha Fecha de inicio de la ocurrencia.
+     * @return true si la fecha estaba excluida.
+     */
+    public boolean restablecer(LocalDate fecha) {
+        return excepciones.remove(fecha);
+    }
+
+    /**
+     * Indica si la regla tiene una ocurrencia, no excluida, que empieza en una fecha.
+     *
+     * @param fecha La fecha.
+     * @return true si hay una ocurrencia ese día.
+     */
+    public boolean tieneOcurrencia(LocalDate fecha) {
+        return esFechaDeOcurrencia(fecha) && !excepciones.contains(fecha);
+    }
+
+    /**
+     * Busca la primera ocurrencia que se cruza con un rango de tiempo semiabierto. Solo se
+     * calculan las ocurrencias que caen en el rango.
+     *
+     * @param inicio Inicio del rango.
+     * @param fin    Fin del rango.
+     * @return El inicio de la ocurrencia, o null si ninguna se cruza con el rango.
+     */
+    public LocalDateTime buscarOcurrencia(LocalDateTime inicio, LocalDateTime fin) {
+        long ultimaEnRango = ultimaQueEmpiezaAntes(fin);
+        for (long k = primeraQueTerminaDespues(inicio); k <= ultimaEnRango; k++) {
+            LocalDateTime inicioOcurrencia = inicioDe(k);
+            if (!excepciones.contains(inicioOcurrencia.toLocalDate())) {
+                return inicioOcurrencia;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Obtiene las ocurrencias que se cruzan con un rango de tiempo semiabierto, como reservas
+     * con identificador {@code idRecurrencia@fecha}.
+     *
+     * @param inicio Inicio del rango.
+     * @param fin    Fin del rango.
+     * @return Lista nueva con las ocurrencias, ordenadas por inicio.
+     */
+    public List<Reserva> ocurrenciasEntre(LocalDateTime inicio, LocalDateTime fin) {
+        List<Reserva> resultado = new ArrayList<>();
+        long ultimaEnRango = ultimaQueEmpiezaAntes(fin);
+        for (long k = primeraQueTerminaDespues(inicio); k <= ultimaEnRango; k++) {
+            LocalDateTime inicioOcurrencia = inicioDe(k);
+            if (!excepciones.contains(inicioOcurrencia.toLocalDate())) {
+                resultado.add(crearOcurrencia(inicioOcurrencia));
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Busca una ocurrencia de esta regla que se cruce con una ocurrencia de otra. Después de
+     * que ambas empiezan y de su última excepción, los cruces se repiten con un periodo igual
+     * al mínimo común múltiplo de los dos periodos, así que basta revisar hasta ahí aunque las
+     * reglas no tengan fin.
+     *
+     * @param otra La otra regla.
+     * @return El inicio de la primera ocurrencia de esta regla que se cruza con la otra, o
+     *         null si no se cruzan.
+     */
+    public LocalDateTime buscarCruce(ReservaRecurrente otra) {
+        LocalDate base = max(primerInicio.toLocalDate(), otra.primerInicio.toLocalDate());
+        if (!excepciones.isEmpty()) {
+            base = max(base, excepciones.last().plusDays(1));
+        }
+        if (!otra.excepciones.isEmpty()) {
+            base = max(base, otra.excepciones.last().plusDays(1));
+        }
+        long repeticion = saturar(minimoComunMultiplo(periodoDias, otra.periodoDias),
+                Math.max(periodoDias, otra.periodoDias) + 1);
+        LocalDateTime limite = base.plusDays(Math.max(0, Math.min(repeticion, ChronoUnit.DAYS.between(base, SIN_FIN))))
+                .atStartOfDay();
+        LocalDateTime finOtra = otra.finDe(otra.ultima);
+        if (finOtra.isBefore(limite)) {
+            limite = finOtra;
+        }
+        long ultimaEnRango = ultimaQueEmpiezaAntes(limite);
+        for (long k = primeraQueTerminaDespues(otra.primerInicio); k <= ultimaEnRango; k++) {
+            LocalDateTime inicioOcurrencia = inicioDe(k);
+            if (!excepciones.contains(inicioOcurrencia.toLocalDate())
+                    && otra.buscarOcurrencia(inicioOcurrencia, inicioOcurrencia.plus(duracion)) != null) {
+                return inicioOcurrencia;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Crea la ocurrencia que empieza en un instante, que debe ser el de una ocurrencia.
+     */
+    private Reserva crearOcurrencia(LocalDateTime inicioOcurrencia) {
+        return new Reserva(idRecurrencia + "@" + inicioOcurrencia.toLocalDate(), usuario, zona, inicioOcurrencia,
+                inicioOcurrencia.plus(duracion));
+    }
+
+    private boolean esFechaDeOcurrencia(LocalDate fecha) {
+        long dias = ChronoUnit.DAYS.between(primerInicio.toLocalDate(), fecha);
+        return dias >= 0 && dias % periodoDias == 0 && dias / periodoDias <= ultima;
+    }
+
+    private LocalDateTime inicioDe(long k) {
+        return primerInicio.plusDays(k * periodoDias);
+    }
+
+    private LocalDateTime finDe(long k) {
+        return inicioDe(k).plus(duracion);
+    }
+
+    /**
+     * Número de la primera ocurrencia que termina después de un instante, o la siguiente a la
+     * última si ninguna. Como la duración no supera el periodo, la estimación por división
+     * queda a lo sumo a una ocurrencia del resultado.
+     */
+    private long primeraQueTerminaDespues(LocalDateTime instante) {
+        if (!instante.isAfter(primerInicio)) {
+            return 0;
+        }
+        long k = Math.min(Math.max(estimar(instante) - 1, 0), ultima + 1);
+        while (k <= ultima && !finDe(k).isAfter(instante)) {
+            k++;
+        }
+        while (k > 0 && finDe(k - 1).isAfter(instante)) {
+            k--;
+        }
+        return k;
+    }
+
+    /**
+     * Número de la última ocurrencia que empieza antes de un instante, o -1 si ninguna.
+     */
+    private long ultimaQueEmpiezaAntes(LocalDateTime instante) {
+        if (!instante.isAfter(primerInicio)) {
+            return -1;
+        }
+        long k = Math.min(Math.max(estimar(instante), -1), ultima);
+        while (k >= 0 && !inicioDe(k).isBefore(instante)) {
+            k--;
+        }
+        while (k < ultima && inicioDe(k + 1).isBefore(instante)) {
+            k++;
+        }
+        return k;
+    }
+
+    private long estimar(LocalDateTime instante) {
+        return Math.floorDiv(ChronoUnit.SECONDS.between(primerInicio, instante), periodoDias * SEGUNDOS_POR_DIA);
+    }
+
+    private static long minimoComunMultiplo(long a, long b) {
+        long x = a;
+        long y = b;
+        while (y != 0) {
+            long resto = x % y;
+            x = y;
+            y = resto;
+        }
+        long factor = a / x;
+        return factor > Long.MAX_VALUE / b ? Long.MAX_VALUE : factor * b;
+    }
+
+    private static long saturar(long a, long b) {
+        return a > Long.MAX_VALUE - b ? Long.MAX_VALUE : a + b;
+    }
+
+    private static LocalDate max(LocalDate a, LocalDate b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    /**
+     * Método para mostrar los detalles de la reserva recurrente.
+     *
+     * @return Una representación en forma de cadena con los detalles de la regla.
+     */
+    @Override
+    public String toString() {
+        return "ReservaRecurrente [idRecurrencia=" + idRecurrencia + ", zona=" + zona.getNombre()
+                + ", primerInicio=" + primerInicio + ", duracion=" + duracion + ", frecuencia=" + frecuencia
+                + ", intervalo=" + intervalo + ", hasta=" + hasta + ", excepciones=" + excepciones.size() + "]";
+    }
+}
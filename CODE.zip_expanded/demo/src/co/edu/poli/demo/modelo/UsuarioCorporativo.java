@@ -107,9 +107,10 @@ public class UsuarioCorporativo extends Usuario implements Serializable {
      * @param asistentes La cantidad de asistentes al evento.
      * @return El costo total del evento, con posible descuento.
      */
-    public double calcularCostoEvento(double tarifaBase, int asistentes) {
-        double descuento = (eventosOrganizados >= 5) ? 0.1 : 0; // 10% de descuento si ha organizado 5 o más eventos
-        return tarifaBase * asistentes * (1 - descuento);
+    public Dinero calcularCostoEvento(Dinero tarifaBase, int asistentes) {
+        Dinero costo = tarifaBase.multiplicar(asistentes);
+        long descuento = (eventosOrganizados >= 5) ? 1000 : 0; // 10% (1000 puntos básicos) si ha organizado 5 o más eventos
+        return costo.restar(costo.porcentaje(descuento));
     }
 
     /**
@@ -106,10 +106,10 @@ public class UsuarioFrecuente extends Usuario implements Serializable {
      * Método que calcula el descuento aplicado sobre el costo de una reserva.
      * 
      * @param costoReserva El costo total de la reserva.
-     * @return El valor del descuento a aplicar sobre el costo de la reserva.
+     * @return El valor del descuento a aplicar sobre el costo de la reserva, redondeado a centavos.
      */
-    public double calcularDescuento(double costoReserva) {
-        return costoReserva * (descuento / 100);
+    public Dinero calcularDescuento(Dinero costoReserva) {
+        return costoReserva.porcentaje(Dinero.puntosBasicos(descuento));
     }
 
     /**
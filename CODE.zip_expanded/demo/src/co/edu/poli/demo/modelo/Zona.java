@@ -4,7 +4,7 @@ public class Zona {
     private String idZona;         // Identificador único para la zona
     private String nombre;         // Nombre de la zona (por ejemplo, "Cancha", "Salón")
     private String tipo;           // Tipo de la zona (ejemplo: "Cancha", "Salón", "Zona de Picnic")
-    private double costoPorHora;   // Costo por hora de alquiler de la zona
+    private Dinero costoPorHora;   // Costo por hora de alquiler de la zona; el almacén no acepta zonas sin él
     private boolean disponible;    // Indica si la zona está disponible para alquiler.
 
     /**
@@ -14,7 +14,7 @@ public class Zona {
      * @param tipo Tipo de la zona (Ejemplo: "Cancha", "Salón")
      * @param costoPorHora Costo por hora de alquiler de la zona
      */
-    public Zona(String idZona, String nombre, String tipo, double costoPorHora) {
+    public Zona(String idZona, String nombre, String tipo, Dinero costoPorHora) {
         this.idZona = idZona;
         this.nombre = nombre;
         this.tipo = tipo;
@@ -47,11 +47,11 @@ public class Zona {
         this.tipo = tipo;
     }
 
-    public double getCostoPorHora() {
+    public Dinero getCostoPorHora() {
         return costoPorHora;
     }
 
-    public void setCostoPorHora(double costoPorHora) {
+    public void setCostoPorHora(Dinero costoPorHora) {
         this.costoPorHora = costoPorHora;
     }
 
@@ -72,11 +72,11 @@ public class Zona {
      * @param horas Número de horas de alquiler
      * @return Costo total del alquiler
      */
-    public double calcularCostoAlquiler(int horas) {
+    public Dinero calcularCostoAlquiler(int horas) {
         if (horas < 0) {
             throw new IllegalArgumentException("Las horas de alquiler no pueden ser negativas.");
         }
-        return costoPorHora * horas; // Cálculo del costo
+        return costoPorHora.multiplicar(horas); // Cálculo exacto del costo
     }
 
     /**
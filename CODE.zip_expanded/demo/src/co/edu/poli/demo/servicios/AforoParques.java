@@ -0,0 +1,299 @@
+package co.edu.poli.demo.servicios;
+
+import co.edu.poli.demo.modelo.Parque;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Ocupación en tiempo real de los parques, alimentada por las entradas y salidas que
+ * registran las terminales de cada puerta.
+ * <p>
+ * Ningún registro toma cerrojos: la ocupación de cada parque es un {@link LongAdder}, que
+ * reparte las sumas de hilos distintos en celdas separadas, y cada puerta lleva sus propios
+ * contadores de entradas y salidas. Tras cada movimiento se compara la ocupación con los
+ * umbrales de alerta, en porcentaje de {@link Parque#getCapacidad()}; mientras no se cruce
+ * ninguno, la comprobación solo lee. Al cruzar un umbral, un único hilo gana el cambio de
+ * nivel con compare-and-set y envía las alertas.
+ * <p>
+ * El umbral del 100 % siempre está incluido: al alcanzarlo el parque se marca como no
+ * disponible y, al bajar de él, vuelve a estar disponible. Un parque que ya estaba cerrado
+ * a mano antes de llenarse no se reabre solo.
+ * <p>
+ * La ocupación es una suma de celdas sin instantánea atómica, así que los registros no
+ * rechazan entradas: con movimientos simultáneos el cruce de un umbral puede detectarse
+ * uno o dos movimientos tarde, y el estado se corrige con el siguiente movimiento. Los
+ * parques sin capacidad positiva no generan alertas.
+ */
+public class AforoParques {
+
+    /**
+     * Umbrales de alerta, en porcentaje de la capacidad, ordenados de menor a mayor.
+     */
+    private final int[] umbrales;
+
+    /**
+     * Posición del umbral del 100 % en {@link #umbrales}.
+     */
+    private final int posicionLleno;
+
+    /**
+     * Ocupación de cada parque, por nombre de parque.
+     */
+    private final ConcurrentHashMap<String, Aforo> parques;
+
+    private volatile Consumer<AlertaAforo> escucha;
+
+    /**
+     * Constructor con alertas al 80 %, 90 % y 100 % de la capacidad.
+     */
+    public AforoParques() {
+        this(80, 90);
+    }
+
+    /**
+     * Constructor con umbrales de alerta propios. El 100 % se agrega siempre.
+     *
+     * @param umbrales Umbrales en porcentaje de la capacidad, positivos.
+     */
+    public AforoParques(int... umbrales) {
+        int[] ordenados = Arrays.copyOf(umbrales, umbrales.length + 1);
+        ordenados[umbrales.length] = 100;
+        ordenados = Arrays.stream(ordenados).sorted().distinct().toArray();
+        if (ordenados[0] <= 0) {
+            throw new IllegalArgumentException("Los umbrales deben ser positivos.");
+        }
+        this.umbrales = ordenados;
+        this.posicionLleno = Arrays.binarySearch(ordenados, 100);
+        this.parques = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Establece el receptor de las alertas. Se llama desde el hilo de la terminal que
+     * registró el movimiento, así que debe ser rápido.
+     *
+     * @param escucha Receptor de las alertas, o null para ninguno.
+     */
+    public void setEscucha(Consumer<AlertaAforo> escucha) {
+        this.escucha = escucha;
+    }
+
+    /**
+     * Empieza a llevar la ocupación de un parque, con ocupación cero.
+     *
+     * @param parque El parque.
+     * @return Un mensaje indicando el éxito o fallo de la operación.
+     */
+    public String registrarParque(Parque parque) {
+        if (parque.getNombre() == null) {
+            return "Error: el parque no tiene nombre.";
+        }
+        if (parques.putIfAbsent(parque.getNombre(), new Aforo(parque)) != null) {
+            return "Error: ya se lleva la ocupación del parque " + parque.getNombre() + ".";
+        }
+        return "Parque registrado para control de aforo.";
+    }
+
+    /**
+     * Deja de llevar la ocupación de un parque.
+     *
+     * @param nombre Nombre del parque.
+     * @return El parque, o null si no estaba registrado.
+     */
+    public Parque quitarParque(String nombre) {
+        Aforo aforo = parques.remove(nombre);
+        return aforo == null ? null : aforo.parque;
+    }
+
+    /**
+     * Registra la entrada de una persona por una puerta.
+     *
+     * @param nombre Nombre del parque.
+     * @param puerta Identificador de la puerta.
+     * @return La ocupación del parque después de la entrada.
+     * @throws IllegalArgumentException Si el parque no está registrado.
+     */
+    public long registrarEntrada(String nombre, String puerta) {
+        Aforo aforo = aforo(nombre);
+        aforo.puerta(puerta).entradas.increment();
+        aforo.ocupacion.increment();
+        return revisar(aforo);
+    }
+
+    /**
+     * Registra la salida de una persona por una puerta.
+     *
+     * @param nombre Nombre del parque.
+     * @param puerta Identificador de la puerta.
+     * @return La ocupación del parque después de la salida.
+     * @throws IllegalArgumentException Si el parque no está registrado.
+     */
+    public long registrarSalida(String nombre, String puerta) {
+        Aforo aforo = aforo(nombre);
+        aforo.puerta(puerta).salidas.increment();
+        aforo.ocupacion.decrement();
+        return revisar(aforo);
+    }
+
+    /**
+     * Obtiene la ocupación actual de un parque.
+     *
+     * @param nombre Nombre del parque.
+     * @return Personas dentro del parque, o 0 si no está registrado.
+     */
+    public long getOcupacion(String nombre) {
+        Aforo aforo = parques.get(nombre);
+        return aforo == null ? 0 : aforo.ocupacion.sum();
+    }
+
+    /**
+     * Indica si un parque tiene cupo para una persona más.
+     *
+     * @param nombre Nombre del parque.
+     * @return true si la ocupación está por debajo de la capacidad.
+     */
+    public boolean hayCupo(String nombre) {
+        Aforo aforo = parques.get(nombre);
+        return aforo != null && aforo.ocupacion.sum() < aforo.parque.getCapacidad();
+    }
+
+    /**
+     * Obtiene las entradas registradas por una puerta.
+     *
+     * @param nombre Nombre del parque.
+     * @param puerta Identificador de la puerta.
+     * @return Cantidad de entradas, o 0 si la puerta no registró ninguna.
+     */
+    public long getEntradas(String nombre, String puerta) {
+        Puerta contadores = contadores(nombre, puerta);
+        return contadores == null ? 0 : contadores.entradas.sum();
+    }
+
+    /**
+     * Obtiene las salidas registradas por una puerta.
+     *
+     * @param nombre Nombre del parque.
+     * @param puerta Identificador de la puerta.
+     * @return Cantidad de salidas, o 0 si la puerta no registró ninguna.
+     */
+    public long getSalidas(String nombre, String puerta) {
+        Puerta contadores = contadores(nombre, puerta);
+        return contadores == null ? 0 : contadores.salidas.sum();
+    }
+
+    private Aforo aforo(String nombre) {
+        Aforo aforo = parques.get(nombre);
+        if (aforo == null) {
+            throw new IllegalArgumentException("El parque " + nombre + " no está registrado para control de aforo.");
+        }
+        return aforo;
+    }
+
+    private Puerta contadores(String nombre, String puerta) {
+        Aforo aforo = parques.get(nombre);
+        return aforo == null ? null : aforo.puertas.get(puerta);
+    }
+
+    /**
+     * Compara la ocupación con el nivel de alerta actual y, si cambió, lo actualiza. Se
+     * repite hasta que la ocupación leída coincida con el nivel, de modo que un hilo con una
+     * lectura vieja no deja un nivel equivocado.
+     *
+     * @return La última ocupación leída.
+     */
+    private long revisar(Aforo aforo) {
+        while (true) {
+            long ocupacion = aforo.ocupacion.sum();
+            int capacidad = aforo.parque.getCapacidad();
+            int nuevo = nivel(ocupacion, capacidad);
+            int actual = aforo.nivel.get();
+            if (nuevo == actual) {
+                return ocupacion;
+            }
+            if (aforo.nivel.compareAndSet(actual, nuevo)) {
+                aforo.ajustarDisponibilidad(posicionLleno);
+                avisar(aforo, actual, nuevo, ocupacion, capacidad);
+            }
+        }
+    }
+
+    /**
+     * Cantidad de umbrales alcanzados por una ocupación.
+     */
+    private int nivel(long ocupacion, int capacidad) {
+        if (capacidad <= 0) {
+            return 0;
+        }
+        int nivel = 0;
+        while (nivel < umbrales.length && ocupacion * 100 >= (long) umbrales[nivel] * capacidad) {
+            nivel++;
+        }
+        return nivel;
+    }
+
+    private void avisar(Aforo aforo, int anterior, int nuevo, long ocupacion, int capacidad) {
+        Consumer<AlertaAforo> receptor = escucha;
+        if (receptor == null) {
+            return;
+        }
+        String nombre = aforo.parque.getNombre();
+        for (int i = anterior; i < nuevo; i++) {
+            receptor.accept(new AlertaAforo(nombre, umbrales[i], ocupacion, capacidad, true));
+        }
+        for (int i = anterior - 1; i >= nuevo; i--) {
+            receptor.accept(new AlertaAforo(nombre, umbrales[i], ocupacion, capacidad, false));
+        }
+    }
+
+    /**
+     * Ocupación, nivel de alerta y contadores por puerta de un parque.
+     */
+    private static final class Aforo {
+        private final Parque parque;
+        private final LongAdder ocupacion;
+        private final AtomicInteger nivel;
+        private final ConcurrentHashMap<String, Puerta> puertas;
+
+        /**
+         * Indica si el parque lo cerró el control de aforo, para reabrirlo solo en ese caso.
+         */
+        private boolean cerradoPorAforo;
+
+        private Aforo(Parque parque) {
+            this.parque = parque;
+            this.ocupacion = new LongAdder();
+            this.nivel = new AtomicInteger();
+            this.puertas = new ConcurrentHashMap<>();
+        }
+
+        private Puerta puerta(String puerta) {
+            Puerta contadores = puertas.get(puerta);
+            return contadores != null ? contadores : puertas.computeIfAbsent(puerta, p -> new Puerta());
+        }
+
+        /**
+         * Cierra o reabre el parque según el nivel vigente. Solo se llama al cambiar de
+         * nivel, y el cerrojo evita que dos cambios seguidos se apliquen en desorden.
+         */
+        private synchronized void ajustarDisponibilidad(int posicionLleno) {
+            boolean lleno = nivel.get() > posicionLleno;
+            if (lleno && parque.isDisponible()) {
+                parque.setDisponible(false);
+                cerradoPorAforo = true;
+            } else if (!lleno && cerradoPorAforo) {
+                parque.setDisponible(true);
+                cerradoPorAforo = false;
+            }
+        }
+    }
+
+    /**
+     * Contadores de una puerta.
+     */
+    private static final class Puerta {
+        private final LongAdder entradas = new LongAdder();
+        private final LongAdder salidas = new LongAdder();
+    }
+}
@@ -0,0 +1,57 @@
+package co.edu.poli.demo.servicios;
+
+/**
+ * Aviso de {@link AforoParques} cuando la ocupación de un parque cruza uno de los umbrales
+ * configurados, en porcentaje de su capacidad. Es inmutable.
+ */
+public class AlertaAforo {
+
+    private final String parque;
+    private final int umbral;
+    private final long ocupacion;
+    private final int capacidad;
+    private final boolean subiendo;
+
+    /**
+     * Constructor de la alerta.
+     *
+     * @param parque    Nombre del parque.
+     * @param umbral    Umbral cruzado, en porcentaje de la capacidad.
+     * @param ocupacion Ocupación que se leyó al cruzar el umbral.
+     * @param capacidad Capacidad del parque en ese momento.
+     * @param subiendo  true si la ocupación alcanzó el umbral, false si bajó de él.
+     */
+    public AlertaAforo(String parque, int umbral, long ocupacion, int capacidad, boolean subiendo) {
+        this.parque = parque;
+        this.umbral = umbral;
+        this.ocupacion = ocupacion;
+        this.capacidad = capacidad;
+        this.subiendo = subiendo;
+    }
+
+    public String getParque() {
+        return parque;
+    }
+
+    public int getUmbral() {
+        return umbral;
+    }
+
+    public long getOcupacion() {
+        return ocupacion;
+    }
+
+    public int getCapacidad() {
+        return capacidad;
+    }
+
+    public boolean isSubiendo() {
+        return subiendo;
+    }
+
+    @Override
+    public String toString() {
+        return "AlertaAforo [parque=" + parque + ", umbral=" + umbral + "%, ocupacion=" + ocupacion + "/"
+                + capacidad + ", " + (subiendo ? "alcanzado" : "liberado") + "]";
+    }
+}
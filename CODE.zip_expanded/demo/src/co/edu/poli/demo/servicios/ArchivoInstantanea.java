@@ -0,0 +1,563 @@
+package co.edu.poli.demo.servicios;
+
+import co.edu.poli.demo.modelo.Dinero;
+import co.edu.poli.demo.modelo.Reserva;
+import co.edu.poli.demo.modelo.ReservaRecurrente;
+import co.edu.poli.demo.modelo.Usuario;
+import co.edu.poli.demo.modelo.Zona;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Formato binario versionado para guardar usuarios, zonas, reservas y reservas recurrentes,
+ * que reemplaza a la serialización de Java. Se escribe a través de un {@link FileChannel} y
+ * se lee con {@link MappedByteBuffer}, sin reflexión y sin exigir que las entidades sean
+ * serializables.
+ * <p>
+ * Estructura del archivo:
+ * <ul>
+ * <li>Cabecera de 40 bytes: número mágico (int), versión (short), reservado (short) y la
+ * cantidad de usuarios, zonas, reservas y reservas recurrentes (un long cada una). Hasta la
+ * versión 2 la cabecera era de 32 bytes, sin reservas recurrentes.</li>
+ * <li>Registros: tipo de entidad (byte), longitud del contenido (int) y el contenido
+ * codificado con {@link CodificadorBinario}. Cada usuario lleva además la etiqueta de su
+ * subclase. Los usuarios van primero, luego las zonas, las reservas y al final las reservas
+ * recurrentes, de modo que al leer una reserva ya se conocen su usuario y su zona.</li>
+ * </ul>
+ * El archivo se escribe primero en un temporal que luego reemplaza al destino, así que
+ * nunca queda a medio escribir.
+ */
+public class ArchivoInstantanea {
+
+    /**
+     * Número mágico que identifica el formato ("PQDB").
+     */
+    public static final int MAGIA = 0x50514442;
+
+    /**
+     * Versión actual del formato, la misma de la codificación de su contenido
+     * ({@link CodificadorBinario#VERSION}). Se siguen leyendo los archivos de la versión 1,
+     * con los importes como {@code double}.
+     */
+    public static final short VERSION = CodificadorBinario.VERSION;
+
+    /**
+     * Tamaño de la cabecera en bytes, y el de la cabecera de las versiones 1 y 2.
+     */
+    private static final int CABECERA = 40;
+    private static final int CABECERA_ANTERIOR = 32;
+
+    /**
+     * Tamaño de la cabecera de cada registro: tipo y longitud.
+     */
+    private static final int CABECERA_REGISTRO = 5;
+
+    /**
+     * Tamaño del búfer de escritura.
+     */
+    private static final int BUFER_ESCRITURA = 1 << 20;
+
+    /**
+     * Tamaño de la ventana que se mapea en memoria al leer.
+     */
+    private static final long VENTANA_LECTURA = 64L << 20;
+
+    /**
+     * Receptor de los registros leídos de un archivo.
+     */
+    public interface Lector {
+        /**
+         * Recibe un registro.
+         *
+         * @param entidad Tipo de entidad ({@link RegistroEscritura#USUARIO}, {@link RegistroEscritura#ZONA},
+         *                {@link RegistroEscritura#RESERVA} o {@link RegistroEscritura#RECURRENCIA}).
+         * @param version Versión de la codificación del contenido.
+         * @param datos   Contenido del registro, limitado a su longitud.
+         * @throws IOException Si el contenido no se puede interpretar.
+         */
+        void leer(byte entidad, int version, ByteBuffer datos) throws IOException;
+    }
+
+    private ArchivoInstantanea() {
+        // Solo métodos estáticos
+    }
+
+    /**
+     * Indica si un archivo tiene la cabecera de este formato.
+     *
+     * @param archivo Ruta del archivo.
+     * @return true si el archivo existe y empieza con el número mágico del formato.
+     */
+    public static boolean esInstantanea(Path archivo) {
+        if (!Files.isRegularFile(archivo)) {
+            return false;
+        }
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            ByteBuffer magia = ByteBuffer.allocate(4);
+            while (magia.hasRemaining() && canal.read(magia) >= 0) {
+                // Lee hasta completar los cuatro bytes o llegar al final
+            }
+            return !magia.hasRemaining() && magia.getInt(0) == MAGIA;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Escribe un archivo con las entidades dadas, sin reservas recurrentes. Cualquiera de los
+     * grupos puede ser vacío.
+     *
+     * @param archivo  Ruta del archivo a escribir; si existe se reemplaza.
+     * @param usuarios Usuarios a guardar.
+     * @param zonas    Zonas a guardar.
+     * @param reservas Reservas a guardar.
+     * @throws IOException Si el archivo no se puede escribir.
+     */
+    public static void escribir(Path archivo, Iterable<Usuario> usuarios, Iterable<Zona> zonas,
+                                Iterable<Reserva> reservas) throws IOException {
+        escribir(archivo, usuarios, zonas, reservas, List.of());
+    }
+
+    /**
+     * Escribe un archivo con las entidades dadas. Cualquiera de los grupos puede ser vacío.
+     *
+     * @param archivo      Ruta del archivo a escribir; si existe se reemplaza.
+     * @param usuarios     Usuarios a guardar.
+     * @param zonas        Zonas a guardar.
+     * @param reservas     Reservas a guardar.
+     * @param recurrencias Reservas recurrentes a guardar.
+     * @throws IOException Si el archivo no se puede escribir.
+     */
+    public static void escribir(Path archivo, Iterable<Usuario> usuarios, Iterable<Zona> zonas,
+                                Iterable<Reserva> reservas, Iterable<ReservaRecurrente> recurrencias)
+            throws IOException {
+        Path temporal = archivo.resolveSibling(archivo.getFileName() + ".tmp");
+        CodificadorBinario codificador = new CodificadorBinario();
+        ByteBuffer salida = ByteBuffer.allocateDirect(BUFER_ESCRITURA);
+        long cantidadUsuarios = 0;
+        long cantidadZonas = 0;
+        long cantidadReservas = 0;
+        long cantidadRecurrencias = 0;
+        try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            canal.position(CABECERA);
+            for (Usuario usuario : usuarios) {
+                codificador.reiniciar();
+                codificador.escribirUsuario(usuario);
+                volcarRegistro(canal, salida, RegistroEscritura.USUARIO, codificador.contenido());
+                cantidadUsuarios++;
+            }
+            for (Zona zona : zonas) {
+                codificador.reiniciar();
+                codificador.escribirZona(zona);
+                volcarRegistro(canal, salida, RegistroEscritura.ZONA, codificador.contenido());
+                cantidadZonas++;
+            }
+            for (Reserva reserva : reservas) {
+                codificador.reiniciar();
+                codificador.escribirReserva(reserva);
+                volcarRegistro(canal, salida, RegistroEscritura.RESERVA, codificador.contenido());
+                cantidadReservas++;
+            }
+            for (ReservaRecurrente regla : recurrencias) {
+                codificador.reiniciar();
+                codificador.escribirRecurrencia(regla);
+                volcarRegistro(canal, salida, RegistroEscritura.RECURRENCIA, codificador.contenido());
+                cantidadRecurrencias++;
+            }
+            vaciar(canal, salida);
+
+            ByteBuffer cabecera = ByteBuffer.allocate(CABECERA);
+            cabecera.putInt(MAGIA);
+            cabecera.putShort(VERSION);
+            cabecera.putShort((short) 0);
+            cabecera.putLong(cantidadUsuarios);
+            cabecera.putLong(cantidadZonas);
+            cabecera.putLong(cantidadReservas);
+            cabecera.putLong(cantidadRecurrencias);
+            cabecera.flip();
+            long posicion = 0;
+            while (cabecera.hasRemaining()) {
+                posicion += canal.write(cabecera, posicion);
+            }
+            canal.force(true);
+        }
+        Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Recorre los registros de un archivo en el orden en que se escribieron, mapeándolo en
+     * memoria por ventanas.
+     *
+     * @param archivo Ruta del archivo.
+     * @param lector  Receptor de cada registro.
+     * @return La cantidad de registros leídos.
+     * @throws IOException Si el archivo no tiene este formato, es de una versión no
+     *                     soportada, está truncado o el lector falla.
+     */
+    public static long leer(Path archivo, Lector lector) throws IOException {
+        try (Cursor cursor = abrir(archivo)) {
+            while (cursor.siguiente()) {
+                lector.leer(cursor.getEntidad(), cursor.getVersion(), cursor.getDatos());
+            }
+            return cursor.getLeidos();
+        }
+    }
+
+    /**
+     * Comprueba la cabecera y la estructura de registros de un archivo sin decodificar su
+     * contenido, de modo que se puede validar un archivo grande en memoria constante.
+     *
+     * @param archivo Ruta del archivo.
+     * @throws IOException Si el archivo no tiene este formato, es de una versión no
+     *                     soportada o está truncado.
+     */
+    public static void verificar(Path archivo) throws IOException {
+        try (Cursor cursor = abrir(archivo)) {
+            while (cursor.siguiente()) {
+                // Solo se recorre la estructura
+            }
+        }
+    }
+
+    /**
+     * Abre un cursor sobre los registros de un archivo.
+     *
+     * @param archivo Ruta del archivo.
+     * @return El cursor, posicionado antes del primer registro.
+     * @throws IOException Si el archivo no tiene este formato o es de una versión no soportada.
+     */
+    public static Cursor abrir(Path archivo) throws IOException {
+        FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ);
+        try {
+            return new Cursor(canal);
+        } catch (IOException | RuntimeException e) {
+            canal.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Flujo perezoso de los usuarios de un archivo. Cada usuario se decodifica cuando el
+     * flujo lo pide, así que el archivo se recorre en memoria constante. El flujo debe
+     * cerrarse para liberar el archivo.
+     *
+     * @param archivo Ruta del archivo.
+     * @return Flujo de usuarios en el orden del archivo.
+     * @throws IOException Si el archivo no se puede abrir o no tiene este formato.
+     */
+    public static Stream<Usuario> usuarios(Path archivo) throws IOException {
+        return flujo(archivo, RegistroEscritura.USUARIO, CodificadorBinario::leerUsuario);
+    }
+
+    /**
+     * Flujo perezoso de las zonas de un archivo. Los usuarios que lo preceden se saltan
+     * sin decodificarse.
+     *
+     * @param archivo Ruta del archivo.
+     * @return Flujo de zonas en el orden del archivo.
+     * @throws IOException Si el archivo no se puede abrir o no tiene este formato.
+     */
+    public static Stream<Zona> zonas(Path archivo) throws IOException {
+        return flujo(archivo, RegistroEscritura.ZONA, CodificadorBinario::leerZona);
+    }
+
+    /**
+     * Flujo perezoso de las reservas de un archivo. El usuario y la zona de cada reserva se
+     * buscan con las funciones dadas; si no se encuentran, la reserva lleva en su lugar un
+     * {@link UsuarioNoCargado} o una {@link ZonaNoCargada} con solo el identificador, así que
+     * ninguna reserva se omite y el archivo se recorre en memoria constante aunque sus
+     * usuarios y zonas no estén cargados. El costo de cada reserva es el guardado.
+     *
+     * @param archivo  Ruta del archivo.
+     * @param usuarios Búsqueda de usuarios por identificador.
+     * @param zonas    Búsqueda de zonas por identificador.
+     * @return Flujo de reservas en el orden del archivo.
+     * @throws IOException Si el archivo no se puede abrir o no tiene este formato.
+     */
+    public static Stream<Reserva> reservas(Path archivo, Function<String, Usuario> usuarios,
+                                           Function<String, Zona> zonas) throws IOException {
+        Function<String, Usuario> usuarioOReferencia = id -> {
+            Usuario usuario = usuarios.apply(id);
+            return usuario != null ? usuario : new UsuarioNoCargado(id);
+        };
+        Function<String, Zona> zonaOReferencia = id -> {
+            // Una reserva sin zona no se puede guardar; si aparece, el registro está dañado y se omite
+            if (id == null) {
+                return null;
+            }
+            Zona zona = zonas.apply(id);
+            return zona != null ? zona : new ZonaNoCargada(id);
+        };
+        return flujo(archivo, RegistroEscritura.RESERVA, (datos, version) -> CodificadorBinario.leerReserva(datos,
+                version, usuarioOReferencia, zonaOReferencia));
+    }
+
+    /**
+     * Usuario de una reserva leída por flujo que no estaba entre los buscados: solo tiene el
+     * identificador.
+     */
+    public static final class UsuarioNoCargado extends Usuario {
+        private static final long serialVersionUID = 1L;
+
+        private UsuarioNoCargado(String idUsuario) {
+            super(idUsuario, null, null, null, false);
+        }
+
+        @Override
+        public String obtenerDetalles2() {
+            return "Usuario no cargado: " + getIdUsuario();
+        }
+
+        @Override
+        public String mostrarInformacion() {
+            return obtenerDetalles2();
+        }
+    }
+
+    /**
+     * Zona de una reserva leída por flujo que no estaba entre las buscadas: solo tiene el
+     * identificador, y un costo por hora de cero que no se usa, porque la reserva conserva
+     * el costo guardado.
+     */
+    public static final class ZonaNoCargada extends Zona {
+        private ZonaNoCargada(String idZona) {
+            super(idZona, null, null, Dinero.deUnidades(0));
+        }
+    }
+
+    private static <T> Stream<T> flujo(Path archivo, byte entidad, Decodificador<T> decodificador)
+            throws IOException {
+        Cursor cursor = abrir(archivo);
+        Spliterator<T> recorrido = new Spliterators.AbstractSpliterator<T>(cursor.getCantidad(entidad),
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> accion) {
+                try {
+                    // Las secciones están en orden de entidad: al pasar la pedida no queda nada
+                    while (cursor.siguiente() && cursor.getEntidad() <= entidad) {
+                        if (cursor.getEntidad() == entidad) {
+                            T valor = decodificador.decodificar(cursor.getDatos(), cursor.getVersion());
+                            if (valor != null) {
+                                accion.accept(valor);
+                                return true;
+                            }
+                        }
+                    }
+                    return false;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+        return StreamSupport.stream(recorrido, false).onClose(() -> {
+            try {
+                cursor.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Decodificación de un registro en una entidad; null indica que el registro se omite.
+     */
+    private interface Decodificador<T> {
+        T decodificar(ByteBuffer datos, int version) throws IOException;
+    }
+
+    /**
+     * Cursor que avanza registro por registro sobre un archivo mapeado en memoria por
+     * ventanas. Solo la ventana actual está mapeada, así que la memoria usada no depende
+     * del tamaño del archivo. Debe cerrarse al terminar.
+     */
+    public static final class Cursor implements Closeable {
+        private final FileChannel canal;
+        private final long tamano;
+        private final long[] cantidades;
+        private final short version;
+        private long posicion;
+        private long inicioVentana;
+        private MappedByteBuffer ventana;
+        private long leidos;
+        private byte entidad;
+        private ByteBuffer datos;
+
+        private Cursor(FileChannel canal) throws IOException {
+            this.canal = canal;
+            this.tamano = canal.size();
+            if (tamano < CABECERA_ANTERIOR) {
+                throw new IOException("El archivo no tiene el formato de datos esperado.");
+            }
+            MappedByteBuffer cabecera = canal.map(FileChannel.MapMode.READ_ONLY, 0, CABECERA_ANTERIOR);
+            if (cabecera.getInt() != MAGIA) {
+                throw new IOException("El archivo no tiene el formato de datos esperado.");
+            }
+            this.version = cabecera.getShort();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Versión de formato no soportada: " + version);
+            }
+            cabecera.getShort();
+            if (version < 3) {
+                this.cantidades = new long[] {cabecera.getLong(), cabecera.getLong(), cabecera.getLong()};
+                this.posicion = CABECERA_ANTERIOR;
+            } else {
+                if (tamano < CABECERA) {
+                    throw new IOException("El archivo no tiene el formato de datos esperado.");
+                }
+                cabecera = canal.map(FileChannel.MapMode.READ_ONLY, 0, CABECERA);
+                cabecera.position(8);
+                this.cantidades = new long[] {cabecera.getLong(), cabecera.getLong(), cabecera.getLong(),
+                        cabecera.getLong()};
+                this.posicion = CABECERA;
+            }
+        }
+
+        /**
+         * Avanza al siguiente registro.
+         *
+         * @return true si hay un registro, false si se llegó al final del archivo.
+         * @throws IOException Si el archivo está truncado o dañado.
+         */
+        public boolean siguiente() throws IOException {
+            datos = null;
+            if (posicion >= tamano) {
+                long esperados = 0;
+                for (long cantidad : cantidades) {
+                    esperados += cantidad;
+                }
+                if (leidos != esperados) {
+                    throw new IOException("El archivo está incompleto: se esperaban " + esperados
+                            + " registros y se leyeron " + leidos + ".");
+                }
+                return false;
+            }
+            if (posicion + CABECERA_REGISTRO > tamano) {
+                throw new IOException("El archivo está truncado o dañado en la posición " + posicion + ".");
+            }
+            if (ventana == null || posicion + CABECERA_REGISTRO > inicioVentana + ventana.limit()) {
+                mapear(VENTANA_LECTURA);
+            }
+            int desplazamiento = (int) (posicion - inicioVentana);
+            byte tipo = ventana.get(desplazamiento);
+            int longitud = ventana.getInt(desplazamiento + 1);
+            if (longitud < 0 || posicion + CABECERA_REGISTRO + longitud > tamano) {
+                throw new IOException("El archivo está truncado o dañado en la posición " + posicion + ".");
+            }
+            if (posicion + CABECERA_REGISTRO + longitud > inicioVentana + ventana.limit()) {
+                mapear(Math.max(VENTANA_LECTURA, CABECERA_REGISTRO + longitud));
+                desplazamiento = 0;
+            }
+            ByteBuffer registro = ventana.duplicate();
+            registro.position(desplazamiento + CABECERA_REGISTRO);
+            registro.limit(desplazamiento + CABECERA_REGISTRO + longitud);
+            entidad = tipo;
+            datos = registro.slice();
+            leidos++;
+            posicion += CABECERA_REGISTRO + longitud;
+            return true;
+        }
+
+        /**
+         * Obtiene el tipo de entidad del registro actual.
+         *
+         * @return {@link RegistroEscritura#USUARIO}, {@link RegistroEscritura#ZONA},
+         *         {@link RegistroEscritura#RESERVA} o {@link RegistroEscritura#RECURRENCIA}.
+         */
+        public byte getEntidad() {
+            return entidad;
+        }
+
+        /**
+         * Obtiene el contenido del registro actual. Es válido hasta la siguiente llamada a
+         * {@link #siguiente()}.
+         *
+         * @return El contenido, limitado a la longitud del registro.
+         */
+        public ByteBuffer getDatos() {
+            return datos;
+        }
+
+        /**
+         * Obtiene la versión del formato del archivo, con la que se decodifica su contenido.
+         *
+         * @return La versión de la cabecera.
+         */
+        public int getVersion() {
+            return version;
+        }
+
+        /**
+         * Obtiene la cantidad de registros leídos hasta ahora.
+         *
+         * @return El número de registros leídos.
+         */
+        public long getLeidos() {
+            return leidos;
+        }
+
+        /**
+         * Obtiene la cantidad de registros de un tipo según la cabecera del archivo.
+         *
+         * @param tipo Tipo de entidad.
+         * @return La cantidad anotada en la cabecera, o 0 si el tipo no existe.
+         */
+        public long getCantidad(byte tipo) {
+            return tipo >= 1 && tipo <= cantidades.length ? cantidades[tipo - 1] : 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            ventana = null;
+            datos = null;
+            canal.close();
+        }
+
+        private void mapear(long longitud) throws IOException {
+            inicioVentana = posicion;
+            ventana = canal.map(FileChannel.MapMode.READ_ONLY, posicion, Math.min(longitud, tamano - posicion));
+        }
+    }
+
+    private static void volcarRegistro(FileChannel canal, ByteBuffer salida, byte entidad, ByteBuffer contenido)
+            throws IOException {
+        if (salida.remaining() < CABECERA_REGISTRO + contenido.remaining()) {
+            vaciar(canal, salida);
+        }
+        if (salida.remaining() < CABECERA_REGISTRO + contenido.remaining()) {
+            ByteBuffer cabecera = ByteBuffer.allocate(CABECERA_REGISTRO);
+            cabecera.put(entidad).putInt(contenido.remaining()).flip();
+            ByteBuffer[] partes = {cabecera, contenido};
+            while (contenido.hasRemaining()) {
+                canal.write(partes);
+            }
+            return;
+        }
+        salida.put(entidad);
+        salida.putInt(contenido.remaining());
+        salida.put(contenido);
+    }
+
+    private static void vaciar(FileChannel canal, ByteBuffer salida) throws IOException {
+        salida.flip();
+        while (salida.hasRemaining()) {
+            canal.write(salida);
+        }
+        salida.clear();
+    }
+}
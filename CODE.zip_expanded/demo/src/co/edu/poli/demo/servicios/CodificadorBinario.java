@@ -0,0 +1,523 @@
+package co.edu.poli.demo.servicios;
+
+import co.edu.poli.demo.modelo.Dinero;
+import co.edu.poli.demo.modelo.Empleado;
+import co.edu.poli.demo.modelo.Reserva;
+import co.edu.poli.demo.modelo.ReservaRecurrente;
+import co.edu.poli.demo.modelo.Usuario;
+import co.edu.poli.demo.modelo.UsuarioCorporativo;
+import co.edu.poli.demo.modelo.UsuarioFrecuente;
+import co.edu.poli.demo.modelo.UsuarioResidencial;
+import co.edu.poli.demo.modelo.Zona;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Codificación binaria compacta de usuarios, zonas y reservas, usada por el registro de
+ * escritura y los archivos de datos en lugar de la serialización de Java.
+ * <p>
+ * Cada instancia escribe sobre un búfer propio que crece según haga falta y se reutiliza
+ * entre registros; no es segura para varios hilos. La lectura se hace con los métodos
+ * estáticos directamente sobre cualquier {@link ByteBuffer}.
+ * <p>
+ * Las cadenas se guardan como longitud en bytes seguida de su contenido en UTF-8 (longitud
+ * -1 para null). Las reservas guardan solo los identificadores de su usuario y su zona,
+ * que se resuelven contra el almacén al leerlas. Los importes se guardan en unidades menores
+ * seguidas del código de tres letras de su moneda.
+ * <p>
+ * Los métodos de lectura reciben la versión de la codificación con que se escribieron los
+ * datos, para seguir leyendo archivos anteriores a {@link #VERSION}.
+ */
+public class CodificadorBinario {
+
+    /**
+     * Versión actual de la codificación. La versión 1 guardaba los importes como {@code double},
+     * que se leen como pesos colombianos redondeados a centavos; la 2 los guarda en punto fijo.
+     * La 3 agrega las reservas recurrentes, sin cambiar la codificación de las demás entidades.
+     */
+    public static final int VERSION = 3;
+
+    /**
+     * Etiquetas de tipo de cada subclase concreta de {@link Usuario}.
+     */
+    public static final byte TIPO_RESIDENCIAL = 1;
+    public static final byte TIPO_CORPORATIVO = 2;
+    public static final byte TIPO_FRECUENTE = 3;
+    public static final byte TIPO_INTERNACIONAL = 4;
+    public static final byte TIPO_EMPLEADO = 5;
+
+    /**
+     * Búfer de escritura reutilizable.
+     */
+    private ByteBuffer buffer;
+
+    /**
+     * Constructor que crea un codificador con un búfer inicial pequeño.
+     */
+    public CodificadorBinario() {
+        this.buffer = ByteBuffer.allocate(256);
+    }
+
+    /**
+     * Descarta lo escrito para empezar un nuevo registro.
+     */
+    public void reiniciar() {
+        buffer.clear();
+    }
+
+    /**
+     * Obtiene una vista de lo escrito desde el último reinicio, lista para leerse.
+     *
+     * @return Búfer con los bytes escritos.
+     */
+    public ByteBuffer contenido() {
+        ByteBuffer vista = buffer.duplicate();
+        vista.flip();
+        return vista;
+    }
+
+    /**
+     * Obtiene la cantidad de bytes escritos desde el último reinicio.
+     *
+     * @return El número de bytes escritos.
+     */
+    public int tamano() {
+        return buffer.position();
+    }
+
+    public void escribirByte(int valor) {
+        asegurar(1);
+        buffer.put((byte) valor);
+    }
+
+    public void escribirEntero(int valor) {
+        asegurar(4);
+        buffer.putInt(valor);
+    }
+
+    public void escribirLargo(long valor) {
+        asegurar(8);
+        buffer.putLong(valor);
+    }
+
+    public void escribirDoble(double valor) {
+        asegurar(8);
+        buffer.putDouble(valor);
+    }
+
+    /**
+     * Escribe un importe como unidades menores y código de moneda.
+     */
+    public void escribirDinero(Dinero valor) {
+        if (valor == null) {
+            escribirByte(0);
+            return;
+        }
+        String codigo = valor.getMoneda().getCurrencyCode();
+        asegurar(12);
+        buffer.put((byte) 1);
+        buffer.putLong(valor.getUnidades());
+        for (int i = 0; i < 3; i++) {
+            buffer.put((byte) codigo.charAt(i));
+        }
+    }
+
+    public void escribirBooleano(boolean valor) {
+        escribirByte(valor ? 1 : 0);
+    }
+
+    public void escribirCadena(String valor) {
+        if (valor == null) {
+            escribirEntero(-1);
+            return;
+        }
+        byte[] bytes = valor.getBytes(StandardCharsets.UTF_8);
+        asegurar(4 + bytes.length);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    /**
+     * Escribe una fecha como segundos y nanosegundos desde la época, tomada en UTC.
+     */
+    public void escribirFecha(LocalDateTime fecha) {
+        if (fecha == null) {
+            escribirByte(0);
+            return;
+        }
+        asegurar(13);
+        buffer.put((byte) 1);
+        buffer.putLong(fecha.toEpochSecond(ZoneOffset.UTC));
+        buffer.putInt(fecha.getNano());
+    }
+
+    /**
+     * Escribe un usuario precedido de la etiqueta de su subclase.
+     *
+     * @param usuario El usuario a escribir.
+     * @throws IllegalArgumentException Si la subclase del usuario no tiene etiqueta.
+     */
+    public void escribirUsuario(Usuario usuario) {
+        byte tipo = tipoDe(usuario);
+        escribirByte(tipo);
+        escribirCadena(usuario.getIdUsuario());
+        escribirCadena(usuario.getNombre());
+        escribirCadena(usuario.getCorreo());
+        escribirCadena(usuario.getTelefono());
+        escribirBooleano(usuario.isEsAdmin());
+        switch (tipo) {
+            case TIPO_RESIDENCIAL:
+                escribirEntero(((UsuarioResidencial) usuario).getNumeroEventos());
+                break;
+            case TIPO_CORPORATIVO:
+                escribirCorporativo((UsuarioCorporativo) usuario);
+                break;
+            case TIPO_INTERNACIONAL:
+                UsuarioInternacional internacional = (UsuarioInternacional) usuario;
+                escribirCorporativo(internacional);
+                escribirCadena(internacional.getPaisOrigen());
+                escribirBooleano(internacional.isRequiereTraductor());
+                escribirDinero(internacional.getTarifaMonedaInternacional());
+                break;
+            case TIPO_FRECUENTE:
+                UsuarioFrecuente frecuente = (UsuarioFrecuente) usuario;
+                escribirEntero(frecuente.getVisitasTotales());
+                escribirDoble(frecuente.getDescuento());
+                break;
+            default:
+                Empleado empleado = (Empleado) usuario;
+                escribirCadena(empleado.getCargo());
+                escribirDinero(empleado.getSalario());
+                List<String> tareas = empleado.getTareasAsignadas();
+                escribirEntero(tareas == null ? 0 : tareas.size());
+                if (tareas != null) {
+                    for (String tarea : tareas) {
+                        escribirCadena(tarea);
+                    }
+                }
+                break;
+        }
+    }
+
+    private void escribirCorporativo(UsuarioCorporativo corporativo) {
+        escribirCadena(corporativo.getNombreEmpresa());
+        escribirEntero(corporativo.getEventosOrganizados());
+    }
+
+    public void escribirZona(Zona zona) {
+        escribirCadena(zona.getIdZona());
+        escribirCadena(zona.getNombre());
+        escribirCadena(zona.getTipo());
+        escribirDinero(zona.getCostoPorHora());
+        escribirBooleano(zona.isDisponible());
+    }
+
+    public void escribirReserva(Reserva reserva) {
+        escribirCadena(reserva.getIdReserva());
+        escribirCadena(reserva.getUsuario() == null ? null : reserva.getUsuario().getIdUsuario());
+        escribirCadena(reserva.getZona().getIdZona());
+        escribirFecha(reserva.getFechaInicio());
+        escribirFecha(reserva.getFechaFin());
+        escribirDinero(reserva.getCosto());
+    }
+
+    /**
+     * Escribe una reserva recurrente: su regla y sus fechas excluidas, nunca sus ocurrencias.
+     * Las fechas sin hora se guardan como días desde la época.
+     *
+     * @param regla La reserva recurrente a escribir.
+     */
+    public void escribirRecurrencia(ReservaRecurrente regla) {
+        escribirCadena(regla.getIdRecurrencia());
+        escribirCadena(regla.getUsuario() == null ? null : regla.getUsuario().getIdUsuario());
+        escribirCadena(regla.getZona().getIdZona());
+        escribirFecha(regla.getPrimerInicio());
+        escribirLargo(regla.getDuracion().getSeconds());
+        escribirEntero(regla.getDuracion().getNano());
+        escribirByte(regla.getFrecuencia().ordinal());
+        escribirEntero(regla.getIntervalo());
+        escribirBooleano(regla.getHasta() != null);
+        if (regla.getHasta() != null) {
+            escribirLargo(regla.getHasta().toEpochDay());
+        }
+        escribirEntero(regla.getExcepciones().size());
+        for (LocalDate fecha : regla.getExcepciones()) {
+            escribirLargo(fecha.toEpochDay());
+        }
+    }
+
+    /**
+     * Copia un usuario escribiéndolo y leyéndolo de nuevo, para modificar la copia sin tocar
+     * la instancia que guarda el almacén. Usa el búfer de este codificador.
+     *
+     * @param usuario El usuario a copiar.
+     * @return Una instancia nueva con los mismos datos.
+     */
+    public Usuario copiarUsuario(Usuario usuario) {
+        reiniciar();
+        escribirUsuario(usuario);
+        try {
+            return leerUsuario(contenido(), VERSION);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Copia una zona escribiéndola y leyéndola de nuevo. Usa el búfer de este codificador.
+     *
+     * @param zona La zona a copiar.
+     * @return Una instancia nueva con los mismos datos.
+     */
+    public Zona copiarZona(Zona zona) {
+        reiniciar();
+        escribirZona(zona);
+        try {
+            return leerZona(contenido(), VERSION);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Obtiene la etiqueta de tipo de un usuario según su subclase concreta.
+     *
+     * @param usuario El usuario.
+     * @return La etiqueta de tipo.
+     * @throws IllegalArgumentException Si la subclase del usuario no tiene etiqueta.
+     */
+    public static byte tipoDe(Usuario usuario) {
+        if (usuario instanceof UsuarioInternacional) {
+            return TIPO_INTERNACIONAL;
+        } else if (usuario instanceof UsuarioCorporativo) {
+            return TIPO_CORPORATIVO;
+        } else if (usuario instanceof UsuarioResidencial) {
+            return TIPO_RESIDENCIAL;
+        } else if (usuario instanceof UsuarioFrecuente) {
+            return TIPO_FRECUENTE;
+        } else if (usuario instanceof Empleado) {
+            return TIPO_EMPLEADO;
+        }
+        throw new IllegalArgumentException("Tipo de usuario no soportado: " + usuario.getClass().getName());
+    }
+
+    public static String leerCadena(ByteBuffer entrada) {
+        int longitud = entrada.getInt();
+        if (longitud < 0) {
+            return null;
+        }
+        if (longitud > entrada.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[longitud];
+        entrada.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static LocalDateTime leerFecha(ByteBuffer entrada) {
+        if (entrada.get() == 0) {
+            return null;
+        }
+        long segundos = entrada.getLong();
+        int nanos = entrada.getInt();
+        return LocalDateTime.ofEpochSecond(segundos, nanos, ZoneOffset.UTC);
+    }
+
+    public static boolean leerBooleano(ByteBuffer entrada) {
+        return entrada.get() != 0;
+    }
+
+    /**
+     * Lee un importe escrito con {@link #escribirDinero(Dinero)} o, en la versión 1, un
+     * {@code double} en moneda local.
+     *
+     * @param entrada Búfer posicionado al inicio del importe.
+     * @param version Versión de la codificación.
+     * @return El importe leído, o null si se escribió nulo.
+     */
+    public static Dinero leerDinero(ByteBuffer entrada, int version) {
+        if (version < 2) {
+            return Dinero.de(entrada.getDouble());
+        }
+        if (entrada.get() == 0) {
+            return null;
+        }
+        long unidades = entrada.getLong();
+        char[] codigo = {(char) entrada.get(), (char) entrada.get(), (char) entrada.get()};
+        Currency moneda = Dinero.MONEDA_LOCAL;
+        if (codigo[0] != 'C' || codigo[1] != 'O' || codigo[2] != 'P') {
+            moneda = Currency.getInstance(new String(codigo));
+        }
+        return Dinero.deUnidades(unidades, moneda);
+    }
+
+    /**
+     * Lee un usuario escrito con {@link #escribirUsuario(Usuario)}.
+     *
+     * @param entrada Búfer posicionado al inicio del usuario.
+     * @param version Versión de la codificación.
+     * @return El usuario leído, de la subclase indicada por su etiqueta.
+     * @throws IOException Si los datos están truncados o la etiqueta es desconocida.
+     */
+    public static Usuario leerUsuario(ByteBuffer entrada, int version) throws IOException {
+        try {
+            byte tipo = entrada.get();
+            String id = leerCadena(entrada);
+            String nombre = leerCadena(entrada);
+            String correo = leerCadena(entrada);
+            String telefono = leerCadena(entrada);
+            boolean esAdmin = leerBooleano(entrada);
+            switch (tipo) {
+                case TIPO_RESIDENCIAL:
+                    return new UsuarioResidencial(id, nombre, correo, telefono, esAdmin, entrada.getInt());
+                case TIPO_CORPORATIVO:
+                    return new UsuarioCorporativo(id, nombre, correo, telefono, esAdmin, leerCadena(entrada),
+                            entrada.getInt());
+                case TIPO_INTERNACIONAL:
+                    String empresa = leerCadena(entrada);
+                    int eventos = entrada.getInt();
+                    return new UsuarioInternacional(id, nombre, correo, telefono, esAdmin, empresa, eventos,
+                            leerCadena(entrada), leerBooleano(entrada), leerDinero(entrada, version));
+                case TIPO_FRECUENTE:
+                    return new UsuarioFrecuente(id, nombre, correo, telefono, esAdmin, entrada.getInt(),
+                            entrada.getDouble());
+                case TIPO_EMPLEADO:
+                    Empleado empleado = new Empleado(id, nombre, correo, telefono, esAdmin, leerCadena(entrada),
+                            leerDinero(entrada, version));
+                    int cantidadTareas = entrada.getInt();
+                    List<String> tareas = new ArrayList<>(cantidadTareas);
+                    for (int i = 0; i < cantidadTareas; i++) {
+                        tareas.add(leerCadena(entrada));
+                    }
+                    empleado.setTareasAsignadas(tareas);
+                    return empleado;
+                default:
+                    throw new IOException("Etiqueta de tipo de usuario desconocida: " + tipo);
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Datos de usuario inválidos: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Lee una zona escrita con {@link #escribirZona(Zona)}.
+     *
+     * @param entrada Búfer posicionado al inicio de la zona.
+     * @param version Versión de la codificación.
+     * @return La zona leída.
+     * @throws IOException Si los datos están truncados.
+     */
+    public static Zona leerZona(ByteBuffer entrada, int version) throws IOException {
+        try {
+            Zona zona = new Zona(leerCadena(entrada), leerCadena(entrada), leerCadena(entrada),
+                    leerDinero(entrada, version));
+            zona.cambiarDisponibilidad(leerBooleano(entrada));
+            return zona;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Datos de zona inválidos: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Lee una reserva escrita con {@link #escribirReserva(Reserva)}, resolviendo su usuario
+     * y su zona por identificador.
+     *
+     * @param entrada  Búfer posicionado al inicio de la reserva.
+     * @param version  Versión de la codificación.
+     * @param usuarios Función que obtiene un usuario por su identificador.
+     * @param zonas    Función que obtiene una zona por su identificador.
+     * @return La reserva leída, con el costo que tenía al guardarse, o null si su zona o
+     *         su usuario no existen.
+     * @throws IOException Si los datos están truncados o dañados.
+     */
+    public static Reserva leerReserva(ByteBuffer entrada, int version, Function<String, Usuario> usuarios,
+                                      Function<String, Zona> zonas) throws IOException {
+        try {
+            String id = leerCadena(entrada);
+            String idUsuario = leerCadena(entrada);
+            String idZona = leerCadena(entrada);
+            LocalDateTime inicio = leerFecha(entrada);
+            LocalDateTime fin = leerFecha(entrada);
+            Dinero costo = leerDinero(entrada, version);
+            Zona zona = zonas.apply(idZona);
+            Usuario usuario = idUsuario == null ? null : usuarios.apply(idUsuario);
+            if (zona == null || (idUsuario != null && usuario == null)) {
+                return null;
+            }
+            // El constructor calcula un costo con las fechas y la tarifa de la zona
+            if (inicio == null || fin == null || zona.getCostoPorHora() == null) {
+                throw new IOException("Datos de reserva inválidos: la reserva " + id
+                        + " no tiene fechas o su zona no tiene costo por hora.");
+            }
+            Reserva reserva = new Reserva(id, usuario, zona, inicio, fin);
+            reserva.setCosto(costo);
+            return reserva;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Datos de reserva inválidos: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Lee una reserva recurrente escrita con {@link #escribirRecurrencia(ReservaRecurrente)},
+     * resolviendo su usuario y su zona por identificador.
+     *
+     * @param entrada  Búfer posicionado al inicio de la reserva recurrente.
+     * @param usuarios Función que obtiene un usuario por su identificador.
+     * @param zonas    Función que obtiene una zona por su identificador.
+     * @return La reserva recurrente leída, o null si su zona o su usuario no existen.
+     * @throws IOException Si los datos están truncados o dañados.
+     */
+    public static ReservaRecurrente leerRecurrencia(ByteBuffer entrada, Function<String, Usuario> usuarios,
+                                                    Function<String, Zona> zonas) throws IOException {
+        try {
+            String id = leerCadena(entrada);
+            String idUsuario = leerCadena(entrada);
+            String idZona = leerCadena(entrada);
+            LocalDateTime primerInicio = leerFecha(entrada);
+            Duration duracion = Duration.ofSeconds(entrada.getLong(), entrada.getInt());
+            ReservaRecurrente.Frecuencia frecuencia = ReservaRecurrente.Frecuencia.values()[entrada.get()];
+            int intervalo = entrada.getInt();
+            LocalDate hasta = leerBooleano(entrada) ? LocalDate.ofEpochDay(entrada.getLong()) : null;
+            int excepciones = entrada.getInt();
+            Zona zona = zonas.apply(idZona);
+            Usuario usuario = idUsuario == null ? null : usuarios.apply(idUsuario);
+            if (zona == null || (idUsuario != null && usuario == null)) {
+                return null;
+            }
+            ReservaRecurrente regla = new ReservaRecurrente(id, usuario, zona, primerInicio, duracion, frecuencia,
+                    intervalo, hasta);
+            for (int i = 0; i < excepciones; i++) {
+                regla.excluir(LocalDate.ofEpochDay(entrada.getLong()));
+            }
+            return regla;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException
+                 | DateTimeException e) {
+            throw new IOException("Datos de reserva recurrente inválidos: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Garantiza espacio para escribir la cantidad de bytes indicada, duplicando el búfer si hace falta.
+     */
+    private void asegurar(int bytes) {
+        if (buffer.remaining() < bytes) {
+            int capacidad = Math.max(buffer.capacity() * 2, buffer.position() + bytes);
+            ByteBuffer nuevo = ByteBuffer.allocate(capacidad);
+            buffer.flip();
+            nuevo.put(buffer);
+            buffer = nuevo;
+        }
+    }
+}
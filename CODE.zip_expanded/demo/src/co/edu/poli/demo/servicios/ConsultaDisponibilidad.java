@@ -0,0 +1,129 @@
+package co.edu.poli.demo.servicios;
+
+import co.edu.poli.demo.modelo.Dinero;
+import co.edu.poli.demo.modelo.Parque;
+import java.time.LocalDateTime;
+
+/**
+ * Criterios de una búsqueda de zonas libres: el rango de tiempo en que deben estar libres y,
+ * opcionalmente, su tipo, su costo por hora máximo y el parque al que pertenecen.
+ * <p>
+ * Se crea con {@link #entre(LocalDateTime, LocalDateTime)} y se agregan los demás criterios
+ * con los métodos {@code deTipo}, {@code conCostoMaximo}, {@code enParque} y {@code limitadaA},
+ * que devuelven una copia:
+ * <pre>
+ * ConsultaDisponibilidad.entre(sabado10, sabado14).deTipo("Cancha").conCostoMaximo(Dinero.de(50000))
+ * </pre>
+ */
+public class ConsultaDisponibilidad {
+
+    /**
+     * Cantidad máxima de zonas que se devuelven si no se indica otra.
+     */
+    public static final int LIMITE_POR_DEFECTO = 50;
+
+    private final LocalDateTime inicio;
+    private final LocalDateTime fin;
+    private final String tipo;
+    private final Dinero costoMaximo;
+    private final Parque parque;
+    private final int limite;
+
+    private ConsultaDisponibilidad(LocalDateTime inicio, LocalDateTime fin, String tipo, Dinero costoMaximo,
+                                   Parque parque, int limite) {
+        if (inicio == null || fin == null || !fin.isAfter(inicio)) {
+            throw new IllegalArgumentException("El fin del rango debe ser posterior a su inicio.");
+        }
+        if (limite <= 0) {
+            throw new IllegalArgumentException("El límite de resultados debe ser positivo.");
+        }
+        this.inicio = inicio;
+        this.fin = fin;
+        this.tipo = tipo;
+        this.costoMaximo = costoMaximo;
+        this.parque = parque;
+        this.limite = limite;
+    }
+
+    /**
+     * Crea una búsqueda de zonas de cualquier tipo y costo libres en un rango de tiempo.
+     *
+     * @param inicio Inicio del rango.
+     * @param fin    Fin del rango (exclusivo).
+     * @return La consulta creada.
+     */
+    public static ConsultaDisponibilidad entre(LocalDateTime inicio, LocalDateTime fin) {
+        return new ConsultaDisponibilidad(inicio, fin, null, null, null, LIMITE_POR_DEFECTO);
+    }
+
+    /**
+     * Crea una copia de la consulta que solo incluye zonas de un tipo, sin distinguir mayúsculas.
+     *
+     * @param tipo Tipo de zona, o null para cualquiera.
+     * @return La consulta creada.
+     */
+    public ConsultaDisponibilidad deTipo(String tipo) {
+        return new ConsultaDisponibilidad(inicio, fin, tipo, costoMaximo, parque, limite);
+    }
+
+    /**
+     * Crea una copia de la consulta que solo incluye zonas hasta un costo por hora. Solo
+     * coinciden las zonas cuyo costo está en la misma moneda que el máximo.
+     *
+     * @param costoMaximo Costo por hora máximo, incluido, o null para cualquier costo.
+     * @return La consulta creada.
+     */
+    public ConsultaDisponibilidad conCostoMaximo(Dinero costoMaximo) {
+        return new ConsultaDisponibilidad(inicio, fin, tipo, costoMaximo, parque, limite);
+    }
+
+    /**
+     * Crea una copia de la consulta que solo incluye zonas de un parque.
+     *
+     * @param parque Parque, o null para cualquiera.
+     * @return La consulta creada.
+     */
+    public ConsultaDisponibilidad enParque(Parque parque) {
+        return new ConsultaDisponibilidad(inicio, fin, tipo, costoMaximo, parque, limite);
+    }
+
+    /**
+     * Crea una copia de la consulta con otra cantidad máxima de resultados.
+     *
+     * @param limite Cantidad máxima de zonas a devolver.
+     * @return La consulta creada.
+     */
+    public ConsultaDisponibilidad limitadaA(int limite) {
+        return new ConsultaDisponibilidad(inicio, fin, tipo, costoMaximo, parque, limite);
+    }
+
+    public LocalDateTime getInicio() {
+        return inicio;
+    }
+
+    public LocalDateTime getFin() {
+        return fin;
+    }
+
+    public String getTipo() {
+        return tipo;
+    }
+
+    public Dinero getCostoMaximo() {
+        return costoMaximo;
+    }
+
+    public Parque getParque() {
+        return parque;
+    }
+
+    public int getLimite() {
+        return limite;
+    }
+
+    @Override
+    public String toString() {
+        return "ConsultaDisponibilidad [inicio=" + inicio + ", fin=" + fin + ", tipo=" + tipo + ", costoMaximo="
+                + costoMaximo + ", parque=" + (parque == null ? null : parque.getNombre()) + ", limite=" + limite + "]";
+    }
+}
@@ -0,0 +1,123 @@
+package co.edu.poli.demo.servicios;
+
+/**
+ * Petición de una página de un listado: su orden, su tamaño y dónde empieza.
+ * <p>
+ * La página puede empezar en una posición ({@link #desde(int, int)}) o justo después de
+ * un identificador ({@link #despuesDe(String, int)}). La segunda forma se resuelve con una
+ * búsqueda en el índice ordenado, así que su costo depende del tamaño de la página y no de
+ * su posición en el listado; con un desplazamiento hay que saltar las entidades anteriores
+ * una por una. Para recorrer un listado completo conviene pedir cada página con
+ * {@link Pagina#getSiguiente()}, que usa la segunda forma.
+ */
+public class ConsultaPagina {
+
+    /**
+     * Orden del listado. Ambos son estables: una entidad no cambia de lugar entre páginas
+     * mientras no se elimine.
+     */
+    public enum Orden {
+        /** Por identificador, en orden alfabético. */
+        ID,
+        /** Por orden de inserción; una actualización conserva el lugar de la entidad. */
+        INSERCION
+    }
+
+    private final Orden orden;
+    private final int desplazamiento;
+    private final int limite;
+    private final String despuesDeId;
+    private final long despuesDeSecuencia;
+
+    private ConsultaPagina(Orden orden, int desplazamiento, int limite, String despuesDeId, long despuesDeSecuencia) {
+        if (limite <= 0) {
+            throw new IllegalArgumentException("El tamaño de la página debe ser positivo.");
+        }
+        if (desplazamiento < 0) {
+            throw new IllegalArgumentException("El desplazamiento no puede ser negativo.");
+        }
+        this.orden = orden;
+        this.desplazamiento = desplazamiento;
+        this.limite = limite;
+        this.despuesDeId = despuesDeId;
+        this.despuesDeSecuencia = despuesDeSecuencia;
+    }
+
+    /**
+     * Crea una consulta de la primera página, en orden de inserción.
+     *
+     * @param limite Tamaño de la página.
+     * @return La consulta creada.
+     */
+    public static ConsultaPagina primera(int limite) {
+        return desde(0, limite);
+    }
+
+    /**
+     * Crea una consulta que salta las primeras entidades del listado, en orden de inserción.
+     *
+     * @param desplazamiento Cantidad de entidades a saltar.
+     * @param limite         Tamaño de la página.
+     * @return La consulta creada.
+     */
+    public static ConsultaPagina desde(int desplazamiento, int limite) {
+        return new ConsultaPagina(Orden.INSERCION, desplazamiento, limite, null, -1);
+    }
+
+    /**
+     * Crea una consulta de la página que sigue a una entidad, en orden de inserción. En orden
+     * por identificador, el identificador no necesita existir.
+     *
+     * @param id     Identificador de la última entidad de la página anterior.
+     * @param limite Tamaño de la página.
+     * @return La consulta creada.
+     */
+    public static ConsultaPagina despuesDe(String id, int limite) {
+        return new ConsultaPagina(Orden.INSERCION, 0, limite, id, -1);
+    }
+
+    /**
+     * Crea una copia de la consulta con otro orden.
+     *
+     * @param orden Orden del listado.
+     * @return La consulta creada.
+     */
+    public ConsultaPagina ordenadaPor(Orden orden) {
+        return new ConsultaPagina(orden, desplazamiento, limite, despuesDeId, despuesDeSecuencia);
+    }
+
+    /**
+     * Crea la consulta de la página siguiente a una que terminó en la entidad dada. En orden
+     * de inserción guarda también su número de secuencia, de modo que la página siguiente se
+     * encuentra aunque esa entidad se elimine.
+     */
+    ConsultaPagina siguiente(String ultimoId, long ultimaSecuencia) {
+        return new ConsultaPagina(orden, 0, limite, ultimoId, ultimaSecuencia);
+    }
+
+    public Orden getOrden() {
+        return orden;
+    }
+
+    public int getDesplazamiento() {
+        return desplazamiento;
+    }
+
+    public int getLimite() {
+        return limite;
+    }
+
+    public String getDespuesDeId() {
+        return despuesDeId;
+    }
+
+    long getDespuesDeSecuencia() {
+        return despuesDeSecuencia;
+    }
+
+    @Override
+    public String toString() {
+        return "ConsultaPagina [orden=" + orden + ", desplazamiento=" + desplazamiento + ", limite=" + limite
+                + ", despuesDeId=" + despuesDeId + "]";
+    }
+}
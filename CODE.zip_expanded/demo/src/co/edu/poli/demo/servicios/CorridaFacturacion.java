@@ -0,0 +1,437 @@
+package co.edu.poli.demo.servicios;
+
+import co.edu.poli.demo.modelo.Dinero;
+import co.edu.poli.demo.modelo.Factura;
+import co.edu.poli.demo.modelo.Reserva;
+import co.edu.poli.demo.modelo.Usuario;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+/**
+ * Corrida de facturación: genera una {@link Factura} por usuario con todas sus reservas que
+ * empiezan en un periodo.
+ * <p>
+ * El periodo se recorre por tramos de un día. Las reservas de cada tramo se obtienen del
+ * índice de calendario del almacén y se reparten entre los hilos de un {@link ForkJoinPool};
+ * cada tarea acumula, por usuario, el subtotal y el descuento que calcula el
+ * {@link MotorPrecios} en unidades menores, y los acumulados parciales se combinan al final
+ * del tramo. En memoria solo están las reservas de un tramo y un acumulado por usuario, sin
+ * importar el tamaño del periodo. Al terminar el último tramo se emite una factura por
+ * usuario, en orden de identificador, con el impuesto del motor aplicado sobre el monto
+ * neto de la factura.
+ * <p>
+ * Si se indica un archivo de estado, los acumulados se guardan en él cada cierta cantidad de
+ * reservas. Si la corrida se interrumpe (el hilo recibe una interrupción o el proceso cae),
+ * volver a ejecutarla con el mismo periodo continúa desde el último estado guardado; los
+ * tramos ya acumulados no deben haber cambiado entretanto. El archivo se borra cuando todas
+ * las facturas se entregaron. Una caída mientras se entregan las facturas hace que se
+ * vuelvan a entregar todas; su identificador no cambia, así que el destino puede descartar
+ * las repetidas.
+ * <p>
+ * Una corrida no debe ejecutarse desde varios hilos a la vez; su progreso sí puede
+ * consultarse desde otros hilos.
+ */
+public class CorridaFacturacion {
+
+    /**
+     * Cantidad de reservas acumuladas entre dos guardados del estado, si no se indica otra.
+     */
+    public static final long RESERVAS_POR_PUNTO = 250_000;
+
+    /**
+     * Cantidad de reservas desde la que una tarea se divide en dos.
+     */
+    private static final int UMBRAL_DIVISION = 4096;
+
+    /**
+     * Número mágico del archivo de estado ("PQFC").
+     */
+    private static final int MAGIA = 0x50514643;
+
+    private static final int VERSION = 1;
+
+    private final Operacion operacion;
+    private final MotorPrecios motor;
+    private final LocalDateTime inicio;
+    private final LocalDateTime fin;
+    private final Path archivoEstado;
+    private final ForkJoinPool hilos;
+    private long reservasPorPunto;
+    private Consumer<ProgresoFacturacion> escucha;
+    private volatile ProgresoFacturacion progreso;
+
+    /**
+     * Acumulados por identificador de usuario.
+     */
+    private Map<String, Acumulado> acumulados;
+
+    /**
+     * Inicio del siguiente tramo por acumular.
+     */
+    private LocalDateTime siguiente;
+    private long facturadas;
+    private long omitidas;
+
+    /**
+     * Constructor que reparte el trabajo en el grupo de hilos común.
+     *
+     * @param operacion     Almacén con las reservas.
+     * @param motor         Motor de precios con que se calculan tarifas, descuentos e impuesto.
+     * @param inicio        Inicio del periodo.
+     * @param fin           Fin del periodo (exclusivo).
+     * @param archivoEstado Archivo donde se guarda el estado para reanudar, o null para no guardarlo.
+     */
+    public CorridaFacturacion(Operacion operacion, MotorPrecios motor, LocalDateTime inicio, LocalDateTime fin,
+                              Path archivoEstado) {
+        this(operacion, motor, inicio, fin, archivoEstado, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor que reparte el trabajo en el grupo de hilos dado.
+     *
+     * @param operacion     Almacén con las reservas.
+     * @param motor         Motor de precios con que se calculan tarifas, descuentos e impuesto.
+     * @param inicio        Inicio del periodo.
+     * @param fin           Fin del periodo (exclusivo).
+     * @param archivoEstado Archivo donde se guarda el estado para reanudar, o null para no guardarlo.
+     * @param hilos         Grupo de hilos para acumular cada tramo.
+     */
+    public CorridaFacturacion(Operacion operacion, MotorPrecios motor, LocalDateTime inicio, LocalDateTime fin,
+                              Path archivoEstado, ForkJoinPool hilos) {
+        if (inicio == null || fin == null || !fin.isAfter(inicio)) {
+            throw new IllegalArgumentException("El fin del periodo debe ser posterior a su inicio.");
+        }
+        this.operacion = operacion;
+        this.motor = motor;
+        this.inicio = inicio;
+        this.fin = fin;
+        this.archivoEstado = archivoEstado;
+        this.hilos = hilos;
+        this.reservasPorPunto = RESERVAS_POR_PUNTO;
+        this.progreso = new ProgresoFacturacion(0, tramos(inicio), 0, 0, 0, 0, 0, false);
+    }
+
+    /**
+     * Cambia la cantidad de reservas acumuladas entre dos guardados del estado.
+     *
+     * @param reservasPorPunto Cantidad de reservas, positiva.
+     */
+    public void setReservasPorPunto(long reservasPorPunto) {
+        if (reservasPorPunto <= 0) {
+            throw new IllegalArgumentException("La cantidad de reservas por punto debe ser positiva.");
+        }
+        this.reservasPorPunto = reservasPorPunto;
+    }
+
+    /**
+     * Indica una función que recibe el progreso cada vez que termina un tramo y al final.
+     *
+     * @param escucha Receptor del progreso, o null para ninguno.
+     */
+    public void setEscucha(Consumer<ProgresoFacturacion> escucha) {
+        this.escucha = escucha;
+    }
+
+    /**
+     * Obtiene el último progreso publicado.
+     *
+     * @return El progreso de la corrida.
+     */
+    public ProgresoFacturacion getProgreso() {
+        return progreso;
+    }
+
+    /**
+     * Ejecuta la corrida, o la reanuda si hay un estado guardado, y entrega las facturas al
+     * destino. Si el hilo se interrumpe, se guarda el estado al terminar el tramo en curso y
+     * se devuelve un progreso no terminado, con la marca de interrupción del hilo conservada.
+     *
+     * @param destino Receptor de las facturas.
+     * @return El progreso final.
+     * @throws IOException Si el estado guardado no se puede leer o escribir, o es de otra corrida.
+     * @throws IllegalArgumentException Si la tarifa de alguna zona no está en la moneda del motor;
+     *                                  el estado queda guardado hasta el tramo anterior.
+     */
+    public ProgresoFacturacion ejecutar(Consumer<Factura> destino) throws IOException {
+        long comienzo = System.nanoTime();
+        if (archivoEstado != null && Files.exists(archivoEstado)) {
+            cargarEstado();
+        } else {
+            acumulados = new HashMap<>();
+            siguiente = inicio;
+            facturadas = 0;
+            omitidas = 0;
+        }
+        long sinGuardar = 0;
+        while (siguiente.isBefore(fin)) {
+            if (Thread.currentThread().isInterrupted()) {
+                guardarEstado();
+                return publicar(comienzo, 0, false);
+            }
+            LocalDateTime hasta = siguiente.plusDays(1);
+            if (hasta.isAfter(fin)) {
+                hasta = fin;
+            }
+            List<Reserva> tramo = operacion.readReservasQueEmpiezan(siguiente, hasta);
+            if (!tramo.isEmpty()) {
+                Parcial parcial = hilos.invoke(new Reparto(tramo, 0, tramo.size()));
+                combinar(acumulados, parcial.acumulados);
+                omitidas += parcial.omitidas;
+                facturadas += tramo.size() - parcial.omitidas;
+                sinGuardar += tramo.size();
+            }
+            siguiente = hasta;
+            if (sinGuardar >= reservasPorPunto) {
+                guardarEstado();
+                sinGuardar = 0;
+            }
+            publicar(comienzo, 0, false);
+        }
+        if (sinGuardar > 0) {
+            guardarEstado();
+        }
+        long emitidas = emitir(destino);
+        if (archivoEstado != null) {
+            Files.deleteIfExists(archivoEstado);
+        }
+        return publicar(comienzo, emitidas, true);
+    }
+
+    /**
+     * Entrega una factura por usuario, en orden de identificador.
+     */
+    private long emitir(Consumer<Factura> destino) {
+        Currency moneda = motor.getMoneda();
+        String prefijo = "F" + inicio.format(DateTimeFormatter.BASIC_ISO_DATE) + "-";
+        List<String> ids = new ArrayList<>(acumulados.keySet());
+        ids.sort(null);
+        long emitidas = 0;
+        for (String idUsuario : ids) {
+            Acumulado acumulado = acumulados.get(idUsuario);
+            Usuario usuario = operacion.read(idUsuario);
+            if (usuario == null) {
+                usuario = acumulado.usuario;
+            }
+            if (usuario == null) {
+                // Usuario eliminado entre dos ejecuciones de una corrida reanudada
+                omitidas += acumulado.reservas;
+                facturadas -= acumulado.reservas;
+                continue;
+            }
+            destino.accept(new Factura(prefijo + idUsuario, usuario, inicio, fin, acumulado.reservas,
+                    Dinero.deUnidades(acumulado.subtotal, moneda), Dinero.deUnidades(acumulado.descuento, moneda),
+                    motor.getTasaImpuesto()));
+            emitidas++;
+        }
+        return emitidas;
+    }
+
+    private ProgresoFacturacion publicar(long comienzo, long emitidas, boolean terminada) {
+        long completados = tramos(inicio) - tramos(siguiente);
+        ProgresoFacturacion actual = new ProgresoFacturacion(completados, tramos(inicio), facturadas, omitidas,
+                acumulados.size(), emitidas, (System.nanoTime() - comienzo) / 1_000_000, terminada);
+        progreso = actual;
+        if (escucha != null) {
+            escucha.accept(actual);
+        }
+        return actual;
+    }
+
+    /**
+     * Cantidad de tramos de un día desde un instante hasta el fin del periodo.
+     */
+    private long tramos(LocalDateTime desde) {
+        if (!desde.isBefore(fin)) {
+            return 0;
+        }
+        long dias = desde.until(fin, ChronoUnit.DAYS);
+        return desde.plusDays(dias).isBefore(fin) ? dias + 1 : dias;
+    }
+
+    private static void combinar(Map<String, Acumulado> destino, Map<String, Acumulado> origen) {
+        for (Map.Entry<String, Acumulado> entrada : origen.entrySet()) {
+            Acumulado existente = destino.putIfAbsent(entrada.getKey(), entrada.getValue());
+            if (existente != null) {
+                existente.sumar(entrada.getValue());
+            }
+        }
+    }
+
+    /**
+     * Guarda el estado en un temporal que luego reemplaza al archivo, para que una caída a
+     * mitad de la escritura deje el estado anterior. Se escribe con un {@link FileOutputStream}
+     * y no con un canal porque el estado debe poder guardarse con el hilo interrumpido.
+     */
+    private void guardarEstado() throws IOException {
+        if (archivoEstado == null) {
+            return;
+        }
+        Path temporal = archivoEstado.resolveSibling(archivoEstado.getFileName() + ".tmp");
+        try (FileOutputStream archivo = new FileOutputStream(temporal.toFile())) {
+            DataOutputStream salida = new DataOutputStream(new BufferedOutputStream(archivo, 1 << 16));
+            salida.writeInt(MAGIA);
+            salida.writeInt(VERSION);
+            escribirFecha(salida, inicio);
+            escribirFecha(salida, fin);
+            escribirFecha(salida, siguiente);
+            salida.writeUTF(motor.getMoneda().getCurrencyCode());
+            salida.writeLong(facturadas);
+            salida.writeLong(omitidas);
+            salida.writeInt(acumulados.size());
+            for (Map.Entry<String, Acumulado> entrada : acumulados.entrySet()) {
+                Acumulado acumulado = entrada.getValue();
+                salida.writeUTF(entrada.getKey());
+                salida.writeInt(acumulado.reservas);
+                salida.writeLong(acumulado.subtotal);
+                salida.writeLong(acumulado.descuento);
+            }
+            salida.flush();
+            archivo.getFD().sync();
+        }
+        Files.move(temporal, archivoEstado, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void cargarEstado() throws IOException {
+        try (DataInputStream entrada = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(archivoEstado), 1 << 16))) {
+            if (entrada.readInt() != MAGIA || entrada.readInt() != VERSION) {
+                throw new IOException("El archivo de estado no tiene el formato esperado.");
+            }
+            if (!inicio.equals(leerFecha(entrada)) || !fin.equals(leerFecha(entrada))) {
+                throw new IOException("El estado guardado corresponde a otro periodo.");
+            }
+            LocalDateTime guardado = leerFecha(entrada);
+            if (!motor.getMoneda().getCurrencyCode().equals(entrada.readUTF())) {
+                throw new IOException("El estado guardado está en otra moneda.");
+            }
+            long facturadasGuardadas = entrada.readLong();
+            long omitidasGuardadas = entrada.readLong();
+            int cantidad = entrada.readInt();
+            Map<String, Acumulado> leidos = new HashMap<>(Math.max(16, cantidad * 4 / 3 + 1));
+            for (int i = 0; i < cantidad; i++) {
+                Acumulado acumulado = new Acumulado(null);
+                String idUsuario = entrada.readUTF();
+                acumulado.reservas = entrada.readInt();
+                acumulado.subtotal = entrada.readLong();
+                acumulado.descuento = entrada.readLong();
+                leidos.put(idUsuario, acumulado);
+            }
+            acumulados = leidos;
+            siguiente = guardado;
+            facturadas = facturadasGuardadas;
+            omitidas = omitidasGuardadas;
+        } catch (EOFException e) {
+            throw new IOException("El archivo de estado está truncado.", e);
+        }
+    }
+
+    private static void escribirFecha(DataOutputStream salida, LocalDateTime fecha) throws IOException {
+        salida.writeLong(fecha.toEpochSecond(ZoneOffset.UTC));
+        salida.writeInt(fecha.getNano());
+    }
+
+    private static LocalDateTime leerFecha(DataInputStream entrada) throws IOException {
+        long segundos = entrada.readLong();
+        return LocalDateTime.ofEpochSecond(segundos, entrada.readInt(), ZoneOffset.UTC);
+    }
+
+    /**
+     * Subtotal y descuento de las reservas de un usuario, en unidades menores.
+     */
+    private static final class Acumulado {
+        private final Usuario usuario;
+        private int reservas;
+        private long subtotal;
+        private long descuento;
+
+        private Acumulado(Usuario usuario) {
+            this.usuario = usuario;
+        }
+
+        private void sumar(Acumulado otro) {
+            reservas += otro.reservas;
+            subtotal = Math.addExact(subtotal, otro.subtotal);
+            descuento = Math.addExact(descuento, otro.descuento);
+        }
+    }
+
+    /**
+     * Resultado de acumular una parte de un tramo.
+     */
+    private static final class Parcial {
+        private final Map<String, Acumulado> acumulados = new HashMap<>();
+        private long omitidas;
+    }
+
+    /**
+     * Tarea que acumula un rango de las reservas de un tramo, dividiéndolo en dos mientras
+     * sea grande.
+     */
+    @SuppressWarnings("serial")
+    private final class Reparto extends RecursiveTask<Parcial> {
+        private final List<Reserva> reservas;
+        private final int desde;
+        private final int hasta;
+
+        private Reparto(List<Reserva> reservas, int desde, int hasta) {
+            this.reservas = reservas;
+            this.desde = desde;
+            this.hasta = hasta;
+        }
+
+        @Override
+        protected Parcial compute() {
+            if (hasta - desde <= UMBRAL_DIVISION) {
+                Parcial parcial = new Parcial();
+                for (int i = desde; i < hasta; i++) {
+                    Reserva reserva = reservas.get(i);
+                    Usuario usuario = reserva.getUsuario();
+                    if (usuario == null || usuario.getIdUsuario() == null) {
+                        parcial.omitidas++;
+                        continue;
+                    }
+                    long subtotal = motor.subtotal(reserva);
+                    Acumulado acumulado = parcial.acumulados.computeIfAbsent(usuario.getIdUsuario(),
+                            id -> new Acumulado(usuario));
+                    acumulado.reservas++;
+                    acumulado.subtotal = Math.addExact(acumulado.subtotal, subtotal);
+                    acumulado.descuento = Math.addExact(acumulado.descuento, motor.descuento(usuario, subtotal));
+                }
+                return parcial;
+            }
+            int medio = (desde + hasta) >>> 1;
+            Reparto izquierda = new Reparto(reservas, desde, medio);
+            izquierda.fork();
+            Parcial derecha = new Reparto(reservas, medio, hasta).compute();
+            Parcial resultado = izquierda.join();
+            if (resultado.acumulados.size() < derecha.acumulados.size()) {
+                Parcial menor = resultado;
+                resultado = derecha;
+                derecha = menor;
+            }
+            combinar(resultado.acumulados, derecha.acumulados);
+            resultado.omitidas += derecha.omitidas;
+            return resultado;
+        }
+    }
+}
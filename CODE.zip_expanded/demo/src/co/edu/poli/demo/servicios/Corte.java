@@ -0,0 +1,281 @@
+package co.edu.poli.demo.servicios;
+
+import co.edu.poli.demo.servicios.TablaIndexada.Entrada;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * Estado de una {@link TablaIndexada} en un instante: las entidades que tenía, en orden de
+ * inserción. Un corte no cambia nunca, así que puede recorrerse sin cerrojos y sin fallar
+ * mientras la tabla sigue recibiendo escrituras, que no se reflejan en él.
+ * <p>
+ * Es un árbol persistente (un treap ordenado por número de secuencia): cada escritura de
+ * la tabla crea un corte nuevo que copia solo el camino de la raíz a la entrada cambiada,
+ * O(log n) nodos, y comparte el resto con el anterior. Tomar un corte cuesta lo mismo que
+ * leer una referencia. Los cortes viejos y las entradas que solo ellos conservan los libera
+ * el recolector de basura en cuanto nadie los usa.
+ * <p>
+ * El corte guarda las instancias de las entidades, no copias. El almacén nunca modifica una
+ * entidad guardada: cada cambio publica una instancia nueva. Quien lea una entidad la
+ * comparte con la tabla y con los cortes, así que debe tratarla como de solo lectura y, para
+ * cambiarla, modificar una copia y actualizarla en el almacén.
+ *
+ * @param <T> Tipo de las entidades.
+ */
+public final class Corte<T> implements Iterable<T> {
+
+    private static final Corte<?> VACIO = new Corte<>(null);
+
+    private final Nodo<T> raiz;
+
+    private Corte(Nodo<T> raiz) {
+        this.raiz = raiz;
+    }
+
+    /**
+     * Obtiene el corte de una tabla vacía.
+     *
+     * @param <T> Tipo de las entidades.
+     * @return El corte vacío.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> Corte<T> vacio() {
+        return (Corte<T>) VACIO;
+    }
+
+    /**
+     * Obtiene la cantidad de entidades del corte sin recorrerlas.
+     *
+     * @return El número de entidades.
+     */
+    public int tamano() {
+        return tamano(raiz);
+    }
+
+    /**
+     * Devuelve una copia de las entidades del corte en orden de inserción.
+     *
+     * @return Lista nueva con las entidades.
+     */
+    public List<T> valores() {
+        List<T> valores = new ArrayList<>(tamano());
+        for (T valor : this) {
+            valores.add(valor);
+        }
+        return valores;
+    }
+
+    /**
+     * Recorre las entidades del corte en orden de inserción.
+     *
+     * @return Iterador de solo lectura sobre las entidades.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        Iterator<Entrada<T>> entradas = entradas();
+        return new Iterator<T>() {
+            @Override
+            public boolean hasNext() {
+                return entradas.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return entradas.next().valor;
+            }
+        };
+    }
+
+    /**
+     * Recorre varios cortes como uno solo, en orden de inserción. Sirve para cortes de partes
+     * de una misma tabla, que comparten sus números de secuencia.
+     *
+     * @param cortes Cortes a recorrer.
+     * @param accion Acción a ejecutar con cada entidad.
+     * @param <T>    Tipo de las entidades.
+     */
+    static <T> void recorrerUnidos(List<Corte<T>> cortes, Consumer<? super T> accion) {
+        if (cortes.size() == 1) {
+            cortes.get(0).forEach(accion);
+            return;
+        }
+        // Son pocos cortes: en cada paso se elige la menor de las entradas pendientes
+        List<Iterator<Entrada<T>>> partes = new ArrayList<>(cortes.size());
+        List<Entrada<T>> pendientes = new ArrayList<>(cortes.size());
+        for (Corte<T> corte : cortes) {
+            Iterator<Entrada<T>> parte = corte.entradas();
+            partes.add(parte);
+            pendientes.add(parte.hasNext() ? parte.next() : null);
+        }
+        while (true) {
+            int menor = -1;
+            for (int i = 0; i < pendientes.size(); i++) {
+                Entrada<T> pendiente = pendientes.get(i);
+                if (pendiente != null && (menor < 0 || pendiente.secuencia < pendientes.get(menor).secuencia)) {
+                    menor = i;
+                }
+            }
+            if (menor < 0) {
+                return;
+            }
+            accion.accept(pendientes.get(menor).valor);
+            Iterator<Entrada<T>> parte = partes.get(menor);
+            pendientes.set(menor, parte.hasNext() ? parte.next() : null);
+        }
+    }
+
+    /**
+     * Recorre las entradas del corte en orden de número de secuencia.
+     */
+    private Iterator<Entrada<T>> entradas() {
+        return new Iterator<Entrada<T>>() {
+            private final Deque<Nodo<T>> pendientes = new ArrayDeque<>();
+            private Nodo<T> siguiente = raiz;
+
+            @Override
+            public boolean hasNext() {
+                return siguiente != null || !pendientes.isEmpty();
+            }
+
+            @Override
+            public Entrada<T> next() {
+                while (siguiente != null) {
+                    pendientes.push(siguiente);
+                    siguiente = siguiente.izquierdo;
+                }
+                if (pendientes.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                Nodo<T> nodo = pendientes.pop();
+                siguiente = nodo.derecho;
+                return nodo.entrada;
+            }
+        };
+    }
+
+    /**
+     * Devuelve un corte con la entrada agregada o, si ya había una con su número de
+     * secuencia, reemplazada. Este corte no cambia.
+     */
+    Corte<T> con(Entrada<T> entrada) {
+        return new Corte<>(poner(raiz, entrada, prioridad(entrada.secuencia)));
+    }
+
+    /**
+     * Devuelve un corte sin la entrada con el número de secuencia dado. Este corte no cambia.
+     */
+    Corte<T> sin(long secuencia) {
+        Nodo<T> nueva = quitar(raiz, secuencia);
+        return nueva == raiz ? this : new Corte<>(nueva);
+    }
+
+    private static <T> Nodo<T> poner(Nodo<T> nodo, Entrada<T> entrada, int prioridad) {
+        if (nodo == null) {
+            return new Nodo<>(entrada, prioridad, null, null);
+        }
+        long clave = entrada.secuencia;
+        long actual = nodo.entrada.secuencia;
+        if (clave == actual) {
+            return new Nodo<>(entrada, nodo.prioridad, nodo.izquierdo, nodo.derecho);
+        }
+        if (prioridad > nodo.prioridad) {
+            // Con mayor prioridad que este nodo, la clave no puede estar debajo de él
+            Nodo<T>[] partes = partir(nodo, clave);
+            return new Nodo<>(entrada, prioridad, partes[0], partes[1]);
+        }
+        return clave < actual
+                ? new Nodo<>(nodo.entrada, nodo.prioridad, poner(nodo.izquierdo, entrada, prioridad), nodo.derecho)
+                : new Nodo<>(nodo.entrada, nodo.prioridad, nodo.izquierdo, poner(nodo.derecho, entrada, prioridad));
+    }
+
+    /**
+     * Parte un árbol que no contiene la clave en los nodos menores y los mayores que ella.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <T> Nodo<T>[] partir(Nodo<T> nodo, long clave) {
+        if (nodo == null) {
+            return new Nodo[2];
+        }
+        Nodo<T>[] partes;
+        if (clave < nodo.entrada.secuencia) {
+            partes = partir(nodo.izquierdo, clave);
+            partes[1] = new Nodo<>(nodo.entrada, nodo.prioridad, partes[1], nodo.derecho);
+        } else {
+            partes = partir(nodo.derecho, clave);
+            partes[0] = new Nodo<>(nodo.entrada, nodo.prioridad, nodo.izquierdo, partes[0]);
+        }
+        return partes;
+    }
+
+    private static <T> Nodo<T> quitar(Nodo<T> nodo, long clave) {
+        if (nodo == null) {
+            return null;
+        }
+        long actual = nodo.entrada.secuencia;
+        if (clave == actual) {
+            return unir(nodo.izquierdo, nodo.derecho);
+        }
+        if (clave < actual) {
+            Nodo<T> izquierdo = quitar(nodo.izquierdo, clave);
+            return izquierdo == nodo.izquierdo ? nodo : new Nodo<>(nodo.entrada, nodo.prioridad, izquierdo, nodo.derecho);
+        }
+        Nodo<T> derecho = quitar(nodo.derecho, clave);
+        return derecho == nodo.derecho ? nodo : new Nodo<>(nodo.entrada, nodo.prioridad, nodo.izquierdo, derecho);
+    }
+
+    /**
+     * Une dos árboles cuyas claves de la izquierda son todas menores que las de la derecha.
+     */
+    private static <T> Nodo<T> unir(Nodo<T> izquierdo, Nodo<T> derecho) {
+        if (izquierdo == null) {
+            return derecho;
+        }
+        if (derecho == null) {
+            return izquierdo;
+        }
+        if (izquierdo.prioridad >= derecho.prioridad) {
+            return new Nodo<>(izquierdo.entrada, izquierdo.prioridad, izquierdo.izquierdo,
+                    unir(izquierdo.derecho, derecho));
+        }
+        return new Nodo<>(derecho.entrada, derecho.prioridad, unir(izquierdo, derecho.izquierdo), derecho.derecho);
+    }
+
+    /**
+     * Prioridad de una clave. Se mezclan sus bits para que los números de secuencia, que
+     * llegan en orden, den un árbol de altura logarítmica esperada como si llegaran al azar.
+     */
+    private static int prioridad(long secuencia) {
+        long z = secuencia * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return (int) (z ^ (z >>> 31));
+    }
+
+    private static int tamano(Nodo<?> nodo) {
+        return nodo == null ? 0 : nodo.tamano;
+    }
+
+    /**
+     * Nodo inmutable del árbol: un padre nunca tiene menor prioridad que sus hijos.
+     */
+    private static final class Nodo<T> {
+        private final Entrada<T> entrada;
+        private final int prioridad;
+        private final Nodo<T> izquierdo;
+        private final Nodo<T> derecho;
+        private final int tamano;
+
+        private Nodo(Entrada<T> entrada, int prioridad, Nodo<T> izquierdo, Nodo<T> derecho) {
+            this.entrada = entrada;
+            this.prioridad = prioridad;
+            this.izquierdo = izquierdo;
+            this.derecho = derecho;
+            this.tamano = 1 + tamano(izquierdo) + tamano(derecho);
+        }
+    }
+}
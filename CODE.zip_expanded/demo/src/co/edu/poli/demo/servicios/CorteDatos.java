@@ -0,0 +1,122 @@
+package co.edu.poli.demo.servicios;
+
+import co.edu.poli.demo.modelo.Reserva;
+import co.edu.poli.demo.modelo.ReservaRecurrente;
+import co.edu.poli.demo.modelo.Usuario;
+import co.edu.poli.demo.modelo.Zona;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Estado de todos los datos de un almacén en un mismo instante, obtenido con
+ * {@link Operacion#tomarCorte()}. Pensado para reportes largos: se recorre sin cerrojos, no
+ * detiene a los escritores y no ve escrituras a medias ni posteriores, aunque el recorrido
+ * dure mucho.
+ * <p>
+ * Las entidades del corte son las mismas instancias que guarda el almacén, que nunca las
+ * modifica en sitio; deben tratarse como de solo lectura.
+ */
+public class CorteDatos {
+
+    private final Corte<Usuario> usuarios;
+    private final Corte<Zona> zonas;
+    private final Corte<Reserva> reservas;
+    private final Corte<ReservaRecurrente> recurrencias;
+    private final Map<Class<?>, Corte<Usuario>> usuariosPorClase;
+
+    /**
+     * Constructor del corte.
+     *
+     * @param usuarios         Corte de los usuarios.
+     * @param usuariosPorClase Cortes de los usuarios de cada clase concreta, tomados en el
+     *                         mismo instante que el de todos los usuarios.
+     * @param zonas            Corte de las zonas.
+     * @param reservas         Corte de las reservas.
+     * @param recurrencias     Corte de las reservas recurrentes.
+     */
+    public CorteDatos(Corte<Usuario> usuarios, Map<Class<?>, Corte<Usuario>> usuariosPorClase, Corte<Zona> zonas,
+                      Corte<Reserva> reservas, Corte<ReservaRecurrente> recurrencias) {
+        this.usuarios = usuarios;
+        this.usuariosPorClase = usuariosPorClase;
+        this.zonas = zonas;
+        this.reservas = reservas;
+        this.recurrencias = recurrencias;
+    }
+
+    public Corte<Usuario> getUsuarios() {
+        return usuarios;
+    }
+
+    /**
+     * Devuelve una copia de los usuarios de un tipo, en orden de inserción. Solo se visitan
+     * los usuarios de ese tipo.
+     *
+     * @param tipo Clase de los usuarios; sus subclases también se incluyen.
+     * @param <S>  Tipo de los usuarios.
+     * @return Lista nueva con los usuarios del tipo.
+     */
+    public <S extends Usuario> List<S> getUsuarios(Class<S> tipo) {
+        List<Corte<Usuario>> elegidos = cortesDe(tipo);
+        int cantidad = 0;
+        for (Corte<Usuario> corte : elegidos) {
+            cantidad += corte.tamano();
+        }
+        List<S> valores = new ArrayList<>(cantidad);
+        Corte.recorrerUnidos(elegidos, usuario -> valores.add(tipo.cast(usuario)));
+        return valores;
+    }
+
+    /**
+     * Recorre los usuarios de un tipo en orden de inserción sin copiarlos.
+     *
+     * @param tipo   Clase de los usuarios; sus subclases también se incluyen.
+     * @param accion Acción a ejecutar con cada usuario.
+     * @param <S>    Tipo de los usuarios.
+     */
+    public <S extends Usuario> void recorrerUsuarios(Class<S> tipo, Consumer<? super S> accion) {
+        Corte.recorrerUnidos(cortesDe(tipo), usuario -> accion.accept(tipo.cast(usuario)));
+    }
+
+    public Corte<Zona> getZonas() {
+        return zonas;
+    }
+
+    public Corte<Reserva> getReservas() {
+        return reservas;
+    }
+
+    public Corte<ReservaRecurrente> getRecurrencias() {
+        return recurrencias;
+    }
+
+    /**
+     * Combina este corte con otro tomado después.
+     *
+     * @param otro       Corte del que se toman los tipos indicados.
+     * @param deUsuarios Si los usuarios se toman del otro corte.
+     * @param deZonas    Si las zonas se toman del otro corte.
+     * @param deReservas Si las reservas y las reservas recurrentes se toman del otro corte.
+     * @return Un corte nuevo con los tipos indicados del otro corte y los demás de este.
+     */
+    CorteDatos combinar(CorteDatos otro, boolean deUsuarios, boolean deZonas, boolean deReservas) {
+        CorteDatos usuariosDe = deUsuarios ? otro : this;
+        CorteDatos reservasDe = deReservas ? otro : this;
+        return new CorteDatos(usuariosDe.usuarios, usuariosDe.usuariosPorClase, (deZonas ? otro : this).zonas,
+                reservasDe.reservas, reservasDe.recurrencias);
+    }
+
+    /**
+     * Cortes de las clases que son el tipo dado o una subclase suya.
+     */
+    private List<Corte<Usuario>> cortesDe(Class<?> tipo) {
+        List<Corte<Usuario>> elegidos = new ArrayList<>(2);
+        for (Map.Entry<Class<?>, Corte<Usuario>> corte : usuariosPorClase.entrySet()) {
+            if (tipo.isAssignableFrom(corte.getKey())) {
+                elegidos.add(corte.getValue());
+            }
+        }
+        return elegidos;
+    }
+}
@@ -0,0 +1,60 @@
+package co.edu.poli.demo.servicios;
+
+import co.edu.poli.demo.modelo.Dinero;
+
+/**
+ * Precio de una reserva calculado por un {@link MotorPrecios}, con su desglose.
+ */
+public class Cotizacion {
+
+    private final String idReserva;
+    private final Dinero subtotal;
+    private final Dinero descuento;
+    private final Dinero impuesto;
+
+    /**
+     * Constructor de la cotización.
+     *
+     * @param idReserva Identificador de la reserva cotizada.
+     * @param subtotal  Tarifa por la duración de la reserva.
+     * @param descuento Descuento aplicado sobre el subtotal.
+     * @param impuesto  Impuesto sobre el subtotal menos el descuento.
+     */
+    public Cotizacion(String idReserva, Dinero subtotal, Dinero descuento, Dinero impuesto) {
+        this.idReserva = idReserva;
+        this.subtotal = subtotal;
+        this.descuento = descuento;
+        this.impuesto = impuesto;
+    }
+
+    public String getIdReserva() {
+        return idReserva;
+    }
+
+    public Dinero getSubtotal() {
+        return subtotal;
+    }
+
+    public Dinero getDescuento() {
+        return descuento;
+    }
+
+    public Dinero getImpuesto() {
+        return impuesto;
+    }
+
+    /**
+     * Obtiene el precio final: subtotal menos descuento más impuesto.
+     *
+     * @return El total a pagar, exacto.
+     */
+    public Dinero getTotal() {
+        return subtotal.restar(descuento).sumar(impuesto);
+    }
+
+    @Override
+    public String toString() {
+        return "Cotizacion [idReserva=" + idReserva + ", subtotal=" + subtotal + ", descuento=" + descuento
+                + ", impuesto=" + impuesto + ", total=" + getTotal() + "]";
+    }
+}
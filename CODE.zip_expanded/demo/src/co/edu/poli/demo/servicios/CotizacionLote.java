@@ -0,0 +1,106 @@
+package co.edu.poli.demo.servicios;
+
+import co.edu.poli.demo.modelo.Dinero;
+import co.edu.poli.demo.modelo.Reserva;
+import java.util.Currency;
+import java.util.List;
+
+/**
+ * Precios de un lote de reservas calculados por un {@link MotorPrecios}. Los valores se
+ * guardan en arreglos de unidades menores de la moneda del lote, uno por concepto, en el
+ * mismo orden que las reservas; la posición de cada reserva en el lote es su índice.
+ */
+public class CotizacionLote {
+
+    private final List<Reserva> reservas;
+    private final Currency moneda;
+    private final long[] subtotales;
+    private final long[] descuentos;
+    private final long[] impuestos;
+
+    CotizacionLote(List<Reserva> reservas, Currency moneda, long[] subtotales, long[] descuentos, long[] impuestos) {
+        this.reservas = reservas;
+        this.moneda = moneda;
+        this.subtotales = subtotales;
+        this.descuentos = descuentos;
+        this.impuestos = impuestos;
+    }
+
+    /**
+     * Obtiene la cantidad de reservas cotizadas.
+     *
+     * @return El tamaño del lote.
+     */
+    public int tamano() {
+        return subtotales.length;
+    }
+
+    public Currency getMoneda() {
+        return moneda;
+    }
+
+    public Reserva getReserva(int indice) {
+        return reservas.get(indice);
+    }
+
+    public Dinero getSubtotal(int indice) {
+        return Dinero.deUnidades(subtotales[indice], moneda);
+    }
+
+    public Dinero getDescuento(int indice) {
+        return Dinero.deUnidades(descuentos[indice], moneda);
+    }
+
+    public Dinero getImpuesto(int indice) {
+        return Dinero.deUnidades(impuestos[indice], moneda);
+    }
+
+    /**
+     * Obtiene el precio final de una reserva del lote.
+     *
+     * @param indice Posición de la reserva en el lote.
+     * @return Subtotal menos descuento más impuesto.
+     */
+    public Dinero getTotal(int indice) {
+        return Dinero.deUnidades(getTotalUnidades(indice), moneda);
+    }
+
+    /**
+     * Obtiene el precio final de una reserva del lote en unidades menores, sin crear objetos.
+     *
+     * @param indice Posición de la reserva en el lote.
+     * @return Subtotal menos descuento más impuesto, en unidades menores.
+     */
+    public long getTotalUnidades(int indice) {
+        return subtotales[indice] - descuentos[indice] + impuestos[indice];
+    }
+
+    /**
+     * Obtiene la cotización de una reserva del lote como objeto.
+     *
+     * @param indice Posición de la reserva en el lote.
+     * @return La cotización.
+     */
+    public Cotizacion getCotizacion(int indice) {
+        return new Cotizacion(reservas.get(indice).getIdReserva(), getSubtotal(indice), getDescuento(indice),
+                getImpuesto(indice));
+    }
+
+    /**
+     * Suma los precios finales de todo el lote. La suma es exacta.
+     *
+     * @return El total del lote.
+     */
+    public Dinero getSumaTotal() {
+        long suma = 0;
+        for (int i = 0; i < subtotales.length; i++) {
+            suma = Math.addExact(suma, getTotalUnidades(i));
+        }
+        return Dinero.deUnidades(suma, moneda);
+    }
+
+    @Override
+    public String toString() {
+        return "CotizacionLote [reservas=" + tamano() + ", total=" + getSumaTotal() + "]";
+    }
+}
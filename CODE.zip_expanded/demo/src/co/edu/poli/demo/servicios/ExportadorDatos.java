@@ -0,0 +1,544 @@
+package co.edu.poli.demo.servicios;
+
+import co.edu.poli.demo.modelo.Dinero;
+import co.edu.poli.demo.modelo.Empleado;
+import co.edu.poli.demo.modelo.Reserva;
+import co.edu.poli.demo.modelo.Usuario;
+import co.edu.poli.demo.modelo.UsuarioCorporativo;
+import co.edu.poli.demo.modelo.UsuarioFrecuente;
+import co.edu.poli.demo.modelo.UsuarioResidencial;
+import co.edu.poli.demo.modelo.Zona;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Exporta los datos de un {@link Operacion} a archivos CSV o JSON Lines, un archivo por
+ * tipo de entidad.
+ * <p>
+ * Las entidades se recorren directamente en el almacén con los métodos {@code recorrer}
+ * de {@link Operacion}, y cada campo se codifica en un búfer que se vacía a un
+ * {@link FileChannel} cuando se llena. No se crean listas intermedias ni una cadena por
+ * registro, así que la memoria usada no depende de la cantidad de datos.
+ * <p>
+ * Los archivos CSV tienen el formato de {@link FormatoCsv} y se pueden volver a cargar
+ * con {@link ImportadorCsv}. Como el importador lee una entidad por línea, los saltos de
+ * línea dentro de un campo se exportan como espacios. En JSON Lines cada línea es un
+ * objeto; los usuarios llevan además un campo {@code tipo} con su subclase.
+ * <p>
+ * Los importes se escriben exactos, con todos los decimales de su moneda. Los que no están
+ * en la moneda local llevan el código de la moneda después de un espacio, {@code 12.50 USD};
+ * en JSON esos importes se escriben como texto y los de moneda local como número.
+ */
+public class ExportadorDatos {
+
+    /**
+     * Formatos de exportación.
+     */
+    public enum Formato {
+        CSV(".csv"),
+        JSONL(".jsonl");
+
+        private final String extension;
+
+        Formato(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    private final Operacion operacion;
+
+    /**
+     * Constructor del exportador.
+     *
+     * @param operacion Almacén cuyos datos se exportan.
+     */
+    public ExportadorDatos(Operacion operacion) {
+        this.operacion = operacion;
+    }
+
+    /**
+     * Exporta todos los datos a un directorio: un archivo por cada subclase de usuario, uno
+     * de zonas y uno de reservas, con los mismos nombres en ambos formatos.
+     *
+     * @param directorio Directorio de destino; se crea si no existe.
+     * @param formato    Formato de los archivos.
+     * @return La cantidad total de entidades exportadas.
+     * @throws IOException Si algún archivo no se puede escribir.
+     */
+    public long exportarTodo(Path directorio, Formato formato) throws IOException {
+        Files.createDirectories(directorio);
+        String extension = formato.getExtension();
+        long total = exportarUsuarios(directorio.resolve("residenciales" + extension), UsuarioResidencial.class, formato);
+        total += exportarUsuarios(directorio.resolve("corporativos" + extension), UsuarioCorporativo.class, formato);
+        total += exportarUsuarios(directorio.resolve("frecuentes" + extension), UsuarioFrecuente.class, formato);
+        total += exportarUsuarios(directorio.resolve("internacionales" + extension), UsuarioInternacional.class, formato);
+        total += exportarUsuarios(directorio.resolve("empleados" + extension), Empleado.class, formato);
+        total += exportarZonas(directorio.resolve("zonas" + extension), formato);
+        total += exportarReservas(directorio.resolve("reservas" + extension), formato);
+        return total;
+    }
+
+    /**
+     * Exporta los usuarios de una subclase. Solo se incluyen los que son exactamente de esa
+     * clase: al exportar corporativos no se incluyen los internacionales, que tienen su
+     * propio archivo.
+     *
+     * @param archivo Archivo de destino; si existe se reemplaza.
+     * @param tipo    Subclase a exportar. En JSON Lines se puede usar {@code Usuario.class}
+     *                para exportar todos los usuarios en un solo archivo.
+     * @param formato Formato del archivo.
+     * @return La cantidad de usuarios exportados.
+     * @throws IOException Si el archivo no se puede escribir.
+     * @throws IllegalArgumentException Si se pide CSV sin una subclase concreta.
+     */
+    public long exportarUsuarios(Path archivo, Class<? extends Usuario> tipo, Formato formato) throws IOException {
+        boolean todos = tipo == Usuario.class;
+        if (todos && formato == Formato.CSV) {
+            throw new IllegalArgumentException("El formato CSV necesita una subclase concreta de usuario.");
+        }
+        try (Salida salida = new Salida(archivo)) {
+            if (formato == Formato.CSV) {
+                salida.texto(encabezado(tipo)).caracter('\n');
+            }
+            long[] cantidad = new long[1];
+            recorrer(() -> operacion.recorrerUsuarios(tipo, usuario -> {
+                if (todos || usuario.getClass() == tipo) {
+                    escribirUsuario(salida, usuario, formato);
+                    cantidad[0]++;
+                }
+            }));
+            return cantidad[0];
+        }
+    }
+
+    /**
+     * Exporta todas las zonas.
+     *
+     * @param archivo Archivo de destino; si existe se reemplaza.
+     * @param formato Formato del archivo.
+     * @return La cantidad de zonas exportadas.
+     * @throws IOException Si el archivo no se puede escribir.
+     */
+    public long exportarZonas(Path archivo, Formato formato) throws IOException {
+        try (Salida salida = new Salida(archivo)) {
+            if (formato == Formato.CSV) {
+                salida.texto(FormatoCsv.ZONA).caracter('\n');
+            }
+            long[] cantidad = new long[1];
+            recorrer(() -> operacion.recorrerZonas(zona -> {
+                if (formato == Formato.CSV) {
+                    salida.csv(zona.getIdZona()).coma().csv(zona.getNombre()).coma().csv(zona.getTipo()).coma()
+                            .dinero(zona.getCostoPorHora(), true).coma().booleano(zona.isDisponible());
+                } else {
+                    salida.caracter('{').json("idZona", zona.getIdZona()).coma().json("nombre", zona.getNombre())
+                            .coma().json("tipo", zona.getTipo()).coma().clave("costoPorHora")
+                            .dinero(zona.getCostoPorHora(), false).coma().clave("disponible")
+                            .booleano(zona.isDisponible()).caracter('}');
+                }
+                salida.caracter('\n');
+                cantidad[0]++;
+            }));
+            return cantidad[0];
+        }
+    }
+
+    /**
+     * Exporta todas las reservas. El usuario y la zona se exportan por identificador.
+     *
+     * @param archivo Archivo de destino; si existe se reemplaza.
+     * @param formato Formato del archivo.
+     * @return La cantidad de reservas exportadas.
+     * @throws IOException Si el archivo no se puede escribir.
+     */
+    public long exportarReservas(Path archivo, Formato formato) throws IOException {
+        try (Salida salida = new Salida(archivo)) {
+            if (formato == Formato.CSV) {
+                salida.texto(FormatoCsv.RESERVA).caracter('\n');
+            }
+            long[] cantidad = new long[1];
+            recorrer(() -> operacion.recorrerReservas(reserva -> {
+                String idUsuario = reserva.getUsuario() == null ? null : reserva.getUsuario().getIdUsuario();
+                if (formato == Formato.CSV) {
+                    salida.csv(reserva.getIdReserva()).coma().csv(idUsuario).coma()
+                            .csv(reserva.getZona().getIdZona()).coma().fecha(reserva.getFechaInicio()).coma()
+                            .fecha(reserva.getFechaFin()).coma().dinero(reserva.getCosto(), true);
+                } else {
+                    salida.caracter('{').json("idReserva", reserva.getIdReserva()).coma()
+                            .json("idUsuario", idUsuario).coma().json("idZona", reserva.getZona().getIdZona())
+                            .coma().clave("fechaInicio").caracter('"').fecha(reserva.getFechaInicio()).caracter('"')
+                            .coma().clave("fechaFin").caracter('"').fecha(reserva.getFechaFin()).caracter('"')
+                            .coma().clave("costo").dinero(reserva.getCosto(), false).caracter('}');
+                }
+                salida.caracter('\n');
+                cantidad[0]++;
+            }));
+            return cantidad[0];
+        }
+    }
+
+    private static String encabezado(Class<? extends Usuario> tipo) {
+        if (tipo == UsuarioResidencial.class) {
+            return FormatoCsv.RESIDENCIAL;
+        } else if (tipo == UsuarioCorporativo.class) {
+            return FormatoCsv.CORPORATIVO;
+        } else if (tipo == UsuarioFrecuente.class) {
+            return FormatoCsv.FRECUENTE;
+        } else if (tipo == UsuarioInternacional.class) {
+            return FormatoCsv.INTERNACIONAL;
+        } else if (tipo == Empleado.class) {
+            return FormatoCsv.EMPLEADO;
+        }
+        throw new IllegalArgumentException("Tipo de usuario sin formato CSV: " + tipo.getSimpleName());
+    }
+
+    private static void escribirUsuario(Salida salida, Usuario usuario, Formato formato) {
+        boolean csv = formato == Formato.CSV;
+        if (csv) {
+            salida.csv(usuario.getIdUsuario()).coma().csv(usuario.getNombre()).coma().csv(usuario.getCorreo())
+                    .coma().csv(usuario.getTelefono()).coma().booleano(usuario.isEsAdmin());
+        } else {
+            salida.caracter('{').json("tipo", nombreTipo(usuario)).coma().json("idUsuario", usuario.getIdUsuario())
+                    .coma().json("nombre", usuario.getNombre()).coma().json("correo", usuario.getCorreo()).coma()
+                    .json("telefono", usuario.getTelefono()).coma().clave("esAdmin").booleano(usuario.isEsAdmin());
+        }
+        if (usuario instanceof UsuarioResidencial) {
+            UsuarioResidencial residencial = (UsuarioResidencial) usuario;
+            campo(salida, csv, "numeroEventos").entero(residencial.getNumeroEventos());
+        } else if (usuario instanceof UsuarioCorporativo) {
+            UsuarioCorporativo corporativo = (UsuarioCorporativo) usuario;
+            campo(salida, csv, "nombreEmpresa").valor(corporativo.getNombreEmpresa(), csv);
+            campo(salida, csv, "eventosOrganizados").entero(corporativo.getEventosOrganizados());
+            if (usuario instanceof UsuarioInternacional) {
+                UsuarioInternacional internacional = (UsuarioInternacional) usuario;
+                campo(salida, csv, "paisOrigen").valor(internacional.getPaisOrigen(), csv);
+                campo(salida, csv, "requiereTraductor").booleano(internacional.isRequiereTraductor());
+                campo(salida, csv, "tarifaMonedaInternacional").dinero(internacional.getTarifaMonedaInternacional(), csv);
+            }
+        } else if (usuario instanceof UsuarioFrecuente) {
+            UsuarioFrecuente frecuente = (UsuarioFrecuente) usuario;
+            campo(salida, csv, "visitasTotales").entero(frecuente.getVisitasTotales());
+            campo(salida, csv, "descuento").decimal(frecuente.getDescuento());
+        } else if (usuario instanceof Empleado) {
+            Empleado empleado = (Empleado) usuario;
+            campo(salida, csv, "cargo").valor(empleado.getCargo(), csv);
+            campo(salida, csv, "salario").dinero(empleado.getSalario(), csv);
+            campo(salida, csv, "tareasAsignadas").lista(empleado.getTareasAsignadas(), csv);
+        }
+        if (!csv) {
+            salida.caracter('}');
+        }
+        salida.caracter('\n');
+    }
+
+    /**
+     * Escribe el separador antes de un campo y, en JSON, su nombre.
+     */
+    private static Salida campo(Salida salida, boolean csv, String nombre) {
+        salida.coma();
+        return csv ? salida : salida.clave(nombre);
+    }
+
+    private static String nombreTipo(Usuario usuario) {
+        switch (CodificadorBinario.tipoDe(usuario)) {
+            case CodificadorBinario.TIPO_RESIDENCIAL:
+                return "residencial";
+            case CodificadorBinario.TIPO_CORPORATIVO:
+                return "corporativo";
+            case CodificadorBinario.TIPO_FRECUENTE:
+                return "frecuente";
+            case CodificadorBinario.TIPO_INTERNACIONAL:
+                return "internacional";
+            default:
+                return "empleado";
+        }
+    }
+
+    /**
+     * Ejecuta un recorrido cuyas escrituras fallan con {@link UncheckedIOException} y
+     * devuelve el error original.
+     */
+    private static void recorrer(Runnable recorrido) throws IOException {
+        try {
+            recorrido.run();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Escritura de texto UTF-8 a un canal de archivo. Los caracteres se acumulan en un
+     * búfer que se codifica y vacía al canal cuando se llena.
+     */
+    private static final class Salida implements Closeable {
+        private static final int CARACTERES = 16 * 1024;
+
+        private final FileChannel canal;
+        private final CharBuffer caracteres;
+        private final ByteBuffer bytes;
+        private final CharsetEncoder codificador;
+
+        private Salida(Path archivo) throws IOException {
+            this.canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE);
+            this.caracteres = CharBuffer.allocate(CARACTERES);
+            this.codificador = StandardCharsets.UTF_8.newEncoder();
+            this.bytes = ByteBuffer.allocateDirect((int) (CARACTERES * codificador.maxBytesPerChar()));
+        }
+
+        private Salida caracter(char c) {
+            if (!caracteres.hasRemaining()) {
+                vaciar();
+            }
+            caracteres.put(c);
+            return this;
+        }
+
+        private Salida texto(CharSequence texto) {
+            for (int i = 0; i < texto.length(); i++) {
+                caracter(texto.charAt(i));
+            }
+            return this;
+        }
+
+        private Salida coma() {
+            return caracter(',');
+        }
+
+        private Salida entero(long valor) {
+            if (valor < 0) {
+                caracter('-');
+            }
+            long resto = Math.abs(valor);
+            if (valor == Long.MIN_VALUE) {
+                return texto("9223372036854775808");
+            }
+            long divisor = 1;
+            while (resto / divisor >= 10) {
+                divisor *= 10;
+            }
+            for (; divisor > 0; divisor /= 10) {
+                caracter((char) ('0' + (resto / divisor) % 10));
+            }
+            return this;
+        }
+
+        private Salida decimal(double valor) {
+            if (valor == Math.rint(valor) && Math.abs(valor) < 1e15) {
+                return entero((long) valor).texto(".0");
+            }
+            return texto(Double.toString(valor));
+        }
+
+        /**
+         * Escribe un importe exacto sin crear cadenas. En JSON, un importe nulo se escribe
+         * como {@code null} y uno en moneda extranjera como texto.
+         */
+        private Salida dinero(Dinero valor, boolean csv) {
+            if (valor == null) {
+                return csv ? this : texto("null");
+            }
+            boolean local = valor.getMoneda().equals(Dinero.MONEDA_LOCAL);
+            if (!local && !csv) {
+                caracter('"');
+            }
+            long unidades = valor.getUnidades();
+            int decimales = valor.getDecimales();
+            long escala = 1;
+            for (int i = 0; i < decimales; i++) {
+                escala *= 10;
+            }
+            if (unidades < 0) {
+                caracter('-');
+            }
+            entero(Math.abs(unidades / escala));
+            if (decimales > 0) {
+                caracter('.');
+                long fraccion = Math.abs(unidades % escala);
+                for (long divisor = escala / 10; divisor > 0; divisor /= 10) {
+                    caracter((char) ('0' + (fraccion / divisor) % 10));
+                }
+            }
+            if (!local) {
+                caracter(' ').texto(valor.getMoneda().getCurrencyCode());
+                if (!csv) {
+                    caracter('"');
+                }
+            }
+            return this;
+        }
+
+        private Salida booleano(boolean valor) {
+            return texto(valor ? "true" : "false");
+        }
+
+        /**
+         * Escribe una fecha en formato ISO con segundos, 2024-05-01T10:00:00.
+         */
+        private Salida fecha(LocalDateTime fecha) {
+            if (fecha == null) {
+                return this;
+            }
+            if (fecha.getNano() != 0 || fecha.getYear() < 0 || fecha.getYear() > 9999) {
+                return texto(fecha.toString());
+            }
+            dosDigitos(fecha.getYear() / 100).dosDigitos(fecha.getYear() % 100).caracter('-')
+                    .dosDigitos(fecha.getMonthValue()).caracter('-').dosDigitos(fecha.getDayOfMonth()).caracter('T')
+                    .dosDigitos(fecha.getHour()).caracter(':').dosDigitos(fecha.getMinute()).caracter(':')
+                    .dosDigitos(fecha.getSecond());
+            return this;
+        }
+
+        private Salida dosDigitos(int valor) {
+            return caracter((char) ('0' + valor / 10)).caracter((char) ('0' + valor % 10));
+        }
+
+        /**
+         * Escribe un campo CSV, entre comillas si contiene separadores o comillas.
+         */
+        private Salida csv(String valor) {
+            if (valor == null) {
+                return this;
+            }
+            boolean comillas = false;
+            for (int i = 0; i < valor.length() && !comillas; i++) {
+                char c = valor.charAt(i);
+                comillas = c == FormatoCsv.SEPARADOR || c == FormatoCsv.COMILLA;
+            }
+            if (comillas) {
+                caracter(FormatoCsv.COMILLA);
+            }
+            for (int i = 0; i < valor.length(); i++) {
+                char c = valor.charAt(i);
+                if (c == FormatoCsv.COMILLA) {
+                    caracter(c);
+                }
+                caracter(c == '\n' || c == '\r' ? ' ' : c);
+            }
+            return comillas ? caracter(FormatoCsv.COMILLA) : this;
+        }
+
+        /**
+         * Escribe una cadena JSON entre comillas, o null.
+         */
+        private Salida cadenaJson(String valor) {
+            if (valor == null) {
+                return texto("null");
+            }
+            caracter('"');
+            for (int i = 0; i < valor.length(); i++) {
+                char c = valor.charAt(i);
+                if (c == '"' || c == '\\') {
+                    caracter('\\').caracter(c);
+                } else if (c == '\n') {
+                    texto("\\n");
+                } else if (c == '\r') {
+                    texto("\\r");
+                } else if (c == '\t') {
+                    texto("\\t");
+                } else if (c < 0x20) {
+                    texto("\\u00").caracter(Character.forDigit(c >> 4, 16)).caracter(Character.forDigit(c & 0xF, 16));
+                } else {
+                    caracter(c);
+                }
+            }
+            return caracter('"');
+        }
+
+        private Salida clave(String nombre) {
+            return cadenaJson(nombre).caracter(':');
+        }
+
+        private Salida json(String nombre, String valor) {
+            return clave(nombre).cadenaJson(valor);
+        }
+
+        private Salida valor(String valor, boolean csv) {
+            return csv ? csv(valor) : cadenaJson(valor);
+        }
+
+        /**
+         * Escribe una lista: en CSV como un campo con los elementos separados por
+         * {@link FormatoCsv#SEPARADOR_LISTA}, y en JSON como un arreglo.
+         */
+        private Salida lista(List<String> elementos, boolean csv) {
+            if (elementos == null) {
+                return csv ? this : texto("[]");
+            }
+            if (csv) {
+                StringBuilder campo = new StringBuilder();
+                for (String elemento : elementos) {
+                    if (campo.length() > 0) {
+                        campo.append(FormatoCsv.SEPARADOR_LISTA);
+                    }
+                    campo.append(elemento);
+                }
+                return csv(campo.toString());
+            }
+            caracter('[');
+            boolean primero = true;
+            for (String elemento : elementos) {
+                if (!primero) {
+                    coma();
+                }
+                cadenaJson(elemento);
+                primero = false;
+            }
+            return caracter(']');
+        }
+
+        private void vaciar() {
+            caracteres.flip();
+            try {
+                while (true) {
+                    CoderResult resultado = codificador.encode(caracteres, bytes, false);
+                    escribirBytes();
+                    if (resultado.isUnderflow()) {
+                        break;
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            caracteres.compact();
+        }
+
+        private void escribirBytes() throws IOException {
+            bytes.flip();
+            while (bytes.hasRemaining()) {
+                canal.write(bytes);
+            }
+            bytes.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                vaciar();
+                caracteres.flip();
+                codificador.encode(caracteres, bytes, true);
+                codificador.flush(bytes);
+                escribirBytes();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                canal.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package co.edu.poli.demo.servicios;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Formato de los archivos CSV de importación: columnas de cada tipo de entidad y reglas
+ * para separar los campos de una línea.
+ * <p>
+ * Cada archivo tiene una línea de encabezado y luego una entidad por línea, con los campos
+ * separados por comas. Un campo que contiene comas o comillas va entre comillas dobles, y
+ * una comilla dentro de él se escribe doble. Las fechas usan el formato ISO
+ * (2024-05-01T10:00), los decimales llevan punto y los valores lógicos son true o false.
+ * Las tareas de un empleado van en un solo campo separadas por {@code |}.
+ */
+public class FormatoCsv {
+
+    public static final char SEPARADOR = ',';
+    public static final char COMILLA = '"';
+    public static final char SEPARADOR_LISTA = '|';
+
+    /**
+     * Columnas comunes a todos los usuarios.
+     */
+    private static final String USUARIO = "idUsuario,nombre,correo,telefono,esAdmin";
+
+    /**
+     * Encabezados de cada tipo de archivo.
+     */
+    public static final String RESIDENCIAL = USUARIO + ",numeroEventos";
+    public static final String CORPORATIVO = USUARIO + ",nombreEmpresa,eventosOrganizados";
+    public static final String FRECUENTE = USUARIO + ",visitasTotales,descuento";
+    public static final String INTERNACIONAL = USUARIO
+            + ",nombreEmpresa,eventosOrganizados,paisOrigen,requiereTraductor,tarifaMonedaInternacional";
+    public static final String EMPLEADO = USUARIO + ",cargo,salario,tareasAsignadas";
+    public static final String ZONA = "idZona,nombre,tipo,costoPorHora,disponible";
+    public static final String RESERVA = "idReserva,idUsuario,idZona,fechaInicio,fechaFin,costo";
+
+    private FormatoCsv() {
+        // Solo constantes y métodos estáticos
+    }
+
+    /**
+     * Separa una línea en sus campos, quitando las comillas de los campos entre comillas.
+     *
+     * @param linea La línea a separar.
+     * @return Los campos de la línea.
+     * @throws IllegalArgumentException Si un campo entre comillas no se cierra.
+     */
+    public static String[] dividir(String linea) {
+        List<String> campos = new ArrayList<>();
+        StringBuilder campo = new StringBuilder();
+        int i = 0;
+        int longitud = linea.length();
+        while (true) {
+            campo.setLength(0);
+            if (i < longitud && linea.charAt(i) == COMILLA) {
+                i++;
+                while (true) {
+                    if (i >= longitud) {
+                        throw new IllegalArgumentException("campo entre comillas sin cerrar.");
+                    }
+                    char c = linea.charAt(i++);
+                    if (c == COMILLA) {
+                        if (i < longitud && linea.charAt(i) == COMILLA) {
+                            campo.append(COMILLA);
+                            i++;
+                        } else {
+                            break;
+                        }
+                    } else {
+                        campo.append(c);
+                    }
+                }
+                if (i < longitud && linea.charAt(i) != SEPARADOR) {
+                    throw new IllegalArgumentException("texto después de un campo entre comillas.");
+                }
+            } else {
+                int fin = linea.indexOf(SEPARADOR, i);
+                campo.append(linea, i, fin < 0 ? longitud : fin);
+                i = fin < 0 ? longitud : fin;
+            }
+            campos.add(campo.toString());
+            if (i >= longitud) {
+                return campos.toArray(new String[0]);
+            }
+            i++;
+        }
+    }
+
+    /**
+     * Separa un campo de lista en sus elementos.
+     *
+     * @param campo El campo con los elementos separados por {@link #SEPARADOR_LISTA}.
+     * @return Lista nueva con los elementos; vacía si el campo está vacío.
+     */
+    public static List<String> dividirLista(String campo) {
+        List<String> elementos = new ArrayList<>();
+        if (campo == null || campo.isEmpty()) {
+            return elementos;
+        }
+        int inicio = 0;
+        int fin;
+        while ((fin = campo.indexOf(SEPARADOR_LISTA, inicio)) >= 0) {
+            elementos.add(campo.substring(inicio, fin));
+            inicio = fin + 1;
+        }
+        elementos.add(campo.substring(inicio));
+        return elementos;
+    }
+}
@@ -0,0 +1,171 @@
+package co.edu.poli.demo.servicios;
+
+import co.edu.poli.demo.modelo.Parque;
+import co.edu.poli.demo.modelo.Reserva;
+import co.edu.poli.demo.modelo.Usuario;
+import co.edu.poli.demo.modelo.UsuarioFrecuente;
+import co.edu.poli.demo.modelo.UsuarioResidencial;
+import co.edu.poli.demo.modelo.Zona;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Crea y confirma {@link Transaccion transacciones} sobre un {@link Operacion}, y ofrece la
+ * reserva completa (la reserva, la visita y el alquiler del parque) como una sola
+ * transacción.
+ * <p>
+ * Al confirmar, cada transacción toma los cerrojos de las entidades que leyó o escribió.
+ * Los cerrojos están repartidos en franjas por tipo e identificador de entidad, y se toman
+ * en orden ascendente de franja, así que dos confirmaciones nunca se bloquean mutuamente;
+ * las transacciones sobre zonas y usuarios distintos casi nunca comparten franja y se
+ * confirman en paralelo.
+ */
+public class GestorTransacciones {
+
+    /**
+     * Cantidad de franjas de cerrojo; potencia de dos.
+     */
+    private static final int FRANJAS = 1024;
+
+    /**
+     * Veces que {@link #ejecutar} repite una transacción que falla por conflicto.
+     */
+    private static final int INTENTOS = 16;
+
+    private final Operacion operacion;
+    private final ReentrantLock[] cerrojos;
+
+    /**
+     * Constructor del gestor.
+     *
+     * @param operacion Almacén sobre el que se hacen las transacciones.
+     */
+    public GestorTransacciones(Operacion operacion) {
+        this.operacion = operacion;
+        this.cerrojos = new ReentrantLock[FRANJAS];
+        for (int i = 0; i < FRANJAS; i++) {
+            cerrojos[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Inicia una transacción.
+     *
+     * @return La transacción, activa.
+     */
+    public Transaccion iniciar() {
+        return new Transaccion(this, operacion);
+    }
+
+    /**
+     * Ejecuta un trabajo dentro de una transacción y la confirma. Si la confirmación falla
+     * por conflicto, el trabajo se repite desde el principio con una transacción nueva, hasta
+     * {@value #INTENTOS} veces; por eso el trabajo solo debe modificar lo que obtiene de la
+     * transacción.
+     *
+     * @param trabajo Trabajo a ejecutar; devuelve null para confirmar, o un mensaje de error
+     *                para revertir la transacción.
+     * @return El mensaje de la confirmación, o el error devuelto por el trabajo.
+     */
+    public String ejecutar(Function<Transaccion, String> trabajo) {
+        String resultado = null;
+        for (int intento = 0; intento < INTENTOS; intento++) {
+            Transaccion transaccion = iniciar();
+            String error = trabajo.apply(transaccion);
+            if (error != null) {
+                transaccion.rollback();
+                return error;
+            }
+            resultado = transaccion.commit();
+            if (!resultado.startsWith(Versionado.CONFLICTO)) {
+                return resultado;
+            }
+            Thread.yield();
+        }
+        return resultado;
+    }
+
+    /**
+     * Reserva una zona en una sola transacción: crea la reserva, registra la visita de un
+     * {@link UsuarioFrecuente} y, si se indica un parque, descuenta el evento de un
+     * {@link UsuarioResidencial} ({@link UsuarioResidencial#alquilarParque}). Si algún paso
+     * falla no queda ninguno hecho.
+     * <p>
+     * La disponibilidad se consulta por rango de tiempo con
+     * {@link Operacion#verificarDisponibilidad}, así que la zona puede reservarse en otros
+     * horarios y no se modifica. La consulta solo adelanta el rechazo: si otra reserva ocupa
+     * el rango antes de confirmar, la creación de la reserva en la confirmación la rechaza por
+     * solapamiento.
+     *
+     * @param solicitud Reserva a crear; su usuario y su zona se buscan en el almacén por
+     *                  identificador.
+     * @param parque    Parque que alquila un usuario residencial, o null si no alquila.
+     * @return Un mensaje indicando el éxito o fallo de la reserva.
+     */
+    public String reservar(Reserva solicitud, Parque parque) {
+        return ejecutar(transaccion -> {
+            Zona zona = solicitud.getZona() == null ? null : transaccion.leerZona(solicitud.getZona().getIdZona());
+            if (zona == null) {
+                return "Error: la zona de la reserva no está registrada.";
+            }
+            if (solicitud.getFechaInicio() == null || solicitud.getFechaFin() == null) {
+                return "Error: la reserva no tiene fecha de inicio o de fin.";
+            }
+            Usuario usuario = null;
+            if (solicitud.getUsuario() != null) {
+                usuario = transaccion.modificarUsuario(solicitud.getUsuario().getIdUsuario());
+                if (usuario == null) {
+                    return "Error: el usuario de la reserva no está registrado.";
+                }
+            }
+            if (!operacion.verificarDisponibilidad(zona.getIdZona(), solicitud.getFechaInicio(),
+                    solicitud.getFechaFin())) {
+                return "La zona no está disponible para las fechas solicitadas.";
+            }
+            Reserva reserva = new Reserva(solicitud.getIdReserva(), usuario, zona, solicitud.getFechaInicio(),
+                    solicitud.getFechaFin());
+            if (usuario instanceof UsuarioFrecuente) {
+                ((UsuarioFrecuente) usuario).registrarVisita();
+            }
+            if (usuario instanceof UsuarioResidencial && parque != null) {
+                UsuarioResidencial residencial = (UsuarioResidencial) usuario;
+                int eventos = residencial.getNumeroEventos();
+                String alquiler = residencial.alquilarParque(parque, String.valueOf(reserva.getFechaInicio()));
+                if (residencial.getNumeroEventos() == eventos) {
+                    return "Error: " + alquiler;
+                }
+            }
+            return transaccion.crearReserva(reserva);
+        });
+    }
+
+    /**
+     * Franja de cerrojo de una entidad.
+     *
+     * @param tipo Letra del tipo de entidad.
+     * @param id   Identificador de la entidad.
+     * @return La franja, entre 0 y {@value #FRANJAS} - 1.
+     */
+    int franja(char tipo, String id) {
+        int h = 31 * tipo + (id == null ? 0 : id.hashCode());
+        return (h ^ (h >>> 16)) & (FRANJAS - 1);
+    }
+
+    /**
+     * Toma los cerrojos de las franjas, que deben venir sin repetir y en orden ascendente.
+     */
+    void bloquear(int[] franjas) {
+        for (int f : franjas) {
+            cerrojos[f].lock();
+        }
+    }
+
+    /**
+     * Suelta los cerrojos tomados con {@link #bloquear}.
+     */
+    void desbloquear(int[] franjas) {
+        for (int i = franjas.length - 1; i >= 0; i--) {
+            cerrojos[franjas[i]].unlock();
+        }
+    }
+}
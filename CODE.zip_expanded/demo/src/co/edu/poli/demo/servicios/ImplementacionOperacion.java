@@ -1,88 +1,275 @@
 package co.edu.poli.demo.servicios;
 
+import co.edu.poli.demo.modelo.Dinero;
+import co.edu.poli.demo.modelo.Parque;
 import co.edu.poli.demo.modelo.Usuario;
 import co.edu.poli.demo.modelo.Zona;
 import co.edu.poli.demo.modelo.Reserva;
+import co.edu.poli.demo.modelo.ReservaRecurrente;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
+/**
+ * Implementación en memoria de {@link Operacion}. Usuarios, zonas y reservas se guardan
+ * en tablas indexadas por identificador, de modo que las búsquedas, actualizaciones y
+ * eliminaciones por id se resuelven en tiempo constante y los listados conservan el
+ * orden de inserción.
+ * <p>
+ * Las lecturas por identificador no se bloquean y pueden convivir con una escritura en
+ * curso; las escrituras no están sincronizadas. Cada escritura publica al terminar un
+ * {@link CorteDatos} con el estado de todas las tablas, y los listados y recorridos completos,
+ * también los de un tipo de usuario, leen el vigente al empezar: nunca ven una escritura a
+ * medias, aunque toque varias tablas. Para varios escritores concurrentes se usa
+ * {@link ImplementacionOperacionConcurrente}.
+ * <p>
+ * Las entidades guardadas nunca se modifican en sitio: cada cambio guarda una instancia
+ * nueva, para que los cortes anteriores no lo vean.
+ */
 public class ImplementacionOperacion implements Operacion, Serializable {
     private static final long serialVersionUID = 1L;
-    private List<Usuario> usuarios;
-    private List<Zona> zonas;
-    private List<Reserva> reservas;
+    private final TablaParticionada<Usuario> usuarios;
+    private final TablaIndexada<Zona> zonas;
+    private final TablaIndexada<Reserva> reservas;
+    private final TablaIndexada<ReservaRecurrente> recurrencias;
+    private final IndiceIntervalos intervalos;
+    private final IndiceCalendario calendario;
+    private final IndiceAcumulados acumulados;
+    private final IndiceRecurrencias indiceRecurrencias;
+    private final IndiceZonas indiceZonas;
+    private final IndiceUsuarios indiceUsuarios;
+
+    /**
+     * Nombres de los archivos del modo con registro de escritura.
+     */
+    private static final String ARCHIVO_REGISTRO = "datos.wal";
+    private static final String ARCHIVO_CHECKPOINT = "datos.checkpoint";
+
+    private transient RegistroEscritura registro;
+    private transient Path directorioRegistro;
+    private transient long operacionesPorCheckpoint;
+
+    /**
+     * Corte publicado al terminar la última escritura. No se serializa: se reconstruye al
+     * leer el almacén.
+     */
+    private transient AtomicReference<CorteDatos> corte;
 
     public ImplementacionOperacion() {
-        usuarios = new ArrayList<>();
-        zonas = new ArrayList<>();
-        reservas = new ArrayList<>();
+        usuarios = new TablaParticionada<>();
+        zonas = new TablaIndexada<>();
+        reservas = new TablaIndexada<>();
+        recurrencias = new TablaIndexada<>();
+        intervalos = new IndiceIntervalos();
+        calendario = new IndiceCalendario();
+        acumulados = new IndiceAcumulados();
+        indiceRecurrencias = new IndiceRecurrencias();
+        indiceZonas = new IndiceZonas();
+        indiceUsuarios = new IndiceUsuarios();
+        corte = new AtomicReference<>(cortar());
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        corte = new AtomicReference<>(cortar());
     }
 
     @Override
     public String create(Usuario usuario) {
-        usuarios.add(usuario);
-        return "Usuario creado exitosamente.";
+        String error = crearUsuario(usuario);
+        return error == null ? "Usuario creado exitosamente." : error;
     }
 
     @Override
-    public Usuario read(String idUsuario) {
-        for (Usuario usuario : usuarios) {
-            if (usuario.getIdUsuario().equals(idUsuario)) {
-                return usuario;
+    public ReporteLote createAll(List<? extends Usuario> lista) {
+        ReporteLote reporte = new ReporteLote();
+        boolean lote = iniciarLoteRegistro();
+        try {
+            long fila = 0;
+            for (Usuario usuario : lista) {
+                reporte.registrar(++fila, usuario == null ? "Error: fila vacía." : crearUsuario(usuario));
             }
+        } finally {
+            terminarLoteRegistro(lote);
+        }
+        return reporte;
+    }
+
+    /**
+     * Registra un usuario nuevo.
+     *
+     * @return Un mensaje de error, o null si se creó.
+     */
+    private String crearUsuario(Usuario usuario) {
+        if (usuario.getIdUsuario() == null) {
+            return "Error: el usuario no tiene identificador.";
+        }
+        if (usuarios.contiene(usuario.getIdUsuario())) {
+            return "Error: ya existe un usuario con el id " + usuario.getIdUsuario() + ".";
         }
+        String conflicto = indiceUsuarios.validar(usuario, null);
+        if (conflicto != null) {
+            return conflicto;
+        }
+        anotar(r -> r.anexarCreacion(usuario));
+        usuarios.insertar(usuario.getIdUsuario(), usuario);
+        indiceUsuarios.agregar(usuario);
+        terminarEscritura();
         return null;
     }
 
+    @Override
+    public Usuario read(String idUsuario) {
+        return usuarios.obtener(idUsuario);
+    }
+
+    @Override
+    public Versionado<Usuario> readVersionado(String idUsuario) {
+        return usuarios.obtenerVersionado(idUsuario);
+    }
+
     @Override
     public String update(Usuario usuario, String idUsuario) {
-        for (int i = 0; i < usuarios.size(); i++) {
-            if (usuarios.get(i).getIdUsuario().equals(idUsuario)) {
-                usuarios.set(i, usuario);
-                return "Usuario actualizado exitosamente.";
-            }
+        return actualizarUsuario(usuario, idUsuario);
+    }
+
+    @Override
+    public String updateSiVersion(Usuario usuario, String idUsuario, long version) {
+        String conflicto = conflictoDeVersion(usuarios.obtenerVersionado(idUsuario), version);
+        return conflicto != null ? conflicto : actualizarUsuario(usuario, idUsuario);
+    }
+
+    private String actualizarUsuario(Usuario usuario, String idUsuario) {
+        if (!usuarios.contiene(idUsuario)) {
+            return "Usuario no encontrado.";
+        }
+        if (usuario.getIdUsuario() == null) {
+            return "Error: el usuario no tiene identificador.";
+        }
+        if (!idUsuario.equals(usuario.getIdUsuario()) && usuarios.contiene(usuario.getIdUsuario())) {
+            return "Error: ya existe un usuario con el id " + usuario.getIdUsuario() + ".";
+        }
+        String conflicto = indiceUsuarios.validar(usuario, idUsuario);
+        if (conflicto != null) {
+            return conflicto;
         }
-        return "Usuario no encontrado.";
+        anotar(r -> r.anexarActualizacion(idUsuario, usuario));
+        usuarios.reemplazar(idUsuario, usuario.getIdUsuario(), usuario);
+        indiceUsuarios.quitar(idUsuario);
+        indiceUsuarios.agregar(usuario);
+        terminarEscritura();
+        return "Usuario actualizado exitosamente.";
     }
 
     @Override
     public Usuario delete(String idUsuario) {
-        for (Usuario usuario : usuarios) {
-            if (usuario.getIdUsuario().equals(idUsuario)) {
-                usuarios.remove(usuario);
-                return usuario;
-            }
+        if (!usuarios.contiene(idUsuario)) {
+            return null;
         }
-        return null;
+        anotar(r -> r.anexarEliminacion(RegistroEscritura.USUARIO, idUsuario));
+        Usuario eliminado = usuarios.eliminar(idUsuario);
+        indiceUsuarios.quitar(idUsuario);
+        terminarEscritura();
+        return eliminado;
     }
 
     @Override
     public List<Usuario> readAllUsuarios() {
-        return usuarios;
+        return tomarCorte().getUsuarios().valores();
+    }
+
+    @Override
+    public void recorrerUsuarios(Consumer<? super Usuario> accion) {
+        tomarCorte().getUsuarios().forEach(accion);
+    }
+
+    @Override
+    public <T extends Usuario> List<T> readAllUsuarios(Class<T> tipo) {
+        return tomarCorte().getUsuarios(tipo);
+    }
+
+    @Override
+    public <T extends Usuario> void recorrerUsuarios(Class<T> tipo, Consumer<? super T> accion) {
+        tomarCorte().recorrerUsuarios(tipo, accion);
+    }
+
+    @Override
+    public int contarUsuarios(Class<? extends Usuario> tipo) {
+        return tipo == Usuario.class ? usuarios.tamano() : usuarios.tamano(tipo);
+    }
+
+    @Override
+    public Pagina<Usuario> readUsuariosPagina(ConsultaPagina consulta, Class<? extends Usuario> tipo) {
+        if (tipo == null || tipo == Usuario.class) {
+            return usuarios.pagina(consulta, null);
+        }
+        return usuarios.paginaDe(consulta, tipo);
+    }
+
+    @Override
+    public Usuario readUsuarioCorreo(String correo) {
+        return usuarios.obtener(indiceUsuarios.buscarCorreo(correo));
+    }
+
+    @Override
+    public Usuario readUsuarioTelefono(String telefono) {
+        return usuarios.obtener(indiceUsuarios.buscarTelefono(telefono));
+    }
+
+    @Override
+    public List<Usuario> readUsuariosNombre(String prefijo, int limite) {
+        return indiceUsuarios.buscarPrefijo(prefijo, limite);
     }
 
     @Override
     public String serializarUsuarios(String path, String name) {
-        try (FileOutputStream fos = new FileOutputStream(path + name);
-             ObjectOutputStream oos = new ObjectOutputStream(fos)) {
-            oos.writeObject(usuarios);
+        try {
+            ArchivoInstantanea.escribir(Paths.get(path + name), usuarios, List.of(), List.of());
             return "Archivo de usuarios creado exitosamente.";
         } catch (IOException ioe) {
             return "Error al crear el archivo de usuarios: " + ioe.getMessage();
         }
     }
 
-    @SuppressWarnings("unchecked")
     public String deserializarUsuarios(String path, String name) {
-        try (FileInputStream fis = new FileInputStream(path + name);
+        Path archivo = Paths.get(path + name);
+        if (!ArchivoInstantanea.esInstantanea(archivo)) {
+            return deserializarUsuariosAnteriores(path + name);
+        }
+        try {
+            cargarInstantanea(archivo, true, false);
+            solicitarCheckpointTrasCarga();
+            return "Usuarios deserializados exitosamente.";
+        } catch (IOException | RuntimeException e) {
+            return "Error al deserializar los usuarios: " + e.getMessage();
+        }
+    }
+
+    /**
+     * Lee un archivo de usuarios guardado con serialización de Java por versiones anteriores.
+     */
+    @SuppressWarnings("unchecked")
+    private String deserializarUsuariosAnteriores(String ruta) {
+        try (FileInputStream fis = new FileInputStream(ruta);
              ObjectInputStream ois = new ObjectInputStream(fis)) {
             
             Object obj = ois.readObject();
             if (obj instanceof List<?>) {
                 List<?> list = (List<?>) obj;
                 if (!list.isEmpty() && list.get(0) instanceof Usuario) {
-                    usuarios = (List<Usuario>) list;
+                    recargarUsuarios((List<Usuario>) list);
+                    solicitarCheckpointTrasCarga();
                     return "Usuarios deserializados exitosamente.";
                 } else {
                     return "Error: El objeto deserializado no es una lista de usuarios.";
@@ -98,107 +285,795 @@ public class ImplementacionOperacion implements Operacion, Serializable {
     // Métodos para zonas
     @Override
     public String createZona(Zona zona) {
-        zonas.add(zona);
-        return "Zona creada exitosamente.";
+        String error = crearZona(zona);
+        return error == null ? "Zona creada exitosamente." : error;
     }
 
     @Override
-    public Zona readZona(String idZona) {
-        for (Zona zona : zonas) {
-            if (zona.getIdZona().equals(idZona)) {
-                return zona;
+    public ReporteLote createAllZonas(List<Zona> lista) {
+        ReporteLote reporte = new ReporteLote();
+        boolean lote = iniciarLoteRegistro();
+        try {
+            long fila = 0;
+            for (Zona zona : lista) {
+                reporte.registrar(++fila, zona == null ? "Error: fila vacía." : crearZona(zona));
             }
+        } finally {
+            terminarLoteRegistro(lote);
+        }
+        return reporte;
+    }
+
+    /**
+     * Registra una zona nueva.
+     *
+     * @return Un mensaje de error, o null si se creó.
+     */
+    private String crearZona(Zona zona) {
+        if (zona.getIdZona() == null) {
+            return "Error: la zona no tiene identificador.";
+        }
+        if (zona.getCostoPorHora() == null) {
+            return "Error: la zona no tiene costo por hora.";
         }
+        if (zonas.contiene(zona.getIdZona())) {
+            return "Error: ya existe una zona con el id " + zona.getIdZona() + ".";
+        }
+        anotar(r -> r.anexarCreacion(zona));
+        zonas.insertar(zona.getIdZona(), zona);
+        indiceZonas.agregar(zona);
+        terminarEscritura();
         return null;
     }
 
+    @Override
+    public Zona readZona(String idZona) {
+        return zonas.obtener(idZona);
+    }
+
+    @Override
+    public Versionado<Zona> readZonaVersionada(String idZona) {
+        return zonas.obtenerVersionado(idZona);
+    }
+
     @Override
     public String updateZona(Zona zona, String idZona) {
-        for (int i = 0; i < zonas.size(); i++) {
-            if (zonas.get(i).getIdZona().equals(idZona)) {
-                zonas.set(i, zona);
-                return "Zona actualizada exitosamente.";
-            }
+        return actualizarZona(zona, idZona);
+    }
+
+    @Override
+    public String updateZonaSiVersion(Zona zona, String idZona, long version) {
+        String conflicto = conflictoDeVersion(zonas.obtenerVersionado(idZona), version);
+        return conflicto != null ? conflicto : actualizarZona(zona, idZona);
+    }
+
+    private String actualizarZona(Zona zona, String idZona) {
+        if (!zonas.contiene(idZona)) {
+            return "Zona no encontrada.";
         }
-        return "Zona no encontrada.";
+        if (zona.getIdZona() == null) {
+            return "Error: la zona no tiene identificador.";
+        }
+        if (zona.getCostoPorHora() == null) {
+            return "Error: la zona no tiene costo por hora.";
+        }
+        if (!idZona.equals(zona.getIdZona()) && zonas.contiene(zona.getIdZona())) {
+            return "Error: ya existe una zona con el id " + zona.getIdZona() + ".";
+        }
+        anotar(r -> r.anexarActualizacion(idZona, zona));
+        zonas.reemplazar(idZona, zona.getIdZona(), zona);
+        indiceZonas.quitar(idZona);
+        indiceZonas.agregar(zona);
+        terminarEscritura();
+        return "Zona actualizada exitosamente.";
     }
 
     @Override
     public Zona deleteZona(String idZona) {
-        for (Zona zona : zonas) {
-            if (zona.getIdZona().equals(idZona)) {
-                zonas.remove(zona);
-                return zona;
-            }
+        if (!zonas.contiene(idZona)) {
+            return null;
         }
-        return null;
+        anotar(r -> r.anexarEliminacion(RegistroEscritura.ZONA, idZona));
+        Zona eliminada = zonas.eliminar(idZona);
+        indiceZonas.quitar(idZona);
+        terminarEscritura();
+        return eliminada;
     }
 
     @Override
     public List<Zona> readAllZonas() {
-        return zonas;
+        return tomarCorte().getZonas().valores();
+    }
+
+    @Override
+    public void recorrerZonas(Consumer<? super Zona> accion) {
+        tomarCorte().getZonas().forEach(accion);
+    }
+
+    @Override
+    public Pagina<Zona> readZonasPagina(ConsultaPagina consulta, String tipo) {
+        return zonas.pagina(consulta, tipo == null ? null : zona -> tipo.equalsIgnoreCase(zona.getTipo()));
     }
 
     // Métodos para reservas
     @Override
     public String createReserva(Reserva reserva) {
-        reservas.add(reserva);
-        return "Reserva creada exitosamente.";
+        String error = crearReserva(reserva);
+        return error == null ? "Reserva creada exitosamente." : error;
     }
 
     @Override
-    public Reserva readReserva(String idReserva) {
-        for (Reserva reserva : reservas) {
-            if (reserva.getIdReserva().equals(idReserva)) {
-                return reserva;
+    public ReporteLote createAllReservas(List<Reserva> lista) {
+        ReporteLote reporte = new ReporteLote();
+        boolean lote = iniciarLoteRegistro();
+        try {
+            long fila = 0;
+            for (Reserva reserva : lista) {
+                reporte.registrar(++fila, reserva == null ? "Error: fila vacía." : crearReserva(reserva));
             }
+        } finally {
+            terminarLoteRegistro(lote);
+        }
+        return reporte;
+    }
+
+    /**
+     * Registra una reserva nueva, comprobando que no se solape con otra de su zona.
+     *
+     * @return Un mensaje de error, o null si se creó.
+     */
+    private String crearReserva(Reserva reserva) {
+        if (reserva.getIdReserva() == null) {
+            return "Error: la reserva no tiene identificador.";
         }
+        if (reservas.contiene(reserva.getIdReserva())) {
+            return "Error: ya existe una reserva con el id " + reserva.getIdReserva() + ".";
+        }
+        String conflicto = validarReserva(reserva, null);
+        if (conflicto != null) {
+            return conflicto;
+        }
+        anotar(r -> r.anexarCreacion(reserva));
+        reservas.insertar(reserva.getIdReserva(), reserva);
+        intervalos.agregar(reserva);
+        calendario.agregar(reserva);
+        acumulados.agregar(reserva);
+        terminarEscritura();
         return null;
     }
 
+    @Override
+    public Reserva readReserva(String idReserva) {
+        return reservas.obtener(idReserva);
+    }
+
+    @Override
+    public Versionado<Reserva> readReservaVersionada(String idReserva) {
+        return reservas.obtenerVersionado(idReserva);
+    }
+
     @Override
     public String updateReserva(Reserva reserva, String idReserva) {
-        for (int i = 0; i < reservas.size(); i++) {
-            if (reservas.get(i).getIdReserva().equals(idReserva)) {
-                reservas.set(i, reserva);
-                return "Reserva actualizada exitosamente.";
-            }
+        return actualizarReserva(reserva, idReserva);
+    }
+
+    @Override
+    public String updateReservaSiVersion(Reserva reserva, String idReserva, long version) {
+        String conflicto = conflictoDeVersion(reservas.obtenerVersionado(idReserva), version);
+        return conflicto != null ? conflicto : actualizarReserva(reserva, idReserva);
+    }
+
+    private String actualizarReserva(Reserva reserva, String idReserva) {
+        if (!reservas.contiene(idReserva)) {
+            return "Reserva no encontrada.";
+        }
+        if (reserva.getIdReserva() == null) {
+            return "Error: la reserva no tiene identificador.";
+        }
+        if (!idReserva.equals(reserva.getIdReserva()) && reservas.contiene(reserva.getIdReserva())) {
+            return "Error: ya existe una reserva con el id " + reserva.getIdReserva() + ".";
         }
-        return "Reserva no encontrada.";
+        String conflicto = validarReserva(reserva, idReserva);
+        if (conflicto != null) {
+            return conflicto;
+        }
+        anotar(r -> r.anexarActualizacion(idReserva, reserva));
+        reservas.reemplazar(idReserva, reserva.getIdReserva(), reserva);
+        intervalos.quitar(idReserva);
+        calendario.quitar(idReserva);
+        acumulados.quitar(idReserva);
+        intervalos.agregar(reserva);
+        calendario.agregar(reserva);
+        acumulados.agregar(reserva);
+        terminarEscritura();
+        return "Reserva actualizada exitosamente.";
     }
 
     @Override
     public Reserva deleteReserva(String idReserva) {
-        for (Reserva reserva : reservas) {
-            if (reserva.getIdReserva().equals(idReserva)) {
-                reservas.remove(reserva);
-                return reserva;
+        if (!reservas.contiene(idReserva)) {
+            return null;
+        }
+        anotar(r -> r.anexarEliminacion(RegistroEscritura.RESERVA, idReserva));
+        Reserva eliminada = reservas.eliminar(idReserva);
+        intervalos.quitar(idReserva);
+        calendario.quitar(idReserva);
+        acumulados.quitar(idReserva);
+        terminarEscritura();
+        return eliminada;
+    }
+
+    @Override
+    public boolean verificarDisponibilidad(String idZona, LocalDateTime inicio, LocalDateTime fin) {
+        return intervalos.estaLibre(idZona, inicio, fin) && indiceRecurrencias.estaLibre(idZona, inicio, fin);
+    }
+
+    @Override
+    public List<Reserva> readReservasZona(String idZona, LocalDateTime inicio, LocalDateTime fin) {
+        return intervalos.reservasEntre(idZona, inicio, fin);
+    }
+
+    @Override
+    public List<Zona> buscarZonasLibres(ConsultaDisponibilidad consulta) {
+        List<Zona> libres = new ArrayList<>();
+        Parque parque = consulta.getParque();
+        if (parque == null) {
+            agregarLibres(indiceZonas.hasta(consulta.getTipo(), consulta.getCostoMaximo()), consulta, libres);
+        } else if (parque.isDisponible() && parque.getZonas() != null) {
+            // Un parque tiene pocas zonas: se filtran y ordenan directamente.
+            List<Zona> candidatas = new ArrayList<>();
+            for (Zona zona : parque.getZonas()) {
+                Zona registrada = zona == null ? null : zonas.obtener(zona.getIdZona());
+                if (registrada != null && indiceZonas.coincide(registrada.getIdZona(), consulta.getTipo(),
+                        consulta.getCostoMaximo())) {
+                    candidatas.add(registrada);
+                }
+            }
+            candidatas.sort(Comparator.comparing(Zona::getCostoPorHora, Comparator.nullsFirst(Comparator.naturalOrder()))
+                    .thenComparing(Zona::getIdZona));
+            agregarLibres(candidatas, consulta, libres);
+        }
+        return libres;
+    }
+
+    /**
+     * Agrega a la lista las zonas candidatas, en su orden, que están habilitadas y no tienen
+     * reservas en el rango de la consulta, hasta completar el límite.
+     */
+    private void agregarLibres(Iterable<Zona> candidatas, ConsultaDisponibilidad consulta, List<Zona> libres) {
+        for (Zona zona : candidatas) {
+            if (libres.size() == consulta.getLimite()) {
+                return;
+            }
+            if (zona.isDisponible() && verificarDisponibilidad(zona.getIdZona(), consulta.getInicio(), consulta.getFin())) {
+                libres.add(zona);
+            }
+        }
+    }
+
+    @Override
+    public List<Reserva> readReservasEntre(LocalDateTime inicio, LocalDateTime fin) {
+        return calendario.reservasEntre(inicio, fin);
+    }
+
+    @Override
+    public List<Reserva> readReservasQueEmpiezan(LocalDateTime inicio, LocalDateTime fin) {
+        return calendario.reservasQueEmpiezan(inicio, fin);
+    }
+
+    @Override
+    public List<Reserva> readReservasDia(LocalDate dia) {
+        return calendario.reservasEntre(dia.atStartOfDay(), dia.plusDays(1).atStartOfDay());
+    }
+
+    // Métodos para reservas recurrentes
+    @Override
+    public String createRecurrente(ReservaRecurrente regla) {
+        if (regla.getIdRecurrencia() == null) {
+            return "Error: la reserva recurrente no tiene identificador.";
+        }
+        if (recurrencias.contiene(regla.getIdRecurrencia())) {
+            return "Error: ya existe una reserva recurrente con el id " + regla.getIdRecurrencia() + ".";
+        }
+        String conflicto = validarRecurrente(regla, null);
+        if (conflicto != null) {
+            return conflicto;
+        }
+        anotar(r -> r.anexarCreacion(regla));
+        recurrencias.insertar(regla.getIdRecurrencia(), regla);
+        indiceRecurrencias.agregar(regla);
+        terminarEscritura();
+        return "Reserva recurrente creada exitosamente.";
+    }
+
+    @Override
+    public ReservaRecurrente readRecurrente(String idRecurrencia) {
+        return recurrencias.obtener(idRecurrencia);
+    }
+
+    @Override
+    public String updateRecurrente(ReservaRecurrente regla, String idRecurrencia) {
+        if (!recurrencias.contiene(idRecurrencia)) {
+            return "Reserva recurrente no encontrada.";
+        }
+        if (regla.getIdRecurrencia() == null) {
+            return "Error: la reserva recurrente no tiene identificador.";
+        }
+        if (!idRecurrencia.equals(regla.getIdRecurrencia()) && recurrencias.contiene(regla.getIdRecurrencia())) {
+            return "Error: ya existe una reserva recurrente con el id " + regla.getIdRecurrencia() + ".";
+        }
+        String conflicto = validarRecurrente(regla, idRecurrencia);
+        if (conflicto != null) {
+            return conflicto;
+        }
+        anotar(r -> r.anexarActualizacion(idRecurrencia, regla));
+        recurrencias.reemplazar(idRecurrencia, regla.getIdRecurrencia(), regla);
+        indiceRecurrencias.quitar(idRecurrencia);
+        indiceRecurrencias.agregar(regla);
+        terminarEscritura();
+        return "Reserva recurrente actualizada exitosamente.";
+    }
+
+    @Override
+    public ReservaRecurrente deleteRecurrente(String idRecurrencia) {
+        if (!recurrencias.contiene(idRecurrencia)) {
+            return null;
+        }
+        anotar(r -> r.anexarEliminacion(RegistroEscritura.RECURRENCIA, idRecurrencia));
+        ReservaRecurrente eliminada = recurrencias.eliminar(idRecurrencia);
+        indiceRecurrencias.quitar(idRecurrencia);
+        terminarEscritura();
+        return eliminada;
+    }
+
+    @Override
+    public List<ReservaRecurrente> readAllRecurrentes() {
+        return tomarCorte().getRecurrencias().valores();
+    }
+
+    @Override
+    public List<Reserva> readOcurrenciasZona(String idZona, LocalDateTime inicio, LocalDateTime fin) {
+        return indiceRecurrencias.ocurrenciasEntre(idZona, inicio, fin);
+    }
+
+    // Modo con registro de escritura
+
+    /**
+     * Activa el registro de escritura anticipada. Primero se carga el último checkpoint del
+     * directorio y se reproducen las operaciones registradas después de él; a partir de ahí,
+     * cada creación, actualización o eliminación se anexa al registro antes de aplicarse.
+     * Los datos que hubiera en memoria se reemplazan por los recuperados.
+     *
+     * @param directorio               Directorio donde se guardan el registro y el checkpoint.
+     * @param politica                 Política de sincronización con el disco.
+     * @param operacionesPorCheckpoint Cantidad de operaciones tras la cual se hace un checkpoint
+     *                                 automático, o 0 para hacerlos solo manualmente.
+     * @return Un mensaje indicando el éxito o fallo de la operación.
+     */
+    public String activarRegistro(String directorio, PoliticaSincronizacion politica, long operacionesPorCheckpoint) {
+        if (registro != null) {
+            return "Error: el registro de escritura ya está activo.";
+        }
+        try {
+            Path carpeta = Paths.get(directorio);
+            Files.createDirectories(carpeta);
+            usuarios.limpiar();
+            indiceUsuarios.limpiar();
+            zonas.limpiar();
+            indiceZonas.limpiar();
+            reservas.limpiar();
+            intervalos.limpiar();
+            calendario.limpiar();
+            acumulados.limpiar();
+            recurrencias.limpiar();
+            indiceRecurrencias.limpiar();
+            publicarCorte();
+            long[] omitidas = new long[1];
+            RegistroEscritura.Lector lector = (operacion, entidad, version, datos) -> {
+                try {
+                    aplicarRegistro(operacion, entidad, version, datos);
+                } catch (IOException e) {
+                    omitidas[0]++;
+                }
+            };
+            Path checkpoint = carpeta.resolve(ARCHIVO_CHECKPOINT);
+            long recuperadas;
+            if (ArchivoInstantanea.esInstantanea(checkpoint)) {
+                omitidas[0] += cargarInstantanea(checkpoint, true, true);
+                recuperadas = usuarios.tamano() + zonas.tamano() + reservas.tamano() + recurrencias.tamano()
+                        + omitidas[0];
+            } else {
+                // Checkpoint de versiones anteriores, escrito con el formato del registro
+                recuperadas = RegistroEscritura.reproducir(checkpoint, lector);
+            }
+            recuperadas += RegistroEscritura.reproducir(carpeta.resolve(ARCHIVO_REGISTRO), lector);
+            this.registro = new RegistroEscritura(carpeta.resolve(ARCHIVO_REGISTRO), politica);
+            this.directorioRegistro = carpeta;
+            this.operacionesPorCheckpoint = operacionesPorCheckpoint;
+            return "Registro de escritura activado: " + (recuperadas - omitidas[0]) + " operaciones recuperadas"
+                    + (omitidas[0] > 0 ? ", " + omitidas[0] + " omitidas por referencias inválidas o cruces." : ".");
+        } catch (IOException e) {
+            return "Error al activar el registro de escritura: " + e.getMessage();
+        }
+    }
+
+    /**
+     * Guarda un checkpoint con el estado completo y vacía el registro de escritura. El
+     * checkpoint se escribe en un archivo temporal que luego reemplaza al anterior, de modo
+     * que una caída a mitad del proceso deja intacto el checkpoint previo.
+     * <p>
+     * Si el sistema cae después de reemplazar el checkpoint pero antes de vaciar el registro,
+     * al reproducirlo se vuelven a aplicar operaciones ya incluidas; el estado final de cada
+     * entidad lo decide su última operación, así que el resultado es el mismo.
+     *
+     * @return Un mensaje indicando el éxito o fallo de la operación.
+     */
+    public String checkpoint() {
+        if (registro == null) {
+            return "Error: el registro de escritura no está activo.";
+        }
+        try {
+            ArchivoInstantanea.escribir(directorioRegistro.resolve(ARCHIVO_CHECKPOINT), usuarios, zonas, reservas,
+                    recurrencias);
+            registro.truncar();
+            return "Checkpoint guardado exitosamente.";
+        } catch (IOException e) {
+            return "Error al guardar el checkpoint: " + e.getMessage();
+        }
+    }
+
+    /**
+     * Cierra el registro de escritura, forzando al disco las operaciones pendientes.
+     *
+     * @return Un mensaje indicando el éxito o fallo de la operación.
+     */
+    public String desactivarRegistro() {
+        if (registro == null) {
+            return "Error: el registro de escritura no está activo.";
+        }
+        try {
+            registro.close();
+            return "Registro de escritura cerrado exitosamente.";
+        } catch (IOException e) {
+            return "Error al cerrar el registro de escritura: " + e.getMessage();
+        } finally {
+            registro = null;
+            directorioRegistro = null;
+        }
+    }
+
+    /**
+     * Pide un checkpoint automático. Por defecto se hace en el momento; las subclases que
+     * sincronizan hilos pueden diferirlo hasta liberar sus cerrojos.
+     * <p>
+     * Si falla, el registro conserva todas las operaciones, así que no se pierde nada, y el
+     * fallo se difiere al registro para que la siguiente escritura lo reporte.
+     */
+    protected void solicitarCheckpoint() {
+        String resultado = checkpoint();
+        RegistroEscritura actual = registro;
+        if (resultado.startsWith("Error") && actual != null) {
+            actual.diferirFallo(new IOException("falló el checkpoint automático. " + resultado));
+        }
+    }
+
+    /**
+     * Anexa una operación al registro de escritura si está activo.
+     *
+     * @throws UncheckedIOException Si no se pudo escribir; la operación no debe aplicarse.
+     */
+    private void anotar(Anotacion anotacion) {
+        if (registro == null) {
+            return;
+        }
+        try {
+            anotacion.en(registro);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error al escribir en el registro: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Inicia un lote en el registro de escritura, si está activo, para sincronizar con el
+     * disco una sola vez al final en lugar de después de cada operación.
+     *
+     * @return true si este llamado abrió el lote y debe cerrarlo.
+     */
+    private boolean iniciarLoteRegistro() {
+        return registro != null && registro.iniciarLote();
+    }
+
+    private void terminarLoteRegistro(boolean lote) {
+        if (!lote || registro == null) {
+            return;
+        }
+        try {
+            registro.terminarLote();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error al sincronizar el registro: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Termina una escritura ya aplicada: publica el corte con su resultado y hace el
+     * checkpoint automático si corresponde.
+     */
+    private void terminarEscritura() {
+        publicarCorte();
+        verificarCheckpoint();
+    }
+
+    private void verificarCheckpoint() {
+        if (registro != null && operacionesPorCheckpoint > 0 && registro.getOperaciones() >= operacionesPorCheckpoint) {
+            solicitarCheckpoint();
+        }
+    }
+
+    /**
+     * Aplica en memoria una operación leída del registro o del checkpoint.
+     */
+    private void aplicarRegistro(byte operacion, byte entidad, int version, ByteBuffer datos) throws IOException {
+        if (operacion == RegistroEscritura.ELIMINAR) {
+            String id = CodificadorBinario.leerCadena(datos);
+            if (entidad == RegistroEscritura.USUARIO) {
+                delete(id);
+            } else if (entidad == RegistroEscritura.ZONA) {
+                deleteZona(id);
+            } else if (entidad == RegistroEscritura.RECURRENCIA) {
+                deleteRecurrente(id);
+            } else {
+                deleteReserva(id);
+            }
+            return;
+        }
+        String idAnterior = operacion == RegistroEscritura.ACTUALIZAR ? CodificadorBinario.leerCadena(datos) : null;
+        if (entidad == RegistroEscritura.USUARIO) {
+            Usuario usuario = CodificadorBinario.leerUsuario(datos, version);
+            if (idAnterior == null) {
+                create(usuario);
+            } else {
+                update(usuario, idAnterior);
+            }
+        } else if (entidad == RegistroEscritura.ZONA) {
+            Zona zona = CodificadorBinario.leerZona(datos, version);
+            if (idAnterior == null) {
+                createZona(zona);
+            } else {
+                updateZona(zona, idAnterior);
+            }
+        } else if (entidad == RegistroEscritura.RECURRENCIA) {
+            ReservaRecurrente regla = CodificadorBinario.leerRecurrencia(datos, this::read, this::readZona);
+            if (regla == null) {
+                throw new IOException("La reserva recurrente hace referencia a un usuario o zona inexistente.");
+            }
+            if (idAnterior == null) {
+                createRecurrente(regla);
+            } else {
+                updateRecurrente(regla, idAnterior);
+            }
+        } else {
+            Reserva reserva = CodificadorBinario.leerReserva(datos, version, this::read, this::readZona);
+            if (reserva == null) {
+                throw new IOException("La reserva hace referencia a un usuario o zona inexistente.");
+            }
+            if (idAnterior == null) {
+                createReserva(reserva);
+            } else {
+                updateReserva(reserva, idAnterior);
+            }
+        }
+    }
+
+    /**
+     * Escritura de una operación en el registro.
+     */
+    private interface Anotacion {
+        void en(RegistroEscritura registro) throws IOException;
+    }
+
+    /**
+     * Compara la versión vigente de una entidad con la que esperaba quien la actualiza. Si la
+     * entidad no existe no hay conflicto: la actualización falla con su propio mensaje.
+     *
+     * @param actual  La entidad vigente con su versión, o null si no existe.
+     * @param version La versión esperada.
+     * @return Un mensaje que empieza con {@link Versionado#CONFLICTO}, o null si coinciden.
+     */
+    static String conflictoDeVersion(Versionado<?> actual, long version) {
+        if (actual == null || actual.getVersion() == version) {
+            return null;
+        }
+        return Versionado.CONFLICTO + ": el registro cambió después de leerlo (versión " + version
+                + ", vigente " + actual.getVersion() + "). Vuelva a leerlo e intente de nuevo.";
+    }
+
+    /**
+     * Comprueba que la zona y el usuario de una reserva estén registrados, que su rango sea
+     * válido y que no se solape con otra reserva de la misma zona.
+     *
+     * @param reserva    La reserva a comprobar.
+     * @param idIgnorado Identificador de la reserva que se está reemplazando, o null.
+     * @return Un mensaje de error, o null si la reserva puede registrarse.
+     */
+    private String validarReserva(Reserva reserva, String idIgnorado) {
+        if (reserva.getZona() == null || reserva.getZona().getIdZona() == null) {
+            return "Error: la reserva no tiene zona.";
+        }
+        if (reserva.getFechaInicio() == null || reserva.getFechaFin() == null) {
+            return "Error: la reserva no tiene fecha de inicio o de fin.";
+        }
+        if (!zonas.contiene(reserva.getZona().getIdZona())) {
+            return "Error: la zona " + reserva.getZona().getIdZona() + " no está registrada.";
+        }
+        if (reserva.getUsuario() != null && !usuarios.contiene(reserva.getUsuario().getIdUsuario())) {
+            return "Error: el usuario " + reserva.getUsuario().getIdUsuario() + " no está registrado.";
+        }
+        return validarHorario(reserva, idIgnorado);
+    }
+
+    /**
+     * Comprueba que el rango de una reserva con zona y fechas sea válido y que no se cruce
+     * con otra reserva ni con una reserva recurrente de la misma zona.
+     *
+     * @param reserva    La reserva a comprobar.
+     * @param idIgnorado Identificador de la reserva que se está reemplazando, o null.
+     * @return Un mensaje de error, o null si el rango está libre.
+     */
+    private String validarHorario(Reserva reserva, String idIgnorado) {
+        if (!reserva.getFechaFin().isAfter(reserva.getFechaInicio())) {
+            return "Error: la fecha de fin debe ser posterior a la fecha de inicio.";
+        }
+        Reserva solapada = intervalos.buscarSolapamiento(reserva.getZona().getIdZona(),
+                reserva.getFechaInicio(), reserva.getFechaFin(), idIgnorado);
+        if (solapada != null) {
+            return "La zona no está disponible para las fechas solicitadas: se cruza con la reserva "
+                    + solapada.getIdReserva() + ".";
+        }
+        ReservaRecurrente recurrente = indiceRecurrencias.buscarSolapamiento(reserva.getZona().getIdZona(),
+                reserva.getFechaInicio(), reserva.getFechaFin());
+        if (recurrente != null) {
+            return "La zona no está disponible para las fechas solicitadas: se cruza con la reserva recurrente "
+                    + recurrente.getIdRecurrencia() + " del " + recurrente.buscarOcurrencia(reserva.getFechaInicio(),
+                    reserva.getFechaFin()).toLocalDate() + ".";
+        }
+        return null;
+    }
+
+    /**
+     * Comprueba que la zona y el usuario de una reserva recurrente estén registrados y que
+     * ninguna de sus ocurrencias se cruce con una reserva o con otra regla de la misma zona.
+     * Las reservas se revisan solo en el rango que abarca la regla, y contra cada una se
+     * calcula si alguna ocurrencia la alcanza, sin expandir la regla.
+     *
+     * @param regla      La reserva recurrente a comprobar.
+     * @param idIgnorado Identificador de la regla que se está reemplazando, o null.
+     * @return Un mensaje de error, o null si la regla puede registrarse.
+     */
+    private String validarRecurrente(ReservaRecurrente regla, String idIgnorado) {
+        String idZona = regla.getZona().getIdZona();
+        if (!zonas.contiene(idZona)) {
+            return "Error: la zona " + idZona + " no está registrada.";
+        }
+        if (regla.getUsuario() != null && !usuarios.contiene(regla.getUsuario().getIdUsuario())) {
+            return "Error: el usuario " + regla.getUsuario().getIdUsuario() + " no está registrado.";
+        }
+        LocalDateTime ultimoFin = regla.getUltimoFin();
+        for (Reserva reserva : intervalos.reservasEntre(idZona, regla.getPrimerInicio(),
+                ultimoFin == null ? LocalDateTime.MAX : ultimoFin)) {
+            LocalDateTime ocurrencia = regla.buscarOcurrencia(reserva.getFechaInicio(), reserva.getFechaFin());
+            if (ocurrencia != null) {
+                return "La zona no está disponible el " + ocurrencia.toLocalDate() + ": se cruza con la reserva "
+                        + reserva.getIdReserva() + ".";
             }
         }
+        ReservaRecurrente otra = indiceRecurrencias.buscarCruce(regla, idIgnorado);
+        if (otra != null) {
+            return "La zona no está disponible el " + regla.buscarCruce(otra).toLocalDate()
+                    + ": se cruza con la reserva recurrente " + otra.getIdRecurrencia() + ".";
+        }
         return null;
     }
 
+    @Override
+    public ResumenOcupacion readResumenZona(String idZona, LocalDate desde, LocalDate hasta) {
+        return acumulados.resumenZona(idZona, desde, hasta);
+    }
+
+    @Override
+    public ResumenOcupacion readResumenParque(Parque parque, LocalDate desde, LocalDate hasta) {
+        List<String> idsZona = new ArrayList<>();
+        if (parque.getZonas() != null) {
+            for (Zona zona : parque.getZonas()) {
+                idsZona.add(zona.getIdZona());
+            }
+        }
+        return acumulados.resumenZonas(idsZona, desde, hasta);
+    }
+
+    @Override
+    public ResumenOcupacion readResumenDias(LocalDate desde, LocalDate hasta) {
+        return acumulados.resumenTotal(desde, hasta);
+    }
+
     @Override
     public List<Reserva> readAllReservas() {
-        return reservas;
+        return tomarCorte().getReservas().valores();
+    }
+
+    @Override
+    public void recorrerReservas(Consumer<? super Reserva> accion) {
+        tomarCorte().getReservas().forEach(accion);
+    }
+
+    @Override
+    public Pagina<Reserva> readReservasPagina(ConsultaPagina consulta) {
+        return reservas.pagina(consulta, null);
+    }
+
+    @Override
+    public long repreciarReservas(MotorPrecios motor, LocalDateTime inicio, LocalDateTime fin) {
+        CotizacionLote cotizaciones = motor.cotizar(calendario.reservasQueEmpiezan(inicio, fin));
+        long cambiadas = 0;
+        boolean lote = iniciarLoteRegistro();
+        try {
+            for (int i = 0; i < cotizaciones.tamano(); i++) {
+                Reserva reserva = cotizaciones.getReserva(i);
+                // El costo de una reserva es su subtotal, como al crearla; el descuento y el
+                // impuesto se aplican al facturar
+                Dinero subtotal = cotizaciones.getSubtotal(i);
+                if (!subtotal.equals(reserva.getCosto())) {
+                    // Se publica una copia con el costo nuevo, como en updateReserva, para que la
+                    // reserva vigente cambie de versión y las lecturas anteriores no vean el cambio.
+                    String idReserva = reserva.getIdReserva();
+                    Reserva repreciada = new Reserva(idReserva, reserva.getUsuario(), reserva.getZona(),
+                            reserva.getFechaInicio(), reserva.getFechaFin());
+                    repreciada.setCosto(subtotal);
+                    anotar(r -> r.anexarActualizacion(idReserva, repreciada));
+                    reservas.reemplazar(idReserva, idReserva, repreciada);
+                    intervalos.agregar(repreciada);
+                    calendario.agregar(repreciada);
+                    acumulados.agregar(repreciada);
+                    cambiadas++;
+                    terminarEscritura();
+                }
+            }
+        } finally {
+            terminarLoteRegistro(lote);
+        }
+        return cambiadas;
     }
 
     @Override
     public String serializarZonasYReservas(String path, String name) {
-        try (FileOutputStream fos = new FileOutputStream(path + name);
-             ObjectOutputStream oos = new ObjectOutputStream(fos)) {
-            oos.writeObject(zonas);
-            oos.writeObject(reservas);
+        try {
+            ArchivoInstantanea.escribir(Paths.get(path + name), List.of(), zonas, reservas, recurrencias);
             return "Archivo de zonas y reservas creado exitosamente.";
         } catch (IOException ioe) {
             return "Error al crear el archivo de zonas y reservas: " + ioe.getMessage();
         }
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public String deserializarZonasYReservas(String path, String name) {
-        try (FileInputStream fis = new FileInputStream(path + name);
+        Path archivo = Paths.get(path + name);
+        if (!ArchivoInstantanea.esInstantanea(archivo)) {
+            return deserializarZonasYReservasAnteriores(path + name);
+        }
+        try {
+            long omitidas = cargarInstantanea(archivo, false, true);
+            solicitarCheckpointTrasCarga();
+            return "Zonas y reservas deserializadas exitosamente." + avisoOmitidas(omitidas);
+        } catch (IOException | RuntimeException e) {
+            return "Error al deserializar las zonas y reservas: " + e.getMessage();
+        }
+    }
+
+    /**
+     * Lee un archivo de zonas y reservas guardado con serialización de Java por versiones anteriores.
+     */
+    @SuppressWarnings("unchecked")
+    private String deserializarZonasYReservasAnteriores(String ruta) {
+        try (FileInputStream fis = new FileInputStream(ruta);
              ObjectInputStream ois = new ObjectInputStream(fis)) {
             
             // Deserialización de zonas
@@ -206,24 +1081,26 @@ public class ImplementacionOperacion implements Operacion, Serializable {
             if (objZonas instanceof List<?>) {
                 List<?> listZonas = (List<?>) objZonas;
                 if (!listZonas.isEmpty() && listZonas.get(0) instanceof Zona) {
-                    zonas = (List<Zona>) listZonas;
+                    recargarZonas((List<Zona>) listZonas);
                 } else {
                     return "Error: El objeto deserializado no es una lista de zonas.";
                 }
             }
             
             // Deserialización de reservas
+            long omitidas = 0;
             Object objReservas = ois.readObject();
             if (objReservas instanceof List<?>) {
                 List<?> listReservas = (List<?>) objReservas;
                 if (!listReservas.isEmpty() && listReservas.get(0) instanceof Reserva) {
-                    reservas = (List<Reserva>) listReservas;
+                    omitidas = recargarReservas((List<Reserva>) listReservas);
                 } else {
                     return "Error: El objeto deserializado no es una lista de reservas.";
                 }
             }
 
-            return "Zonas y reservas deserializadas exitosamente.";
+            solicitarCheckpointTrasCarga();
+            return "Zonas y reservas deserializadas exitosamente." + avisoOmitidas(omitidas);
         } catch (IOException | ClassNotFoundException e) {
             return "Error al deserializar las zonas y reservas: " + e.getMessage();
         }
@@ -231,11 +1108,8 @@ public class ImplementacionOperacion implements Operacion, Serializable {
 
     @Override
     public String serializar(String path, String name) {
-        try (FileOutputStream fos = new FileOutputStream(path + name);
-             ObjectOutputStream oos = new ObjectOutputStream(fos)) {
-            oos.writeObject(usuarios);
-            oos.writeObject(zonas);
-            oos.writeObject(reservas);
+        try {
+            ArchivoInstantanea.escribir(Paths.get(path + name), usuarios, zonas, reservas, recurrencias);
             return "Archivo de datos creado exitosamente.";
         } catch (IOException ioe) {
             return "Error al crear el archivo de datos: " + ioe.getMessage();
@@ -244,23 +1118,80 @@ public class ImplementacionOperacion implements Operacion, Serializable {
 
     @Override
     public List<Object> readAll() {
-        List<Object> allData = new ArrayList<>();
-        allData.addAll(usuarios);
-        allData.addAll(zonas);
-        allData.addAll(reservas);
+        CorteDatos corte = tomarCorte();
+        List<Object> allData = new ArrayList<>(corte.getUsuarios().tamano() + corte.getZonas().tamano()
+                + corte.getReservas().tamano());
+        corte.getUsuarios().forEach(allData::add);
+        corte.getZonas().forEach(allData::add);
+        corte.getReservas().forEach(allData::add);
         return allData;
     }
 
-    @SuppressWarnings("unchecked")
+    @Override
+    public CorteDatos tomarCorte() {
+        return corte.get();
+    }
+
+    /**
+     * Arma un corte con el estado actual de las tablas. Quien lo llama debe asegurar que no
+     * hay una escritura a medias.
+     *
+     * @return El corte de los datos.
+     */
+    protected CorteDatos cortar() {
+        return new CorteDatos(usuarios.corte(), usuarios.cortesPorClase(), zonas.corte(), reservas.corte(),
+                recurrencias.corte());
+    }
+
+    /**
+     * Publica el corte del estado actual para las lecturas siguientes. Se llama al terminar
+     * cada escritura y cada carga.
+     */
+    protected void publicarCorte() {
+        publicarCorte(true, true, true);
+    }
+
+    /**
+     * Publica el corte actual de algunos tipos de entidad y conserva el de los demás tal como
+     * estaba publicado. Quien lo llama debe asegurar que no hay una escritura a medias en los
+     * tipos que publica; las escrituras de los demás pueden estar en curso.
+     *
+     * @param deUsuarios Si se publican los usuarios.
+     * @param deZonas    Si se publican las zonas.
+     * @param deReservas Si se publican las reservas y las reservas recurrentes.
+     */
+    protected void publicarCorte(boolean deUsuarios, boolean deZonas, boolean deReservas) {
+        CorteDatos actual = cortar();
+        corte.updateAndGet(anterior -> anterior.combinar(actual, deUsuarios, deZonas, deReservas));
+    }
+
     @Override
     public String readFromFile(String path) {
+        Path archivo = Paths.get(path);
+        if (!ArchivoInstantanea.esInstantanea(archivo)) {
+            return readFromFileAnterior(path);
+        }
+        try {
+            long omitidas = cargarInstantanea(archivo, true, true);
+            solicitarCheckpointTrasCarga();
+            return "Datos deserializados exitosamente." + avisoOmitidas(omitidas);
+        } catch (IOException | RuntimeException e) {
+            return "Error al deserializar los datos: " + e.getMessage();
+        }
+    }
+
+    /**
+     * Lee un archivo completo guardado con serialización de Java por versiones anteriores.
+     */
+    @SuppressWarnings("unchecked")
+    private String readFromFileAnterior(String path) {
         try (FileInputStream fis = new FileInputStream(path);
              ObjectInputStream ois = new ObjectInputStream(fis)) {
             Object objUsuarios = ois.readObject();
             if (objUsuarios instanceof List<?>) {
                 List<?> listUsuarios = (List<?>) objUsuarios;
                 if (!listUsuarios.isEmpty() && listUsuarios.get(0) instanceof Usuario) {
-                    usuarios = (List<Usuario>) listUsuarios;
+                    recargarUsuarios((List<Usuario>) listUsuarios);
                 } else {
                     return "Error: El objeto deserializado no es una lista de usuarios.";
                 }
@@ -270,70 +1201,266 @@ public class ImplementacionOperacion implements Operacion, Serializable {
             if (objZonas instanceof List<?>) {
                 List<?> listZonas = (List<?>) objZonas;
                 if (!listZonas.isEmpty() && listZonas.get(0) instanceof Zona) {
-                    zonas = (List<Zona>) listZonas;
+                    recargarZonas((List<Zona>) listZonas);
                 } else {
                     return "Error: El objeto deserializado no es una lista de zonas.";
                 }
             }
 
+            long omitidas = 0;
             Object objReservas = ois.readObject();
             if (objReservas instanceof List<?>) {
                 List<?> listReservas = (List<?>) objReservas;
                 if (!listReservas.isEmpty() && listReservas.get(0) instanceof Reserva) {
-                    reservas = (List<Reserva>) listReservas;
+                    omitidas = recargarReservas((List<Reserva>) listReservas);
                 } else {
                     return "Error: El objeto deserializado no es una lista de reservas.";
                 }
             }
-            return "Datos deserializados exitosamente.";
+            solicitarCheckpointTrasCarga();
+            return "Datos deserializados exitosamente." + avisoOmitidas(omitidas);
         } catch (IOException | ClassNotFoundException e) {
             return "Error al deserializar los datos: " + e.getMessage();
         }
     }
 
     public void saveToFile(String fileName) {
-        try (FileOutputStream fos = new FileOutputStream(fileName);
-             ObjectOutputStream oos = new ObjectOutputStream(fos)) {
-            
-            // Guardar listas de usuarios, zonas y reservas en el archivo
-            oos.writeObject(usuarios);
-            oos.writeObject(zonas);
-            oos.writeObject(reservas);
+        try {
+            // Guardar usuarios, zonas y reservas en el archivo
+            ArchivoInstantanea.escribir(Paths.get(fileName), usuarios, zonas, reservas, recurrencias);
 
             System.out.println("Los datos se han guardado correctamente en el archivo: " + fileName);
         } catch (IOException e) {
             System.out.println("Error al guardar los datos en el archivo: " + e.getMessage());
         }
     }
-}
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
 
+    @Override
+    public Stream<Usuario> streamUsuarios(String path, String name) throws IOException {
+        Path archivo = Paths.get(path + name);
+        if (!ArchivoInstantanea.esInstantanea(archivo)) {
+            return flujoAnterior(archivo, Usuario.class);
+        }
+        return ArchivoInstantanea.usuarios(archivo);
+    }
 
+    @Override
+    public Stream<Zona> streamZonas(String path, String name) throws IOException {
+        Path archivo = Paths.get(path + name);
+        if (!ArchivoInstantanea.esInstantanea(archivo)) {
+            return flujoAnterior(archivo, Zona.class);
+        }
+        return ArchivoInstantanea.zonas(archivo);
+    }
 
+    @Override
+    public Stream<Reserva> streamReservas(String path, String name) throws IOException {
+        Path archivo = Paths.get(path + name);
+        if (!ArchivoInstantanea.esInstantanea(archivo)) {
+            return flujoAnterior(archivo, Reserva.class);
+        }
+        return ArchivoInstantanea.reservas(archivo, this::read, this::readZona);
+    }
 
+    /**
+     * Lee las entidades de un tipo de un archivo con serialización de Java. Ese formato
+     * guarda listas completas, así que no se puede leer por partes y las entidades se
+     * cargan antes de devolver el flujo.
+     */
+    private static <T> Stream<T> flujoAnterior(Path archivo, Class<T> tipo) throws IOException {
+        List<T> encontrados = new ArrayList<>();
+        try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(archivo)))) {
+            while (true) {
+                Object obj;
+                try {
+                    obj = ois.readObject();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (obj instanceof List<?>) {
+                    for (Object elemento : (List<?>) obj) {
+                        if (tipo.isInstance(elemento)) {
+                            encontrados.add(tipo.cast(elemento));
+                        }
+                    }
+                }
+            }
+        } catch (ClassNotFoundException e) {
+            throw new IOException("El archivo contiene clases desconocidas: " + e.getMessage(), e);
+        }
+        return encontrados.stream();
+    }
 
+    /**
+     * Carga un archivo en el formato de {@link ArchivoInstantanea}. Primero se recorre la
+     * estructura del archivo sin decodificarlo, para no tocar los datos actuales si está
+     * dañado; luego cada registro se decodifica del archivo mapeado directamente a las
+     * tablas, sin listas intermedias.
+     * <p>
+     * Las reservas se enlazan con los usuarios y zonas del mismo archivo cuando los incluye,
+     * o con los registrados en memoria cuando no. Se omiten las reservas y reglas que apuntan
+     * a un usuario o zona inexistente, las que repiten un identificador y las que se cruzan
+     * con otra ya cargada, igual que se rechazarían al crearlas: los índices de intervalos y
+     * de recurrencias suponen que las reservas de una zona no se solapan.
+     *
+     * @param archivo           Ruta del archivo.
+     * @param conUsuarios       Si se reemplazan los usuarios con los del archivo.
+     * @param conZonasYReservas Si se reemplazan las zonas y reservas con las del archivo.
+     * @return La cantidad de reservas y reglas omitidas.
+     * @throws IOException Si el archivo no se puede leer o está dañado.
+     */
+    private long cargarInstantanea(Path archivo, boolean conUsuarios, boolean conZonasYReservas) throws IOException {
+        ArchivoInstantanea.verificar(archivo);
+        try {
+            if (conUsuarios) {
+                usuarios.limpiar();
+                indiceUsuarios.limpiar();
+            }
+            if (conZonasYReservas) {
+                zonas.limpiar();
+                indiceZonas.limpiar();
+                reservas.limpiar();
+                intervalos.limpiar();
+                calendario.limpiar();
+                acumulados.limpiar();
+                recurrencias.limpiar();
+                indiceRecurrencias.limpiar();
+            }
+            long omitidas = 0;
+            try (ArchivoInstantanea.Cursor cursor = ArchivoInstantanea.abrir(archivo)) {
+                while (cursor.siguiente()) {
+                    byte entidad = cursor.getEntidad();
+                    ByteBuffer datos = cursor.getDatos();
+                    if (entidad == RegistroEscritura.USUARIO && conUsuarios) {
+                        Usuario usuario = CodificadorBinario.leerUsuario(datos, cursor.getVersion());
+                        if (usuario.getIdUsuario() != null && usuarios.insertar(usuario.getIdUsuario(), usuario)) {
+                            indiceUsuarios.agregar(usuario);
+                        }
+                    } else if (entidad == RegistroEscritura.ZONA && conZonasYReservas) {
+                        Zona zona = CodificadorBinario.leerZona(datos, cursor.getVersion());
+                        if (zona.getIdZona() != null && zona.getCostoPorHora() != null
+                                && zonas.insertar(zona.getIdZona(), zona)) {
+                            indiceZonas.agregar(zona);
+                        }
+                    } else if (entidad == RegistroEscritura.RESERVA && conZonasYReservas) {
+                        Reserva reserva = CodificadorBinario.leerReserva(datos, cursor.getVersion(), usuarios::obtener,
+                                zonas::obtener);
+                        if (reserva == null || !cargarReserva(reserva)) {
+                            omitidas++;
+                        }
+                    } else if (entidad == RegistroEscritura.RECURRENCIA && conZonasYReservas) {
+                        ReservaRecurrente regla = CodificadorBinario.leerRecurrencia(datos, usuarios::obtener,
+                                zonas::obtener);
+                        if (regla == null || regla.getIdRecurrencia() == null || validarRecurrente(regla, null) != null
+                                || !recurrencias.insertar(regla.getIdRecurrencia(), regla)) {
+                            omitidas++;
+                        } else {
+                            indiceRecurrencias.agregar(regla);
+                        }
+                    }
+                }
+            }
+            return omitidas;
+        } finally {
+            // También si falla a medias, para que los cortes muestren lo que quedó cargado
+            publicarCorte();
+        }
+    }
 
+    private static String avisoOmitidas(long omitidas) {
+        return omitidas > 0 ? " Se omitieron " + omitidas
+                + " reservas inválidas, con usuario o zona inexistente o que se cruzan con otra." : "";
+    }
 
+    /**
+     * Agrega a la tabla y a los índices una reserva leída de un archivo, si tiene
+     * identificador nuevo, zona y fechas, y no se cruza con las ya cargadas.
+     *
+     * @param reserva La reserva leída.
+     * @return true si se agregó, false si se omitió.
+     */
+    private boolean cargarReserva(Reserva reserva) {
+        if (reserva.getIdReserva() == null || reserva.getZona() == null || reserva.getZona().getIdZona() == null
+                || reserva.getFechaInicio() == null || reserva.getFechaFin() == null
+                || validarHorario(reserva, null) != null || !reservas.insertar(reserva.getIdReserva(), reserva)) {
+            return false;
+        }
+        intervalos.agregar(reserva);
+        calendario.agregar(reserva);
+        acumulados.agregar(reserva);
+        return true;
+    }
 
+    /**
+     * Los datos cargados desde un archivo no pasan por el registro de escritura, así que
+     * con el registro activo se guarda un checkpoint para que no se pierdan tras una caída.
+     */
+    private void solicitarCheckpointTrasCarga() {
+        if (registro != null) {
+            solicitarCheckpoint();
+        }
+    }
 
+    /**
+     * Reemplaza los usuarios con los de una lista deserializada y reconstruye sus índices
+     * secundarios.
+     */
+    private void recargarUsuarios(List<Usuario> lista) {
+        recargar(usuarios, lista, Usuario::getIdUsuario);
+        indiceUsuarios.limpiar();
+        for (Usuario usuario : usuarios) {
+            indiceUsuarios.agregar(usuario);
+        }
+        publicarCorte();
+    }
 
+    /**
+     * Reemplaza las zonas con las de una lista deserializada y reconstruye el índice por
+     * tipo y costo.
+     */
+    private void recargarZonas(List<Zona> lista) {
+        recargar(zonas, lista, Zona::getIdZona);
+        indiceZonas.limpiar();
+        for (Zona zona : zonas) {
+            indiceZonas.agregar(zona);
+        }
+        publicarCorte();
+    }
 
+    /**
+     * Reemplaza las reservas con las de una lista deserializada y reconstruye el índice
+     * de intervalos por zona, el de calendario y los acumulados. Las reservas que no
+     * pueden cargarse ({@link #cargarReserva}) se omiten.
+     *
+     * @return La cantidad de reservas omitidas.
+     */
+    private long recargarReservas(Iterable<Reserva> lista) {
+        reservas.limpiar();
+        intervalos.limpiar();
+        calendario.limpiar();
+        acumulados.limpiar();
+        long omitidas = 0;
+        for (Reserva reserva : lista) {
+            if (!cargarReserva(reserva)) {
+                omitidas++;
+            }
+        }
+        publicarCorte();
+        return omitidas;
+    }
 
-	
-	
\ No newline at end of file
+    /**
+     * Reemplaza el contenido de una tabla con los elementos de una lista deserializada.
+     * Si la lista trae identificadores repetidos se conserva la primera aparición,
+     * y se descartan los elementos sin identificador.
+     */
+    private static <T> void recargar(TablaIndexada<T> tabla, Iterable<T> lista, Function<T, String> id) {
+        tabla.limpiar();
+        for (T elemento : lista) {
+            String clave = id.apply(elemento);
+            if (clave != null) {
+                tabla.insertar(clave, elemento);
+            }
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package co.edu.poli.demo.servicios;
+
+import co.edu.poli.demo.modelo.Reserva;
+import co.edu.poli.demo.modelo.ReservaRecurrente;
+import co.edu.poli.demo.modelo.Usuario;
+import co.edu.poli.demo.modelo.Zona;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+/**
+ * Implementación de {@link Operacion} apta para varios hilos, por ejemplo una tarea
+ * en segundo plano de JavaFX y un hilo de guardado automático.
+ * <p>
+ * Cada tipo de entidad (usuarios, zonas y reservas) tiene su propio cerrojo, de modo
+ * que las escrituras sobre tipos distintos no compiten entre sí. Las lecturas por
+ * identificador no toman ningún cerrojo. Los listados y recorridos completos leen el último
+ * {@link CorteDatos} publicado, sin cerrojos y sin esperar nunca a los escritores: cada
+ * escritura o lote publica el corte de los tipos que modificó antes de soltar sus cerrojos,
+ * y conserva el publicado de los demás, que pueden tener una escritura en curso.
+ * <p>
+ * Cuando una operación involucra varios tipos, los cerrojos se toman siempre en el
+ * orden usuarios, zonas, reservas. Las escrituras de reservas que validan su usuario y su
+ * zona toman además los cerrojos de lectura de usuarios y zonas, para que no se eliminen ni
+ * se renombren entre la validación y la escritura; varias de ellas pueden validar a la vez.
+ * <p>
+ * Las creaciones por lotes toman el cerrojo una sola vez para todo el lote.
+ * <p>
+ * Las actualizaciones condicionales por versión comparan primero la versión sin cerrojo y
+ * fallan sin esperar si ya cambió; si coincide, la vuelven a comparar con el cerrojo tomado
+ * antes de escribir.
+ * <p>
+ * Con el registro de escritura activo, los checkpoints toman todos los cerrojos. La
+ * activación del registro reproduce las operaciones guardadas a través de los métodos
+ * públicos, por lo que debe hacerse antes de compartir la instancia entre hilos.
+ */
+public class ImplementacionOperacionConcurrente extends ImplementacionOperacion {
+    private static final long serialVersionUID = 1L;
+
+    private transient StampedLock cerrojoUsuarios;
+    private transient StampedLock cerrojoZonas;
+    private transient StampedLock cerrojoReservas;
+
+    /**
+     * Indica que una escritura pidió un checkpoint automático, que se hace al liberar los cerrojos.
+     */
+    private transient AtomicBoolean checkpointPendiente;
+
+    public ImplementacionOperacionConcurrente() {
+        super();
+        inicializarCerrojos();
+    }
+
+    private void inicializarCerrojos() {
+        cerrojoUsuarios = new StampedLock();
+        cerrojoZonas = new StampedLock();
+        cerrojoReservas = new StampedLock();
+        checkpointPendiente = new AtomicBoolean();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        inicializarCerrojos();
+    }
+
+    // Métodos para usuarios
+    @Override
+    public String create(Usuario usuario) {
+        return escribir(() -> super.create(usuario), cerrojoUsuarios);
+    }
+
+    @Override
+    public ReporteLote createAll(List<? extends Usuario> usuarios) {
+        return escribir(() -> super.createAll(usuarios), cerrojoUsuarios);
+    }
+
+    @Override
+    public String update(Usuario usuario, String idUsuario) {
+        return escribir(() -> super.update(usuario, idUsuario), cerrojoUsuarios);
+    }
+
+    @Override
+    public String updateSiVersion(Usuario usuario, String idUsuario, long version) {
+        String conflicto = conflictoDeVersion(readVersionado(idUsuario), version);
+        return conflicto != null ? conflicto
+                : escribir(() -> super.updateSiVersion(usuario, idUsuario, version), cerrojoUsuarios);
+    }
+
+    @Override
+    public Usuario delete(String idUsuario) {
+        return escribir(() -> super.delete(idUsuario), cerrojoUsuarios);
+    }
+
+    @Override
+    public String serializarUsuarios(String path, String name) {
+        return leerBloqueando(() -> super.serializarUsuarios(path, name), cerrojoUsuarios);
+    }
+
+    @Override
+    public String deserializarUsuarios(String path, String name) {
+        return escribir(() -> super.deserializarUsuarios(path, name), cerrojoUsuarios);
+    }
+
+    // Métodos para zonas
+    @Override
+    public String createZona(Zona zona) {
+        return escribir(() -> super.createZona(zona), cerrojoZonas);
+    }
+
+    @Override
+    public ReporteLote createAllZonas(List<Zona> zonas) {
+        return escribir(() -> super.createAllZonas(zonas), cerrojoZonas);
+    }
+
+    @Override
+    public String updateZona(Zona zona, String idZona) {
+        return escribir(() -> super.updateZona(zona, idZona), cerrojoZonas);
+    }
+
+    @Override
+    public String updateZonaSiVersion(Zona zona, String idZona, long version) {
+        String conflicto = conflictoDeVersion(readZonaVersionada(idZona), version);
+        return conflicto != null ? conflicto
+                : escribir(() -> super.updateZonaSiVersion(zona, idZona, version), cerrojoZonas);
+    }
+
+    @Override
+    public Zona deleteZona(String idZona) {
+        return escribir(() -> super.deleteZona(idZona), cerrojoZonas);
+    }
+
+    // Métodos para reservas
+    @Override
+    public String createReserva(Reserva reserva) {
+        return escribirReserva(() -> super.createReserva(reserva));
+    }
+
+    @Override
+    public ReporteLote createAllReservas(List<Reserva> reservas) {
+        return escribirReserva(() -> super.createAllReservas(reservas));
+    }
+
+    @Override
+    public String updateReserva(Reserva reserva, String idReserva) {
+        return escribirReserva(() -> super.updateReserva(reserva, idReserva));
+    }
+
+    @Override
+    public String updateReservaSiVersion(Reserva reserva, String idReserva, long version) {
+        String conflicto = conflictoDeVersion(readReservaVersionada(idReserva), version);
+        return conflicto != null ? conflicto
+                : escribirReserva(() -> super.updateReservaSiVersion(reserva, idReserva, version));
+    }
+
+    @Override
+    public Reserva deleteReserva(String idReserva) {
+        return escribir(() -> super.deleteReserva(idReserva), cerrojoReservas);
+    }
+
+    @Override
+    public long repreciarReservas(MotorPrecios motor, LocalDateTime inicio, LocalDateTime fin) {
+        return escribir(() -> super.repreciarReservas(motor, inicio, fin), cerrojoReservas);
+    }
+
+    // Las reservas recurrentes comparten el cerrojo de las reservas, con las que se validan
+    @Override
+    public String createRecurrente(ReservaRecurrente regla) {
+        return escribirReserva(() -> super.createRecurrente(regla));
+    }
+
+    @Override
+    public String updateRecurrente(ReservaRecurrente regla, String idRecurrencia) {
+        return escribirReserva(() -> super.updateRecurrente(regla, idRecurrencia));
+    }
+
+    @Override
+    public ReservaRecurrente deleteRecurrente(String idRecurrencia) {
+        return escribir(() -> super.deleteRecurrente(idRecurrencia), cerrojoReservas);
+    }
+
+    @Override
+    public String serializarZonasYReservas(String path, String name) {
+        return leerBloqueando(() -> super.serializarZonasYReservas(path, name), cerrojoZonas, cerrojoReservas);
+    }
+
+    @Override
+    public String deserializarZonasYReservas(String path, String name) {
+        return escribir(() -> super.deserializarZonasYReservas(path, name), cerrojoZonas, cerrojoReservas);
+    }
+
+    // Métodos sobre todos los datos
+    @Override
+    public String serializar(String path, String name) {
+        return leerBloqueando(() -> super.serializar(path, name), cerrojoUsuarios, cerrojoZonas, cerrojoReservas);
+    }
+
+    /**
+     * No se publica el corte de todos los tipos al terminar cada escritura: con escritores de
+     * tipos distintos a la vez, uno lo publicaría con la escritura de otro a medias. Cada
+     * escritura publica solo sus tipos en {@link #escribir} y {@link #escribirReserva}.
+     */
+    @Override
+    protected void publicarCorte() {
+    }
+
+    @Override
+    public String readFromFile(String path) {
+        return escribir(() -> super.readFromFile(path), cerrojoUsuarios, cerrojoZonas, cerrojoReservas);
+    }
+
+    @Override
+    public void saveToFile(String fileName) {
+        leerBloqueando(() -> {
+            super.saveToFile(fileName);
+            return null;
+        }, cerrojoUsuarios, cerrojoZonas, cerrojoReservas);
+    }
+
+    // Registro de escritura
+    /**
+     * Las operaciones reproducidas se publican al aplicarse, pero la limpieza previa y la carga
+     * del checkpoint no pasan por los métodos públicos, así que al terminar se publica el corte
+     * de todos los tipos.
+     */
+    @Override
+    public String activarRegistro(String directorio, PoliticaSincronizacion politica, long operacionesPorCheckpoint) {
+        String resultado = super.activarRegistro(directorio, politica, operacionesPorCheckpoint);
+        escribir(() -> null, cerrojoUsuarios, cerrojoZonas, cerrojoReservas);
+        return resultado;
+    }
+
+    @Override
+    public String checkpoint() {
+        return escribir(super::checkpoint, cerrojoUsuarios, cerrojoZonas, cerrojoReservas);
+    }
+
+    @Override
+    public String desactivarRegistro() {
+        return escribir(super::desactivarRegistro, cerrojoUsuarios, cerrojoZonas, cerrojoReservas);
+    }
+
+    /**
+     * La escritura que llega al umbral todavía tiene su cerrojo, así que el checkpoint se
+     * marca como pendiente y lo hace {@link #escribir} al terminar.
+     */
+    @Override
+    protected void solicitarCheckpoint() {
+        checkpointPendiente.set(true);
+    }
+
+    /**
+     * Ejecuta una escritura con acceso exclusivo a los tipos de entidad indicados, publica su
+     * corte antes de liberar los cerrojos y, al liberarlos, hace el checkpoint automático si
+     * alguna escritura lo pidió.
+     */
+    private <R> R escribir(Supplier<R> accion, StampedLock... cerrojos) {
+        long[] sellos = new long[cerrojos.length];
+        for (int i = 0; i < cerrojos.length; i++) {
+            sellos[i] = cerrojos[i].writeLock();
+        }
+        try {
+            return accion.get();
+        } finally {
+            publicarCorte(contiene(cerrojos, cerrojoUsuarios), contiene(cerrojos, cerrojoZonas),
+                    contiene(cerrojos, cerrojoReservas));
+            for (int i = cerrojos.length - 1; i >= 0; i--) {
+                cerrojos[i].unlockWrite(sellos[i]);
+            }
+            checkpointSiPendiente();
+        }
+    }
+
+    /**
+     * Ejecuta una escritura de reservas que valida el usuario y la zona de la reserva: toma
+     * los cerrojos de lectura de usuarios y zonas, en ese orden, y después el de escritura de
+     * reservas. Solo publica el corte de las reservas.
+     */
+    private <R> R escribirReserva(Supplier<R> accion) {
+        long selloUsuarios = cerrojoUsuarios.readLock();
+        long selloZonas = cerrojoZonas.readLock();
+        long selloReservas = cerrojoReservas.writeLock();
+        try {
+            return accion.get();
+        } finally {
+            publicarCorte(false, false, true);
+            cerrojoReservas.unlockWrite(selloReservas);
+            cerrojoZonas.unlockRead(selloZonas);
+            cerrojoUsuarios.unlockRead(selloUsuarios);
+            checkpointSiPendiente();
+        }
+    }
+
+    /**
+     * Hace el checkpoint automático si alguna escritura lo pidió; se llama sin cerrojos, porque
+     * el checkpoint los toma todos.
+     */
+    private void checkpointSiPendiente() {
+        if (checkpointPendiente.compareAndSet(true, false)) {
+            super.solicitarCheckpoint();
+        }
+    }
+
+    /**
+     * Ejecuta una lectura que impide escrituras en los tipos indicados mientras dura,
+     * usada para guardar archivos con un estado coherente.
+     */
+    private <R> R leerBloqueando(Supplier<R> lectura, StampedLock... cerrojos) {
+        long[] sellos = new long[cerrojos.length];
+        for (int i = 0; i < cerrojos.length; i++) {
+            sellos[i] = cerrojos[i].readLock();
+        }
+        try {
+            return lectura.get();
+        } finally {
+            for (int i = cerrojos.length - 1; i >= 0; i--) {
+                cerrojos[i].unlockRead(sellos[i]);
+            }
+        }
+    }
+
+    private static boolean contiene(StampedLock[] cerrojos, StampedLock buscado) {
+        for (StampedLock cerrojo : cerrojos) {
+            if (cerrojo == buscado) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
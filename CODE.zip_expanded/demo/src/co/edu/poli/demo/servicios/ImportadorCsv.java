@@ -0,0 +1,320 @@
+package co.edu.poli.demo.servicios;
+
+import co.edu.poli.demo.modelo.Dinero;
+import co.edu.poli.demo.modelo.Empleado;
+import co.edu.poli.demo.modelo.Reserva;
+import co.edu.poli.demo.modelo.Usuario;
+import co.edu.poli.demo.modelo.UsuarioCorporativo;
+import co.edu.poli.demo.modelo.UsuarioFrecuente;
+import co.edu.poli.demo.modelo.UsuarioResidencial;
+import co.edu.poli.demo.modelo.Zona;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+/**
+ * Importa usuarios, zonas y reservas desde archivos CSV con el formato de {@link FormatoCsv},
+ * un archivo por tipo de entidad.
+ * <p>
+ * El archivo se lee por bloques de líneas. Cada bloque se interpreta y valida en paralelo
+ * en el {@link ForkJoinPool} común mientras el bloque anterior se guarda, y se guarda con
+ * una sola llamada a los métodos {@code createAll} de {@link Operacion}. Solo hay unos
+ * pocos bloques en memoria a la vez, así que el archivo puede ser más grande que la memoria
+ * disponible para la lectura.
+ * <p>
+ * Las filas con errores de formato o que el almacén rechaza no detienen la importación: se
+ * anotan en el {@link ReporteLote} con su número de línea en el archivo.
+ */
+public class ImportadorCsv {
+
+    /**
+     * Cantidad de líneas de cada bloque.
+     */
+    public static final int LINEAS_POR_BLOQUE = 8192;
+
+    private final Operacion operacion;
+    private final ForkJoinPool hilos;
+
+    /**
+     * Constructor que usa el grupo de hilos común para interpretar los archivos.
+     *
+     * @param operacion Almacén donde se crean las entidades importadas.
+     */
+    public ImportadorCsv(Operacion operacion) {
+        this(operacion, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor que interpreta los archivos en el grupo de hilos dado.
+     *
+     * @param operacion Almacén donde se crean las entidades importadas.
+     * @param hilos     Grupo de hilos para interpretar los bloques.
+     */
+    public ImportadorCsv(Operacion operacion, ForkJoinPool hilos) {
+        this.operacion = operacion;
+        this.hilos = hilos;
+    }
+
+    public ReporteLote importarResidenciales(Path archivo) throws IOException {
+        return importar(archivo, FormatoCsv.RESIDENCIAL, c -> new UsuarioResidencial(c.texto(0), c.texto(1),
+                c.texto(2), c.texto(3), c.booleano(4), c.entero(5)), operacion::createAll);
+    }
+
+    public ReporteLote importarCorporativos(Path archivo) throws IOException {
+        return importar(archivo, FormatoCsv.CORPORATIVO, c -> new UsuarioCorporativo(c.texto(0), c.texto(1),
+                c.texto(2), c.texto(3), c.booleano(4), c.texto(5), c.entero(6)), operacion::createAll);
+    }
+
+    public ReporteLote importarFrecuentes(Path archivo) throws IOException {
+        return importar(archivo, FormatoCsv.FRECUENTE, c -> new UsuarioFrecuente(c.texto(0), c.texto(1),
+                c.texto(2), c.texto(3), c.booleano(4), c.entero(5), c.decimal(6)), operacion::createAll);
+    }
+
+    public ReporteLote importarInternacionales(Path archivo) throws IOException {
+        return importar(archivo, FormatoCsv.INTERNACIONAL, c -> new UsuarioInternacional(c.texto(0), c.texto(1),
+                c.texto(2), c.texto(3), c.booleano(4), c.texto(5), c.entero(6), c.texto(7), c.booleano(8),
+                c.dinero(9)), operacion::createAll);
+    }
+
+    public ReporteLote importarEmpleados(Path archivo) throws IOException {
+        return importar(archivo, FormatoCsv.EMPLEADO, c -> {
+            Empleado empleado = new Empleado(c.texto(0), c.texto(1), c.texto(2), c.texto(3), c.booleano(4),
+                    c.texto(5), c.dinero(6));
+            empleado.setTareasAsignadas(FormatoCsv.dividirLista(c.texto(7)));
+            return empleado;
+        }, operacion::createAll);
+    }
+
+    public ReporteLote importarZonas(Path archivo) throws IOException {
+        return importar(archivo, FormatoCsv.ZONA, c -> {
+            Zona zona = new Zona(c.texto(0), c.texto(1), c.texto(2), c.dinero(3));
+            zona.cambiarDisponibilidad(c.booleano(4));
+            return zona;
+        }, operacion::createAllZonas);
+    }
+
+    /**
+     * Importa reservas. Su usuario y su zona deben estar registrados antes; el usuario
+     * puede quedar vacío. Si la columna de costo está vacía, el costo se calcula.
+     *
+     * @param archivo Ruta del archivo.
+     * @return El reporte de la importación.
+     * @throws IOException Si el archivo no se puede leer o su encabezado no es el esperado.
+     */
+    public ReporteLote importarReservas(Path archivo) throws IOException {
+        return importar(archivo, FormatoCsv.RESERVA, c -> {
+            String idUsuario = c.texto(1);
+            Usuario usuario = idUsuario.isEmpty() ? null : operacion.read(idUsuario);
+            if (!idUsuario.isEmpty() && usuario == null) {
+                throw new IllegalArgumentException("el usuario " + idUsuario + " no está registrado.");
+            }
+            Zona zona = operacion.readZona(c.texto(2));
+            if (zona == null) {
+                throw new IllegalArgumentException("la zona " + c.texto(2) + " no está registrada.");
+            }
+            Reserva reserva = new Reserva(c.texto(0), usuario, zona, c.fecha(3), c.fecha(4));
+            if (!c.texto(5).isEmpty()) {
+                reserva.setCosto(c.dinero(5));
+            }
+            return reserva;
+        }, operacion::createAllReservas);
+    }
+
+    /**
+     * Lee el archivo por bloques, interpreta cada bloque en paralelo y guarda los bloques
+     * en orden a medida que están listos.
+     */
+    private <T> ReporteLote importar(Path archivo, String encabezado, Interprete<T> interprete,
+                                     Function<List<T>, ReporteLote> destino) throws IOException {
+        ReporteLote reporte = new ReporteLote();
+        int columnas = encabezado.split(",").length;
+        int maximoEnCurso = Math.max(2, hilos.getParallelism() * 2);
+        ArrayDeque<CompletableFuture<Bloque<T>>> enCurso = new ArrayDeque<>();
+        try (BufferedReader lector = Files.newBufferedReader(archivo, StandardCharsets.UTF_8)) {
+            String primera = lector.readLine();
+            if (primera == null) {
+                return reporte;
+            }
+            if (!primera.replace("\uFEFF", "").trim().equalsIgnoreCase(encabezado)) {
+                throw new IOException("Encabezado inesperado en " + archivo.getFileName() + "; se esperaba: " + encabezado);
+            }
+            long numero = 1;
+            List<String> lineas = new ArrayList<>(LINEAS_POR_BLOQUE);
+            long primeraLinea = numero + 1;
+            String linea;
+            while ((linea = lector.readLine()) != null) {
+                numero++;
+                lineas.add(linea);
+                if (lineas.size() == LINEAS_POR_BLOQUE) {
+                    enviar(enCurso, lineas, primeraLinea, columnas, interprete);
+                    lineas = new ArrayList<>(LINEAS_POR_BLOQUE);
+                    primeraLinea = numero + 1;
+                    while (enCurso.size() >= maximoEnCurso) {
+                        guardar(enCurso.poll().join(), destino, reporte);
+                    }
+                }
+            }
+            if (!lineas.isEmpty()) {
+                enviar(enCurso, lineas, primeraLinea, columnas, interprete);
+            }
+            while (!enCurso.isEmpty()) {
+                guardar(enCurso.poll().join(), destino, reporte);
+            }
+            reporte.ordenarErrores();
+        } finally {
+            for (CompletableFuture<Bloque<T>> pendiente : enCurso) {
+                pendiente.cancel(false);
+            }
+        }
+        return reporte;
+    }
+
+    private <T> void enviar(ArrayDeque<CompletableFuture<Bloque<T>>> enCurso, List<String> lineas,
+                            long primeraLinea, int columnas, Interprete<T> interprete) {
+        enCurso.add(CompletableFuture.supplyAsync(() -> interpretar(lineas, primeraLinea, columnas, interprete), hilos));
+    }
+
+    private static <T> void guardar(Bloque<T> bloque, Function<List<T>, ReporteLote> destino, ReporteLote reporte) {
+        for (ReporteLote.ErrorFila error : bloque.errores) {
+            reporte.registrar(error.getFila(), error.getMensaje());
+        }
+        if (!bloque.validos.isEmpty()) {
+            reporte.combinar(destino.apply(bloque.validos), bloque.filas);
+        }
+    }
+
+    /**
+     * Interpreta un bloque de líneas. Las líneas en blanco se ignoran.
+     */
+    private static <T> Bloque<T> interpretar(List<String> lineas, long primeraLinea, int columnas,
+                                             Interprete<T> interprete) {
+        Bloque<T> bloque = new Bloque<>(lineas.size());
+        long numero = primeraLinea;
+        for (String linea : lineas) {
+            if (!linea.isBlank()) {
+                try {
+                    String[] campos = FormatoCsv.dividir(linea);
+                    if (campos.length != columnas) {
+                        throw new IllegalArgumentException("se esperaban " + columnas + " columnas y hay "
+                                + campos.length + ".");
+                    }
+                    bloque.agregar(interprete.interpretar(new Campos(campos)), numero);
+                } catch (RuntimeException e) {
+                    bloque.errores.add(new ReporteLote.ErrorFila(numero, "Error: " + e.getMessage()));
+                }
+            }
+            numero++;
+        }
+        return bloque;
+    }
+
+    /**
+     * Construcción de una entidad a partir de los campos de una línea.
+     */
+    private interface Interprete<T> {
+        T interpretar(Campos campos);
+    }
+
+    /**
+     * Campos de una línea con conversión a cada tipo. Los errores de conversión indican la
+     * columna y el valor.
+     */
+    private static final class Campos {
+        private final String[] valores;
+
+        private Campos(String[] valores) {
+            this.valores = valores;
+        }
+
+        private String texto(int columna) {
+            return valores[columna].trim();
+        }
+
+        private int entero(int columna) {
+            try {
+                return Integer.parseInt(texto(columna));
+            } catch (NumberFormatException e) {
+                throw invalido(columna, "un número entero");
+            }
+        }
+
+        private double decimal(int columna) {
+            try {
+                return Double.parseDouble(texto(columna));
+            } catch (NumberFormatException e) {
+                throw invalido(columna, "un número");
+            }
+        }
+
+        /**
+         * Lee un importe exacto, con el código de la moneda después de un espacio si no es la local.
+         */
+        private Dinero dinero(int columna) {
+            try {
+                return Dinero.interpretar(texto(columna));
+            } catch (IllegalArgumentException e) {
+                throw invalido(columna, "un importe");
+            }
+        }
+
+        private boolean booleano(int columna) {
+            switch (texto(columna).toLowerCase(Locale.ROOT)) {
+                case "true":
+                case "si":
+                case "sí":
+                case "1":
+                    return true;
+                case "false":
+                case "no":
+                case "0":
+                    return false;
+                default:
+                    throw invalido(columna, "true o false");
+            }
+        }
+
+        private LocalDateTime fecha(int columna) {
+            try {
+                return LocalDateTime.parse(texto(columna));
+            } catch (DateTimeParseException e) {
+                throw invalido(columna, "una fecha ISO (2024-05-01T10:00)");
+            }
+        }
+
+        private IllegalArgumentException invalido(int columna, String esperado) {
+            return new IllegalArgumentException("la columna " + (columna + 1) + " debe ser " + esperado
+                    + " y es \"" + valores[columna] + "\".");
+        }
+    }
+
+    /**
+     * Entidades válidas de un bloque, con su número de línea, y los errores de formato.
+     */
+    private static final class Bloque<T> {
+        private final List<T> validos;
+        private final long[] filas;
+        private final List<ReporteLote.ErrorFila> errores;
+
+        private Bloque(int capacidad) {
+            this.validos = new ArrayList<>(capacidad);
+            this.filas = new long[capacidad];
+            this.errores = new ArrayList<>();
+        }
+
+        private void agregar(T valor, long fila) {
+            filas[validos.size()] = fila;
+            validos.add(valor);
+        }
+    }
+}
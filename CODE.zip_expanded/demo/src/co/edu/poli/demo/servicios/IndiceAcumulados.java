@@ -0,0 +1,372 @@
+package co.edu.poli.demo.servicios;
+
+import co.edu.poli.demo.modelo.Dinero;
+import co.edu.poli.demo.modelo.Reserva;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Acumulados de ingresos y ocupación por zona y por día, mantenidos a medida que se crean,
+ * modifican y eliminan reservas. Cada zona recibe una posición fija y guarda sus acumulados
+ * en arreglos de {@code long} indexados por número de día; otra serie igual acumula todas
+ * las zonas juntas. Registrar o quitar una reserva suma o resta en las casillas de los días
+ * que ocupa, y una consulta recorre solo los días pedidos, sin revisar las reservas.
+ * <p>
+ * Una reserva cuenta, junto con su costo, en el día en que empieza, el mismo criterio de la
+ * facturación. Su tiempo se reparte entre los días que ocupa, así que una reserva que cruza
+ * la medianoche suma horas a los dos días. Los días se cuentan en el calendario de las fechas
+ * de la reserva, igual que en {@link IndiceCalendario}.
+ * <p>
+ * Las consultas no se bloquean; las modificaciones deben estar serializadas. Una consulta
+ * que coincide con una modificación puede ver la reserva solo en parte de sus casillas.
+ */
+public class IndiceAcumulados implements Serializable {
+
+    /**
+     * Versión de serialización de la clase.
+     */
+    private static final long serialVersionUID = 1L;
+
+    private static final long SEGUNDOS_POR_DIA = 86_400;
+
+    /**
+     * Días que se reservan en los arreglos de una serie la primera vez que se usa.
+     */
+    private static final int DIAS_INICIALES = 64;
+
+    /**
+     * Posición de la serie de cada zona, por identificador de zona. Las posiciones no se
+     * reutilizan mientras no se limpie el índice.
+     */
+    private final ConcurrentHashMap<String, Integer> posiciones;
+
+    /**
+     * Serie de cada zona, por posición. Se reemplaza por una copia más grande al agregar zonas.
+     */
+    private volatile Serie[] series;
+
+    /**
+     * Serie de todas las zonas juntas.
+     */
+    private final Serie total;
+
+    /**
+     * Aporte con el que se registró cada reserva, por identificador de reserva. Se guarda
+     * aparte porque la reserva puede modificarse fuera del índice.
+     */
+    private final ConcurrentHashMap<String, Aporte> porReserva;
+
+    /**
+     * Constructor que crea un índice vacío.
+     */
+    public IndiceAcumulados() {
+        this.posiciones = new ConcurrentHashMap<>();
+        this.series = new Serie[16];
+        this.total = new Serie();
+        this.porReserva = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Suma una reserva a los acumulados de su zona. Si ya estaba registrada, primero se
+     * quita su aporte anterior.
+     *
+     * @param reserva La reserva a registrar.
+     */
+    public void agregar(Reserva reserva) {
+        quitar(reserva.getIdReserva());
+        Aporte aporte = new Aporte(posicion(reserva.getZona().getIdZona()), reserva);
+        porReserva.put(reserva.getIdReserva(), aporte);
+        aplicar(aporte, 1);
+    }
+
+    /**
+     * Resta de los acumulados el aporte de la reserva con el identificador dado.
+     *
+     * @param idReserva Identificador de la reserva.
+     */
+    public void quitar(String idReserva) {
+        Aporte aporte = idReserva == null ? null : porReserva.remove(idReserva);
+        if (aporte != null) {
+            aplicar(aporte, -1);
+        }
+    }
+
+    /**
+     * Obtiene los acumulados de una zona en un rango de días.
+     *
+     * @param idZona Identificador de la zona.
+     * @param desde  Primer día del rango.
+     * @param hasta  Último día del rango, incluido.
+     * @return El resumen de la zona; vacío si no tiene reservas en el rango.
+     */
+    public ResumenOcupacion resumenZona(String idZona, LocalDate desde, LocalDate hasta) {
+        return resumenZonas(Collections.singleton(idZona), desde, hasta);
+    }
+
+    /**
+     * Obtiene los acumulados de un conjunto de zonas, por ejemplo las de un parque, en un
+     * rango de días. Una zona repetida se cuenta una sola vez.
+     *
+     * @param idsZona Identificadores de las zonas.
+     * @param desde   Primer día del rango.
+     * @param hasta   Último día del rango, incluido.
+     * @return El resumen de las zonas juntas.
+     */
+    public ResumenOcupacion resumenZonas(Collection<String> idsZona, LocalDate desde, LocalDate hasta) {
+        Suma suma = new Suma();
+        for (String idZona : new LinkedHashSet<>(idsZona)) {
+            Integer posicion = idZona == null ? null : posiciones.get(idZona);
+            if (posicion != null) {
+                series[posicion].sumarEn(suma, desde.toEpochDay(), hasta.toEpochDay());
+            }
+        }
+        return suma.resumen();
+    }
+
+    /**
+     * Obtiene los acumulados de todas las zonas en un rango de días.
+     *
+     * @param desde Primer día del rango.
+     * @param hasta Último día del rango, incluido.
+     * @return El resumen de todas las zonas.
+     */
+    public ResumenOcupacion resumenTotal(LocalDate desde, LocalDate hasta) {
+        Suma suma = new Suma();
+        total.sumarEn(suma, desde.toEpochDay(), hasta.toEpochDay());
+        return suma.resumen();
+    }
+
+    /**
+     * Elimina todos los acumulados.
+     */
+    public void limpiar() {
+        porReserva.clear();
+        posiciones.clear();
+        series = new Serie[16];
+        total.limpiar();
+    }
+
+    /**
+     * Obtiene la posición de la serie de una zona, creando la serie si es la primera reserva
+     * de la zona. La serie se publica antes que la posición, así que una consulta que
+     * encuentra la posición encuentra también la serie.
+     */
+    private int posicion(String idZona) {
+        Integer posicion = posiciones.get(idZona);
+        if (posicion != null) {
+            return posicion;
+        }
+        int nueva = posiciones.size();
+        Serie[] actuales = series;
+        if (nueva == actuales.length) {
+            actuales = Arrays.copyOf(actuales, actuales.length * 2);
+        }
+        actuales[nueva] = new Serie();
+        series = actuales;
+        posiciones.put(idZona, nueva);
+        return nueva;
+    }
+
+    /**
+     * Suma o resta el aporte de una reserva en la serie de su zona y en la del total.
+     *
+     * @param signo 1 para sumar, -1 para restar.
+     */
+    private void aplicar(Aporte aporte, int signo) {
+        Serie serie = series[aporte.posicion];
+        long primerDia = Math.floorDiv(aporte.inicio, SEGUNDOS_POR_DIA);
+        long ultimoDia = Math.max(primerDia, Math.floorDiv(aporte.fin - 1, SEGUNDOS_POR_DIA));
+        for (long dia = primerDia; dia <= ultimoDia; dia++) {
+            long desde = Math.max(aporte.inicio, dia * SEGUNDOS_POR_DIA);
+            long hasta = Math.min(aporte.fin, (dia + 1) * SEGUNDOS_POR_DIA);
+            long segundos = Math.max(0, hasta - desde) * signo;
+            if (dia == primerDia) {
+                serie.sumar(dia, signo, segundos, aporte.moneda, aporte.unidades * signo);
+                total.sumar(dia, signo, segundos, aporte.moneda, aporte.unidades * signo);
+            } else {
+                serie.sumar(dia, 0, segundos, null, 0);
+                total.sumar(dia, 0, segundos, null, 0);
+            }
+        }
+    }
+
+    /**
+     * Acumulados por día de una zona o del total. Los arreglos cubren un rango contiguo de
+     * días que crece en cualquiera de los dos sentidos.
+     */
+    private static final class Serie implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private volatile Columnas columnas;
+
+        private void sumar(long dia, long reservas, long segundos, Currency moneda, long unidades) {
+            Columnas actuales = columnas;
+            if (actuales == null || !actuales.cubre(dia)) {
+                actuales = Columnas.ampliar(actuales, dia);
+                columnas = actuales;
+            }
+            int i = (int) (dia - actuales.primerDia);
+            actuales.reservas[i] += reservas;
+            actuales.segundos[i] += segundos;
+            if (moneda != null && unidades != 0) {
+                int fila = actuales.fila(moneda);
+                if (fila < 0) {
+                    actuales = actuales.conMoneda(moneda);
+                    columnas = actuales;
+                    fila = actuales.monedas.length - 1;
+                }
+                actuales.ingresos[fila][i] += unidades;
+            }
+        }
+
+        private void sumarEn(Suma suma, long desde, long hasta) {
+            Columnas actuales = columnas;
+            if (actuales == null) {
+                return;
+            }
+            long primero = Math.max(desde, actuales.primerDia);
+            long ultimo = Math.min(hasta, actuales.primerDia + actuales.reservas.length - 1);
+            if (primero > ultimo) {
+                return;
+            }
+            int de = (int) (primero - actuales.primerDia);
+            int a = (int) (ultimo - actuales.primerDia);
+            for (int i = de; i <= a; i++) {
+                suma.reservas += actuales.reservas[i];
+                suma.segundos += actuales.segundos[i];
+            }
+            for (int fila = 0; fila < actuales.monedas.length; fila++) {
+                long[] ingresos = actuales.ingresos[fila];
+                long unidades = 0;
+                for (int i = de; i <= a; i++) {
+                    unidades += ingresos[i];
+                }
+                suma.ingresos.merge(actuales.monedas[fila], unidades, Long::sum);
+            }
+        }
+
+        private void limpiar() {
+            columnas = null;
+        }
+    }
+
+    /**
+     * Arreglos de una serie: cantidad de reservas, segundos reservados y, por cada moneda,
+     * unidades menores de ingresos. La casilla {@code i} corresponde al día
+     * {@code primerDia + i}.
+     */
+    private static final class Columnas implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final long primerDia;
+        private final long[] reservas;
+        private final long[] segundos;
+        private final Currency[] monedas;
+        private final long[][] ingresos;
+
+        private Columnas(long primerDia, long[] reservas, long[] segundos, Currency[] monedas, long[][] ingresos) {
+            this.primerDia = primerDia;
+            this.reservas = reservas;
+            this.segundos = segundos;
+            this.monedas = monedas;
+            this.ingresos = ingresos;
+        }
+
+        private boolean cubre(long dia) {
+            return dia >= primerDia && dia - primerDia < reservas.length;
+        }
+
+        private int fila(Currency moneda) {
+            for (int fila = 0; fila < monedas.length; fila++) {
+                if (monedas[fila].equals(moneda)) {
+                    return fila;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Crea columnas que cubren el día dado además de los actuales, al menos con el doble
+         * de casillas, y copia los valores. Si el día es anterior, el espacio nuevo queda
+         * antes de los días actuales.
+         */
+        private static Columnas ampliar(Columnas actuales, long dia) {
+            if (actuales == null) {
+                return new Columnas(dia, new long[DIAS_INICIALES], new long[DIAS_INICIALES], new Currency[0],
+                        new long[0][]);
+            }
+            int largo = actuales.reservas.length;
+            long ultimo = actuales.primerDia + largo - 1;
+            long necesarios = Math.max(ultimo, dia) - Math.min(actuales.primerDia, dia) + 1;
+            int capacidad = Math.toIntExact(Math.max(2L * largo, necesarios));
+            long nuevoPrimerDia = dia < actuales.primerDia ? ultimo - capacidad + 1 : actuales.primerDia;
+            int desplazamiento = (int) (actuales.primerDia - nuevoPrimerDia);
+            long[][] ingresos = new long[actuales.monedas.length][];
+            for (int fila = 0; fila < ingresos.length; fila++) {
+                ingresos[fila] = copiar(actuales.ingresos[fila], capacidad, desplazamiento);
+            }
+            return new Columnas(nuevoPrimerDia, copiar(actuales.reservas, capacidad, desplazamiento),
+                    copiar(actuales.segundos, capacidad, desplazamiento), actuales.monedas, ingresos);
+        }
+
+        private static long[] copiar(long[] origen, int capacidad, int desplazamiento) {
+            long[] destino = new long[capacidad];
+            System.arraycopy(origen, 0, destino, desplazamiento, origen.length);
+            return destino;
+        }
+
+        /**
+         * Crea columnas con una fila de ingresos más, que comparten los demás arreglos.
+         */
+        private Columnas conMoneda(Currency moneda) {
+            Currency[] nuevasMonedas = Arrays.copyOf(monedas, monedas.length + 1);
+            nuevasMonedas[monedas.length] = moneda;
+            long[][] nuevosIngresos = Arrays.copyOf(ingresos, ingresos.length + 1);
+            nuevosIngresos[ingresos.length] = new long[reservas.length];
+            return new Columnas(primerDia, reservas, segundos, nuevasMonedas, nuevosIngresos);
+        }
+    }
+
+    /**
+     * Datos de una reserva copiados al registrarla: posición de su zona, rango en segundos
+     * desde 1970-01-01T00:00 y costo.
+     */
+    private static final class Aporte implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final int posicion;
+        private final long inicio;
+        private final long fin;
+        private final Currency moneda;
+        private final long unidades;
+
+        private Aporte(int posicion, Reserva reserva) {
+            this.posicion = posicion;
+            this.inicio = reserva.getFechaInicio().toEpochSecond(ZoneOffset.UTC);
+            this.fin = reserva.getFechaFin().toEpochSecond(ZoneOffset.UTC);
+            Dinero costo = reserva.getCosto();
+            this.moneda = costo == null ? null : costo.getMoneda();
+            this.unidades = costo == null ? 0 : costo.getUnidades();
+        }
+    }
+
+    /**
+     * Suma de los acumulados de una consulta.
+     */
+    private static final class Suma {
+        private long reservas;
+        private long segundos;
+        private final Map<Currency, Long> ingresos = new LinkedHashMap<>();
+
+        private ResumenOcupacion resumen() {
+            ingresos.values().removeIf(unidades -> unidades == 0);
+            return new ResumenOcupacion(reservas, segundos, ingresos);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package co.edu.poli.demo.servicios;
+
+import co.edu.poli.demo.modelo.Reserva;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Índice de calendario de todas las reservas, sin importar la zona. Las reservas se reparten
+ * en cubetas por hora: cada reserva queda en todas las horas que ocupa. Las reservas de más
+ * de un día quedan en cubetas por día, para que una reserva larga no llene cientos de horas.
+ * Las cubetas están ordenadas, así que una consulta de un rango recorre solo las cubetas de
+ * ese rango y su costo depende de las reservas que caen en él, no del historial completo.
+ * <p>
+ * Los rangos son semiabiertos, [inicio, fin), igual que en {@link IndiceIntervalos}.
+ * <p>
+ * Las consultas no se bloquean; las modificaciones deben estar serializadas.
+ */
+public class IndiceCalendario implements Serializable {
+
+    /**
+     * Versión de serialización de la clase.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Duración máxima, en horas, de una reserva que se guarda en las cubetas por hora.
+     */
+    private static final long HORAS_POR_DIA = 24;
+
+    /**
+     * Orden de los resultados: por inicio y, a igual inicio, por identificador de reserva.
+     */
+    private static final Comparator<Marca> ORDEN = Comparator.comparing((Marca m) -> m.inicio)
+            .thenComparing(m -> m.idReserva);
+
+    /**
+     * Cubetas por hora, con la clave del número de horas desde 1970-01-01T00:00.
+     */
+    private final ConcurrentSkipListMap<Long, Set<Marca>> porHora;
+
+    /**
+     * Cubetas por día de las reservas largas, con la clave del número de días desde 1970-01-01.
+     */
+    private final ConcurrentSkipListMap<Long, Set<Marca>> porDia;
+
+    /**
+     * Marca con la que se indexó cada reserva, por identificador de reserva. Se guarda
+     * aparte porque la reserva puede modificarse fuera del índice.
+     */
+    private final ConcurrentHashMap<String, Marca> porReserva;
+
+    /**
+     * Constructor que crea un índice vacío.
+     */
+    public IndiceCalendario() {
+        this.porHora = new ConcurrentSkipListMap<>();
+        this.porDia = new ConcurrentSkipListMap<>();
+        this.porReserva = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Agrega una reserva a las cubetas del tiempo que ocupa.
+     *
+     * @param reserva La reserva a indexar.
+     */
+    public void agregar(Reserva reserva) {
+        Marca marca = new Marca(reserva);
+        quitar(marca.idReserva);
+        porReserva.put(marca.idReserva, marca);
+        if (marca.esLarga()) {
+            for (long dia = dia(marca.inicio); dia <= diaFinal(marca); dia++) {
+                porDia.computeIfAbsent(dia, d -> ConcurrentHashMap.newKeySet()).add(marca);
+            }
+        } else {
+            for (long hora = hora(marca.inicio); hora <= horaFinal(marca); hora++) {
+                porHora.computeIfAbsent(hora, h -> ConcurrentHashMap.newKeySet()).add(marca);
+            }
+        }
+    }
+
+    /**
+     * Quita del índice la reserva con el identificador dado.
+     *
+     * @param idReserva Identificador de la reserva.
+     */
+    public void quitar(String idReserva) {
+        Marca marca = idReserva == null ? null : porReserva.remove(idReserva);
+        if (marca == null) {
+            return;
+        }
+        if (marca.esLarga()) {
+            for (long dia = dia(marca.inicio); dia <= diaFinal(marca); dia++) {
+                quitarDeCubeta(porDia, dia, marca);
+            }
+        } else {
+            for (long hora = hora(marca.inicio); hora <= horaFinal(marca); hora++) {
+                quitarDeCubeta(porHora, hora, marca);
+            }
+        }
+    }
+
+    /**
+     * Obtiene las reservas de todas las zonas que se cruzan con el rango indicado.
+     *
+     * @param inicio Inicio del rango.
+     * @param fin    Fin del rango.
+     * @return Lista nueva con las reservas, ordenadas por inicio.
+     */
+    public List<Reserva> reservasEntre(LocalDateTime inicio, LocalDateTime fin) {
+        return buscar(inicio, fin, false);
+    }
+
+    /**
+     * Obtiene las reservas de todas las zonas que empiezan dentro del rango indicado.
+     *
+     * @param inicio Inicio del rango.
+     * @param fin    Fin del rango.
+     * @return Lista nueva con las reservas, ordenadas por inicio.
+     */
+    public List<Reserva> reservasQueEmpiezan(LocalDateTime inicio, LocalDateTime fin) {
+        return buscar(inicio, fin, true);
+    }
+
+    /**
+     * Elimina todas las reservas del índice.
+     */
+    public void limpiar() {
+        porHora.clear();
+        porDia.clear();
+        porReserva.clear();
+    }
+
+    /**
+     * Reúne las marcas de las cubetas del rango. Una reserva que ocupa varias cubetas
+     * aparece una sola vez en el resultado.
+     */
+    private List<Reserva> buscar(LocalDateTime inicio, LocalDateTime fin, boolean soloInicio) {
+        List<Reserva> resultado = new ArrayList<>();
+        if (!fin.isAfter(inicio)) {
+            return resultado;
+        }
+        LocalDateTime ultimo = fin.minusNanos(1);
+        Map<String, Marca> encontradas = new HashMap<>();
+        for (Set<Marca> cubeta : porHora.subMap(hora(inicio), true, hora(ultimo), true).values()) {
+            reunir(cubeta, inicio, fin, soloInicio, encontradas);
+        }
+        for (Set<Marca> cubeta : porDia.subMap(dia(inicio), true, dia(ultimo), true).values()) {
+            reunir(cubeta, inicio, fin, soloInicio, encontradas);
+        }
+        List<Marca> marcas = new ArrayList<>(encontradas.values());
+        marcas.sort(ORDEN);
+        for (Marca marca : marcas) {
+            resultado.add(marca.reserva);
+        }
+        return resultado;
+    }
+
+    private static void reunir(Set<Marca> cubeta, LocalDateTime inicio, LocalDateTime fin, boolean soloInicio,
+                               Map<String, Marca> encontradas) {
+        for (Marca marca : cubeta) {
+            boolean incluida = soloInicio
+                    ? !marca.inicio.isBefore(inicio) && marca.inicio.isBefore(fin)
+                    : marca.inicio.isBefore(fin) && (marca.fin.isAfter(inicio) || !marca.inicio.isBefore(inicio));
+            if (incluida) {
+                encontradas.putIfAbsent(marca.idReserva, marca);
+            }
+        }
+    }
+
+    /**
+     * Quita una marca de su cubeta y elimina la cubeta si queda vacía.
+     */
+    private static void quitarDeCubeta(ConcurrentSkipListMap<Long, Set<Marca>> cubetas, long clave, Marca marca) {
+        Set<Marca> cubeta = cubetas.get(clave);
+        if (cubeta != null) {
+            cubeta.remove(marca);
+            if (cubeta.isEmpty()) {
+                cubetas.remove(clave, cubeta);
+            }
+        }
+    }
+
+    private static long hora(LocalDateTime instante) {
+        return Math.floorDiv(instante.toEpochSecond(ZoneOffset.UTC), 3600);
+    }
+
+    private static long dia(LocalDateTime instante) {
+        return instante.toLocalDate().toEpochDay();
+    }
+
+    /**
+     * Última hora que ocupa una reserva corta. Como el fin es exclusivo, una reserva que
+     * termina en punto no ocupa la hora que empieza en ese momento.
+     */
+    private static long horaFinal(Marca marca) {
+        return marca.fin.isAfter(marca.inicio) ? hora(marca.fin.minusNanos(1)) : hora(marca.inicio);
+    }
+
+    private static long diaFinal(Marca marca) {
+        return dia(marca.fin.minusNanos(1));
+    }
+
+    /**
+     * Rango de tiempo ocupado por una reserva, copiado al indexarla.
+     */
+    private static final class Marca implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final String idReserva;
+        private final LocalDateTime inicio;
+        private final LocalDateTime fin;
+        private final Reserva reserva;
+
+        private Marca(Reserva reserva) {
+            this.idReserva = reserva.getIdReserva();
+            this.inicio = reserva.getFechaInicio();
+            this.fin = reserva.getFechaFin();
+            this.reserva = reserva;
+        }
+
+        /**
+         * Indica si la reserva dura más de un día y se guarda en las cubetas por día.
+         */
+        private boolean esLarga() {
+            return inicio.until(fin, ChronoUnit.HOURS) > HORAS_POR_DIA;
+        }
+    }
+}
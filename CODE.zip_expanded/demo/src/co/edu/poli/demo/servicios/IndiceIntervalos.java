@@ -0,0 +1,205 @@
+package co.edu.poli.demo.servicios;
+
+import co.edu.poli.demo.modelo.Reserva;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Índice de intervalos de reserva por zona. Para cada zona mantiene sus reservas
+ * ordenadas por fecha de inicio, lo que permite saber si un rango de tiempo está
+ * libre en O(log n) sobre las reservas de esa zona, sin recorrer las demás.
+ * <p>
+ * Los intervalos son semiabiertos, [inicio, fin): una reserva que termina a las 10:00
+ * no choca con otra que empieza a las 10:00. El índice asume que las reservas de una
+ * misma zona no se solapan entre sí, condición que garantiza quien lo usa al rechazar
+ * los solapamientos antes de agregar.
+ * <p>
+ * Las consultas no se bloquean; las modificaciones deben estar serializadas.
+ */
+public class IndiceIntervalos implements Serializable {
+
+    /**
+     * Versión de serialización de la clase.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Orden de los intervalos: por inicio y, a igual inicio, por identificador de reserva.
+     * Un identificador nulo se usa solo en las sondas de búsqueda y va antes que todos.
+     */
+    private static final Comparator<Intervalo> ORDEN = new OrdenIntervalos();
+
+    /**
+     * Intervalos ordenados de cada zona, por identificador de zona.
+     */
+    private final ConcurrentHashMap<String, NavigableSet<Intervalo>> porZona;
+
+    /**
+     * Intervalo con el que se indexó cada reserva, por identificador de reserva. Se guarda
+     * aparte porque la reserva puede modificarse fuera del índice.
+     */
+    private final ConcurrentHashMap<String, Intervalo> porReserva;
+
+    /**
+     * Constructor que crea un índice vacío.
+     */
+    public IndiceIntervalos() {
+        this.porZona = new ConcurrentHashMap<>();
+        this.porReserva = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Agrega una reserva al índice de su zona.
+     *
+     * @param reserva La reserva a indexar.
+     */
+    public void agregar(Reserva reserva) {
+        Intervalo intervalo = new Intervalo(reserva);
+        quitar(intervalo.idReserva);
+        porZona.computeIfAbsent(intervalo.idZona, z -> new ConcurrentSkipListSet<>(ORDEN)).add(intervalo);
+        porReserva.put(intervalo.idReserva, intervalo);
+    }
+
+    /**
+     * Quita del índice la reserva con el identificador dado.
+     *
+     * @param idReserva Identificador de la reserva.
+     */
+    public void quitar(String idReserva) {
+        Intervalo intervalo = idReserva == null ? null : porReserva.remove(idReserva);
+        if (intervalo != null) {
+            NavigableSet<Intervalo> intervalos = porZona.get(intervalo.idZona);
+            if (intervalos != null) {
+                intervalos.remove(intervalo);
+            }
+        }
+    }
+
+    /**
+     * Busca una reserva de la zona que se solape con el rango indicado.
+     *
+     * @param idZona       Identificador de la zona.
+     * @param inicio       Inicio del rango.
+     * @param fin          Fin del rango.
+     * @param idIgnorado   Identificador de una reserva que no cuenta como conflicto
+     *                     (la que se está actualizando), o null.
+     * @return La reserva en conflicto, o null si el rango está libre.
+     */
+    public Reserva buscarSolapamiento(String idZona, LocalDateTime inicio, LocalDateTime fin, String idIgnorado) {
+        NavigableSet<Intervalo> intervalos = porZona.get(idZona);
+        if (intervalos == null) {
+            return null;
+        }
+        // Entre las reservas que empiezan antes del fin del rango, la de inicio más tardío
+        // es la que termina más tarde, así que basta revisar esa (o la anterior si se ignora).
+        Intervalo candidato = intervalos.lower(Intervalo.sonda(fin));
+        if (candidato != null && candidato.idReserva.equals(idIgnorado)) {
+            candidato = intervalos.lower(candidato);
+        }
+        if (candidato != null && candidato.fin.isAfter(inicio)) {
+            return candidato.reserva;
+        }
+        return null;
+    }
+
+    /**
+     * Indica si la zona está libre en el rango indicado.
+     *
+     * @param idZona Identificador de la zona.
+     * @param inicio Inicio del rango.
+     * @param fin    Fin del rango.
+     * @return true si ninguna reserva de la zona se solapa con el rango.
+     */
+    public boolean estaLibre(String idZona, LocalDateTime inicio, LocalDateTime fin) {
+        return buscarSolapamiento(idZona, inicio, fin, null) == null;
+    }
+
+    /**
+     * Obtiene las reservas de una zona que se solapan con el rango indicado, ordenadas por inicio.
+     *
+     * @param idZona Identificador de la zona.
+     * @param inicio Inicio del rango.
+     * @param fin    Fin del rango.
+     * @return Lista nueva con las reservas encontradas.
+     */
+    public List<Reserva> reservasEntre(String idZona, LocalDateTime inicio, LocalDateTime fin) {
+        List<Reserva> resultado = new ArrayList<>();
+        NavigableSet<Intervalo> intervalos = porZona.get(idZona);
+        if (intervalos == null) {
+            return resultado;
+        }
+        Intervalo anterior = intervalos.lower(Intervalo.sonda(inicio));
+        if (anterior != null && anterior.fin.isAfter(inicio)) {
+            resultado.add(anterior.reserva);
+        }
+        for (Intervalo intervalo : intervalos.subSet(Intervalo.sonda(inicio), true, Intervalo.sonda(fin), false)) {
+            resultado.add(intervalo.reserva);
+        }
+        return resultado;
+    }
+
+    /**
+     * Elimina todas las reservas del índice.
+     */
+    public void limpiar() {
+        porZona.clear();
+        porReserva.clear();
+    }
+
+    /**
+     * Rango de tiempo ocupado por una reserva en una zona, copiado al indexarla.
+     */
+    private static final class Intervalo implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final String idReserva;
+        private final String idZona;
+        private final LocalDateTime inicio;
+        private final LocalDateTime fin;
+        private final Reserva reserva;
+
+        private Intervalo(Reserva reserva) {
+            this(reserva.getIdReserva(), reserva.getZona().getIdZona(), reserva.getFechaInicio(),
+                    reserva.getFechaFin(), reserva);
+        }
+
+        private Intervalo(String idReserva, String idZona, LocalDateTime inicio, LocalDateTime fin, Reserva reserva) {
+            this.idReserva = idReserva;
+            this.idZona = idZona;
+            this.inicio = inicio;
+            this.fin = fin;
+            this.reserva = reserva;
+        }
+
+        /**
+         * Crea un intervalo de búsqueda que se ordena antes que cualquier reserva con el mismo inicio.
+         */
+        private static Intervalo sonda(LocalDateTime instante) {
+            return new Intervalo(null, null, instante, instante, null);
+        }
+    }
+
+    /**
+     * Comparador serializable que implementa {@link #ORDEN}.
+     */
+    private static final class OrdenIntervalos implements Comparator<Intervalo>, Serializable {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public int compare(Intervalo a, Intervalo b) {
+            int porInicio = a.inicio.compareTo(b.inicio);
+            if (porInicio != 0) {
+                return porInicio;
+            }
+            if (a.idReserva == null || b.idReserva == null) {
+                return a.idReserva == null ? (b.idReserva == null ? 0 : -1) : 1;
+            }
+            return a.idReserva.compareTo(b.idReserva);
+        }
+    }
+}
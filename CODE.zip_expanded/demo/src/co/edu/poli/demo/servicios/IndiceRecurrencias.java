@@ -0,0 +1,157 @@
+package co.edu.poli.demo.servicios;
+
+import co.edu.poli.demo.modelo.Reserva;
+import co.edu.poli.demo.modelo.ReservaRecurrente;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Índice de reservas recurrentes por zona. Guarda solo las reglas, nunca sus ocurrencias:
+ * la memoria es proporcional a la cantidad de reglas. Para saber si un rango choca con las
+ * reglas de una zona se calcula, en cada regla, cuáles de sus ocurrencias caen en el rango,
+ * lo que cuesta lo mismo sin importar cuántas veces se repita la regla.
+ * <p>
+ * El índice guarda una copia de cada regla, de modo que los cambios hechos a la regla fuera
+ * del índice no lo afectan hasta que se vuelve a agregar. Las reglas de cada zona están en
+ * un arreglo que se reemplaza completo en cada modificación, así que las consultas no se
+ * bloquean; las modificaciones deben estar serializadas.
+ */
+public class IndiceRecurrencias implements Serializable {
+
+    /**
+     * Versión de serialización de la clase.
+     */
+    private static final long serialVersionUID = 1L;
+
+    private static final ReservaRecurrente[] NINGUNA = new ReservaRecurrente[0];
+
+    /**
+     * Reglas de cada zona, por identificador de zona.
+     */
+    private final ConcurrentHashMap<String, ReservaRecurrente[]> porZona;
+
+    /**
+     * Copia indexada de cada regla, por identificador de regla.
+     */
+    private final ConcurrentHashMap<String, ReservaRecurrente> porId;
+
+    /**
+     * Constructor que crea un índice vacío.
+     */
+    public IndiceRecurrencias() {
+        this.porZona = new ConcurrentHashMap<>();
+        this.porId = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Agrega una regla al índice de su zona, reemplazando la que tuviera el mismo identificador.
+     *
+     * @param regla La regla a indexar.
+     */
+    public void agregar(ReservaRecurrente regla) {
+        ReservaRecurrente copia = new ReservaRecurrente(regla);
+        quitar(copia.getIdRecurrencia());
+        porId.put(copia.getIdRecurrencia(), copia);
+        porZona.merge(copia.getZona().getIdZona(), new ReservaRecurrente[] {copia}, (actuales, nueva) -> {
+            ReservaRecurrente[] reglas = Arrays.copyOf(actuales, actuales.length + 1);
+            reglas[actuales.length] = nueva[0];
+            return reglas;
+        });
+    }
+
+    /**
+     * Quita del índice la regla con el identificador dado.
+     *
+     * @param idRecurrencia Identificador de la regla.
+     */
+    public void quitar(String idRecurrencia) {
+        ReservaRecurrente regla = idRecurrencia == null ? null : porId.remove(idRecurrencia);
+        if (regla != null) {
+            porZona.computeIfPresent(regla.getZona().getIdZona(), (idZona, actuales) -> {
+                ReservaRecurrente[] reglas = Arrays.stream(actuales).filter(r -> r != regla)
+                        .toArray(ReservaRecurrente[]::new);
+                return reglas.length == 0 ? null : reglas;
+            });
+        }
+    }
+
+    /**
+     * Busca una regla de la zona con una ocurrencia que se cruce con el rango indicado.
+     *
+     * @param idZona Identificador de la zona.
+     * @param inicio Inicio del rango.
+     * @param fin    Fin del rango.
+     * @return La regla en conflicto, o null si ninguna ocurrencia se cruza con el rango.
+     */
+    public ReservaRecurrente buscarSolapamiento(String idZona, LocalDateTime inicio, LocalDateTime fin) {
+        for (ReservaRecurrente regla : porZona.getOrDefault(idZona, NINGUNA)) {
+            if (regla.buscarOcurrencia(inicio, fin) != null) {
+                return regla;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Busca una regla de la misma zona que se cruce con la dada.
+     *
+     * @param regla      La regla a comprobar.
+     * @param idIgnorado Identificador de una regla que no cuenta como conflicto (la que se
+     *                   está reemplazando), o null.
+     * @return La regla en conflicto, o null si ninguna se cruza.
+     */
+    public ReservaRecurrente buscarCruce(ReservaRecurrente regla, String idIgnorado) {
+        for (ReservaRecurrente otra : porZona.getOrDefault(regla.getZona().getIdZona(), NINGUNA)) {
+            if (!otra.getIdRecurrencia().equals(idIgnorado) && regla.buscarCruce(otra) != null) {
+                return otra;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Indica si la zona está libre de ocurrencias en el rango indicado.
+     *
+     * @param idZona Identificador de la zona.
+     * @param inicio Inicio del rango.
+     * @param fin    Fin del rango.
+     * @return true si ninguna ocurrencia de las reglas de la zona se cruza con el rango.
+     */
+    public boolean estaLibre(String idZona, LocalDateTime inicio, LocalDateTime fin) {
+        return buscarSolapamiento(idZona, inicio, fin) == null;
+    }
+
+    /**
+     * Obtiene las ocurrencias de las reglas de una zona que se cruzan con el rango indicado.
+     * Solo se calculan las ocurrencias del rango.
+     *
+     * @param idZona Identificador de la zona.
+     * @param inicio Inicio del rango.
+     * @param fin    Fin del rango.
+     * @return Lista nueva con las ocurrencias, ordenadas por inicio.
+     */
+    public List<Reserva> ocurrenciasEntre(String idZona, LocalDateTime inicio, LocalDateTime fin) {
+        List<Reserva> resultado = new ArrayList<>();
+        ReservaRecurrente[] reglas = porZona.getOrDefault(idZona, NINGUNA);
+        for (ReservaRecurrente regla : reglas) {
+            resultado.addAll(regla.ocurrenciasEntre(inicio, fin));
+        }
+        if (reglas.length > 1) {
+            resultado.sort(Comparator.comparing(Reserva::getFechaInicio));
+        }
+        return resultado;
+    }
+
+    /**
+     * Elimina todas las reglas del índice.
+     */
+    public void limpiar() {
+        porZona.clear();
+        porId.clear();
+    }
+}
@@ -0,0 +1,241 @@
+package co.edu.poli.demo.servicios;
+
+import co.edu.poli.demo.modelo.Usuario;
+import java.io.Serializable;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+/**
+ * Índices secundarios de usuarios: por correo y por teléfono (únicos, en tablas hash)
+ * y por prefijo del nombre (en un mapa ordenado). Permiten buscar usuarios por esos
+ * datos sin recorrer la lista completa.
+ * <p>
+ * Las claves se normalizan antes de indexar: el correo se compara sin mayúsculas, el
+ * teléfono sin espacios ni separadores, y el nombre sin mayúsculas ni tildes, de modo
+ * que "jose" encuentra a "José Pérez". Los valores vacíos no se indexan.
+ * <p>
+ * Cada usuario recuerda las claves con las que se indexó, porque el objeto puede
+ * modificarse fuera del índice antes de actualizarlo. Las consultas no se bloquean;
+ * las modificaciones deben estar serializadas.
+ */
+public class IndiceUsuarios implements Serializable {
+
+    /**
+     * Versión de serialización de la clase.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Separa el nombre del identificador en las claves del índice de nombres, y se ordena
+     * antes que cualquier carácter visible.
+     */
+    private static final char SEPARADOR = '\u0000';
+
+    /**
+     * Caracteres que se ignoran en los teléfonos.
+     */
+    private static final Pattern SEPARADORES_TELEFONO = Pattern.compile("[\\s().-]");
+
+    /**
+     * Marcas diacríticas que quedan separadas de su letra al descomponer un texto.
+     */
+    private static final Pattern MARCAS = Pattern.compile("\\p{M}+");
+
+    /**
+     * Identificador de usuario por correo normalizado.
+     */
+    private final ConcurrentHashMap<String, String> porCorreo;
+
+    /**
+     * Identificador de usuario por teléfono normalizado.
+     */
+    private final ConcurrentHashMap<String, String> porTelefono;
+
+    /**
+     * Usuarios ordenados por nombre normalizado y, a igual nombre, por identificador.
+     */
+    private final ConcurrentSkipListMap<String, Usuario> porNombre;
+
+    /**
+     * Claves con las que se indexó cada usuario, por identificador.
+     */
+    private final ConcurrentHashMap<String, Claves> porUsuario;
+
+    /**
+     * Constructor que crea un índice vacío.
+     */
+    public IndiceUsuarios() {
+        this.porCorreo = new ConcurrentHashMap<>();
+        this.porTelefono = new ConcurrentHashMap<>();
+        this.porNombre = new ConcurrentSkipListMap<>();
+        this.porUsuario = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Comprueba que el correo y el teléfono de un usuario no pertenezcan a otro.
+     *
+     * @param usuario    El usuario a comprobar.
+     * @param idIgnorado Identificador del usuario que se está reemplazando, o null.
+     * @return Un mensaje de error, o null si el usuario puede indexarse.
+     */
+    public String validar(Usuario usuario, String idIgnorado) {
+        String correo = normalizarCorreo(usuario.getCorreo());
+        String duenoCorreo = correo == null ? null : porCorreo.get(correo);
+        if (duenoCorreo != null && !duenoCorreo.equals(idIgnorado)) {
+            return "Error: el correo " + usuario.getCorreo() + " ya pertenece al usuario " + duenoCorreo + ".";
+        }
+        String telefono = normalizarTelefono(usuario.getTelefono());
+        String duenoTelefono = telefono == null ? null : porTelefono.get(telefono);
+        if (duenoTelefono != null && !duenoTelefono.equals(idIgnorado)) {
+            return "Error: el teléfono " + usuario.getTelefono() + " ya pertenece al usuario " + duenoTelefono + ".";
+        }
+        return null;
+    }
+
+    /**
+     * Agrega un usuario a los índices. Si su correo o teléfono ya están indexados para
+     * otro usuario, esa clave conserva su dueño anterior.
+     *
+     * @param usuario El usuario a indexar.
+     */
+    public void agregar(Usuario usuario) {
+        String id = usuario.getIdUsuario();
+        quitar(id);
+        Claves claves = new Claves(normalizarCorreo(usuario.getCorreo()),
+                normalizarTelefono(usuario.getTelefono()), normalizarNombre(usuario.getNombre()));
+        if (claves.correo != null && porCorreo.putIfAbsent(claves.correo, id) != null) {
+            claves.correo = null;
+        }
+        if (claves.telefono != null && porTelefono.putIfAbsent(claves.telefono, id) != null) {
+            claves.telefono = null;
+        }
+        if (claves.nombre != null) {
+            porNombre.put(claves.nombre + SEPARADOR + id, usuario);
+        }
+        porUsuario.put(id, claves);
+    }
+
+    /**
+     * Quita de los índices el usuario con el identificador dado, usando las claves con
+     * las que se indexó.
+     *
+     * @param idUsuario Identificador del usuario.
+     */
+    public void quitar(String idUsuario) {
+        Claves claves = idUsuario == null ? null : porUsuario.remove(idUsuario);
+        if (claves == null) {
+            return;
+        }
+        if (claves.correo != null) {
+            porCorreo.remove(claves.correo, idUsuario);
+        }
+        if (claves.telefono != null) {
+            porTelefono.remove(claves.telefono, idUsuario);
+        }
+        if (claves.nombre != null) {
+            porNombre.remove(claves.nombre + SEPARADOR + idUsuario);
+        }
+    }
+
+    /**
+     * Busca el identificador del usuario con un correo.
+     *
+     * @param correo Correo a buscar; no distingue mayúsculas.
+     * @return El identificador del usuario, o null si ninguno tiene ese correo.
+     */
+    public String buscarCorreo(String correo) {
+        String clave = normalizarCorreo(correo);
+        return clave == null ? null : porCorreo.get(clave);
+    }
+
+    /**
+     * Busca el identificador del usuario con un teléfono.
+     *
+     * @param telefono Teléfono a buscar; se ignoran espacios y separadores.
+     * @return El identificador del usuario, o null si ninguno tiene ese teléfono.
+     */
+    public String buscarTelefono(String telefono) {
+        String clave = normalizarTelefono(telefono);
+        return clave == null ? null : porTelefono.get(clave);
+    }
+
+    /**
+     * Busca los usuarios cuyo nombre empieza con un prefijo, en orden alfabético. Solo se
+     * recorren las entradas que coinciden, así que el costo depende del límite y no de la
+     * cantidad de usuarios.
+     *
+     * @param prefijo Inicio del nombre; no distingue mayúsculas ni tildes.
+     * @param limite  Cantidad máxima de usuarios a devolver.
+     * @return Lista nueva con los usuarios encontrados.
+     */
+    public List<Usuario> buscarPrefijo(String prefijo, int limite) {
+        List<Usuario> resultado = new ArrayList<>(Math.min(Math.max(limite, 0), 64));
+        String clave = prefijo == null ? "" : normalizarTexto(prefijo);
+        for (Map.Entry<String, Usuario> entrada : porNombre.tailMap(clave).entrySet()) {
+            if (resultado.size() >= limite || !entrada.getKey().startsWith(clave)) {
+                break;
+            }
+            resultado.add(entrada.getValue());
+        }
+        return resultado;
+    }
+
+    /**
+     * Elimina todos los usuarios del índice.
+     */
+    public void limpiar() {
+        porCorreo.clear();
+        porTelefono.clear();
+        porNombre.clear();
+        porUsuario.clear();
+    }
+
+    private static String normalizarCorreo(String correo) {
+        if (correo == null || correo.isBlank()) {
+            return null;
+        }
+        return correo.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String normalizarTelefono(String telefono) {
+        if (telefono == null) {
+            return null;
+        }
+        String digitos = SEPARADORES_TELEFONO.matcher(telefono).replaceAll("");
+        return digitos.isEmpty() ? null : digitos;
+    }
+
+    private static String normalizarNombre(String nombre) {
+        if (nombre == null || nombre.isBlank()) {
+            return null;
+        }
+        return normalizarTexto(nombre);
+    }
+
+    private static String normalizarTexto(String texto) {
+        String sinTildes = MARCAS.matcher(Normalizer.normalize(texto.trim(), Normalizer.Form.NFD)).replaceAll("");
+        return sinTildes.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Claves normalizadas con las que se indexó un usuario; null donde no se indexó.
+     */
+    private static final class Claves implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private String correo;
+        private String telefono;
+        private final String nombre;
+
+        private Claves(String correo, String telefono, String nombre) {
+            this.correo = correo;
+            this.telefono = telefono;
+            this.nombre = nombre;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package co.edu.poli.demo.servicios;
+
+import co.edu.poli.demo.modelo.Dinero;
+import co.edu.poli.demo.modelo.Zona;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Índice de zonas por tipo y costo por hora. Para cada tipo mantiene sus zonas ordenadas
+ * de la más barata a la más cara, y otro orden igual con todas las zonas, así que las zonas
+ * de un tipo por debajo de un costo se recorren sin mirar las demás y ya en orden de costo.
+ * Los costos se comparan en unidades menores y solo dentro de una misma moneda.
+ * <p>
+ * Los tipos se comparan sin distinguir mayúsculas. Las consultas no se bloquean; las
+ * modificaciones deben estar serializadas.
+ */
+public class IndiceZonas implements Serializable {
+
+    /**
+     * Versión de serialización de la clase.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Orden de las claves: por moneda, por costo por hora y, a igual costo, por identificador de zona.
+     * Un identificador nulo se usa solo en las sondas de búsqueda y va después de todos.
+     */
+    private static final Comparator<Clave> ORDEN = new OrdenClaves();
+
+    /**
+     * Zonas de cada tipo ordenadas por costo, por tipo normalizado.
+     */
+    private final ConcurrentHashMap<String, NavigableMap<Clave, Zona>> porTipo;
+
+    /**
+     * Todas las zonas ordenadas por costo.
+     */
+    private final NavigableMap<Clave, Zona> porCosto;
+
+    /**
+     * Clave con la que se indexó cada zona, por identificador de zona. Se guarda aparte
+     * porque la zona puede modificarse fuera del índice.
+     */
+    private final ConcurrentHashMap<String, Clave> porZona;
+
+    /**
+     * Constructor que crea un índice vacío.
+     */
+    public IndiceZonas() {
+        this.porTipo = new ConcurrentHashMap<>();
+        this.porCosto = new ConcurrentSkipListMap<>(ORDEN);
+        this.porZona = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Agrega una zona al índice, reemplazando la entrada anterior con su mismo identificador.
+     *
+     * @param zona La zona a indexar.
+     */
+    public void agregar(Zona zona) {
+        Dinero costo = zona.getCostoPorHora();
+        Clave clave = costo == null
+                ? new Clave(zona.getIdZona(), normalizar(zona.getTipo()), "", 0)
+                : new Clave(zona.getIdZona(), normalizar(zona.getTipo()), costo.getMoneda().getCurrencyCode(),
+                        costo.getUnidades());
+        quitar(clave.idZona);
+        porTipo.computeIfAbsent(clave.tipo, t -> new ConcurrentSkipListMap<>(ORDEN)).put(clave, zona);
+        porCosto.put(clave, zona);
+        porZona.put(clave.idZona, clave);
+    }
+
+    /**
+     * Quita del índice la zona con el identificador dado.
+     *
+     * @param idZona Identificador de la zona.
+     */
+    public void quitar(String idZona) {
+        Clave clave = idZona == null ? null : porZona.remove(idZona);
+        if (clave != null) {
+            NavigableMap<Clave, Zona> delTipo = porTipo.get(clave.tipo);
+            if (delTipo != null) {
+                delTipo.remove(clave);
+            }
+            porCosto.remove(clave);
+        }
+    }
+
+    /**
+     * Obtiene las zonas de un tipo con costo por hora menor o igual al indicado y en su misma
+     * moneda, de la más barata a la más cara. La colección es una vista: se recorre sin copiarla.
+     *
+     * @param tipo        Tipo de zona, o null para todos los tipos.
+     * @param costoMaximo Costo por hora máximo, o null para cualquier costo y moneda.
+     * @return Las zonas encontradas, en orden de costo.
+     */
+    public Collection<Zona> hasta(String tipo, Dinero costoMaximo) {
+        NavigableMap<Clave, Zona> zonas = tipo == null ? porCosto : porTipo.get(normalizar(tipo));
+        if (zonas == null) {
+            return List.of();
+        }
+        if (costoMaximo == null) {
+            return zonas.values();
+        }
+        String moneda = costoMaximo.getMoneda().getCurrencyCode();
+        return zonas.subMap(Clave.sonda(moneda, Long.MIN_VALUE), false,
+                Clave.sonda(moneda, costoMaximo.getUnidades()), false).values();
+    }
+
+    /**
+     * Indica si una zona coincide con un tipo y un costo máximo según los valores con que se indexó.
+     *
+     * @param idZona      Identificador de la zona.
+     * @param tipo        Tipo de zona, o null para cualquiera.
+     * @param costoMaximo Costo por hora máximo, o null para cualquier costo.
+     * @return true si la zona está indexada y cumple ambos criterios.
+     */
+    public boolean coincide(String idZona, String tipo, Dinero costoMaximo) {
+        Clave clave = idZona == null ? null : porZona.get(idZona);
+        return clave != null
+                && (costoMaximo == null || (clave.moneda.equals(costoMaximo.getMoneda().getCurrencyCode())
+                        && clave.unidades <= costoMaximo.getUnidades()))
+                && (tipo == null || clave.tipo.equals(normalizar(tipo)));
+    }
+
+    /**
+     * Elimina todas las zonas del índice.
+     */
+    public void limpiar() {
+        porTipo.clear();
+        porCosto.clear();
+        porZona.clear();
+    }
+
+    private static String normalizar(String tipo) {
+        return tipo == null ? "" : tipo.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Tipo y costo de una zona, copiados al indexarla. Una zona sin costo se indexa con
+     * moneda vacía.
+     */
+    private static final class Clave implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final String idZona;
+        private final String tipo;
+        private final String moneda;
+        private final long unidades;
+
+        private Clave(String idZona, String tipo, String moneda, long unidades) {
+            this.idZona = idZona;
+            this.tipo = tipo;
+            this.moneda = moneda;
+            this.unidades = unidades;
+        }
+
+        /**
+         * Crea una clave de búsqueda que se ordena después de cualquier zona con el mismo costo.
+         */
+        private static Clave sonda(String moneda, long unidades) {
+            return new Clave(null, null, moneda, unidades);
+        }
+    }
+
+    /**
+     * Comparador serializable que implementa {@link #ORDEN}.
+     */
+    private static final class OrdenClaves implements Comparator<Clave>, Serializable {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public int compare(Clave a, Clave b) {
+            int porMoneda = a.moneda.compareTo(b.moneda);
+            if (porMoneda != 0) {
+                return porMoneda;
+            }
+            int porCosto = Long.compare(a.unidades, b.unidades);
+            if (porCosto != 0) {
+                return porCosto;
+            }
+            if (a.idZona == null || b.idZona == null) {
+                return a.idZona == null ? (b.idZona == null ? 0 : 1) : -1;
+            }
+            return a.idZona.compareTo(b.idZona);
+        }
+    }
+}
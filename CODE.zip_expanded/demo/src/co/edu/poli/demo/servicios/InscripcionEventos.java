@@ -0,0 +1,196 @@
+package co.edu.poli.demo.servicios;
+
+import co.edu.poli.demo.modelo.Evento;
+import co.edu.poli.demo.modelo.Usuario;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Inscripción de asistentes a eventos, apta para miles de hilos que se inscriben a la vez
+ * cuando un evento abre. Ninguna operación toma cerrojos: los cupos ocupados de cada evento
+ * se cuentan con un entero atómico que solo avanza con compare-and-set mientras quede
+ * capacidad, así que nunca se inscriben más asistentes que la capacidad máxima del evento.
+ * <p>
+ * Primero se toma el cupo y después se agrega el asistente a la lista del evento; si el
+ * usuario ya estaba inscrito, el cupo se devuelve. Por eso, durante una inscripción en curso,
+ * el contador puede ir un asistente por delante de la lista, pero nunca al revés.
+ * <p>
+ * La capacidad se toma del evento al abrirlo a inscripciones; cambiarla después en el
+ * evento no afecta las inscripciones.
+ */
+public class InscripcionEventos {
+
+    private static final String INSCRITO = "Inscripción realizada exitosamente.";
+    private static final String SIN_CUPOS = "Error: el evento no tiene cupos disponibles.";
+    private static final String YA_INSCRITO = "Error: el usuario ya está inscrito en el evento.";
+
+    /**
+     * Cupos de cada evento abierto, por identificador de evento.
+     */
+    private final ConcurrentHashMap<String, Cupos> eventos;
+
+    /**
+     * Constructor que crea el servicio sin eventos abiertos.
+     */
+    public InscripcionEventos() {
+        this.eventos = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Abre un evento a inscripciones con su capacidad máxima actual.
+     *
+     * @param evento El evento a abrir.
+     * @return Un mensaje indicando el éxito o fallo de la operación.
+     */
+    public String abrirEvento(Evento evento) {
+        if (evento.getIdEvento() == null) {
+            return "Error: el evento no tiene identificador.";
+        }
+        if (evento.getCapacidadMaxima() < 0) {
+            return "Error: la capacidad máxima no puede ser negativa.";
+        }
+        if (eventos.putIfAbsent(evento.getIdEvento(), new Cupos(evento)) != null) {
+            return "Error: el evento " + evento.getIdEvento() + " ya está abierto a inscripciones.";
+        }
+        return "Evento abierto a inscripciones.";
+    }
+
+    /**
+     * Cierra un evento a inscripciones y descarta su lista de asistentes.
+     *
+     * @param idEvento Identificador del evento.
+     * @return Los asistentes inscritos al cerrarlo, o null si el evento no estaba abierto.
+     */
+    public List<Usuario> cerrarEvento(String idEvento) {
+        Cupos cupos = eventos.remove(idEvento);
+        return cupos == null ? null : new ArrayList<>(cupos.asistentes.values());
+    }
+
+    /**
+     * Inscribe a un usuario en un evento si quedan cupos. Un usuario ocupa un solo cupo
+     * aunque se inscriba varias veces.
+     *
+     * @param idEvento Identificador del evento.
+     * @param usuario  Usuario a inscribir.
+     * @return Un mensaje indicando el éxito o fallo de la operación.
+     */
+    public String inscribir(String idEvento, Usuario usuario) {
+        Cupos cupos = eventos.get(idEvento);
+        if (cupos == null) {
+            return "Error: el evento " + idEvento + " no está abierto a inscripciones.";
+        }
+        if (usuario == null || usuario.getIdUsuario() == null) {
+            return "Error: el usuario no tiene identificador.";
+        }
+        if (cupos.asistentes.containsKey(usuario.getIdUsuario())) {
+            return YA_INSCRITO;
+        }
+        if (!cupos.tomar()) {
+            return SIN_CUPOS;
+        }
+        if (cupos.asistentes.putIfAbsent(usuario.getIdUsuario(), usuario) != null) {
+            cupos.devolver();
+            return YA_INSCRITO;
+        }
+        return INSCRITO;
+    }
+
+    /**
+     * Cancela la inscripción de un usuario y libera su cupo.
+     *
+     * @param idEvento  Identificador del evento.
+     * @param idUsuario Identificador del usuario.
+     * @return El usuario cuya inscripción se canceló, o null si no estaba inscrito.
+     */
+    public Usuario cancelarInscripcion(String idEvento, String idUsuario) {
+        Cupos cupos = eventos.get(idEvento);
+        Usuario cancelado = cupos == null || idUsuario == null ? null : cupos.asistentes.remove(idUsuario);
+        if (cancelado != null) {
+            cupos.devolver();
+        }
+        return cancelado;
+    }
+
+    /**
+     * Indica si un usuario está inscrito en un evento.
+     *
+     * @param idEvento  Identificador del evento.
+     * @param idUsuario Identificador del usuario.
+     * @return true si está inscrito.
+     */
+    public boolean estaInscrito(String idEvento, String idUsuario) {
+        Cupos cupos = eventos.get(idEvento);
+        return cupos != null && idUsuario != null && cupos.asistentes.containsKey(idUsuario);
+    }
+
+    /**
+     * Obtiene los asistentes inscritos en un evento.
+     *
+     * @param idEvento Identificador del evento.
+     * @return Lista nueva con los asistentes, sin un orden particular; vacía si el evento no
+     *         está abierto.
+     */
+    public List<Usuario> getAsistentes(String idEvento) {
+        Cupos cupos = eventos.get(idEvento);
+        return cupos == null ? new ArrayList<>() : new ArrayList<>(cupos.asistentes.values());
+    }
+
+    /**
+     * Obtiene la cantidad de cupos ocupados de un evento.
+     *
+     * @param idEvento Identificador del evento.
+     * @return Los cupos ocupados, o 0 si el evento no está abierto.
+     */
+    public int contarInscritos(String idEvento) {
+        Cupos cupos = eventos.get(idEvento);
+        return cupos == null ? 0 : cupos.ocupados.get();
+    }
+
+    /**
+     * Obtiene la cantidad de cupos libres de un evento.
+     *
+     * @param idEvento Identificador del evento.
+     * @return Los cupos libres, o 0 si el evento no está abierto.
+     */
+    public int contarCuposLibres(String idEvento) {
+        Cupos cupos = eventos.get(idEvento);
+        return cupos == null ? 0 : cupos.capacidad - cupos.ocupados.get();
+    }
+
+    /**
+     * Capacidad, cupos ocupados y asistentes de un evento abierto.
+     */
+    private static final class Cupos {
+        private final int capacidad;
+        private final AtomicInteger ocupados;
+        private final ConcurrentHashMap<String, Usuario> asistentes;
+
+        private Cupos(Evento evento) {
+            this.capacidad = evento.getCapacidadMaxima();
+            this.ocupados = new AtomicInteger();
+            this.asistentes = new ConcurrentHashMap<>();
+        }
+
+        /**
+         * Toma un cupo si queda alguno. Con el evento lleno se responde sin escribir, para
+         * que los rechazos no compitan por la línea de caché del contador.
+         */
+        private boolean tomar() {
+            int actuales = ocupados.get();
+            while (actuales < capacidad) {
+                int vistos = ocupados.compareAndExchange(actuales, actuales + 1);
+                if (vistos == actuales) {
+                    return true;
+                }
+                actuales = vistos;
+            }
+            return false;
+        }
+
+        private void devolver() {
+            ocupados.decrementAndGet();
+        }
+    }
+}
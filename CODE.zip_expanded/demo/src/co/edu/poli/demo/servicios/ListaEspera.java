@@ -0,0 +1,388 @@
+package co.edu.poli.demo.servicios;
+
+import co.edu.poli.demo.modelo.Reserva;
+import co.edu.poli.demo.modelo.Usuario;
+import co.edu.poli.demo.modelo.UsuarioCorporativo;
+import co.edu.poli.demo.modelo.UsuarioFrecuente;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * Lista de espera por zona y franja horaria. Un usuario que encuentra ocupada una franja se
+ * inscribe con la reserva que quiere hacer; cuando una reserva de la zona se cancela a través
+ * de {@link #cancelarReserva(String)}, se promueve al primer usuario en espera cuya franja
+ * quedó libre y su reserva se crea en el almacén.
+ * <p>
+ * Cada franja es una cola de prioridad: primero la prioridad más alta y, a igual prioridad,
+ * el que se inscribió antes. La prioridad predeterminada son las visitas de un
+ * {@link UsuarioFrecuente} o los eventos organizados de un {@link UsuarioCorporativo}; los
+ * demás usuarios tienen prioridad cero. Se calcula al inscribirse. Las colas son árboles
+ * ordenados, así que inscribir, retirar y promover cuestan O(log n).
+ * <p>
+ * Las operaciones sobre una zona se serializan con el monitor de su cola, de modo que dos
+ * cancelaciones simultáneas no promueven dos veces para el mismo hueco; zonas distintas no
+ * compiten. Las reservas nuevas que llegan directamente al almacén no toman ese monitor,
+ * pero el almacén rechaza los solapamientos: si una de ellas ocupa el hueco antes de la
+ * promoción, el usuario sigue en espera. Un usuario cuya reserva el almacén rechaza por otro
+ * motivo, por ejemplo porque se eliminó, sale de la lista.
+ * <p>
+ * Las reservas eliminadas sin pasar por este servicio, o las retenciones que vencen, no
+ * promueven a nadie por sí solas; para eso está {@link #promover(String, LocalDateTime, LocalDateTime)}.
+ */
+public class ListaEspera {
+
+    /**
+     * Orden de una cola: prioridad de mayor a menor y, a igual prioridad, orden de llegada.
+     */
+    private static final Comparator<Espera> ORDEN = Comparator.comparingLong((Espera e) -> e.prioridad).reversed()
+            .thenComparingLong(e -> e.secuencia);
+
+    private final Operacion operacion;
+    private final ToLongFunction<Usuario> prioridad;
+    private final AtomicLong secuencia;
+
+    /**
+     * Cola de cada zona, por identificador de zona.
+     */
+    private final ConcurrentHashMap<String, Cola> colas;
+
+    /**
+     * Inscripción de cada reserva en espera, por identificador de reserva.
+     */
+    private final ConcurrentHashMap<String, Espera> porReserva;
+
+    private volatile Consumer<Reserva> escucha;
+
+    /**
+     * Constructor con la prioridad predeterminada.
+     *
+     * @param operacion Almacén de las reservas.
+     */
+    public ListaEspera(Operacion operacion) {
+        this(operacion, ListaEspera::prioridadPredeterminada);
+    }
+
+    /**
+     * Constructor con una prioridad propia.
+     *
+     * @param operacion Almacén de las reservas.
+     * @param prioridad Prioridad de cada usuario; los valores más altos pasan primero.
+     */
+    public ListaEspera(Operacion operacion, ToLongFunction<Usuario> prioridad) {
+        this.operacion = operacion;
+        this.prioridad = prioridad;
+        this.secuencia = new AtomicLong();
+        this.colas = new ConcurrentHashMap<>();
+        this.porReserva = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Prioridad predeterminada: las visitas de un usuario frecuente, los eventos organizados
+     * de uno corporativo, y cero para los demás.
+     *
+     * @param usuario El usuario.
+     * @return Su prioridad.
+     */
+    public static long prioridadPredeterminada(Usuario usuario) {
+        if (usuario instanceof UsuarioFrecuente) {
+            return ((UsuarioFrecuente) usuario).getVisitasTotales();
+        }
+        if (usuario instanceof UsuarioCorporativo) {
+            return ((UsuarioCorporativo) usuario).getEventosOrganizados();
+        }
+        return 0;
+    }
+
+    /**
+     * Establece el receptor de las reservas creadas al promover a un usuario en espera. Se
+     * llama con el monitor de la zona tomado, así que debe ser rápido.
+     *
+     * @param escucha Receptor de las promociones, o null para ninguno.
+     */
+    public void setEscucha(Consumer<Reserva> escucha) {
+        this.escucha = escucha;
+    }
+
+    /**
+     * Inscribe una reserva en la lista de espera de su zona y franja. Solo se acepta si la
+     * franja está ocupada; si está libre, la reserva puede crearse directamente.
+     *
+     * @param deseada La reserva que el usuario quiere hacer.
+     * @return Un mensaje indicando el éxito o fallo de la operación.
+     */
+    public String inscribir(Reserva deseada) {
+        if (deseada.getIdReserva() == null) {
+            return "Error: la reserva no tiene identificador.";
+        }
+        if (deseada.getUsuario() == null) {
+            return "Error: la reserva no tiene usuario.";
+        }
+        if (deseada.getZona() == null || deseada.getZona().getIdZona() == null) {
+            return "Error: la reserva no tiene zona.";
+        }
+        if (!deseada.getFechaFin().isAfter(deseada.getFechaInicio())) {
+            return "Error: la fecha de fin debe ser posterior a la fecha de inicio.";
+        }
+        if (operacion.readReserva(deseada.getIdReserva()) != null) {
+            return "Error: ya existe una reserva con el id " + deseada.getIdReserva() + ".";
+        }
+        Espera espera = new Espera(deseada, prioridad.applyAsLong(deseada.getUsuario()), secuencia.incrementAndGet());
+        Cola cola = colas.computeIfAbsent(espera.idZona, idZona -> new Cola());
+        synchronized (cola) {
+            if (operacion.verificarDisponibilidad(espera.idZona, espera.inicio, espera.fin)) {
+                return "Error: la zona está disponible para esas fechas; la reserva puede crearse directamente.";
+            }
+            if (porReserva.putIfAbsent(espera.idReserva, espera) != null) {
+                return "Error: la reserva " + espera.idReserva + " ya está en lista de espera.";
+            }
+            cola.agregar(espera);
+        }
+        return "Reserva inscrita en lista de espera.";
+    }
+
+    /**
+     * Retira una reserva de la lista de espera.
+     *
+     * @param idReserva Identificador de la reserva en espera.
+     * @return La reserva retirada, o null si no estaba en espera.
+     */
+    public Reserva retirar(String idReserva) {
+        Espera espera = idReserva == null ? null : porReserva.get(idReserva);
+        if (espera == null) {
+            return null;
+        }
+        Cola cola = colas.get(espera.idZona);
+        synchronized (cola) {
+            if (!porReserva.remove(idReserva, espera)) {
+                return null;
+            }
+            cola.quitar(espera);
+        }
+        return espera.deseada;
+    }
+
+    /**
+     * Cancela una reserva del almacén y promueve a los usuarios en espera cuyas franjas
+     * quedaron libres.
+     *
+     * @param idReserva Identificador de la reserva a cancelar.
+     * @return La reserva cancelada, o null si no existía.
+     */
+    public Reserva cancelarReserva(String idReserva) {
+        Reserva registrada = idReserva == null ? null : operacion.readReserva(idReserva);
+        if (registrada == null) {
+            return null;
+        }
+        // La cola se crea aunque esté vacía, para que una inscripción simultánea en la zona
+        // espere a que termine la cancelación.
+        Cola cola = colas.computeIfAbsent(registrada.getZona().getIdZona(), idZona -> new Cola());
+        synchronized (cola) {
+            Reserva cancelada = operacion.deleteReserva(idReserva);
+            if (cancelada != null) {
+                promoverEn(cola, cancelada.getZona().getIdZona(), cancelada.getFechaInicio(), cancelada.getFechaFin());
+            }
+            return cancelada;
+        }
+    }
+
+    /**
+     * Promueve a los usuarios en espera cuyas franjas se cruzan con un rango que quedó libre
+     * por otra vía, por ejemplo una retención vencida.
+     *
+     * @param idZona Identificador de la zona.
+     * @param inicio Inicio del rango liberado.
+     * @param fin    Fin del rango liberado.
+     * @return La cantidad de usuarios promovidos.
+     */
+    public int promover(String idZona, LocalDateTime inicio, LocalDateTime fin) {
+        Cola cola = colas.get(idZona);
+        if (cola == null) {
+            return 0;
+        }
+        synchronized (cola) {
+            return promoverEn(cola, idZona, inicio, fin);
+        }
+    }
+
+    /**
+     * Obtiene las reservas en espera de una franja, en el orden en que se promoverían.
+     *
+     * @param idZona Identificador de la zona.
+     * @param inicio Inicio de la franja.
+     * @param fin    Fin de la franja.
+     * @return Lista nueva con las reservas en espera.
+     */
+    public List<Reserva> getEnEspera(String idZona, LocalDateTime inicio, LocalDateTime fin) {
+        List<Reserva> resultado = new ArrayList<>();
+        Cola cola = colas.get(idZona);
+        if (cola != null) {
+            synchronized (cola) {
+                TreeSet<Espera> franja = cola.franjas.get(new Franja(inicio, fin));
+                if (franja != null) {
+                    for (Espera espera : franja) {
+                        resultado.add(espera.deseada);
+                    }
+                }
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Obtiene la cantidad de reservas en espera de todas las zonas.
+     *
+     * @return Reservas en espera.
+     */
+    public int contarEnEspera() {
+        return porReserva.size();
+    }
+
+    /**
+     * Promueve, mientras haya alguno, al mejor usuario en espera de las franjas que se cruzan
+     * con el rango y que estén libres. Debe llamarse con el monitor de la cola tomado.
+     */
+    private int promoverEn(Cola cola, String idZona, LocalDateTime inicio, LocalDateTime fin) {
+        List<TreeSet<Espera>> candidatas = cola.franjasEntre(inicio, fin);
+        int promovidos = 0;
+        while (true) {
+            Espera mejor = null;
+            for (TreeSet<Espera> franja : candidatas) {
+                if (franja.isEmpty()) {
+                    continue;
+                }
+                Espera primera = franja.first();
+                if ((mejor == null || ORDEN.compare(primera, mejor) < 0)
+                        && operacion.verificarDisponibilidad(idZona, primera.inicio, primera.fin)) {
+                    mejor = primera;
+                }
+            }
+            if (mejor == null) {
+                return promovidos;
+            }
+            // Se mira el mensaje y no la reserva guardada, que otra escritura puede haber
+            // reemplazado ya por otra instancia
+            boolean creada = operacion.createReserva(mejor.deseada).startsWith("Reserva creada");
+            if (!creada && !operacion.verificarDisponibilidad(idZona, mejor.inicio, mejor.fin)) {
+                // Una reserva nueva ocupó el hueco; el usuario sigue esperando.
+                return promovidos;
+            }
+            porReserva.remove(mejor.idReserva, mejor);
+            cola.quitar(mejor);
+            if (creada) {
+                promovidos++;
+                Consumer<Reserva> receptor = escucha;
+                if (receptor != null) {
+                    receptor.accept(mejor.deseada);
+                }
+            }
+        }
+    }
+
+    /**
+     * Franjas en espera de una zona, cada una con su cola de prioridad.
+     */
+    private static final class Cola {
+        private final TreeMap<Franja, TreeSet<Espera>> franjas = new TreeMap<>();
+
+        /**
+         * Duración de la franja más larga registrada en la zona; acota la búsqueda de franjas
+         * que se cruzan con un rango.
+         */
+        private Duration duracionMaxima = Duration.ZERO;
+
+        private void agregar(Espera espera) {
+            Franja franja = new Franja(espera.inicio, espera.fin);
+            franjas.computeIfAbsent(franja, f -> new TreeSet<>(ORDEN)).add(espera);
+            Duration duracion = Duration.between(espera.inicio, espera.fin);
+            if (duracion.compareTo(duracionMaxima) > 0) {
+                duracionMaxima = duracion;
+            }
+        }
+
+        private void quitar(Espera espera) {
+            Franja franja = new Franja(espera.inicio, espera.fin);
+            TreeSet<Espera> cola = franjas.get(franja);
+            if (cola != null && cola.remove(espera) && cola.isEmpty()) {
+                franjas.remove(franja);
+            }
+        }
+
+        /**
+         * Colas de las franjas que se cruzan con un rango. Solo se revisan las franjas que
+         * empiezan a menos de la duración máxima antes del rango.
+         */
+        private List<TreeSet<Espera>> franjasEntre(LocalDateTime inicio, LocalDateTime fin) {
+            List<TreeSet<Espera>> resultado = new ArrayList<>();
+            Franja desde = new Franja(inicio.minus(duracionMaxima), LocalDateTime.MIN);
+            Franja hasta = new Franja(fin, LocalDateTime.MIN);
+            for (Map.Entry<Franja, TreeSet<Espera>> entrada : franjas.subMap(desde, true, hasta, false).entrySet()) {
+                if (entrada.getKey().fin.isAfter(inicio)) {
+                    resultado.add(entrada.getValue());
+                }
+            }
+            return resultado;
+        }
+    }
+
+    /**
+     * Rango de una franja, ordenado por inicio y luego por fin.
+     */
+    private static final class Franja implements Comparable<Franja> {
+        private final LocalDateTime inicio;
+        private final LocalDateTime fin;
+
+        private Franja(LocalDateTime inicio, LocalDateTime fin) {
+            this.inicio = inicio;
+            this.fin = fin;
+        }
+
+        @Override
+        public int compareTo(Franja otra) {
+            int porInicio = inicio.compareTo(otra.inicio);
+            return porInicio != 0 ? porInicio : fin.compareTo(otra.fin);
+        }
+
+        @Override
+        public boolean equals(Object otro) {
+            return otro instanceof Franja && compareTo((Franja) otro) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return inicio.hashCode() * 31 + fin.hashCode();
+        }
+    }
+
+    /**
+     * Inscripción de una reserva en espera, con su rango copiado al inscribirla.
+     */
+    private static final class Espera {
+        private final Reserva deseada;
+        private final String idReserva;
+        private final String idZona;
+        private final LocalDateTime inicio;
+        private final LocalDateTime fin;
+        private final long prioridad;
+        private final long secuencia;
+
+        private Espera(Reserva deseada, long prioridad, long secuencia) {
+            this.deseada = deseada;
+            this.idReserva = deseada.getIdReserva();
+            this.idZona = deseada.getZona().getIdZona();
+            this.inicio = deseada.getFechaInicio();
+            this.fin = deseada.getFechaFin();
+            this.prioridad = prioridad;
+            this.secuencia = secuencia;
+        }
+    }
+}
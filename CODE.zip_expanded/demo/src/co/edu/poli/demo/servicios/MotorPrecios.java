@@ -0,0 +1,295 @@
+package co.edu.poli.demo.servicios;
+
+import co.edu.poli.demo.modelo.Dinero;
+import co.edu.poli.demo.modelo.Reserva;
+import co.edu.poli.demo.modelo.Usuario;
+import co.edu.poli.demo.modelo.UsuarioCorporativo;
+import co.edu.poli.demo.modelo.UsuarioFrecuente;
+import co.edu.poli.demo.modelo.Zona;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * Motor de precios de las reservas. Reúne en un solo lugar las reglas que antes estaban
+ * repartidas en el modelo: la tarifa por hora de la zona, los descuentos de cada tipo de
+ * usuario y el impuesto de la factura.
+ * <p>
+ * El precio de una reserva se calcula así:
+ * <ol>
+ * <li>Subtotal: tarifa por hora por la duración exacta de la reserva, en fracciones de hora.
+ * La tarifa es la de la tabla del motor para el tipo de la zona o, si no hay, el costo por
+ * hora de la zona.</li>
+ * <li>Descuento: el mayor de los que correspondan al usuario; los descuentos no se acumulan.
+ * Un usuario frecuente tiene el suyo propio, un usuario corporativo (o internacional) con 5 o
+ * más eventos organizados tiene 10 %, y la tabla del motor puede fijar un porcentaje para
+ * cualquier clase de usuario, que también se aplica a sus subclases.</li>
+ * <li>Impuesto: la tasa del motor sobre el subtotal menos el descuento.</li>
+ * </ol>
+ * Los cálculos se hacen en unidades menores de la moneda del motor con aritmética de
+ * {@code long}: los porcentajes se convierten a puntos básicos y cada valor se redondea a la
+ * unidad menor, con los empates alejándose de cero (ver {@link Dinero}). Todas las tarifas
+ * deben estar en la moneda del motor.
+ * <p>
+ * El motor es inmutable: los métodos {@code con...} devuelven una copia. Por eso puede usarse
+ * desde varios hilos a la vez, y las cotizaciones por lotes se calculan en paralelo. El
+ * cálculo de cada reserva solo usa aritmética de tipos primitivos y no crea objetos.
+ */
+public class MotorPrecios {
+
+    /**
+     * Eventos organizados desde los que un usuario corporativo recibe descuento.
+     */
+    public static final int EVENTOS_PARA_DESCUENTO_CORPORATIVO = 5;
+
+    /**
+     * Porcentaje de descuento de un usuario corporativo con suficientes eventos organizados.
+     */
+    public static final double DESCUENTO_CORPORATIVO = 10;
+
+    /**
+     * Cantidad de reservas desde la que una cotización por lotes se calcula en paralelo.
+     */
+    private static final int MINIMO_PARALELO = 2048;
+
+    /**
+     * {@link #DESCUENTO_CORPORATIVO} en puntos básicos.
+     */
+    private static final long PUNTOS_CORPORATIVO = Dinero.puntosBasicos(DESCUENTO_CORPORATIVO);
+
+    private static final long SEGUNDOS_POR_HORA = 3600;
+
+    private final Currency moneda;
+    private final TreeMap<String, Dinero> tarifas;
+
+    /**
+     * Descuentos de la tabla en puntos básicos, por clase de usuario.
+     */
+    private final Map<Class<?>, Long> descuentos;
+    private final double tasaImpuesto;
+    private final long puntosImpuesto;
+
+    /**
+     * Descuento de la tabla, en puntos básicos, que corresponde a cada clase concreta de
+     * usuario, resuelto al cotizar la primera reserva de esa clase.
+     */
+    private final ConcurrentHashMap<Class<?>, Long> descuentoPorClase;
+
+    private MotorPrecios(Currency moneda, TreeMap<String, Dinero> tarifas, Map<Class<?>, Long> descuentos,
+                         double tasaImpuesto) {
+        if (tasaImpuesto < 0) {
+            throw new IllegalArgumentException("La tasa de impuesto no puede ser negativa.");
+        }
+        this.moneda = moneda;
+        this.tarifas = tarifas;
+        this.descuentos = descuentos;
+        this.tasaImpuesto = tasaImpuesto;
+        this.puntosImpuesto = Dinero.puntosBasicos(tasaImpuesto);
+        this.descuentoPorClase = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Crea un motor en moneda local que cobra el costo por hora de cada zona, con los
+     * descuentos propios de los usuarios frecuentes y corporativos.
+     *
+     * @param tasaImpuesto Porcentaje de impuesto, por ejemplo 19.
+     * @return El motor creado.
+     */
+    public static MotorPrecios estandar(double tasaImpuesto) {
+        return estandar(Dinero.MONEDA_LOCAL, tasaImpuesto);
+    }
+
+    /**
+     * Crea un motor como {@link #estandar(double)} que cotiza en otra moneda.
+     *
+     * @param moneda       Moneda de las tarifas y de las cotizaciones.
+     * @param tasaImpuesto Porcentaje de impuesto.
+     * @return El motor creado.
+     */
+    public static MotorPrecios estandar(Currency moneda, double tasaImpuesto) {
+        return new MotorPrecios(moneda, new TreeMap<>(String.CASE_INSENSITIVE_ORDER), Map.of(), tasaImpuesto);
+    }
+
+    /**
+     * Crea una copia del motor con una tarifa por hora para las zonas de un tipo, que
+     * reemplaza al costo por hora de esas zonas.
+     *
+     * @param tipoZona Tipo de zona, sin distinguir mayúsculas.
+     * @param porHora  Tarifa por hora, en la moneda del motor.
+     * @return El motor creado.
+     */
+    public MotorPrecios conTarifa(String tipoZona, Dinero porHora) {
+        if (porHora.esNegativo()) {
+            throw new IllegalArgumentException("La tarifa no puede ser negativa.");
+        }
+        if (!porHora.getMoneda().equals(moneda)) {
+            throw new IllegalArgumentException("La tarifa debe estar en " + moneda.getCurrencyCode() + ".");
+        }
+        TreeMap<String, Dinero> copia = new TreeMap<>(tarifas);
+        copia.put(tipoZona, porHora);
+        return new MotorPrecios(moneda, copia, descuentos, tasaImpuesto);
+    }
+
+    /**
+     * Crea una copia del motor con un porcentaje de descuento para una clase de usuario y sus
+     * subclases. Si una clase y una de sus superclases tienen porcentaje, se usa el de la clase
+     * más específica.
+     *
+     * @param tipo       Clase de usuario.
+     * @param porcentaje Porcentaje de descuento, entre 0 y 100.
+     * @return El motor creado.
+     */
+    public MotorPrecios conDescuento(Class<? extends Usuario> tipo, double porcentaje) {
+        if (porcentaje < 0 || porcentaje > 100) {
+            throw new IllegalArgumentException("El descuento debe estar entre 0 y 100.");
+        }
+        Map<Class<?>, Long> copia = new HashMap<>(descuentos);
+        copia.put(tipo, Dinero.puntosBasicos(porcentaje));
+        return new MotorPrecios(moneda, tarifas, copia, tasaImpuesto);
+    }
+
+    /**
+     * Crea una copia del motor con otra tasa de impuesto.
+     *
+     * @param tasaImpuesto Porcentaje de impuesto.
+     * @return El motor creado.
+     */
+    public MotorPrecios conImpuesto(double tasaImpuesto) {
+        return new MotorPrecios(moneda, tarifas, descuentos, tasaImpuesto);
+    }
+
+    public double getTasaImpuesto() {
+        return tasaImpuesto;
+    }
+
+    public Currency getMoneda() {
+        return moneda;
+    }
+
+    /**
+     * Cotiza una reserva.
+     *
+     * @param reserva La reserva a cotizar.
+     * @return La cotización, con el desglose del precio.
+     * @throws IllegalArgumentException Si la tarifa de la zona no está en la moneda del motor.
+     */
+    public Cotizacion cotizar(Reserva reserva) {
+        long subtotal = subtotal(reserva);
+        long descuento = descuento(reserva.getUsuario(), subtotal);
+        long impuesto = impuesto(subtotal - descuento);
+        return new Cotizacion(reserva.getIdReserva(), Dinero.deUnidades(subtotal, moneda),
+                Dinero.deUnidades(descuento, moneda), Dinero.deUnidades(impuesto, moneda));
+    }
+
+    /**
+     * Cotiza un lote de reservas. Los lotes grandes se reparten entre los hilos del grupo común.
+     *
+     * @param reservas Las reservas a cotizar.
+     * @return Las cotizaciones, en el mismo orden que las reservas.
+     * @throws IllegalArgumentException Si la tarifa de alguna zona no está en la moneda del motor.
+     */
+    public CotizacionLote cotizar(List<Reserva> reservas) {
+        int cantidad = reservas.size();
+        long[] subtotales = new long[cantidad];
+        long[] descuentosAplicados = new long[cantidad];
+        long[] impuestos = new long[cantidad];
+        IntStream indices = IntStream.range(0, cantidad);
+        if (cantidad >= MINIMO_PARALELO) {
+            indices = indices.parallel();
+        }
+        indices.forEach(i -> {
+            Reserva reserva = reservas.get(i);
+            long subtotal = subtotal(reserva);
+            long descuento = descuento(reserva.getUsuario(), subtotal);
+            subtotales[i] = subtotal;
+            descuentosAplicados[i] = descuento;
+            impuestos[i] = impuesto(subtotal - descuento);
+        });
+        return new CotizacionLote(reservas, moneda, subtotales, descuentosAplicados, impuestos);
+    }
+
+    /**
+     * Tarifa por hora de una zona según este motor.
+     *
+     * @param zona La zona.
+     * @return La tarifa de la tabla para su tipo, o su costo por hora.
+     */
+    public Dinero tarifa(Zona zona) {
+        if (!tarifas.isEmpty() && zona.getTipo() != null) {
+            Dinero tarifa = tarifas.get(zona.getTipo());
+            if (tarifa != null) {
+                return tarifa;
+            }
+        }
+        return zona.getCostoPorHora();
+    }
+
+    /**
+     * Subtotal en unidades menores: la tarifa por los segundos de la reserva entre 3600.
+     * También lo usa la facturación para acumular sin crear cotizaciones.
+     */
+    long subtotal(Reserva reserva) {
+        Dinero tarifa = tarifa(reserva.getZona());
+        if (!tarifa.getMoneda().equals(moneda)) {
+            throw new IllegalArgumentException("La tarifa de la zona " + reserva.getZona().getIdZona()
+                    + " no está en " + moneda.getCurrencyCode() + ".");
+        }
+        long segundos = Math.max(0, segundos(reserva.getFechaFin()) - segundos(reserva.getFechaInicio()));
+        return Dinero.escalar(tarifa.getUnidades(), segundos, SEGUNDOS_POR_HORA);
+    }
+
+    /**
+     * Descuento en unidades menores que corresponde a un usuario sobre un subtotal.
+     */
+    long descuento(Usuario usuario, long subtotal) {
+        if (usuario == null) {
+            return 0;
+        }
+        long puntos = descuentoDeTabla(usuario.getClass());
+        if (usuario instanceof UsuarioFrecuente) {
+            puntos = Math.max(puntos, Dinero.puntosBasicos(((UsuarioFrecuente) usuario).getDescuento()));
+        }
+        if (usuario instanceof UsuarioCorporativo
+                && ((UsuarioCorporativo) usuario).getEventosOrganizados() >= EVENTOS_PARA_DESCUENTO_CORPORATIVO) {
+            puntos = Math.max(puntos, PUNTOS_CORPORATIVO);
+        }
+        return Dinero.escalar(subtotal, Math.min(puntos, Dinero.PUNTOS_BASICOS_TOTAL), Dinero.PUNTOS_BASICOS_TOTAL);
+    }
+
+    private long impuesto(long base) {
+        return Dinero.escalar(base, puntosImpuesto, Dinero.PUNTOS_BASICOS_TOTAL);
+    }
+
+    /**
+     * Puntos básicos de la tabla para una clase: los de la clase o los de su superclase más
+     * cercana que tenga.
+     */
+    private long descuentoDeTabla(Class<?> clase) {
+        if (descuentos.isEmpty()) {
+            return 0;
+        }
+        Long puntos = descuentoPorClase.get(clase);
+        if (puntos == null) {
+            puntos = 0L;
+            for (Class<?> actual = clase; actual != null; actual = actual.getSuperclass()) {
+                Long propio = descuentos.get(actual);
+                if (propio != null) {
+                    puntos = propio;
+                    break;
+                }
+            }
+            descuentoPorClase.put(clase, puntos);
+        }
+        return puntos;
+    }
+
+    private static long segundos(LocalDateTime instante) {
+        return instante.toEpochSecond(ZoneOffset.UTC);
+    }
+}
@@ -1,9 +1,16 @@
 package co.edu.poli.demo.servicios;
 
+import co.edu.poli.demo.modelo.Parque;
 import co.edu.poli.demo.modelo.Usuario;
 import co.edu.poli.demo.modelo.Zona;
 import co.edu.poli.demo.modelo.Reserva;
+import co.edu.poli.demo.modelo.ReservaRecurrente;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Interfaz que define las operaciones CRUD y de serialización para objetos de tipo Usuario, Zona y Reserva.
@@ -15,13 +22,24 @@ public interface Operacion {
     // Métodos CRUD y de serialización para los usuarios
 
     /**
-     * Método para crear un nuevo usuario.
+     * Método para crear un nuevo usuario. Se rechaza si ya existe un usuario con el mismo identificador,
+     * correo o teléfono.
      *
      * @param usuario El objeto de tipo Usuario a agregar.
      * @return Un mensaje indicando el éxito o fallo de la operación.
      */
     String create(Usuario usuario);
 
+    /**
+     * Método para crear varios usuarios en una sola operación. Cada usuario se valida igual
+     * que en {@link #create(Usuario)}; los rechazados no impiden crear los demás.
+     *
+     * @param usuarios Los usuarios a agregar.
+     * @return Un reporte con la cantidad de usuarios creados y el error de cada fila
+     *         rechazada, numerada desde 1 según su posición en la lista.
+     */
+    ReporteLote createAll(List<? extends Usuario> usuarios);
+
     /**
      * Método para leer o buscar un usuario por su identificador.
      *
@@ -39,6 +57,29 @@ public interface Operacion {
      */
     String update(Usuario usuario, String idUsuario);
 
+    /**
+     * Método para leer un usuario junto con su versión, que cambia cada vez que se actualiza.
+     *
+     * @param idUsuario El identificador del usuario.
+     * @return El usuario con su versión, o null si no lo encuentra.
+     */
+    Versionado<Usuario> readVersionado(String idUsuario);
+
+    /**
+     * Método para actualizar un usuario solo si no ha cambiado desde que se leyó con
+     * {@link #readVersionado}. Si otro lo actualizó entretanto, falla de inmediato con un mensaje
+     * que empieza con {@link Versionado#CONFLICTO}, sin esperar a nadie, para que quien lo
+     * editaba vuelva a leerlo y reintente. Ningún cerrojo se mantiene entre la lectura y la
+     * actualización.
+     *
+     * @param usuario El objeto Usuario con los nuevos datos; debe ser una instancia nueva o
+     *                una copia, no la leída.
+     * @param idUsuario El identificador del usuario a actualizar.
+     * @param version La versión leída.
+     * @return Un mensaje indicando el éxito o fallo de la operación.
+     */
+    String updateSiVersion(Usuario usuario, String idUsuario, long version);
+
     /**
      * Método para eliminar un usuario por su identificador.
      *
@@ -54,6 +95,80 @@ public interface Operacion {
      */
     List<Usuario> readAllUsuarios();
 
+    /**
+     * Método para recorrer todos los usuarios en orden de inserción sin copiarlos a una lista.
+     * Si hay escrituras durante el recorrido, puede reflejarlas o no.
+     *
+     * @param accion La acción a ejecutar con cada usuario.
+     */
+    void recorrerUsuarios(Consumer<? super Usuario> accion);
+
+    /**
+     * Método para leer los usuarios de un tipo. Solo se visitan los usuarios de ese tipo,
+     * no todos los registrados.
+     *
+     * @param tipo La clase de los usuarios a leer; sus subclases también se incluyen, por
+     *             ejemplo los usuarios internacionales al pedir los corporativos.
+     * @param <T> El tipo de los usuarios.
+     * @return Una lista con los usuarios del tipo, en orden de inserción.
+     */
+    <T extends Usuario> List<T> readAllUsuarios(Class<T> tipo);
+
+    /**
+     * Método para recorrer los usuarios de un tipo en orden de inserción sin copiarlos a una
+     * lista. Solo se visitan los usuarios de ese tipo.
+     *
+     * @param tipo La clase de los usuarios a recorrer; sus subclases también se incluyen.
+     * @param accion La acción a ejecutar con cada usuario.
+     * @param <T> El tipo de los usuarios.
+     */
+    <T extends Usuario> void recorrerUsuarios(Class<T> tipo, Consumer<? super T> accion);
+
+    /**
+     * Método para contar los usuarios de un tipo sin recorrerlos.
+     *
+     * @param tipo La clase de los usuarios a contar; sus subclases también se cuentan.
+     * @return La cantidad de usuarios del tipo.
+     */
+    int contarUsuarios(Class<? extends Usuario> tipo);
+
+    /**
+     * Método para leer una página del listado de usuarios.
+     *
+     * @param consulta El orden, tamaño e inicio de la página.
+     * @param tipo La clase de los usuarios a incluir (sus subclases también se incluyen),
+     *             o null para incluirlos todos. Con un tipo solo se recorren los usuarios
+     *             de ese tipo.
+     * @return La página con los usuarios y la consulta de la página siguiente.
+     */
+    Pagina<Usuario> readUsuariosPagina(ConsultaPagina consulta, Class<? extends Usuario> tipo);
+
+    /**
+     * Método para buscar un usuario por su correo, sin distinguir mayúsculas.
+     *
+     * @param correo El correo del usuario a buscar.
+     * @return El objeto Usuario si es encontrado, o null si no lo encuentra.
+     */
+    Usuario readUsuarioCorreo(String correo);
+
+    /**
+     * Método para buscar un usuario por su teléfono, ignorando espacios y separadores.
+     *
+     * @param telefono El teléfono del usuario a buscar.
+     * @return El objeto Usuario si es encontrado, o null si no lo encuentra.
+     */
+    Usuario readUsuarioTelefono(String telefono);
+
+    /**
+     * Método para buscar los usuarios cuyo nombre empieza con un prefijo, sin distinguir
+     * mayúsculas ni tildes.
+     *
+     * @param prefijo El inicio del nombre a buscar.
+     * @param limite La cantidad máxima de usuarios a devolver.
+     * @return Una lista con los usuarios encontrados, en orden alfabético.
+     */
+    List<Usuario> readUsuariosNombre(String prefijo, int limite);
+
     /**
      * Método para serializar (guardar) los usuarios en un archivo binario.
      *
@@ -75,7 +190,7 @@ public interface Operacion {
     // Métodos CRUD y de serialización para las zonas y reservas
 
     /**
-     * Método para crear una nueva zona en el parque.
+     * Método para crear una nueva zona en el parque. Se rechaza si ya existe una zona con el mismo identificador.
      *
      * @param zona El objeto de tipo Zona a agregar.
      * @return Un mensaje indicando el éxito o fallo de la operación.
@@ -83,13 +198,31 @@ public interface Operacion {
     String createZona(Zona zona);
 
     /**
-     * Método para crear una nueva reserva en el parque.
+     * Método para crear varias zonas en una sola operación.
+     *
+     * @param zonas Las zonas a agregar.
+     * @return Un reporte con la cantidad de zonas creadas y el error de cada fila rechazada.
+     */
+    ReporteLote createAllZonas(List<Zona> zonas);
+
+    /**
+     * Método para crear una nueva reserva en el parque. Se rechaza si ya existe una reserva con el mismo identificador
+     * o si su rango de tiempo se cruza con otra reserva de la misma zona.
      *
      * @param reserva El objeto de tipo Reserva a agregar.
      * @return Un mensaje indicando el éxito o fallo de la operación.
      */
     String createReserva(Reserva reserva);
 
+    /**
+     * Método para crear varias reservas en una sola operación. Las reservas se aplican en
+     * orden, así que una que se solape con otra anterior del mismo lote se rechaza.
+     *
+     * @param reservas Las reservas a agregar.
+     * @return Un reporte con la cantidad de reservas creadas y el error de cada fila rechazada.
+     */
+    ReporteLote createAllReservas(List<Reserva> reservas);
+
     /**
      * Método para leer o buscar una zona por su identificador.
      *
@@ -116,7 +249,27 @@ public interface Operacion {
     String updateZona(Zona zona, String idZona);
 
     /**
-     * Método para actualizar los detalles de una reserva.
+     * Método para leer una zona junto con su versión, que cambia cada vez que se actualiza.
+     *
+     * @param idZona El identificador de la zona.
+     * @return La zona con su versión, o null si no la encuentra.
+     */
+    Versionado<Zona> readZonaVersionada(String idZona);
+
+    /**
+     * Método para actualizar una zona solo si no ha cambiado desde que se leyó con
+     * {@link #readZonaVersionada}, con las mismas reglas de {@link #updateSiVersion}.
+     *
+     * @param zona El objeto Zona con los nuevos datos; debe ser una instancia nueva o una copia.
+     * @param idZona El identificador de la zona a actualizar.
+     * @param version La versión leída.
+     * @return Un mensaje indicando el éxito o fallo de la operación.
+     */
+    String updateZonaSiVersion(Zona zona, String idZona, long version);
+
+    /**
+     * Método para actualizar los detalles de una reserva. Se rechaza si el nuevo rango de tiempo
+     * se cruza con otra reserva de la misma zona.
      *
      * @param reserva El objeto Reserva con los nuevos datos.
      * @param idReserva El identificador de la reserva a actualizar.
@@ -124,6 +277,25 @@ public interface Operacion {
      */
     String updateReserva(Reserva reserva, String idReserva);
 
+    /**
+     * Método para leer una reserva junto con su versión, que cambia cada vez que se actualiza.
+     *
+     * @param idReserva El identificador de la reserva.
+     * @return La reserva con su versión, o null si no la encuentra.
+     */
+    Versionado<Reserva> readReservaVersionada(String idReserva);
+
+    /**
+     * Método para actualizar una reserva solo si no ha cambiado desde que se leyó con
+     * {@link #readReservaVersionada}, con las mismas reglas de {@link #updateSiVersion}.
+     *
+     * @param reserva El objeto Reserva con los nuevos datos; debe ser una instancia nueva o una copia.
+     * @param idReserva El identificador de la reserva a actualizar.
+     * @param version La versión leída.
+     * @return Un mensaje indicando el éxito o fallo de la operación.
+     */
+    String updateReservaSiVersion(Reserva reserva, String idReserva, long version);
+
     /**
      * Método para eliminar una zona del parque.
      *
@@ -140,6 +312,158 @@ public interface Operacion {
      */
     Reserva deleteReserva(String idReserva);
 
+    /**
+     * Método para verificar si una zona está libre en un rango de tiempo. El rango es
+     * semiabierto: una reserva que termina justo cuando empieza el rango no lo ocupa.
+     *
+     * @param idZona El identificador de la zona.
+     * @param inicio Fecha y hora de inicio del rango.
+     * @param fin Fecha y hora de fin del rango.
+     * @return true si ninguna reserva ni ocurrencia de una reserva recurrente de la zona se cruza
+     *         con el rango, false en caso contrario.
+     */
+    boolean verificarDisponibilidad(String idZona, LocalDateTime inicio, LocalDateTime fin);
+
+    /**
+     * Método para leer las reservas de una zona que se cruzan con un rango de tiempo.
+     *
+     * @param idZona El identificador de la zona.
+     * @param inicio Fecha y hora de inicio del rango.
+     * @param fin Fecha y hora de fin del rango.
+     * @return Una lista con las reservas encontradas, ordenadas por fecha de inicio.
+     */
+    List<Reserva> readReservasZona(String idZona, LocalDateTime inicio, LocalDateTime fin);
+
+    /**
+     * Método para buscar zonas libres durante todo un rango de tiempo que cumplan los demás
+     * criterios de la consulta: tipo, costo por hora máximo y parque. Solo se revisan las zonas
+     * del tipo y costo pedidos, y la ocupación de cada una se consulta en su índice de reservas.
+     *
+     * @param consulta Los criterios de la búsqueda.
+     * @return Una lista con las zonas habilitadas y libres, de la más barata a la más cara
+     *         (a igual costo, por identificador), con a lo sumo el límite de la consulta.
+     */
+    List<Zona> buscarZonasLibres(ConsultaDisponibilidad consulta);
+
+    /**
+     * Método para leer las reservas de todas las zonas que se cruzan con un rango de tiempo.
+     * Solo se revisan las reservas de ese rango, no todas las registradas.
+     *
+     * @param inicio Fecha y hora de inicio del rango.
+     * @param fin Fecha y hora de fin del rango.
+     * @return Una lista con las reservas encontradas, ordenadas por fecha de inicio.
+     */
+    List<Reserva> readReservasEntre(LocalDateTime inicio, LocalDateTime fin);
+
+    /**
+     * Método para leer las reservas de todas las zonas que empiezan dentro de un rango de tiempo,
+     * por ejemplo las que empiezan en la próxima hora.
+     *
+     * @param inicio Fecha y hora de inicio del rango.
+     * @param fin Fecha y hora de fin del rango (exclusiva).
+     * @return Una lista con las reservas encontradas, ordenadas por fecha de inicio.
+     */
+    List<Reserva> readReservasQueEmpiezan(LocalDateTime inicio, LocalDateTime fin);
+
+    /**
+     * Método para leer las reservas de todas las zonas que ocupan parte de un día.
+     *
+     * @param dia El día a consultar.
+     * @return Una lista con las reservas encontradas, ordenadas por fecha de inicio.
+     */
+    List<Reserva> readReservasDia(LocalDate dia);
+
+    /**
+     * Método para agregar una reserva recurrente. Se guarda solo la regla; sus ocurrencias
+     * se calculan al consultar un rango. Se rechaza si alguna ocurrencia se cruza con una
+     * reserva o con otra reserva recurrente de la misma zona, y desde entonces las reservas
+     * que se crucen con una ocurrencia se rechazan y {@link #verificarDisponibilidad} la tiene
+     * en cuenta.
+     *
+     * @param regla La reserva recurrente a agregar.
+     * @return Un mensaje indicando el éxito o fallo de la operación.
+     */
+    String createRecurrente(ReservaRecurrente regla);
+
+    /**
+     * Método para leer una reserva recurrente por su identificador.
+     *
+     * @param idRecurrencia El identificador de la reserva recurrente.
+     * @return La reserva recurrente si es encontrada, o null si no la encuentra.
+     */
+    ReservaRecurrente readRecurrente(String idRecurrencia);
+
+    /**
+     * Método para actualizar una reserva recurrente, por ejemplo después de excluir una fecha
+     * con {@link ReservaRecurrente#excluir}.
+     *
+     * @param regla La reserva recurrente con los nuevos datos.
+     * @param idRecurrencia El identificador de la reserva recurrente a actualizar.
+     * @return Un mensaje indicando el éxito o fallo de la operación.
+     */
+    String updateRecurrente(ReservaRecurrente regla, String idRecurrencia);
+
+    /**
+     * Método para eliminar una reserva recurrente con todas sus ocurrencias.
+     *
+     * @param idRecurrencia El identificador de la reserva recurrente a eliminar.
+     * @return La reserva recurrente eliminada, o null si no la encuentra.
+     */
+    ReservaRecurrente deleteRecurrente(String idRecurrencia);
+
+    /**
+     * Método para leer todas las reservas recurrentes.
+     *
+     * @return Una lista con las reservas recurrentes en orden de inserción.
+     */
+    List<ReservaRecurrente> readAllRecurrentes();
+
+    /**
+     * Método para leer las ocurrencias de las reservas recurrentes de una zona que se cruzan
+     * con un rango de tiempo. Solo se calculan las ocurrencias del rango. Cada ocurrencia es
+     * una reserva nueva con identificador {@code idRecurrencia@fecha} que no se registra en el
+     * almacén.
+     *
+     * @param idZona El identificador de la zona.
+     * @param inicio Fecha y hora de inicio del rango.
+     * @param fin Fecha y hora de fin del rango.
+     * @return Una lista con las ocurrencias encontradas, ordenadas por fecha de inicio.
+     */
+    List<Reserva> readOcurrenciasZona(String idZona, LocalDateTime inicio, LocalDateTime fin);
+
+    /**
+     * Método para leer los ingresos y las horas reservadas de una zona en un rango de días.
+     * Se responde con acumulados que se mantienen al crear, modificar y eliminar reservas, sin
+     * recorrer las reservas. Cada reserva cuenta con su costo en el día en que empieza y sus
+     * horas se reparten entre los días que ocupa.
+     *
+     * @param idZona El identificador de la zona.
+     * @param desde El primer día del rango.
+     * @param hasta El último día del rango (inclusivo).
+     * @return El resumen de la zona, vacío si no tiene reservas en el rango.
+     */
+    ResumenOcupacion readResumenZona(String idZona, LocalDate desde, LocalDate hasta);
+
+    /**
+     * Método para leer los ingresos y las horas reservadas de todas las zonas de un parque en
+     * un rango de días, con los mismos acumulados de {@link #readResumenZona}.
+     *
+     * @param parque El parque.
+     * @param desde El primer día del rango.
+     * @param hasta El último día del rango (inclusivo).
+     * @return El resumen de las zonas del parque.
+     */
+    ResumenOcupacion readResumenParque(Parque parque, LocalDate desde, LocalDate hasta);
+
+    /**
+     * Método para leer los ingresos y las horas reservadas de todas las zonas en un rango de días.
+     *
+     * @param desde El primer día del rango.
+     * @param hasta El último día del rango (inclusivo).
+     * @return El resumen de todas las zonas.
+     */
+    ResumenOcupacion readResumenDias(LocalDate desde, LocalDate hasta);
+
     /**
      * Método para leer todas las zonas del parque.
      *
@@ -147,6 +471,23 @@ public interface Operacion {
      */
     List<Zona> readAllZonas();
 
+    /**
+     * Método para recorrer todas las zonas en orden de inserción sin copiarlas a una lista.
+     *
+     * @param accion La acción a ejecutar con cada zona.
+     */
+    void recorrerZonas(Consumer<? super Zona> accion);
+
+    /**
+     * Método para leer una página del listado de zonas.
+     *
+     * @param consulta El orden, tamaño e inicio de la página.
+     * @param tipo El tipo de las zonas a incluir, sin distinguir mayúsculas, o null para
+     *             incluirlas todas.
+     * @return La página con las zonas y la consulta de la página siguiente.
+     */
+    Pagina<Zona> readZonasPagina(ConsultaPagina consulta, String tipo);
+
     /**
      * Método para leer todas las reservas del parque.
      *
@@ -154,6 +495,35 @@ public interface Operacion {
      */
     List<Reserva> readAllReservas();
 
+    /**
+     * Método para recorrer todas las reservas en orden de inserción sin copiarlas a una lista.
+     *
+     * @param accion La acción a ejecutar con cada reserva.
+     */
+    void recorrerReservas(Consumer<? super Reserva> accion);
+
+    /**
+     * Método para leer una página del listado de reservas.
+     *
+     * @param consulta El orden, tamaño e inicio de la página.
+     * @return La página con las reservas y la consulta de la página siguiente.
+     */
+    Pagina<Reserva> readReservasPagina(ConsultaPagina consulta);
+
+    /**
+     * Método para recalcular el costo de las reservas que empiezan en un rango de tiempo, por
+     * ejemplo al cierre del mes después de cambiar las tarifas. Las reservas se cotizan en
+     * paralelo y el costo de cada una pasa a ser el subtotal de su cotización, sin descuento ni
+     * impuesto, igual que el de las reservas nuevas; así los acumulados de ingresos suman
+     * siempre el mismo tipo de valor.
+     *
+     * @param motor El motor de precios con las tarifas vigentes.
+     * @param inicio Fecha y hora de inicio del rango.
+     * @param fin Fecha y hora de fin del rango (exclusiva).
+     * @return La cantidad de reservas cuyo costo cambió.
+     */
+    long repreciarReservas(MotorPrecios motor, LocalDateTime inicio, LocalDateTime fin);
+
     /**
      * Método para serializar (guardar) las zonas y reservas en un archivo binario.
      *
@@ -179,6 +549,15 @@ public interface Operacion {
      */
     List<Object> readAll();
 
+    /**
+     * Método para obtener el estado de todos los datos en este instante, para recorrerlo sin
+     * detener a los escritores. Las escrituras posteriores no lo cambian, y el espacio de las
+     * versiones que solo él conserva se libera cuando deja de usarse.
+     *
+     * @return El corte de los datos.
+     */
+    CorteDatos tomarCorte();
+
     /**
      * Método para leer desde un archivo.
      *
@@ -188,6 +567,42 @@ public interface Operacion {
     String readFromFile(String path);
     
     String serializar(String path, String name);
+
+    // Lectura por flujo de archivos guardados
+
+    /**
+     * Método para recorrer los usuarios de un archivo sin cargarlo en memoria. Los usuarios
+     * se decodifican a medida que el flujo los pide; el flujo debe cerrarse al terminar.
+     *
+     * @param path La ruta del archivo.
+     * @param name El nombre del archivo.
+     * @return Un flujo con los usuarios del archivo.
+     * @throws IOException Si el archivo no se puede abrir o no tiene un formato válido.
+     */
+    Stream<Usuario> streamUsuarios(String path, String name) throws IOException;
+
+    /**
+     * Método para recorrer las zonas de un archivo sin cargarlo en memoria.
+     *
+     * @param path La ruta del archivo.
+     * @param name El nombre del archivo.
+     * @return Un flujo con las zonas del archivo.
+     * @throws IOException Si el archivo no se puede abrir o no tiene un formato válido.
+     */
+    Stream<Zona> streamZonas(String path, String name) throws IOException;
+
+    /**
+     * Método para recorrer las reservas de un archivo sin cargarlo en memoria. El usuario y
+     * la zona de cada reserva se buscan entre los registrados; si no están, la reserva lleva
+     * una referencia con solo su identificador ({@link ArchivoInstantanea.UsuarioNoCargado} o
+     * {@link ArchivoInstantanea.ZonaNoCargada}) en lugar de omitirse.
+     *
+     * @param path La ruta del archivo.
+     * @param name El nombre del archivo.
+     * @return Un flujo con las reservas del archivo.
+     * @throws IOException Si el archivo no se puede abrir o no tiene un formato válido.
+     */
+    Stream<Reserva> streamReservas(String path, String name) throws IOException;
 }
 
 
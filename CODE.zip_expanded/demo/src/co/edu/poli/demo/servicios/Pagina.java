@@ -0,0 +1,54 @@
+package co.edu.poli.demo.servicios;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Página de un listado: sus entidades y la consulta para pedir la siguiente.
+ *
+ * @param <T> Tipo de entidad listada.
+ */
+public class Pagina<T> {
+
+    private final List<T> elementos;
+    private final ConsultaPagina siguiente;
+
+    /**
+     * Constructor de la página.
+     *
+     * @param elementos Entidades de la página.
+     * @param siguiente Consulta de la página siguiente, o null si esta es la última.
+     */
+    public Pagina(List<T> elementos, ConsultaPagina siguiente) {
+        this.elementos = Collections.unmodifiableList(elementos);
+        this.siguiente = siguiente;
+    }
+
+    /**
+     * Obtiene las entidades de la página.
+     *
+     * @return Lista de solo lectura con las entidades.
+     */
+    public List<T> getElementos() {
+        return elementos;
+    }
+
+    /**
+     * Obtiene la consulta de la página siguiente, que empieza justo después de la última
+     * entidad de esta.
+     *
+     * @return La consulta, o null si no hay más entidades.
+     */
+    public ConsultaPagina getSiguiente() {
+        return siguiente;
+    }
+
+    public boolean hayMas() {
+        return siguiente != null;
+    }
+
+    @Override
+    public String toString() {
+        return "Pagina [elementos=" + elementos.size() + ", hayMas=" + hayMas() + "]";
+    }
+}
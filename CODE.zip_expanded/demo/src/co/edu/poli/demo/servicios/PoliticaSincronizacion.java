@@ -0,0 +1,110 @@
+package co.edu.poli.demo.servicios;
+
+/**
+ * Política que decide cuándo el registro de escritura fuerza sus datos al disco (fsync).
+ * Cuanto más frecuente es la sincronización, menos operaciones se pierden ante una caída
+ * del sistema y más lenta es cada escritura.
+ */
+public class PoliticaSincronizacion {
+
+    /**
+     * Modos de sincronización disponibles.
+     */
+    public enum Modo {
+        /** Sincroniza después de cada operación. */
+        POR_OPERACION,
+        /** Sincroniza cada cierta cantidad de operaciones. */
+        POR_CANTIDAD,
+        /** Sincroniza como máximo cada cierto intervalo de tiempo. */
+        POR_TIEMPO,
+        /** Deja la escritura al disco en manos del sistema operativo. */
+        SISTEMA_OPERATIVO
+    }
+
+    private final Modo modo;
+    private final int operaciones;
+    private final long intervaloMillis;
+
+    private PoliticaSincronizacion(Modo modo, int operaciones, long intervaloMillis) {
+        this.modo = modo;
+        this.operaciones = operaciones;
+        this.intervaloMillis = intervaloMillis;
+    }
+
+    /**
+     * Crea una política que sincroniza después de cada operación.
+     *
+     * @return La política creada.
+     */
+    public static PoliticaSincronizacion porOperacion() {
+        return new PoliticaSincronizacion(Modo.POR_OPERACION, 1, 0);
+    }
+
+    /**
+     * Crea una política que sincroniza cada cierta cantidad de operaciones.
+     *
+     * @param operaciones Cantidad de operaciones por sincronización.
+     * @return La política creada.
+     * @throws IllegalArgumentException Si la cantidad no es positiva.
+     */
+    public static PoliticaSincronizacion porCantidad(int operaciones) {
+        if (operaciones <= 0) {
+            throw new IllegalArgumentException("La cantidad de operaciones debe ser positiva.");
+        }
+        return new PoliticaSincronizacion(Modo.POR_CANTIDAD, operaciones, 0);
+    }
+
+    /**
+     * Crea una política que sincroniza las operaciones pendientes como máximo cada intervalo.
+     *
+     * @param intervaloMillis Intervalo en milisegundos.
+     * @return La política creada.
+     * @throws IllegalArgumentException Si el intervalo no es positivo.
+     */
+    public static PoliticaSincronizacion porTiempo(long intervaloMillis) {
+        if (intervaloMillis <= 0) {
+            throw new IllegalArgumentException("El intervalo debe ser positivo.");
+        }
+        return new PoliticaSincronizacion(Modo.POR_TIEMPO, 0, intervaloMillis);
+    }
+
+    /**
+     * Crea una política que nunca fuerza la sincronización por su cuenta; solo se sincroniza
+     * en los checkpoints y al cerrar el registro.
+     *
+     * @return La política creada.
+     */
+    public static PoliticaSincronizacion sistemaOperativo() {
+        return new PoliticaSincronizacion(Modo.SISTEMA_OPERATIVO, 0, 0);
+    }
+
+    public Modo getModo() {
+        return modo;
+    }
+
+    public long getIntervaloMillis() {
+        return intervaloMillis;
+    }
+
+    /**
+     * Indica si corresponde sincronizar tras anexar una operación.
+     *
+     * @param pendientes Operaciones anexadas desde la última sincronización.
+     * @return true si se debe forzar la escritura al disco.
+     */
+    public boolean debeSincronizar(int pendientes) {
+        switch (modo) {
+            case POR_OPERACION:
+            case POR_CANTIDAD:
+                return pendientes >= operaciones;
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PoliticaSincronizacion [modo=" + modo + ", operaciones=" + operaciones
+                + ", intervaloMillis=" + intervaloMillis + "]";
+    }
+}
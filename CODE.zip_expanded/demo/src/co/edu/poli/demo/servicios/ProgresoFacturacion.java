@@ -0,0 +1,91 @@
+package co.edu.poli.demo.servicios;
+
+/**
+ * Estado de una {@link CorridaFacturacion} en un momento dado. Es inmutable: la corrida
+ * publica uno nuevo cada vez que termina un tramo, así que puede consultarse desde otro hilo.
+ */
+public class ProgresoFacturacion {
+
+    private final long tramosCompletados;
+    private final long tramosTotales;
+    private final long reservasFacturadas;
+    private final long reservasOmitidas;
+    private final long usuarios;
+    private final long facturasEmitidas;
+    private final long milisegundos;
+    private final boolean terminada;
+
+    /**
+     * Constructor del progreso.
+     *
+     * @param tramosCompletados  Tramos del periodo ya acumulados.
+     * @param tramosTotales      Tramos en que se divide el periodo.
+     * @param reservasFacturadas Reservas acumuladas en alguna factura.
+     * @param reservasOmitidas   Reservas sin usuario, que no se facturan.
+     * @param usuarios           Usuarios con reservas acumuladas.
+     * @param facturasEmitidas   Facturas entregadas al destino.
+     * @param milisegundos       Tiempo de la ejecución actual, sin contar ejecuciones anteriores.
+     * @param terminada          Indica si la corrida emitió todas sus facturas.
+     */
+    public ProgresoFacturacion(long tramosCompletados, long tramosTotales, long reservasFacturadas,
+                               long reservasOmitidas, long usuarios, long facturasEmitidas, long milisegundos,
+                               boolean terminada) {
+        this.tramosCompletados = tramosCompletados;
+        this.tramosTotales = tramosTotales;
+        this.reservasFacturadas = reservasFacturadas;
+        this.reservasOmitidas = reservasOmitidas;
+        this.usuarios = usuarios;
+        this.facturasEmitidas = facturasEmitidas;
+        this.milisegundos = milisegundos;
+        this.terminada = terminada;
+    }
+
+    public long getTramosCompletados() {
+        return tramosCompletados;
+    }
+
+    public long getTramosTotales() {
+        return tramosTotales;
+    }
+
+    public long getReservasFacturadas() {
+        return reservasFacturadas;
+    }
+
+    public long getReservasOmitidas() {
+        return reservasOmitidas;
+    }
+
+    public long getUsuarios() {
+        return usuarios;
+    }
+
+    public long getFacturasEmitidas() {
+        return facturasEmitidas;
+    }
+
+    public long getMilisegundos() {
+        return milisegundos;
+    }
+
+    public boolean isTerminada() {
+        return terminada;
+    }
+
+    /**
+     * Obtiene la fracción del periodo ya acumulada.
+     *
+     * @return Un valor entre 0 y 1.
+     */
+    public double getAvance() {
+        return tramosTotales == 0 ? 1 : (double) tramosCompletados / tramosTotales;
+    }
+
+    @Override
+    public String toString() {
+        return "ProgresoFacturacion [tramos=" + tramosCompletados + "/" + tramosTotales + ", reservasFacturadas="
+                + reservasFacturadas + ", reservasOmitidas=" + reservasOmitidas + ", usuarios=" + usuarios
+                + ", facturasEmitidas=" + facturasEmitidas + ", milisegundos=" + milisegundos + ", terminada="
+                + terminada + "]";
+    }
+}
@@ -0,0 +1,484 @@
+package co.edu.poli.demo.servicios;
+
+import co.edu.poli.demo.modelo.Reserva;
+import co.edu.poli.demo.modelo.ReservaRecurrente;
+import co.edu.poli.demo.modelo.Usuario;
+import co.edu.poli.demo.modelo.Zona;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Registro de escritura anticipada (write-ahead log) de las operaciones sobre usuarios,
+ * zonas, reservas y reservas recurrentes. Cada creación, actualización o eliminación se
+ * anexa al final del archivo como un registro binario compacto antes de aplicarse en
+ * memoria, y la {@link PoliticaSincronizacion} decide cuándo se fuerza al disco.
+ * <p>
+ * Formato de cada registro: longitud del contenido (int), suma CRC32 del contenido (int)
+ * y el contenido, que empieza con el tipo de operación y el tipo de entidad (un byte cada
+ * uno) seguidos de los datos codificados con {@link CodificadorBinario}. Al reproducir el
+ * archivo, un registro incompleto o con suma inválida al final se considera una escritura
+ * interrumpida por una caída y se descarta. Una escritura que falla sin caída se deshace
+ * truncando el archivo; si ni eso se puede, el registro rechaza las escrituras siguientes
+ * hasta el próximo checkpoint.
+ * <p>
+ * Cada vez que se abre o se trunca el archivo se anexa un registro {@link #FORMATO} con la
+ * versión de {@link CodificadorBinario} de los registros siguientes. Los registros anteriores
+ * al primer {@code FORMATO} son de la versión 1.
+ * <p>
+ * Los métodos de escritura son sincronizados, así que varios hilos pueden anexar a la vez.
+ */
+public class RegistroEscritura implements Closeable {
+
+    /**
+     * Tipos de operación.
+     */
+    public static final byte CREAR = 1;
+    public static final byte ACTUALIZAR = 2;
+    public static final byte ELIMINAR = 3;
+
+    /**
+     * Marca de versión: en lugar del tipo de entidad lleva la versión de la codificación de
+     * los registros que la siguen. No cuenta como operación.
+     */
+    public static final byte FORMATO = 4;
+
+    /**
+     * Tipos de entidad.
+     */
+    public static final byte USUARIO = 1;
+    public static final byte ZONA = 2;
+    public static final byte RESERVA = 3;
+    public static final byte RECURRENCIA = 4;
+
+    /**
+     * Tamaño de la cabecera de cada registro: longitud y suma de verificación.
+     */
+    private static final int CABECERA = 8;
+
+    /**
+     * Longitud máxima aceptada para el contenido de un registro al reproducir; una longitud
+     * mayor indica un archivo dañado.
+     */
+    private static final int LONGITUD_MAXIMA = 64 * 1024 * 1024;
+
+    /**
+     * Receptor de los registros leídos al reproducir un archivo.
+     */
+    public interface Lector {
+        /**
+         * Aplica un registro leído.
+         *
+         * @param operacion Tipo de operación.
+         * @param entidad   Tipo de entidad.
+         * @param version   Versión de la codificación de los datos.
+         * @param datos     Datos del registro, posicionados después de los tipos.
+         * @throws IOException Si los datos no se pueden interpretar.
+         */
+        void aplicar(byte operacion, byte entidad, int version, ByteBuffer datos) throws IOException;
+    }
+
+    private final FileChannel canal;
+    private final PoliticaSincronizacion politica;
+    private final CodificadorBinario codificador;
+    private final ByteBuffer cabecera;
+    private final CRC32 crc;
+    private final ScheduledExecutorService temporizador;
+
+    /**
+     * Operaciones anexadas desde la última sincronización.
+     */
+    private int pendientes;
+
+    /**
+     * Operaciones anexadas desde que el archivo se truncó por última vez.
+     */
+    private long operaciones;
+
+    /**
+     * Hilo que tiene abierto un lote, o null. Sus operaciones se sincronizan juntas al
+     * cerrar el lote; las de otros hilos siguen la política normal.
+     */
+    private Thread duenoLote;
+
+    /**
+     * Fallo ocurrido fuera de una escritura (una sincronización por tiempo o un checkpoint
+     * automático), o null. Lo lanza la siguiente operación que se anexa o sincroniza, para que
+     * quien escribe se entere en lugar de perderse en segundo plano.
+     */
+    private IOException falloPendiente;
+
+    /**
+     * Fallo de una escritura que dejó parte de un registro en el archivo y no se pudo
+     * deshacer truncando, o null. Mientras esté puesto se rechazan las escrituras: lo anexado
+     * después del registro cortado se perdería al reproducir. Un {@link #truncar()} lo limpia.
+     */
+    private IOException falloEscritura;
+
+    /**
+     * Abre (o crea) un registro, posiciona la escritura al final del archivo y anexa la
+     * marca de la versión actual.
+     *
+     * @param archivo  Ruta del archivo del registro.
+     * @param politica Política de sincronización con el disco.
+     * @throws IOException Si el archivo no se puede abrir.
+     */
+    public RegistroEscritura(Path archivo, PoliticaSincronizacion politica) throws IOException {
+        this.canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        this.canal.position(canal.size());
+        this.politica = politica;
+        this.codificador = new CodificadorBinario();
+        this.cabecera = ByteBuffer.allocate(CABECERA);
+        this.crc = new CRC32();
+        anexarFormato();
+        if (politica.getModo() == PoliticaSincronizacion.Modo.POR_TIEMPO) {
+            this.temporizador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+                Thread hilo = new Thread(tarea, "sincronizacion-registro");
+                hilo.setDaemon(true);
+                return hilo;
+            });
+            long intervalo = politica.getIntervaloMillis();
+            temporizador.scheduleWithFixedDelay(this::sincronizarSilencioso, intervalo, intervalo, TimeUnit.MILLISECONDS);
+        } else {
+            this.temporizador = null;
+        }
+    }
+
+    public synchronized void anexarCreacion(Usuario usuario) throws IOException {
+        iniciar(CREAR, USUARIO);
+        codificador.escribirUsuario(usuario);
+        anexar();
+    }
+
+    public synchronized void anexarCreacion(Zona zona) throws IOException {
+        iniciar(CREAR, ZONA);
+        codificador.escribirZona(zona);
+        anexar();
+    }
+
+    public synchronized void anexarCreacion(Reserva reserva) throws IOException {
+        iniciar(CREAR, RESERVA);
+        codificador.escribirReserva(reserva);
+        anexar();
+    }
+
+    public synchronized void anexarCreacion(ReservaRecurrente regla) throws IOException {
+        iniciar(CREAR, RECURRENCIA);
+        codificador.escribirRecurrencia(regla);
+        anexar();
+    }
+
+    public synchronized void anexarActualizacion(String idAnterior, Usuario usuario) throws IOException {
+        iniciar(ACTUALIZAR, USUARIO);
+        codificador.escribirCadena(idAnterior);
+        codificador.escribirUsuario(usuario);
+        anexar();
+    }
+
+    public synchronized void anexarActualizacion(String idAnterior, Zona zona) throws IOException {
+        iniciar(ACTUALIZAR, ZONA);
+        codificador.escribirCadena(idAnterior);
+        codificador.escribirZona(zona);
+        anexar();
+    }
+
+    public synchronized void anexarActualizacion(String idAnterior, Reserva reserva) throws IOException {
+        iniciar(ACTUALIZAR, RESERVA);
+        codificador.escribirCadena(idAnterior);
+        codificador.escribirReserva(reserva);
+        anexar();
+    }
+
+    public synchronized void anexarActualizacion(String idAnterior, ReservaRecurrente regla) throws IOException {
+        iniciar(ACTUALIZAR, RECURRENCIA);
+        codificador.escribirCadena(idAnterior);
+        codificador.escribirRecurrencia(regla);
+        anexar();
+    }
+
+    public synchronized void anexarEliminacion(byte entidad, String id) throws IOException {
+        iniciar(ELIMINAR, entidad);
+        codificador.escribirCadena(id);
+        anexar();
+    }
+
+    /**
+     * Fuerza al disco las operaciones anexadas que aún no se han sincronizado.
+     *
+     * @throws IOException Si falla la escritura al disco.
+     */
+    public synchronized void sincronizar() throws IOException {
+        lanzarFalloPendiente();
+        forzar();
+    }
+
+    /**
+     * Guarda un fallo ocurrido en segundo plano para que lo lance la siguiente operación que
+     * se anexe o sincronice. Si ya había uno pendiente se conserva el primero.
+     *
+     * @param fallo El fallo ocurrido.
+     */
+    public synchronized void diferirFallo(IOException fallo) {
+        if (falloPendiente == null) {
+            falloPendiente = fallo;
+        }
+    }
+
+    /**
+     * Abre un lote para el hilo actual: sus operaciones no se sincronizan una por una, sino
+     * todas juntas en {@link #terminarLote()}. Solo puede haber un lote abierto a la vez.
+     *
+     * @return true si se abrió el lote, false si otro ya estaba abierto; en ese caso las
+     *         operaciones siguen la política normal.
+     */
+    public synchronized boolean iniciarLote() {
+        if (duenoLote != null) {
+            return false;
+        }
+        duenoLote = Thread.currentThread();
+        return true;
+    }
+
+    /**
+     * Cierra el lote del hilo actual y sincroniza sus operaciones si la política lo pide.
+     *
+     * @throws IOException Si falla la escritura al disco.
+     */
+    public synchronized void terminarLote() throws IOException {
+        if (duenoLote != Thread.currentThread()) {
+            return;
+        }
+        duenoLote = null;
+        if (politica.debeSincronizar(pendientes)) {
+            sincronizar();
+        }
+    }
+
+    /**
+     * Vacía el registro después de un checkpoint que ya contiene todas sus operaciones.
+     *
+     * @throws IOException Si el archivo no se puede truncar.
+     */
+    public synchronized void truncar() throws IOException {
+        canal.truncate(0);
+        canal.position(0);
+        falloEscritura = null;
+        anexarFormato();
+        canal.force(true);
+        pendientes = 0;
+        operaciones = 0;
+    }
+
+    /**
+     * Obtiene la cantidad de operaciones anexadas desde el último truncado.
+     *
+     * @return El número de operaciones en el archivo.
+     */
+    public synchronized long getOperaciones() {
+        return operaciones;
+    }
+
+    /**
+     * Cierra el registro forzando al disco lo pendiente, sea cual sea la política.
+     *
+     * @throws IOException Si falla la sincronización o el cierre, o si quedó un fallo
+     *                     diferido sin reportar.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (temporizador != null) {
+            temporizador.shutdownNow();
+        }
+        if (canal.isOpen()) {
+            try {
+                forzar();
+            } finally {
+                canal.close();
+            }
+        }
+        lanzarFalloPendiente();
+    }
+
+    private void iniciar(byte operacion, byte entidad) {
+        codificador.reiniciar();
+        codificador.escribirByte(operacion);
+        codificador.escribirByte(entidad);
+    }
+
+    private void anexar() throws IOException {
+        lanzarFalloPendiente();
+        escribir();
+        pendientes++;
+        operaciones++;
+        if (duenoLote != Thread.currentThread() && politica.debeSincronizar(pendientes)) {
+            sincronizar();
+        }
+    }
+
+    /**
+     * Anexa la marca de versión, que se sincroniza junto con la siguiente operación.
+     */
+    private void anexarFormato() throws IOException {
+        iniciar(FORMATO, (byte) CodificadorBinario.VERSION);
+        escribir();
+    }
+
+    /**
+     * Escribe el registro armado en el codificador. Si la escritura falla a medias, por
+     * ejemplo con el disco lleno, el archivo se trunca a donde estaba para que las siguientes
+     * no queden detrás de un registro cortado, que al reproducir las descartaría.
+     */
+    private void escribir() throws IOException {
+        if (falloEscritura != null) {
+            throw new IOException("el registro quedó con una escritura incompleta que no se pudo deshacer: "
+                    + falloEscritura.getMessage(), falloEscritura);
+        }
+        ByteBuffer contenido = codificador.contenido();
+        crc.reset();
+        crc.update(contenido.duplicate());
+        cabecera.clear();
+        cabecera.putInt(contenido.remaining());
+        cabecera.putInt((int) crc.getValue());
+        cabecera.flip();
+        ByteBuffer[] partes = {cabecera, contenido};
+        long inicio = canal.position();
+        try {
+            while (contenido.hasRemaining()) {
+                canal.write(partes);
+            }
+        } catch (IOException e) {
+            try {
+                canal.truncate(inicio);
+                canal.position(inicio);
+            } catch (IOException deshacer) {
+                e.addSuppressed(deshacer);
+                falloEscritura = e;
+            }
+            throw e;
+        }
+    }
+
+    private void forzar() throws IOException {
+        if (pendientes > 0) {
+            canal.force(false);
+            pendientes = 0;
+        }
+    }
+
+    private void lanzarFalloPendiente() throws IOException {
+        IOException fallo = falloPendiente;
+        if (fallo != null) {
+            falloPendiente = null;
+            throw fallo;
+        }
+    }
+
+    /**
+     * Sincronización periódica de {@link PoliticaSincronizacion.Modo#POR_TIEMPO}. Si falla, las
+     * operaciones siguen pendientes para el próximo intento y el fallo se difiere a la
+     * siguiente escritura.
+     */
+    private synchronized void sincronizarSilencioso() {
+        try {
+            if (canal.isOpen()) {
+                forzar();
+            }
+        } catch (IOException e) {
+            diferirFallo(new IOException("falló la sincronización periódica: " + e.getMessage(), e));
+        }
+    }
+
+    /**
+     * Lee un archivo de registro desde el principio y entrega cada operación válida al lector
+     * con la versión de su codificación. Si al final hay un registro incompleto o dañado, el
+     * archivo se trunca hasta el último registro válido.
+     *
+     * @param archivo Ruta del archivo a reproducir. Si no existe no se lee nada.
+     * @param lector  Receptor de los registros.
+     * @return La cantidad de operaciones válidas leídas, sin contar las marcas de versión.
+     * @throws IOException Si el archivo no se puede leer o el lector falla.
+     */
+    public static long reproducir(Path archivo, Lector lector) throws IOException {
+        if (!Files.exists(archivo)) {
+            return 0;
+        }
+        long leidos = 0;
+        long posicionValida = 0;
+        int version = 1;
+        CRC32 suma = new CRC32();
+        ByteBuffer lectura = ByteBuffer.allocate(64 * 1024);
+        lectura.flip();
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            while (true) {
+                lectura = llenar(canal, lectura, CABECERA);
+                if (lectura.remaining() < CABECERA) {
+                    break;
+                }
+                int longitud = lectura.getInt(lectura.position());
+                int esperada = lectura.getInt(lectura.position() + 4);
+                if (longitud < 2 || longitud > LONGITUD_MAXIMA) {
+                    break;
+                }
+                lectura = llenar(canal, lectura, CABECERA + longitud);
+                if (lectura.remaining() < CABECERA + longitud) {
+                    break;
+                }
+                ByteBuffer datos = lectura.duplicate();
+                datos.position(lectura.position() + CABECERA);
+                datos.limit(datos.position() + longitud);
+                suma.reset();
+                suma.update(datos.duplicate());
+                if ((int) suma.getValue() != esperada) {
+                    break;
+                }
+                lectura.position(lectura.position() + CABECERA + longitud);
+                byte operacion = datos.get();
+                byte entidad = datos.get();
+                if (operacion == FORMATO) {
+                    version = entidad;
+                } else {
+                    lector.aplicar(operacion, entidad, version, datos.slice());
+                    leidos++;
+                }
+                posicionValida += CABECERA + longitud;
+            }
+            if (posicionValida < canal.size()) {
+                canal.truncate(posicionValida);
+            }
+        }
+        return leidos;
+    }
+
+    /**
+     * Garantiza que el búfer de lectura tenga al menos la cantidad de bytes indicada,
+     * leyendo más del canal y creciendo si hace falta. Devuelve el búfer en modo lectura;
+     * si el archivo se acaba puede tener menos bytes de los pedidos.
+     */
+    private static ByteBuffer llenar(FileChannel canal, ByteBuffer lectura, int necesarios) throws IOException {
+        if (lectura.remaining() >= necesarios) {
+            return lectura;
+        }
+        if (lectura.capacity() < necesarios) {
+            ByteBuffer mayor = ByteBuffer.allocate(Math.max(necesarios, lectura.capacity() * 2));
+            mayor.put(lectura);
+            lectura = mayor;
+        } else {
+            lectura.compact();
+        }
+        while (lectura.position() < necesarios) {
+            if (canal.read(lectura) < 0) {
+                break;
+            }
+        }
+        lectura.flip();
+        return lectura;
+    }
+}
@@ -0,0 +1,110 @@
+package co.edu.poli.demo.servicios;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Resultado de una operación por lotes: cuántas filas se procesaron, cuántas se crearon
+ * y el error de cada fila rechazada. Reemplaza a los mensajes que devuelve cada llamada
+ * individual a {@link Operacion}.
+ */
+public class ReporteLote {
+
+    private long procesadas;
+    private long creadas;
+    private final List<ErrorFila> errores;
+
+    /**
+     * Constructor que crea un reporte vacío.
+     */
+    public ReporteLote() {
+        this.errores = new ArrayList<>();
+    }
+
+    /**
+     * Registra el resultado de una fila.
+     *
+     * @param fila  Número de la fila, empezando en 1.
+     * @param error Mensaje de error, o null si la fila se creó.
+     */
+    public void registrar(long fila, String error) {
+        procesadas++;
+        if (error == null) {
+            creadas++;
+        } else {
+            errores.add(new ErrorFila(fila, error));
+        }
+    }
+
+    /**
+     * Agrega los resultados de otro reporte cuyas filas se numeraron por posición en un
+     * lote, traduciéndolas a los números de fila dados.
+     *
+     * @param otro  Reporte a agregar.
+     * @param filas Número de fila que corresponde a cada posición del otro reporte.
+     */
+    public void combinar(ReporteLote otro, long[] filas) {
+        procesadas += otro.procesadas;
+        creadas += otro.creadas;
+        for (ErrorFila error : otro.errores) {
+            errores.add(new ErrorFila(filas[(int) error.fila - 1], error.mensaje));
+        }
+    }
+
+    /**
+     * Ordena los errores por número de fila.
+     */
+    public void ordenarErrores() {
+        errores.sort(Comparator.comparingLong(ErrorFila::getFila));
+    }
+
+    public long getProcesadas() {
+        return procesadas;
+    }
+
+    public long getCreadas() {
+        return creadas;
+    }
+
+    /**
+     * Obtiene los errores en el orden en que se registraron.
+     *
+     * @return Lista de solo lectura con los errores.
+     */
+    public List<ErrorFila> getErrores() {
+        return Collections.unmodifiableList(errores);
+    }
+
+    @Override
+    public String toString() {
+        return "ReporteLote [procesadas=" + procesadas + ", creadas=" + creadas + ", errores=" + errores.size() + "]";
+    }
+
+    /**
+     * Error de una fila del lote.
+     */
+    public static final class ErrorFila {
+        private final long fila;
+        private final String mensaje;
+
+        public ErrorFila(long fila, String mensaje) {
+            this.fila = fila;
+            this.mensaje = mensaje;
+        }
+
+        public long getFila() {
+            return fila;
+        }
+
+        public String getMensaje() {
+            return mensaje;
+        }
+
+        @Override
+        public String toString() {
+            return "Fila " + fila + ": " + mensaje;
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package co.edu.poli.demo.servicios;
+
+import co.edu.poli.demo.modelo.Reserva;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Retenciones de reservas: mientras un cliente completa una reserva, el rango de la zona
+ * queda apartado durante un plazo fijo. La retención se confirma, y entonces la reserva se
+ * crea en el almacén, o vence sola al terminar el plazo y el rango vuelve a quedar libre.
+ * A diferencia de {@link Reserva#realizarReserva()}, la zona no se marca como no disponible.
+ * <p>
+ * Los plazos se llevan en una {@link RuedaTemporizadores} que avanza un solo hilo, así que
+ * puede haber cientos de miles de retenciones pendientes sin un hilo ni una tarea por cada
+ * una. Ese hilo se inicia con {@link #iniciar()}; sin él, los vencimientos se procesan al
+ * llamar a {@link #avanzar()}.
+ * <p>
+ * Una retención no puede solaparse con otra pendiente de la misma zona ni con una reserva
+ * ya registrada. Las retenciones solo coordinan las reservas que pasan por este servicio:
+ * una reserva creada directamente en el almacén sobre un rango retenido hace que la
+ * confirmación falle con el mismo error de solapamiento del almacén. Las retenciones viven
+ * solo en memoria y no pasan por el registro de escritura.
+ */
+public class ReservasTentativas implements AutoCloseable {
+
+    /**
+     * Duración predeterminada de un tick de la rueda de temporizadores.
+     */
+    public static final Duration TICK_PREDETERMINADO = Duration.ofMillis(100);
+
+    private final Operacion operacion;
+    private final Duration plazo;
+    private final Duration tick;
+    private final Clock reloj;
+    private final RuedaTemporizadores<Retencion> rueda;
+
+    /**
+     * Retenciones pendientes, por identificador de reserva.
+     */
+    private final ConcurrentHashMap<String, Retencion> porReserva;
+
+    /**
+     * Retenciones pendientes de cada zona, por identificador de zona y ordenadas por inicio;
+     * como no se solapan, el inicio las identifica. Los mapas de cada zona solo se leen y
+     * modifican dentro de {@code compute} sobre su zona.
+     */
+    private final ConcurrentHashMap<String, TreeMap<LocalDateTime, Retencion>> porZona;
+
+    private volatile Consumer<Reserva> escucha;
+    private ScheduledExecutorService temporizador;
+
+    /**
+     * Constructor con el reloj del sistema y el tick predeterminado.
+     *
+     * @param operacion Almacén donde se crean las reservas confirmadas.
+     * @param plazo     Tiempo que dura una retención sin confirmar.
+     */
+    public ReservasTentativas(Operacion operacion, Duration plazo) {
+        this(operacion, plazo, Clock.systemDefaultZone(), TICK_PREDETERMINADO);
+    }
+
+    /**
+     * Constructor completo.
+     *
+     * @param operacion Almacén donde se crean las reservas confirmadas.
+     * @param plazo     Tiempo que dura una retención sin confirmar.
+     * @param reloj     Reloj con el que se miden los plazos.
+     * @param tick      Precisión de los vencimientos: una retención vence como mucho un tick
+     *                  después de su plazo.
+     */
+    public ReservasTentativas(Operacion operacion, Duration plazo, Clock reloj, Duration tick) {
+        if (plazo.isNegative() || plazo.isZero()) {
+            throw new IllegalArgumentException("El plazo de las retenciones debe ser positivo.");
+        }
+        this.operacion = operacion;
+        this.plazo = plazo;
+        this.tick = tick;
+        this.reloj = reloj;
+        this.rueda = new RuedaTemporizadores<>(tick.toMillis(), reloj.millis());
+        this.porReserva = new ConcurrentHashMap<>();
+        this.porZona = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Establece el receptor de las reservas cuya retención venció sin confirmarse.
+     *
+     * @param escucha Receptor de los vencimientos, o null para ninguno.
+     */
+    public void setEscucha(Consumer<Reserva> escucha) {
+        this.escucha = escucha;
+    }
+
+    /**
+     * Inicia el hilo que procesa los vencimientos una vez por tick.
+     */
+    public synchronized void iniciar() {
+        if (temporizador != null) {
+            return;
+        }
+        temporizador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "vencimiento-retenciones");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        long intervalo = tick.toMillis();
+        temporizador.scheduleWithFixedDelay(this::avanzar, intervalo, intervalo, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Detiene el hilo de vencimientos. Las retenciones pendientes se conservan.
+     */
+    @Override
+    public synchronized void close() {
+        if (temporizador != null) {
+            temporizador.shutdownNow();
+            temporizador = null;
+        }
+    }
+
+    /**
+     * Retiene el rango de una reserva durante el plazo configurado.
+     *
+     * @param reserva La reserva a retener.
+     * @return Un mensaje indicando el éxito o fallo de la operación.
+     */
+    public String retener(Reserva reserva) {
+        String idReserva = reserva.getIdReserva();
+        if (idReserva == null) {
+            return "Error: la reserva no tiene identificador.";
+        }
+        if (reserva.getZona() == null || reserva.getZona().getIdZona() == null) {
+            return "Error: la reserva no tiene zona.";
+        }
+        if (!reserva.getFechaFin().isAfter(reserva.getFechaInicio())) {
+            return "Error: la fecha de fin debe ser posterior a la fecha de inicio.";
+        }
+        if (porReserva.containsKey(idReserva) || operacion.readReserva(idReserva) != null) {
+            return "Error: ya existe una reserva con el id " + idReserva + ".";
+        }
+        Retencion retencion = new Retencion(reserva);
+        String[] error = new String[1];
+        porZona.compute(retencion.idZona, (idZona, mapa) -> {
+            TreeMap<LocalDateTime, Retencion> retenciones = mapa == null ? new TreeMap<>() : mapa;
+            Retencion otra = solapada(retenciones, retencion);
+            if (otra != null) {
+                error[0] = "La zona ya está retenida para esas fechas por la reserva " + otra.idReserva + ".";
+            } else if (!operacion.verificarDisponibilidad(idZona, retencion.inicio, retencion.fin)) {
+                error[0] = "La zona no está disponible para las fechas solicitadas.";
+            } else if (porReserva.putIfAbsent(idReserva, retencion) != null) {
+                error[0] = "Error: ya existe una reserva con el id " + idReserva + ".";
+            } else {
+                retenciones.put(retencion.inicio, retencion);
+            }
+            return retenciones.isEmpty() ? null : retenciones;
+        });
+        if (error[0] != null) {
+            return error[0];
+        }
+        retencion.temporizador = rueda.programar(retencion, reloj.millis() + plazo.toMillis());
+        return "Reserva retenida hasta " + LocalDateTime.now(reloj).plus(plazo).withNano(0) + ".";
+    }
+
+    /**
+     * Confirma una retención pendiente y crea la reserva en el almacén.
+     *
+     * @param idReserva Identificador de la reserva retenida.
+     * @return El mensaje del almacén al crear la reserva, o un mensaje de error si la
+     *         retención no existe o ya venció.
+     */
+    public String confirmar(String idReserva) {
+        Retencion retencion = idReserva == null ? null : porReserva.get(idReserva);
+        if (retencion == null || !retencion.tomar()) {
+            return "Error: no hay una retención pendiente para la reserva " + idReserva + ".";
+        }
+        // La retención sigue apartando el rango hasta que la reserva queda registrada.
+        String resultado = operacion.createReserva(retencion.reserva);
+        quitar(retencion);
+        return resultado;
+    }
+
+    /**
+     * Libera una retención pendiente sin crear la reserva.
+     *
+     * @param idReserva Identificador de la reserva retenida.
+     * @return La reserva liberada, o null si no había una retención pendiente.
+     */
+    public Reserva liberar(String idReserva) {
+        Retencion retencion = idReserva == null ? null : porReserva.get(idReserva);
+        if (retencion == null || !retencion.tomar()) {
+            return null;
+        }
+        quitar(retencion);
+        return retencion.reserva;
+    }
+
+    /**
+     * Procesa las retenciones cuyo plazo ya terminó: libera sus rangos y las entrega al
+     * receptor de vencimientos.
+     *
+     * @return La cantidad de retenciones vencidas.
+     */
+    public int avanzar() {
+        List<Retencion> vencidas = rueda.avanzar(reloj.millis());
+        Consumer<Reserva> receptor = escucha;
+        for (Retencion retencion : vencidas) {
+            quitar(retencion);
+            if (receptor != null) {
+                receptor.accept(retencion.reserva);
+            }
+        }
+        return vencidas.size();
+    }
+
+    /**
+     * Indica si una reserva tiene una retención pendiente.
+     *
+     * @param idReserva Identificador de la reserva.
+     * @return true si está retenida.
+     */
+    public boolean estaRetenida(String idReserva) {
+        Retencion retencion = idReserva == null ? null : porReserva.get(idReserva);
+        return retencion != null && retencion.isPendiente();
+    }
+
+    /**
+     * Obtiene la cantidad de retenciones pendientes.
+     *
+     * @return Retenciones pendientes.
+     */
+    public int contarPendientes() {
+        return porReserva.size();
+    }
+
+    /**
+     * Busca una retención de la zona que se cruce con la dada. Solo pueden cruzarse la última
+     * que empieza antes de su inicio y la primera que empieza desde él.
+     */
+    private static Retencion solapada(TreeMap<LocalDateTime, Retencion> retenciones, Retencion retencion) {
+        Map.Entry<LocalDateTime, Retencion> anterior = retenciones.floorEntry(retencion.inicio);
+        if (anterior != null && anterior.getValue().seCruzaCon(retencion)) {
+            return anterior.getValue();
+        }
+        Map.Entry<LocalDateTime, Retencion> siguiente = retenciones.higherEntry(retencion.inicio);
+        return siguiente != null && siguiente.getValue().seCruzaCon(retencion) ? siguiente.getValue() : null;
+    }
+
+    private void quitar(Retencion retencion) {
+        porReserva.remove(retencion.idReserva, retencion);
+        porZona.computeIfPresent(retencion.idZona, (idZona, retenciones) -> {
+            retenciones.remove(retencion.inicio, retencion);
+            return retenciones.isEmpty() ? null : retenciones;
+        });
+    }
+
+    /**
+     * Reserva retenida, con su rango copiado al retenerla.
+     */
+    private static final class Retencion {
+        private final Reserva reserva;
+        private final String idReserva;
+        private final String idZona;
+        private final LocalDateTime inicio;
+        private final LocalDateTime fin;
+
+        /**
+         * Temporizador del plazo. Se asigna justo después de registrar la retención; hasta
+         * entonces nadie puede confirmarla ni liberarla.
+         */
+        private volatile RuedaTemporizadores.Temporizador<Retencion> temporizador;
+
+        private Retencion(Reserva reserva) {
+            this.reserva = reserva;
+            this.idReserva = reserva.getIdReserva();
+            this.idZona = reserva.getZona().getIdZona();
+            this.inicio = reserva.getFechaInicio();
+            this.fin = reserva.getFechaFin();
+        }
+
+        private boolean seCruzaCon(Retencion otra) {
+            return inicio.isBefore(otra.fin) && otra.inicio.isBefore(fin);
+        }
+
+        /**
+         * Cancela el plazo para confirmar o liberar la retención. Si el plazo ya venció, o
+         * otro hilo la tomó antes, no tiene efecto.
+         */
+        private boolean tomar() {
+            RuedaTemporizadores.Temporizador<Retencion> actual = temporizador;
+            return actual != null && actual.cancelar();
+        }
+
+        private boolean isPendiente() {
+            RuedaTemporizadores.Temporizador<Retencion> actual = temporizador;
+            return actual != null && actual.isPendiente();
+        }
+    }
+}
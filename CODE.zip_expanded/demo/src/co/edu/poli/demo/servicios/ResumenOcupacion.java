@@ -0,0 +1,94 @@
+package co.edu.poli.demo.servicios;
+
+import co.edu.poli.demo.modelo.Dinero;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Ingresos y ocupación acumulados de un conjunto de zonas en un rango de días, tal como
+ * los mantiene {@link IndiceAcumulados}. Los ingresos se separan por moneda, porque una
+ * zona puede tener tarifa en moneda extranjera.
+ */
+public class ResumenOcupacion {
+
+    private final long reservas;
+    private final long segundos;
+    private final Map<Currency, Long> ingresos;
+
+    /**
+     * Constructor del resumen.
+     *
+     * @param reservas Reservas que empiezan en el rango.
+     * @param segundos Tiempo reservado dentro del rango, en segundos.
+     * @param ingresos Unidades menores de los costos de las reservas, por moneda.
+     */
+    public ResumenOcupacion(long reservas, long segundos, Map<Currency, Long> ingresos) {
+        this.reservas = reservas;
+        this.segundos = segundos;
+        this.ingresos = Collections.unmodifiableMap(new LinkedHashMap<>(ingresos));
+    }
+
+    public long getReservas() {
+        return reservas;
+    }
+
+    public long getSegundos() {
+        return segundos;
+    }
+
+    /**
+     * Obtiene el tiempo reservado en horas.
+     *
+     * @return Las horas reservadas, con fracción.
+     */
+    public double getHoras() {
+        return segundos / 3600.0;
+    }
+
+    /**
+     * Obtiene los ingresos en moneda local.
+     *
+     * @return La suma exacta de los costos en moneda local.
+     */
+    public Dinero getIngresos() {
+        return getIngresos(Dinero.MONEDA_LOCAL);
+    }
+
+    /**
+     * Obtiene los ingresos en una moneda.
+     *
+     * @param moneda La moneda.
+     * @return La suma exacta de los costos en esa moneda, o cero si no hay ninguno.
+     */
+    public Dinero getIngresos(Currency moneda) {
+        return Dinero.deUnidades(ingresos.getOrDefault(moneda, 0L), moneda);
+    }
+
+    /**
+     * Obtiene las monedas con ingresos distintos de cero.
+     *
+     * @return Conjunto no modificable de monedas.
+     */
+    public Set<Currency> getMonedas() {
+        return ingresos.keySet();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder texto = new StringBuilder("ResumenOcupacion [reservas=").append(reservas)
+                .append(", horas=").append(getHoras()).append(", ingresos=");
+        if (ingresos.isEmpty()) {
+            texto.append(getIngresos());
+        } else {
+            String separador = "";
+            for (Currency moneda : ingresos.keySet()) {
+                texto.append(separador).append(getIngresos(moneda));
+                separador = " + ";
+            }
+        }
+        return texto.append("]").toString();
+    }
+}
@@ -0,0 +1,229 @@
+package co.edu.poli.demo.servicios;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Rueda jerárquica de temporizadores: programa y vence cientos de miles de plazos sin un
+ * hilo ni una tarea programada por cada uno. El tiempo avanza en ticks de duración fija y la
+ * rueda tiene cuatro niveles de 256 ranuras; el nivel {@code n} agrupa los plazos que vencen
+ * dentro de 256<sup>n+1</sup> ticks. Cuando un nivel da la vuelta, los temporizadores de la
+ * ranura siguiente del nivel superior bajan a niveles inferiores, hasta llegar a la ranura
+ * exacta de su tick en el nivel cero.
+ * <p>
+ * Programar un temporizador y avanzar un tick cuestan tiempo constante, salvo por los
+ * temporizadores que vencen o bajan de nivel en ese tick. Cancelar no toma el cerrojo de la
+ * rueda: solo marca el temporizador, que se descarta cuando su ranura se recorre. Un
+ * temporizador vence una sola vez, y si se cancela a la vez que vence, solo una de las dos
+ * operaciones tiene éxito.
+ * <p>
+ * Los plazos se redondean hacia arriba al tick siguiente, así que un temporizador vence como
+ * mucho un tick después de su plazo, nunca antes. Los plazos más allá del último nivel se
+ * guardan en él y se vuelven a colocar al bajar.
+ *
+ * @param <T> Tipo del valor asociado a cada temporizador.
+ */
+public class RuedaTemporizadores<T> {
+
+    private static final int BITS_POR_NIVEL = 8;
+    private static final int NIVELES = 4;
+
+    /**
+     * Estados de un temporizador.
+     */
+    private static final int PENDIENTE = 0;
+    private static final int CANCELADO = 1;
+    private static final int VENCIDO = 2;
+
+    private final long milisPorTick;
+
+    /**
+     * Ranuras de cada nivel, siempre una potencia de dos, y la máscara del índice de ranura.
+     */
+    private final int bitsPorNivel;
+    private final int ranurasPorNivel;
+    private final int mascara;
+
+    /**
+     * Primer temporizador de cada ranura, por nivel; los demás se enlazan desde él.
+     */
+    private final Temporizador<T>[][] ranuras;
+
+    /**
+     * Último tick procesado.
+     */
+    private long tickActual;
+
+    /**
+     * Temporizadores guardados en las ranuras, incluidos los cancelados aún no descartados.
+     */
+    private int guardados;
+
+    /**
+     * Constructor de la rueda.
+     *
+     * @param milisPorTick Duración de un tick en milisegundos.
+     * @param ahoraMillis  Instante actual en milisegundos.
+     */
+    public RuedaTemporizadores(long milisPorTick, long ahoraMillis) {
+        this(milisPorTick, ahoraMillis, BITS_POR_NIVEL);
+    }
+
+    /**
+     * Constructor con menos ranuras por nivel, para que las pruebas recorran las vueltas de
+     * todos los niveles y los plazos más allá del último sin avanzar miles de millones de
+     * ticks.
+     *
+     * @param bitsPorNivel Logaritmo en base dos de las ranuras de cada nivel.
+     */
+    @SuppressWarnings("unchecked")
+    RuedaTemporizadores(long milisPorTick, long ahoraMillis, int bitsPorNivel) {
+        if (milisPorTick <= 0) {
+            throw new IllegalArgumentException("La duración del tick debe ser positiva.");
+        }
+        this.milisPorTick = milisPorTick;
+        this.bitsPorNivel = bitsPorNivel;
+        this.ranurasPorNivel = 1 << bitsPorNivel;
+        this.mascara = ranurasPorNivel - 1;
+        this.ranuras = (Temporizador<T>[][]) new Temporizador<?>[NIVELES][ranurasPorNivel];
+        this.tickActual = Math.floorDiv(ahoraMillis, milisPorTick);
+    }
+
+    /**
+     * Programa un temporizador.
+     *
+     * @param valor             Valor que se devuelve al vencer.
+     * @param vencimientoMillis Instante del plazo en milisegundos.
+     * @return El temporizador, con el que puede cancelarse.
+     */
+    public synchronized Temporizador<T> programar(T valor, long vencimientoMillis) {
+        long tick = Math.max(tickActual + 1, -Math.floorDiv(-vencimientoMillis, milisPorTick));
+        Temporizador<T> temporizador = new Temporizador<>(valor, tick);
+        colocar(temporizador);
+        guardados++;
+        return temporizador;
+    }
+
+    /**
+     * Avanza la rueda hasta un instante y vence los temporizadores cuyo plazo ya pasó.
+     *
+     * @param ahoraMillis Instante actual en milisegundos.
+     * @return Los valores de los temporizadores vencidos, en orden de vencimiento.
+     */
+    public synchronized List<T> avanzar(long ahoraMillis) {
+        List<T> vencidos = new ArrayList<>();
+        long destino = Math.floorDiv(ahoraMillis, milisPorTick);
+        while (tickActual < destino) {
+            tickActual++;
+            int indice = (int) (tickActual & mascara);
+            if (indice == 0) {
+                for (int nivel = 1; nivel < NIVELES; nivel++) {
+                    int ranura = (int) ((tickActual >>> (bitsPorNivel * nivel)) & mascara);
+                    bajar(nivel, ranura);
+                    if (ranura != 0) {
+                        break;
+                    }
+                }
+            }
+            Temporizador<T> temporizador = ranuras[0][indice];
+            ranuras[0][indice] = null;
+            while (temporizador != null) {
+                Temporizador<T> siguiente = temporizador.siguiente;
+                temporizador.siguiente = null;
+                guardados--;
+                if (temporizador.estado.compareAndSet(PENDIENTE, VENCIDO)) {
+                    vencidos.add(temporizador.valor);
+                }
+                temporizador = siguiente;
+            }
+        }
+        return vencidos;
+    }
+
+    /**
+     * Obtiene la cantidad de temporizadores guardados, incluidos los cancelados que aún no
+     * se descartaron.
+     *
+     * @return Temporizadores en la rueda.
+     */
+    public synchronized int tamano() {
+        return guardados;
+    }
+
+    /**
+     * Coloca un temporizador en la ranura del nivel más bajo que alcanza su tick.
+     */
+    private void colocar(Temporizador<T> temporizador) {
+        long distancia = temporizador.tick - tickActual;
+        int nivel = 0;
+        long alcance = ranurasPorNivel;
+        while (nivel < NIVELES - 1 && distancia >= alcance) {
+            nivel++;
+            alcance <<= bitsPorNivel;
+        }
+        long tick = distancia >= alcance ? tickActual + alcance - 1 : temporizador.tick;
+        int ranura = (int) ((tick >>> (bitsPorNivel * nivel)) & mascara);
+        temporizador.siguiente = ranuras[nivel][ranura];
+        ranuras[nivel][ranura] = temporizador;
+    }
+
+    /**
+     * Vuelve a colocar los temporizadores de una ranura, que quedan en niveles inferiores,
+     * y descarta los cancelados.
+     */
+    private void bajar(int nivel, int ranura) {
+        Temporizador<T> temporizador = ranuras[nivel][ranura];
+        ranuras[nivel][ranura] = null;
+        while (temporizador != null) {
+            Temporizador<T> siguiente = temporizador.siguiente;
+            if (temporizador.estado.get() == PENDIENTE) {
+                colocar(temporizador);
+            } else {
+                temporizador.siguiente = null;
+                guardados--;
+            }
+            temporizador = siguiente;
+        }
+    }
+
+    /**
+     * Temporizador programado en una rueda.
+     *
+     * @param <T> Tipo del valor asociado.
+     */
+    public static final class Temporizador<T> {
+        private final T valor;
+        private final long tick;
+        private final AtomicInteger estado;
+        private Temporizador<T> siguiente;
+
+        private Temporizador(T valor, long tick) {
+            this.valor = valor;
+            this.tick = tick;
+            this.estado = new AtomicInteger(PENDIENTE);
+        }
+
+        public T getValor() {
+            return valor;
+        }
+
+        /**
+         * Cancela el temporizador si aún no venció.
+         *
+         * @return true si se canceló; false si ya había vencido o estaba cancelado.
+         */
+        public boolean cancelar() {
+            return estado.compareAndSet(PENDIENTE, CANCELADO);
+        }
+
+        /**
+         * Indica si el temporizador no ha vencido ni se ha cancelado.
+         *
+         * @return true si está pendiente.
+         */
+        public boolean isPendiente() {
+            return estado.get() == PENDIENTE;
+        }
+    }
+}
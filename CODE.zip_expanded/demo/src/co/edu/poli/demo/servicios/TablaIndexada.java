@@ -0,0 +1,355 @@
+package co.edu.poli.demo.servicios;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Tabla en memoria que almacena entidades indexadas por su identificador.
+ * Las búsquedas, actualizaciones y eliminaciones por identificador se resuelven
+ * mediante un índice hash, y cada entidad recibe un número de secuencia que
+ * conserva el orden de inserción para los listados completos. Un segundo índice
+ * ordenado por identificador permite listar por páginas en ambos órdenes.
+ * <p>
+ * Cada entrada lleva además una versión, que cambia en cada reemplazo, para las
+ * actualizaciones condicionales. Las versiones salen del mismo generador que los números
+ * de secuencia, así que nunca se repiten en la tabla.
+ * <p>
+ * Las lecturas nunca se bloquean y pueden ejecutarse en paralelo con una escritura;
+ * las escrituras deben estar serializadas por quien use la tabla. Los listados completos y
+ * los recorridos leen un {@link Corte} de la tabla, que cada escritura publica ya terminado,
+ * así que muestran el estado de un instante aunque duren mientras otros escriben.
+ *
+ * @param <T> Tipo de entidad almacenada en la tabla.
+ */
+public class TablaIndexada<T> implements Iterable<T>, Serializable {
+
+    /**
+     * Versión de serialización de la clase.
+     */
+    private static final long serialVersionUID = 3L;
+
+    /**
+     * Índice hash de las entradas por identificador.
+     */
+    private final ConcurrentHashMap<String, Entrada<T>> porId;
+
+    /**
+     * Entradas ordenadas por su número de secuencia de inserción.
+     */
+    private final ConcurrentSkipListMap<Long, Entrada<T>> porSecuencia;
+
+    /**
+     * Entradas ordenadas por identificador.
+     */
+    private final ConcurrentSkipListMap<String, Entrada<T>> porIdOrdenado;
+
+    /**
+     * Generador de números de secuencia.
+     */
+    private final AtomicLong secuencia;
+
+    /**
+     * Corte vigente de la tabla, que se reemplaza al terminar cada escritura. No se
+     * serializa: se reconstruye al leer la tabla.
+     */
+    private transient volatile Corte<T> corte;
+
+    /**
+     * Constructor que crea una tabla vacía.
+     */
+    public TablaIndexada() {
+        this.porId = new ConcurrentHashMap<>();
+        this.porSecuencia = new ConcurrentSkipListMap<>();
+        this.porIdOrdenado = new ConcurrentSkipListMap<>();
+        this.secuencia = new AtomicLong();
+        this.corte = Corte.vacio();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        Corte<T> reconstruido = Corte.vacio();
+        for (Entrada<T> entrada : porSecuencia.values()) {
+            reconstruido = reconstruido.con(entrada);
+        }
+        corte = reconstruido;
+    }
+
+    /**
+     * Inserta una entidad si su identificador no existe todavía en la tabla.
+     *
+     * @param id    Identificador de la entidad.
+     * @param valor Entidad a insertar.
+     * @return true si se insertó, false si el identificador ya estaba registrado.
+     */
+    public boolean insertar(String id, T valor) {
+        long numero = secuencia.incrementAndGet();
+        Entrada<T> entrada = new Entrada<>(numero, id, valor, numero);
+        if (porId.putIfAbsent(id, entrada) != null) {
+            return false;
+        }
+        porSecuencia.put(entrada.secuencia, entrada);
+        porIdOrdenado.put(id, entrada);
+        indexar(entrada);
+        corte = corte.con(entrada);
+        return true;
+    }
+
+    /**
+     * Obtiene la entidad asociada a un identificador.
+     *
+     * @param id Identificador de la entidad.
+     * @return La entidad encontrada, o null si no existe.
+     */
+    public T obtener(String id) {
+        if (id == null) {
+            return null;
+        }
+        Entrada<T> entrada = porId.get(id);
+        return entrada == null ? null : entrada.valor;
+    }
+
+    /**
+     * Obtiene la entidad asociada a un identificador junto con su versión, leídas de la
+     * misma entrada.
+     *
+     * @param id Identificador de la entidad.
+     * @return La entidad con su versión, o null si no existe.
+     */
+    public Versionado<T> obtenerVersionado(String id) {
+        if (id == null) {
+            return null;
+        }
+        Entrada<T> entrada = porId.get(id);
+        return entrada == null ? null : new Versionado<>(entrada.valor, entrada.version);
+    }
+
+    /**
+     * Indica si existe una entidad con el identificador dado.
+     *
+     * @param id Identificador de la entidad.
+     * @return true si el identificador está registrado.
+     */
+    public boolean contiene(String id) {
+        return id != null && porId.containsKey(id);
+    }
+
+    /**
+     * Reemplaza la entidad registrada con el identificador dado. Si la nueva entidad
+     * trae un identificador distinto, se reindexa con el nuevo identificador y
+     * conserva su posición en el orden de inserción.
+     *
+     * @param id      Identificador actual de la entidad.
+     * @param nuevoId Identificador de la nueva entidad.
+     * @param valor   Nueva entidad.
+     * @return true si se reemplazó, false si el identificador actual no existe,
+     *         si el nuevo identificador es nulo o si ya pertenece a otra entidad.
+     */
+    public boolean reemplazar(String id, String nuevoId, T valor) {
+        Entrada<T> actual = id == null ? null : porId.get(id);
+        if (actual == null || nuevoId == null) {
+            return false;
+        }
+        Entrada<T> nueva = new Entrada<>(actual.secuencia, nuevoId, valor, secuencia.incrementAndGet());
+        if (id.equals(nuevoId)) {
+            porId.put(id, nueva);
+        } else {
+            if (porId.putIfAbsent(nuevoId, nueva) != null) {
+                return false;
+            }
+            porId.remove(id);
+            porIdOrdenado.remove(id);
+        }
+        porSecuencia.put(nueva.secuencia, nueva);
+        porIdOrdenado.put(nuevoId, nueva);
+        reindexar(actual, nueva);
+        corte = corte.con(nueva);
+        return true;
+    }
+
+    /**
+     * Elimina la entidad asociada a un identificador.
+     *
+     * @param id Identificador de la entidad.
+     * @return La entidad eliminada, o null si no existe.
+     */
+    public T eliminar(String id) {
+        Entrada<T> entrada = id == null ? null : porId.remove(id);
+        if (entrada == null) {
+            return null;
+        }
+        porSecuencia.remove(entrada.secuencia);
+        porIdOrdenado.remove(id);
+        desindexar(entrada);
+        corte = corte.sin(entrada.secuencia);
+        return entrada.valor;
+    }
+
+    /**
+     * Obtiene el estado actual de la tabla, que no cambia con las escrituras posteriores.
+     * Cuesta lo mismo que leer una referencia.
+     *
+     * @return El corte de la tabla.
+     */
+    public Corte<T> corte() {
+        return corte;
+    }
+
+    /**
+     * Devuelve una copia de las entidades en orden de inserción, tomada de un mismo corte.
+     *
+     * @return Lista nueva con las entidades de la tabla.
+     */
+    public List<T> valores() {
+        return corte.valores();
+    }
+
+    /**
+     * Recorre las entidades en orden de inserción sin copiarlas. El recorrido es el del
+     * corte vigente al empezar: las escrituras concurrentes no lo hacen fallar ni se reflejan
+     * en él.
+     *
+     * @return Iterador de solo lectura sobre las entidades.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return corte.iterator();
+    }
+
+    /**
+     * Obtiene una página de entidades. Se recorren solo las entradas desde el inicio de la
+     * página (más las saltadas por el desplazamiento o descartadas por el filtro) hasta
+     * completarla.
+     *
+     * @param consulta Orden, tamaño e inicio de la página.
+     * @param filtro   Condición que deben cumplir las entidades, o null para incluirlas todas.
+     * @return La página, con la consulta de la siguiente si quedan entidades.
+     */
+    public Pagina<T> pagina(ConsultaPagina consulta, Predicate<? super T> filtro) {
+        return armarPagina(recorrido(consulta, porSecuencia, porIdOrdenado), consulta, filtro);
+    }
+
+    /**
+     * Recorre los índices dados desde el inicio de la página pedida. Los índices pueden ser
+     * los de la tabla completa o los de una parte de ella, porque los números de secuencia
+     * son los mismos.
+     */
+    Iterator<Entrada<T>> recorrido(ConsultaPagina consulta, NavigableMap<Long, Entrada<T>> secuencias,
+                                   NavigableMap<String, Entrada<T>> ids) {
+        String despuesDe = consulta.getDespuesDeId();
+        if (consulta.getOrden() == ConsultaPagina.Orden.ID) {
+            return (despuesDe == null ? ids : ids.tailMap(despuesDe, false)).values().iterator();
+        }
+        long despuesDeSecuencia = consulta.getDespuesDeSecuencia();
+        if (despuesDeSecuencia < 0 && despuesDe != null) {
+            Entrada<T> referencia = porId.get(despuesDe);
+            if (referencia == null) {
+                throw new IllegalArgumentException("No existe el identificador " + despuesDe + ".");
+            }
+            despuesDeSecuencia = referencia.secuencia;
+        }
+        return (despuesDeSecuencia < 0 ? secuencias : secuencias.tailMap(despuesDeSecuencia, false))
+                .values().iterator();
+    }
+
+    /**
+     * Arma una página con las entradas de un recorrido, saltando el desplazamiento y las que
+     * no cumplen el filtro. Se lee una entrada más que el límite para saber si hay otra página.
+     */
+    static <T> Pagina<T> armarPagina(Iterator<Entrada<T>> recorrido, ConsultaPagina consulta,
+                                     Predicate<? super T> filtro) {
+        int saltar = consulta.getDesplazamiento();
+        int limite = consulta.getLimite();
+        List<T> elementos = new ArrayList<>(Math.min(limite, 1024));
+        Entrada<T> ultima = null;
+        while (recorrido.hasNext()) {
+            Entrada<T> entrada = recorrido.next();
+            if (filtro != null && !filtro.test(entrada.valor)) {
+                continue;
+            }
+            if (saltar > 0) {
+                saltar--;
+                continue;
+            }
+            if (elementos.size() == limite) {
+                return new Pagina<>(elementos, consulta.siguiente(ultima.id, ultima.secuencia));
+            }
+            elementos.add(entrada.valor);
+            ultima = entrada;
+        }
+        return new Pagina<>(elementos, null);
+    }
+
+    /**
+     * Obtiene la cantidad de entidades almacenadas.
+     *
+     * @return El número de entidades.
+     */
+    public int tamano() {
+        return porId.size();
+    }
+
+    /**
+     * Elimina todas las entidades de la tabla.
+     */
+    public void limpiar() {
+        porId.clear();
+        porSecuencia.clear();
+        porIdOrdenado.clear();
+        corte = Corte.vacio();
+    }
+
+    /**
+     * Se llama después de insertar una entrada, para que una subclase mantenga sus propios
+     * índices. Las escrituras ya están serializadas cuando se llama.
+     *
+     * @param entrada Entrada insertada.
+     */
+    void indexar(Entrada<T> entrada) {
+    }
+
+    /**
+     * Se llama después de reemplazar una entrada. La nueva conserva el número de secuencia
+     * de la anterior, pero puede tener otro identificador.
+     *
+     * @param anterior Entrada reemplazada.
+     * @param nueva    Entrada nueva.
+     */
+    void reindexar(Entrada<T> anterior, Entrada<T> nueva) {
+    }
+
+    /**
+     * Se llama después de eliminar una entrada.
+     *
+     * @param entrada Entrada eliminada.
+     */
+    void desindexar(Entrada<T> entrada) {
+    }
+
+    /**
+     * Entrada de los índices: la entidad junto con su identificador, su número de secuencia
+     * y su versión.
+     */
+    static final class Entrada<T> implements Serializable {
+        private static final long serialVersionUID = 2L;
+        final long secuencia;
+        final String id;
+        final T valor;
+        final long version;
+
+        Entrada(long secuencia, String id, T valor, long version) {
+            this.secuencia = secuencia;
+            this.id = id;
+            this.valor = valor;
+            this.version = version;
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package co.edu.poli.demo.servicios;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Tabla indexada que además reparte sus entidades en particiones según su clase concreta.
+ * Cada partición tiene sus propios índices por número de secuencia y por identificador, y un
+ * contador, así que los listados, recorridos y conteos de un tipo solo visitan las entidades
+ * de las clases que son ese tipo o una subclase suya, y no la tabla completa.
+ * <p>
+ * Las particiones comparten los números de secuencia de la tabla: un listado que une varias
+ * particiones conserva el orden de inserción, y una entidad que cambia de clase al
+ * reemplazarse conserva su lugar.
+ * <p>
+ * Junto al corte de la tabla completa se publica un {@link Corte} de cada partición, para
+ * que los listados de un tipo también puedan leerse de un instante fijo.
+ *
+ * @param <T> Tipo base de las entidades almacenadas.
+ */
+public class TablaParticionada<T> extends TablaIndexada<T> {
+
+    /**
+     * Versión de serialización de la clase.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Particiones por clase concreta. Solo hay tantas como clases distintas se han insertado.
+     */
+    private final ConcurrentHashMap<Class<?>, Particion<T>> particiones;
+
+    /**
+     * Corte vigente de cada partición. El mapa no se modifica: cada escritura publica uno
+     * nuevo. No se serializa: se reconstruye al leer la tabla.
+     */
+    private transient volatile Map<Class<?>, Corte<T>> cortes;
+
+    /**
+     * Constructor que crea una tabla vacía.
+     */
+    public TablaParticionada() {
+        this.particiones = new ConcurrentHashMap<>();
+        this.cortes = Map.of();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        Map<Class<?>, Corte<T>> reconstruidos = new HashMap<>();
+        for (Map.Entry<Class<?>, Particion<T>> particion : particiones.entrySet()) {
+            Corte<T> corte = Corte.vacio();
+            for (Entrada<T> entrada : particion.getValue().porSecuencia.values()) {
+                corte = corte.con(entrada);
+            }
+            reconstruidos.put(particion.getKey(), corte);
+        }
+        cortes = Collections.unmodifiableMap(reconstruidos);
+    }
+
+    /**
+     * Obtiene el corte vigente de cada partición, por clase concreta. Como el corte de la
+     * tabla, el mapa y sus cortes no cambian con las escrituras posteriores.
+     *
+     * @return Mapa de solo lectura con los cortes.
+     */
+    public Map<Class<?>, Corte<T>> cortesPorClase() {
+        return cortes;
+    }
+
+    /**
+     * Devuelve una copia de las entidades de un tipo, en orden de inserción.
+     *
+     * @param tipo Clase de las entidades; sus subclases también se incluyen.
+     * @param <S>  Tipo de las entidades.
+     * @return Lista nueva con las entidades del tipo.
+     */
+    public <S extends T> List<S> valores(Class<S> tipo) {
+        List<S> valores = new ArrayList<>(tamano(tipo));
+        recorrer(tipo, valores::add);
+        return valores;
+    }
+
+    /**
+     * Recorre las entidades de un tipo en orden de inserción sin copiarlas.
+     *
+     * @param tipo   Clase de las entidades; sus subclases también se incluyen.
+     * @param accion Acción a ejecutar con cada entidad.
+     * @param <S>    Tipo de las entidades.
+     */
+    public <S extends T> void recorrer(Class<S> tipo, Consumer<? super S> accion) {
+        Iterator<Entrada<T>> recorrido = unir(particionesDe(tipo));
+        while (recorrido.hasNext()) {
+            accion.accept(tipo.cast(recorrido.next().valor));
+        }
+    }
+
+    /**
+     * Obtiene la cantidad de entidades de un tipo sin recorrerlas.
+     *
+     * @param tipo Clase de las entidades; sus subclases también se incluyen.
+     * @return El número de entidades del tipo.
+     */
+    public int tamano(Class<? extends T> tipo) {
+        int cantidad = 0;
+        for (Particion<T> particion : particionesDe(tipo)) {
+            cantidad += particion.cantidad.get();
+        }
+        return cantidad;
+    }
+
+    /**
+     * Obtiene una página de las entidades de un tipo. Solo se recorren las particiones del tipo.
+     *
+     * @param consulta Orden, tamaño e inicio de la página.
+     * @param tipo     Clase de las entidades; sus subclases también se incluyen.
+     * @return La página, con la consulta de la siguiente si quedan entidades.
+     */
+    public Pagina<T> paginaDe(ConsultaPagina consulta, Class<? extends T> tipo) {
+        List<Particion<T>> elegidas = particionesDe(tipo);
+        Iterator<Entrada<T>> recorrido;
+        if (elegidas.size() == 1) {
+            Particion<T> particion = elegidas.get(0);
+            recorrido = recorrido(consulta, particion.porSecuencia, particion.porIdOrdenado);
+        } else {
+            List<Iterator<Entrada<T>>> partes = new ArrayList<>(elegidas.size());
+            for (Particion<T> particion : elegidas) {
+                partes.add(recorrido(consulta, particion.porSecuencia, particion.porIdOrdenado));
+            }
+            recorrido = new Mezcla<>(partes, consulta.getOrden() == ConsultaPagina.Orden.ID
+                    ? Comparator.comparing((Entrada<T> e) -> e.id)
+                    : Comparator.comparingLong((Entrada<T> e) -> e.secuencia));
+        }
+        return armarPagina(recorrido, consulta, null);
+    }
+
+    @Override
+    public void limpiar() {
+        super.limpiar();
+        particiones.clear();
+        cortes = Map.of();
+    }
+
+    @Override
+    void indexar(Entrada<T> entrada) {
+        particiones.computeIfAbsent(entrada.valor.getClass(), clase -> new Particion<>()).agregar(entrada);
+        publicar(entrada.valor.getClass(), corteDe(entrada.valor.getClass()).con(entrada));
+    }
+
+    @Override
+    void reindexar(Entrada<T> anterior, Entrada<T> nueva) {
+        if (anterior.valor.getClass() == nueva.valor.getClass() && anterior.id.equals(nueva.id)) {
+            Particion<T> particion = particiones.get(nueva.valor.getClass());
+            particion.porSecuencia.put(nueva.secuencia, nueva);
+            particion.porIdOrdenado.put(nueva.id, nueva);
+            publicar(nueva.valor.getClass(), corteDe(nueva.valor.getClass()).con(nueva));
+        } else {
+            desindexar(anterior);
+            indexar(nueva);
+        }
+    }
+
+    @Override
+    void desindexar(Entrada<T> entrada) {
+        Particion<T> particion = particiones.get(entrada.valor.getClass());
+        if (particion != null) {
+            particion.quitar(entrada);
+            publicar(entrada.valor.getClass(), corteDe(entrada.valor.getClass()).sin(entrada.secuencia));
+        }
+    }
+
+    private Corte<T> corteDe(Class<?> clase) {
+        Corte<T> corte = cortes.get(clase);
+        return corte != null ? corte : Corte.vacio();
+    }
+
+    /**
+     * Publica un mapa nuevo con el corte dado para la clase. Las escrituras ya están
+     * serializadas, y las clases son pocas, así que copiarlo es barato.
+     */
+    private void publicar(Class<?> clase, Corte<T> corte) {
+        Map<Class<?>, Corte<T>> nuevos = new HashMap<>(cortes);
+        nuevos.put(clase, corte);
+        cortes = Collections.unmodifiableMap(nuevos);
+    }
+
+    /**
+     * Particiones cuya clase es el tipo dado o una subclase suya. Se revisan solo las
+     * clases presentes, que son pocas.
+     */
+    private List<Particion<T>> particionesDe(Class<?> tipo) {
+        List<Particion<T>> elegidas = new ArrayList<>(2);
+        for (Map.Entry<Class<?>, Particion<T>> particion : particiones.entrySet()) {
+            if (tipo.isAssignableFrom(particion.getKey())) {
+                elegidas.add(particion.getValue());
+            }
+        }
+        return elegidas;
+    }
+
+    /**
+     * Recorre varias particiones como una sola, en orden de inserción.
+     */
+    private Iterator<Entrada<T>> unir(List<Particion<T>> elegidas) {
+        List<Iterator<Entrada<T>>> partes = new ArrayList<>(elegidas.size());
+        for (Particion<T> particion : elegidas) {
+            partes.add(particion.porSecuencia.values().iterator());
+        }
+        return partes.size() == 1 ? partes.get(0)
+                : new Mezcla<>(partes, Comparator.comparingLong((Entrada<T> e) -> e.secuencia));
+    }
+
+    /**
+     * Índices de las entidades de una clase concreta.
+     */
+    private static final class Particion<T> implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final NavigableMap<Long, Entrada<T>> porSecuencia = new ConcurrentSkipListMap<>();
+        private final NavigableMap<String, Entrada<T>> porIdOrdenado = new ConcurrentSkipListMap<>();
+        private final AtomicInteger cantidad = new AtomicInteger();
+
+        private void agregar(Entrada<T> entrada) {
+            porSecuencia.put(entrada.secuencia, entrada);
+            porIdOrdenado.put(entrada.id, entrada);
+            cantidad.incrementAndGet();
+        }
+
+        private void quitar(Entrada<T> entrada) {
+            if (porSecuencia.remove(entrada.secuencia) != null) {
+                porIdOrdenado.remove(entrada.id);
+                cantidad.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Une varios recorridos ordenados en uno solo. Como hay pocas particiones, en cada paso
+     * se elige la menor de las entradas pendientes comparándolas todas.
+     */
+    private static final class Mezcla<T> implements Iterator<Entrada<T>> {
+        private final List<Iterator<Entrada<T>>> partes;
+        private final List<Entrada<T>> pendientes;
+        private final Comparator<Entrada<T>> orden;
+
+        private Mezcla(List<Iterator<Entrada<T>>> partes, Comparator<Entrada<T>> orden) {
+            this.partes = partes;
+            this.orden = orden;
+            this.pendientes = new ArrayList<>(partes.size());
+            for (Iterator<Entrada<T>> parte : partes) {
+                pendientes.add(parte.hasNext() ? parte.next() : null);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            for (Entrada<T> pendiente : pendientes) {
+                if (pendiente != null) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Entrada<T> next() {
+            int menor = -1;
+            for (int i = 0; i < pendientes.size(); i++) {
+                Entrada<T> pendiente = pendientes.get(i);
+                if (pendiente != null && (menor < 0 || orden.compare(pendiente, pendientes.get(menor)) < 0)) {
+                    menor = i;
+                }
+            }
+            if (menor < 0) {
+                throw new NoSuchElementException();
+            }
+            Entrada<T> siguiente = pendientes.get(menor);
+            Iterator<Entrada<T>> parte = partes.get(menor);
+            pendientes.set(menor, parte.hasNext() ? parte.next() : null);
+            return siguiente;
+        }
+    }
+}
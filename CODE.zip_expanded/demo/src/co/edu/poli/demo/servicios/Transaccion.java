@@ -0,0 +1,491 @@
+package co.edu.poli.demo.servicios;
+
+import co.edu.poli.demo.modelo.Reserva;
+import co.edu.poli.demo.modelo.Usuario;
+import co.edu.poli.demo.modelo.Zona;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Transacción optimista en memoria sobre un {@link Operacion}, creada con
+ * {@link GestorTransacciones#iniciar()}. Agrupa cambios a usuarios, zonas y reservas que se
+ * aplican todos o ninguno.
+ * <p>
+ * Mientras está activa, nada se escribe en el almacén. Cada entidad leída queda anotada con
+ * su versión ({@link Versionado}); las que se piden para modificar se copian, y los cambios
+ * se hacen sobre la copia, que nadie más ve. Las reservas nuevas y las eliminadas se anotan
+ * aparte. Al confirmar se toman los cerrojos de las entidades involucradas, siempre en el
+ * mismo orden, se comprueba que ninguna versión leída haya cambiado y se aplican las
+ * escrituras. Si alguna falla, las ya aplicadas se deshacen antes de soltar los cerrojos;
+ * si además algún deshecho falla, la confirmación lo informa con {@link #INCONSISTENTE}.
+ * <p>
+ * Una transacción la usa un solo hilo. Los cerrojos solo coordinan a las transacciones del
+ * mismo gestor; una escritura directa sobre el almacén en medio de una confirmación hace que
+ * falle por conflicto y se deshaga. Con el registro de escritura activo, cada escritura y
+ * cada deshecho se anotan como operaciones sueltas.
+ */
+public class Transaccion {
+
+    private static final String CONFIRMADA = "Transacción confirmada exitosamente.";
+
+    /**
+     * Inicio del mensaje de una confirmación que falló y no pudo deshacer todas sus
+     * escrituras: el almacén quedó con parte de la transacción aplicada.
+     */
+    public static final String INCONSISTENTE = "Error: estado inconsistente";
+
+    private final GestorTransacciones gestor;
+    private final Operacion operacion;
+    private final Entidades<Usuario> usuarios;
+    private final Entidades<Zona> zonas;
+    private final Entidades<Reserva> reservas;
+
+    /**
+     * Reservas nuevas, por identificador.
+     */
+    private final Map<String, Reserva> creadas;
+
+    /**
+     * Reservas registradas que se eliminan, por identificador, con la versión leída.
+     */
+    private final Map<String, Long> eliminadas;
+
+    /**
+     * Codificador con el que se copian las entidades a modificar.
+     */
+    private final CodificadorBinario copiador;
+
+    private boolean activa;
+
+    Transaccion(GestorTransacciones gestor, Operacion operacion) {
+        this.gestor = gestor;
+        this.operacion = operacion;
+        this.usuarios = new Entidades<>('U', operacion::readVersionado);
+        this.zonas = new Entidades<>('Z', operacion::readZonaVersionada);
+        this.reservas = new Entidades<>('R', operacion::readReservaVersionada);
+        this.creadas = new LinkedHashMap<>();
+        this.eliminadas = new LinkedHashMap<>();
+        this.copiador = new CodificadorBinario();
+        this.activa = true;
+    }
+
+    /**
+     * Lee un usuario. Si la transacción ya lo modificó, devuelve su copia; si no, devuelve la
+     * instancia del almacén, que no debe modificarse.
+     *
+     * @param idUsuario Identificador del usuario.
+     * @return El usuario, o null si no existe.
+     */
+    public Usuario leerUsuario(String idUsuario) {
+        verificarActiva();
+        return usuarios.leer(idUsuario);
+    }
+
+    /**
+     * Obtiene una copia privada de un usuario para modificarla. Los cambios se guardan al
+     * confirmar.
+     *
+     * @param idUsuario Identificador del usuario.
+     * @return La copia, o null si el usuario no existe.
+     */
+    public Usuario modificarUsuario(String idUsuario) {
+        verificarActiva();
+        return usuarios.modificar(idUsuario, this::copiarUsuario);
+    }
+
+    /**
+     * Lee una zona, con las mismas reglas de {@link #leerUsuario}.
+     *
+     * @param idZona Identificador de la zona.
+     * @return La zona, o null si no existe.
+     */
+    public Zona leerZona(String idZona) {
+        verificarActiva();
+        return zonas.leer(idZona);
+    }
+
+    /**
+     * Obtiene una copia privada de una zona para modificarla.
+     *
+     * @param idZona Identificador de la zona.
+     * @return La copia, o null si la zona no existe.
+     */
+    public Zona modificarZona(String idZona) {
+        verificarActiva();
+        return zonas.modificar(idZona, this::copiarZona);
+    }
+
+    /**
+     * Lee una reserva, incluidas las creadas en la transacción y sin las eliminadas en ella.
+     *
+     * @param idReserva Identificador de la reserva.
+     * @return La reserva, o null si no existe.
+     */
+    public Reserva leerReserva(String idReserva) {
+        verificarActiva();
+        if (creadas.containsKey(idReserva)) {
+            return creadas.get(idReserva);
+        }
+        return eliminadas.containsKey(idReserva) ? null : reservas.leer(idReserva);
+    }
+
+    /**
+     * Obtiene una copia privada de una reserva registrada para modificarla. Su usuario y su
+     * zona son las copias de la transacción si ya se pidieron para modificar.
+     *
+     * @param idReserva Identificador de la reserva.
+     * @return La copia, o null si la reserva no existe o se eliminó en la transacción.
+     */
+    public Reserva modificarReserva(String idReserva) {
+        verificarActiva();
+        if (creadas.containsKey(idReserva)) {
+            return creadas.get(idReserva);
+        }
+        return eliminadas.containsKey(idReserva) ? null : reservas.modificar(idReserva, this::copiarReserva);
+    }
+
+    /**
+     * Anota una reserva nueva, que se crea al confirmar. La zona y las fechas se comprueban
+     * ya, porque la confirmación las necesita para ordenar los cerrojos; el resto de la
+     * validación la hace el almacén al confirmar.
+     *
+     * @param reserva La reserva a crear.
+     * @return Un mensaje de error, o null si se anotó.
+     */
+    public String crearReserva(Reserva reserva) {
+        verificarActiva();
+        String id = reserva.getIdReserva();
+        if (id == null) {
+            return "Error: la reserva no tiene identificador.";
+        }
+        if (reserva.getZona() == null || reserva.getZona().getIdZona() == null) {
+            return "Error: la reserva no tiene zona.";
+        }
+        if (reserva.getFechaInicio() == null || reserva.getFechaFin() == null) {
+            return "Error: la reserva no tiene fecha de inicio o de fin.";
+        }
+        if (creadas.containsKey(id) || (!eliminadas.containsKey(id) && reservas.leer(id) != null)) {
+            return "Error: ya existe una reserva con el id " + id + ".";
+        }
+        creadas.put(id, reserva);
+        return null;
+    }
+
+    /**
+     * Anota la eliminación de una reserva, que se hace al confirmar.
+     *
+     * @param idReserva Identificador de la reserva.
+     * @return La reserva que se eliminará, o null si no existe.
+     */
+    public Reserva eliminarReserva(String idReserva) {
+        verificarActiva();
+        Reserva creada = creadas.remove(idReserva);
+        if (creada != null) {
+            return creada;
+        }
+        Reserva actual = eliminadas.containsKey(idReserva) ? null : reservas.leer(idReserva);
+        if (actual != null) {
+            reservas.modificados.remove(idReserva);
+            eliminadas.put(idReserva, reservas.versiones.get(idReserva));
+        }
+        return actual;
+    }
+
+    /**
+     * Indica si la transacción sigue activa, es decir, no se ha confirmado ni revertido.
+     *
+     * @return true si está activa.
+     */
+    public boolean isActiva() {
+        return activa;
+    }
+
+    /**
+     * Descarta los cambios de la transacción. Como nada se había escrito, no hay que
+     * deshacer nada en el almacén.
+     */
+    public void rollback() {
+        activa = false;
+    }
+
+    /**
+     * Confirma la transacción: aplica todas sus escrituras o ninguna. Termina la transacción
+     * aunque falle.
+     *
+     * @return Un mensaje indicando el éxito o fallo; si otro modificó una entidad leída, el
+     *         mensaje empieza con {@link Versionado#CONFLICTO} y la transacción puede
+     *         repetirse desde el principio. Si falló y no se pudo deshacer lo aplicado, empieza
+     *         con {@link #INCONSISTENTE} y nombra las entidades que quedaron sin restaurar.
+     */
+    public String commit() {
+        verificarActiva();
+        activa = false;
+        int[] franjas = franjas();
+        gestor.bloquear(franjas);
+        Deque<Compensacion> deshacer = new ArrayDeque<>();
+        try {
+            String conflicto = validar();
+            if (conflicto != null) {
+                return conflicto;
+            }
+            String error;
+            try {
+                error = aplicar(deshacer);
+            } catch (RuntimeException e) {
+                error = "Error al aplicar la transacción: " + e.getMessage();
+            }
+            if (error == null) {
+                return CONFIRMADA;
+            }
+            String pendientes = deshacer(deshacer);
+            return pendientes == null ? error
+                    : INCONSISTENTE + ": la transacción falló (" + error + ") y no se pudo deshacer " + pendientes + ".";
+        } finally {
+            gestor.desbloquear(franjas);
+        }
+    }
+
+    /**
+     * Deshace, de la última a la primera, las escrituras ya aplicadas. Sigue con las demás
+     * aunque alguna falle.
+     *
+     * @return Las escrituras que no se pudieron deshacer, separadas por comas, o null si se
+     *         deshicieron todas.
+     */
+    private static String deshacer(Deque<Compensacion> deshacer) {
+        StringBuilder pendientes = null;
+        while (!deshacer.isEmpty()) {
+            String fallo;
+            try {
+                fallo = deshacer.pop().deshacer();
+            } catch (RuntimeException e) {
+                fallo = e.getMessage();
+            }
+            if (fallo != null) {
+                pendientes = pendientes == null ? new StringBuilder() : pendientes.append(", ");
+                pendientes.append(fallo);
+            }
+        }
+        return pendientes == null ? null : pendientes.toString();
+    }
+
+    /**
+     * Comprueba, con los cerrojos tomados, que ninguna entidad leída haya cambiado.
+     */
+    private String validar() {
+        String conflicto = usuarios.validar();
+        if (conflicto == null) {
+            conflicto = zonas.validar();
+        }
+        return conflicto == null ? reservas.validar() : conflicto;
+    }
+
+    /**
+     * Aplica las escrituras, de las que más pueden fallar (las reservas, que se validan
+     * contra las demás de su zona) a las que menos, y anota cómo deshacer cada una.
+     *
+     * @return Un mensaje de error, o null si todas se aplicaron.
+     */
+    private String aplicar(Deque<Compensacion> deshacer) {
+        for (Map.Entry<String, Long> eliminada : eliminadas.entrySet()) {
+            String id = eliminada.getKey();
+            Reserva anterior = operacion.readReserva(id);
+            if (operacion.deleteReserva(id) == null) {
+                return Versionado.CONFLICTO + ": la reserva " + id + " ya no existe.";
+            }
+            deshacer.push(() -> {
+                String restaurada = operacion.createReserva(anterior);
+                return operacion.readReserva(id) == anterior ? null
+                        : "la eliminación de la reserva " + id + " (" + restaurada + ")";
+            });
+        }
+        for (Map.Entry<String, Reserva> modificada : reservas.modificados.entrySet()) {
+            String id = modificada.getKey();
+            Reserva anterior = operacion.readReserva(id);
+            String resultado = operacion.updateReservaSiVersion(modificada.getValue(), id,
+                    reservas.versiones.get(id));
+            if (operacion.readReserva(modificada.getValue().getIdReserva()) != modificada.getValue()) {
+                return resultado;
+            }
+            deshacer.push(() -> {
+                String restaurado = operacion.updateReserva(anterior, modificada.getValue().getIdReserva());
+                return operacion.readReserva(id) == anterior ? null
+                        : "la actualización de la reserva " + id + " (" + restaurado + ")";
+            });
+        }
+        for (Reserva creada : creadas.values()) {
+            String resultado = operacion.createReserva(creada);
+            if (operacion.readReserva(creada.getIdReserva()) != creada) {
+                return resultado;
+            }
+            deshacer.push(() -> operacion.deleteReserva(creada.getIdReserva()) != null ? null
+                    : "la creación de la reserva " + creada.getIdReserva());
+        }
+        for (Map.Entry<String, Zona> modificada : zonas.modificados.entrySet()) {
+            String id = modificada.getKey();
+            Zona anterior = operacion.readZona(id);
+            String resultado = operacion.updateZonaSiVersion(modificada.getValue(), id, zonas.versiones.get(id));
+            if (operacion.readZona(modificada.getValue().getIdZona()) != modificada.getValue()) {
+                return resultado;
+            }
+            deshacer.push(() -> {
+                String restaurado = operacion.updateZona(anterior, modificada.getValue().getIdZona());
+                return operacion.readZona(id) == anterior ? null
+                        : "la actualización de la zona " + id + " (" + restaurado + ")";
+            });
+        }
+        for (Map.Entry<String, Usuario> modificado : usuarios.modificados.entrySet()) {
+            String id = modificado.getKey();
+            Usuario anterior = operacion.read(id);
+            String resultado = operacion.updateSiVersion(modificado.getValue(), id, usuarios.versiones.get(id));
+            if (operacion.read(modificado.getValue().getIdUsuario()) != modificado.getValue()) {
+                return resultado;
+            }
+            deshacer.push(() -> {
+                String restaurado = operacion.update(anterior, modificado.getValue().getIdUsuario());
+                return operacion.read(id) == anterior ? null
+                        : "la actualización del usuario " + id + " (" + restaurado + ")";
+            });
+        }
+        return null;
+    }
+
+    /**
+     * Franjas de cerrojo de todas las entidades leídas o escritas, sin repetir y en orden
+     * ascendente, que es el orden en que se toman. Las reservas nuevas toman la franja de su
+     * zona, así que dos transacciones que reservan la misma zona se confirman una tras otra y
+     * las de zonas distintas no compiten.
+     */
+    private int[] franjas() {
+        int[] franjas = new int[usuarios.versiones.size() + zonas.versiones.size() + reservas.versiones.size()
+                + creadas.size()];
+        int n = usuarios.franjas(gestor, franjas, 0);
+        n = zonas.franjas(gestor, franjas, n);
+        n = reservas.franjas(gestor, franjas, n);
+        for (Reserva creada : creadas.values()) {
+            franjas[n++] = gestor.franja('Z', creada.getZona().getIdZona());
+        }
+        Arrays.sort(franjas, 0, n);
+        int distintas = 0;
+        for (int i = 0; i < n; i++) {
+            if (distintas == 0 || franjas[distintas - 1] != franjas[i]) {
+                franjas[distintas++] = franjas[i];
+            }
+        }
+        return Arrays.copyOf(franjas, distintas);
+    }
+
+    private void verificarActiva() {
+        if (!activa) {
+            throw new IllegalStateException("La transacción ya terminó.");
+        }
+    }
+
+    private Usuario copiarUsuario(Usuario usuario) {
+        return copiador.copiarUsuario(usuario);
+    }
+
+    private Zona copiarZona(Zona zona) {
+        return copiador.copiarZona(zona);
+    }
+
+    private Reserva copiarReserva(Reserva reserva) {
+        copiador.reiniciar();
+        copiador.escribirReserva(reserva);
+        try {
+            return CodificadorBinario.leerReserva(copiador.contenido(), CodificadorBinario.VERSION,
+                    id -> usuarios.modificados.containsKey(id) ? usuarios.modificados.get(id) : reserva.getUsuario(),
+                    id -> zonas.modificados.containsKey(id) ? zonas.modificados.get(id) : reserva.getZona());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Forma de deshacer una escritura ya aplicada.
+     */
+    private interface Compensacion {
+        /**
+         * Deshace la escritura.
+         *
+         * @return Descripción de la escritura si no se pudo deshacer, o null si se deshizo.
+         */
+        String deshacer();
+    }
+
+    /**
+     * Lecturas y copias modificadas de un tipo de entidad.
+     */
+    private static final class Entidades<T> {
+        private final char tipo;
+        private final Function<String, Versionado<T>> lector;
+
+        /**
+         * Versión leída de cada entidad, por identificador; 0 si no existía.
+         */
+        private final Map<String, Long> versiones = new HashMap<>();
+
+        /**
+         * Copias a guardar, por identificador de la entidad original.
+         */
+        private final Map<String, T> modificados = new LinkedHashMap<>();
+
+        private Entidades(char tipo, Function<String, Versionado<T>> lector) {
+            this.tipo = tipo;
+            this.lector = lector;
+        }
+
+        private T leer(String id) {
+            if (id == null) {
+                return null;
+            }
+            T copia = modificados.get(id);
+            if (copia != null) {
+                return copia;
+            }
+            Versionado<T> actual = lector.apply(id);
+            versiones.putIfAbsent(id, actual == null ? 0L : actual.getVersion());
+            return actual == null ? null : actual.getValor();
+        }
+
+        private T modificar(String id, Function<T, T> copiar) {
+            T copia = id == null ? null : modificados.get(id);
+            if (copia != null) {
+                return copia;
+            }
+            T actual = leer(id);
+            if (actual == null) {
+                return null;
+            }
+            copia = copiar.apply(actual);
+            modificados.put(id, copia);
+            return copia;
+        }
+
+        private String validar() {
+            for (Map.Entry<String, Long> leida : versiones.entrySet()) {
+                Versionado<T> actual = lector.apply(leida.getKey());
+                long version = actual == null ? 0L : actual.getVersion();
+                if (version != leida.getValue()) {
+                    return Versionado.CONFLICTO + ": " + leida.getKey() + " cambió después de leerse en la transacción.";
+                }
+            }
+            return null;
+        }
+
+        private int franjas(GestorTransacciones gestor, int[] destino, int desde) {
+            int n = desde;
+            for (String id : versiones.keySet()) {
+                destino[n++] = gestor.franja(tipo, id);
+            }
+            return n;
+        }
+    }
+}
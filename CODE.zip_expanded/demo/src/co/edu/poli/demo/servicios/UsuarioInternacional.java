@@ -1,6 +1,11 @@
 package co.edu.poli.demo.servicios;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import co.edu.poli.demo.modelo.Dinero;
 import co.edu.poli.demo.modelo.UsuarioCorporativo;
 
 /**
@@ -14,6 +19,18 @@ import co.edu.poli.demo.modelo.UsuarioCorporativo;
 public class UsuarioInternacional extends UsuarioCorporativo implements Serializable {
     private static final long serialVersionUID = 1L;
 
+    /**
+     * Campos de la forma serializada. Se conserva {@code tarifaMonedaInternacional} como double,
+     * que es como la guardaban las versiones anteriores, para poder leer sus archivos; el
+     * importe exacto, con su moneda, va en {@code tarifaExacta}. Ver {@link #readObject}.
+     */
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("paisOrigen", String.class),
+        new ObjectStreamField("requiereTraductor", boolean.class),
+        new ObjectStreamField("tarifaMonedaInternacional", double.class),
+        new ObjectStreamField("tarifaExacta", Dinero.class)
+    };
+
     /**
      * País de origen del usuario internacional.
      */
@@ -27,7 +44,7 @@ public class UsuarioInternacional extends UsuarioCorporativo implements Serializ
     /**
      * Tarifa de alquiler en la moneda local del usuario.
      */
-    private double tarifaMonedaInternacional;
+    private Dinero tarifaMonedaInternacional;
 
     /**
      * Constructor de la clase {@code UsuarioInternacional}.
@@ -47,13 +64,37 @@ public class UsuarioInternacional extends UsuarioCorporativo implements Serializ
      */
     public UsuarioInternacional(String idUsuario, String nombre, String correo, String telefono, boolean esAdmin,
                                  String nombreEmpresa, int eventosOrganizados, String paisOrigen, boolean requiereTraductor,
-                                 double tarifaMonedaInternacional) {
+                                 Dinero tarifaMonedaInternacional) {
         super(idUsuario, nombre, correo, telefono, esAdmin, nombreEmpresa, eventosOrganizados);
         this.paisOrigen = paisOrigen;
         this.requiereTraductor = requiereTraductor;
         setTarifaMonedaInternacional(tarifaMonedaInternacional);
     }
 
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField campos = out.putFields();
+        campos.put("paisOrigen", paisOrigen);
+        campos.put("requiereTraductor", requiereTraductor);
+        campos.put("tarifaMonedaInternacional", tarifaMonedaInternacional == null ? 0
+                : tarifaMonedaInternacional.aDouble());
+        campos.put("tarifaExacta", tarifaMonedaInternacional);
+        out.writeFields();
+    }
+
+    /**
+     * Lee un usuario serializado. Los archivos de versiones anteriores no traen
+     * {@code tarifaExacta} ni la moneda; su tarifa double se convierte a moneda local, como
+     * hace {@code CodificadorBinario} con los archivos binarios de la versión 1.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField campos = in.readFields();
+        paisOrigen = (String) campos.get("paisOrigen", null);
+        requiereTraductor = campos.get("requiereTraductor", false);
+        tarifaMonedaInternacional = campos.defaulted("tarifaExacta")
+                ? Dinero.de(campos.get("tarifaMonedaInternacional", 0.0))
+                : (Dinero) campos.get("tarifaExacta", null);
+    }
+
     /**
      * Obtiene el país de origen del usuario.
      *
@@ -100,7 +141,7 @@ public class UsuarioInternacional extends UsuarioCorporativo implements Serializ
      *
      * @return La tarifa internacional.
      */
-    public double getTarifaMonedaInternacional() {
+    public Dinero getTarifaMonedaInternacional() {
         return tarifaMonedaInternacional;
     }
 
@@ -110,8 +151,9 @@ public class UsuarioInternacional extends UsuarioCorporativo implements Serializ
      * @param tarifaMonedaInternacional Tarifa de alquiler.
      * @throws IllegalArgumentException Si la tarifa es menor o igual a 0.
      */
-    public void setTarifaMonedaInternacional(double tarifaMonedaInternacional) {
-        if (tarifaMonedaInternacional > 0) {
+    public void setTarifaMonedaInternacional(Dinero tarifaMonedaInternacional) {
+        if (tarifaMonedaInternacional != null && !tarifaMonedaInternacional.esNegativo()
+                && !tarifaMonedaInternacional.esCero()) {
             this.tarifaMonedaInternacional = tarifaMonedaInternacional;
         } else {
             throw new IllegalArgumentException("La tarifa debe ser un valor positivo.");
@@ -162,10 +204,10 @@ public class UsuarioInternacional extends UsuarioCorporativo implements Serializ
      * el número de asistentes.
      *
      * @param asistentes Número de personas que asistirán al evento.
-     * @return El costo total calculado.
+     * @return El costo total calculado, en la moneda de la tarifa.
      */
-    public double calcularCostoEventoGlobal(int asistentes) {
-        return tarifaMonedaInternacional * asistentes;
+    public Dinero calcularCostoEventoGlobal(int asistentes) {
+        return tarifaMonedaInternacional.multiplicar(asistentes);
     }
 }
 
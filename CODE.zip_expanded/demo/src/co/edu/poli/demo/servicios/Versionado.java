@@ -0,0 +1,55 @@
+package co.edu.poli.demo.servicios;
+
+/**
+ * Entidad leída junto con su versión, tomadas a la vez del almacén. La versión cambia cada
+ * vez que la entidad se reemplaza, y se pasa a las actualizaciones condicionales como
+ * {@link Operacion#updateSiVersion} para que fallen si otro la modificó entretanto.
+ * <p>
+ * Las versiones crecen en toda la tabla y nunca se repiten, ni siquiera si la entidad se
+ * elimina y se vuelve a crear; no cuentan cuántas veces se modificó la entidad. Viven solo
+ * en memoria y se renuevan al cargar los datos desde un archivo o el registro de escritura.
+ *
+ * @param <T> Tipo de la entidad.
+ */
+public class Versionado<T> {
+
+    /**
+     * Inicio del mensaje con que fallan las actualizaciones condicionales cuando la versión
+     * esperada ya no es la vigente; quien recibe este mensaje puede volver a leer la entidad
+     * y reintentar.
+     */
+    public static final String CONFLICTO = "Conflicto de versión";
+
+    private final T valor;
+    private final long version;
+
+    /**
+     * Constructor de la entidad versionada.
+     *
+     * @param valor   La entidad.
+     * @param version Su versión en el almacén.
+     */
+    public Versionado(T valor, long version) {
+        this.valor = valor;
+        this.version = version;
+    }
+
+    /**
+     * Obtiene la entidad. Es la instancia guardada en el almacén: para modificarla sin
+     * afectar a otros lectores debe copiarse antes.
+     *
+     * @return La entidad.
+     */
+    public T getValor() {
+        return valor;
+    }
+
+    /**
+     * Obtiene la versión que tenía la entidad al leerla.
+     *
+     * @return La versión.
+     */
+    public long getVersion() {
+        return version;
+    }
+}
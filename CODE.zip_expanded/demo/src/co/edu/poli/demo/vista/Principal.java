@@ -1,7 +1,10 @@
 package co.edu.poli.demo.vista;
 
 import co.edu.poli.demo.modelo.*;
+import co.edu.poli.demo.servicios.CodificadorBinario;
+import co.edu.poli.demo.servicios.ConsultaPagina;
 import co.edu.poli.demo.servicios.ImplementacionOperacion;
+import co.edu.poli.demo.servicios.Pagina;
 import co.edu.poli.demo.servicios.UsuarioInternacional;
 import java.util.List;
 import java.util.Scanner;
@@ -14,6 +17,7 @@ import java.util.Scanner;
 public class Principal {
     static ImplementacionOperacion operacion = new ImplementacionOperacion();
     static final String FILE_NAME = "usuarios.dat"; // Nombre del archivo binario
+    static final int USUARIOS_POR_PAGINA = 20; // Usuarios que se muestran antes de pausar el listado
 
     /**
      * Constructor vacío de la clase Principal.
@@ -63,7 +67,7 @@ public class Principal {
                         eliminarUsuario(sc);
                         break;
                     case 5:
-                        mostrarTodosLosUsuarios();
+                        mostrarTodosLosUsuarios(sc);
                         break;
                     case 6:
                         guardarUsuariosEnArchivo();
@@ -145,16 +149,16 @@ public class Principal {
                 String paisOrigen = sc.nextLine();
                 System.out.println("¿Requiere traductor? (true/false):");
                 boolean requiereTraductor = sc.nextBoolean();
-                System.out.println("Ingrese la tarifa en moneda internacional:");
-                double tarifaMonedaInternacional = sc.nextDouble();
                 sc.nextLine(); // Limpiar el buffer
+                System.out.println("Ingrese la tarifa en moneda internacional (por ejemplo, 120.50 USD):");
+                Dinero tarifaMonedaInternacional = Dinero.interpretar(sc.nextLine());
                 nuevoUsuario = new UsuarioInternacional(identificacion, nombre, correo, telefono, esAdmin, nombreEmpresaInternacional, tipoUsuario, paisOrigen, requiereTraductor, tarifaMonedaInternacional);
                 break;
             case 5:
                 System.out.println("Ingrese el puesto del empleado:");
                 String puesto = sc.nextLine();
                 System.out.println("Ingrese el salario del empleado:");
-                double salario = sc.nextDouble();
+                Dinero salario = Dinero.de(sc.nextDouble());
                 sc.nextLine(); // Limpiar el buffer
                 nuevoUsuario = new Empleado(identificacion, nombre, correo, telefono, esAdmin, puesto, salario);
                 break;
@@ -195,8 +199,10 @@ public class Principal {
     private static void actualizarUsuario(Scanner sc) {
         System.out.println("Ingrese la identificación del usuario a actualizar:");
         String idActualizar = sc.nextLine();
-        Usuario usuarioAActualizar = operacion.read(idActualizar);
-        if (usuarioAActualizar != null) {
+        Usuario guardado = operacion.read(idActualizar);
+        if (guardado != null) {
+            // Se modifica una copia: el usuario guardado es compartido con las lecturas anteriores
+            Usuario usuarioAActualizar = new CodificadorBinario().copiarUsuario(guardado);
             System.out.println("Ingrese el nuevo nombre del usuario:");
             usuarioAActualizar.setNombre(sc.nextLine());
             String resultadoActualizar = operacion.update(usuarioAActualizar, idActualizar);
@@ -219,15 +225,25 @@ public class Principal {
     }
 
     /**
-     * Muestra la información de todos los usuarios registrados.
+     * Muestra la información de todos los usuarios registrados, por páginas.
+     *
+     * @param sc Scanner para leer la entrada del usuario.
      */
-    private static void mostrarTodosLosUsuarios() {
-        List<Usuario> todosLosUsuarios = operacion.readAllUsuarios();
+    private static void mostrarTodosLosUsuarios(Scanner sc) {
         System.out.println("Listado de todos los usuarios:");
-        for (Usuario u : todosLosUsuarios) {
-            if (u != null) {
+        ConsultaPagina consulta = ConsultaPagina.primera(USUARIOS_POR_PAGINA);
+        while (consulta != null) {
+            Pagina<Usuario> pagina = operacion.readUsuariosPagina(consulta, null);
+            for (Usuario u : pagina.getElementos()) {
                 System.out.println(u.mostrarInformacion());
             }
+            consulta = pagina.getSiguiente();
+            if (consulta != null) {
+                System.out.print("Presione Enter para ver más usuarios o escriba 'q' para volver al menú: ");
+                if (sc.nextLine().trim().equalsIgnoreCase("q")) {
+                    break;
+                }
+            }
         }
     }
 
@@ -0,0 +1,261 @@
+package co.edu.poli.demo.modelo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import co.edu.poli.demo.modelo.ReservaRecurrente.Frecuencia;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Pruebas de {@link ReservaRecurrente} contra un cálculo directo que recorre las ocurrencias
+ * una por una: las consultas por rango con ocurrencias partidas por los bordes del rango, y
+ * los cruces entre reglas de periodos distintos, con excepciones y sin fin.
+ */
+class ReservaRecurrenteTest {
+
+    private static final Zona ZONA = new Zona("z", "Cancha", "Cancha", Dinero.de(10));
+    private static final LocalDateTime INICIO = LocalDateTime.of(2026, 1, 5, 10, 0);
+
+    @Test
+    void ocurrenciasEntreIncluyeLasPartidasPorLosBordes() {
+        List<ReservaRecurrente> reglas = new ArrayList<>();
+        reglas.add(regla("a", INICIO, 180, Frecuencia.SEMANAL, 2, LocalDate.of(2026, 12, 31)));
+        // Duración igual al periodo: cada ocurrencia termina donde empieza la siguiente
+        reglas.add(regla("b", INICIO, 24 * 60, Frecuencia.DIARIA, 1, LocalDate.of(2026, 3, 1)));
+        reglas.add(regla("c", INICIO.plusMinutes(45), 30, Frecuencia.DIARIA, 3, null));
+        reglas.get(0).excluir(INICIO.toLocalDate().plusWeeks(4));
+        reglas.get(1).excluir(INICIO.toLocalDate().plusDays(10));
+        reglas.get(2).excluir(INICIO.toLocalDate().plusDays(30));
+        for (ReservaRecurrente regla : reglas) {
+            List<LocalDateTime> bordes = new ArrayList<>();
+            for (LocalDateTime inicio : inicios(regla, INICIO.minusDays(3), INICIO.plusDays(120))) {
+                LocalDateTime fin = inicio.plus(regla.getDuracion());
+                for (long segundos : new long[] {-1, 0, 1}) {
+                    bordes.add(inicio.plusSeconds(segundos));
+                    bordes.add(fin.plusSeconds(segundos));
+                }
+            }
+            bordes.add(INICIO.minusDays(3));
+            for (int i = 0; i < bordes.size(); i++) {
+                for (int j = i; j < Math.min(bordes.size(), i + 14); j++) {
+                    LocalDateTime desde = bordes.get(i);
+                    LocalDateTime hasta = bordes.get(j);
+                    List<LocalDateTime> esperadas = ocurrenciasDirectas(regla, desde, hasta);
+                    List<LocalDateTime> obtenidas = new ArrayList<>();
+                    for (Reserva ocurrencia : regla.ocurrenciasEntre(desde, hasta)) {
+                        obtenidas.add(ocurrencia.getFechaInicio());
+                    }
+                    String caso = regla.getIdRecurrencia() + " entre " + desde + " y " + hasta;
+                    assertEquals(esperadas, obtenidas, caso);
+                    assertEquals(esperadas.isEmpty() ? null : esperadas.get(0), regla.buscarOcurrencia(desde, hasta),
+                            caso);
+                }
+            }
+        }
+    }
+
+    @Test
+    void ocurrenciasEntreRespetaElFinDeLaRegla() {
+        ReservaRecurrente regla = regla("a", INICIO, 60, Frecuencia.SEMANAL, 1, INICIO.toLocalDate().plusWeeks(3));
+        LocalDateTime ultima = INICIO.plusWeeks(3);
+        assertEquals(4, regla.ocurrenciasEntre(INICIO.minusYears(1), INICIO.plusYears(1)).size());
+        assertEquals(ultima, regla.buscarOcurrencia(ultima.plusMinutes(59), ultima.plusYears(1)));
+        assertNull(regla.buscarOcurrencia(ultima.plusMinutes(60), ultima.plusYears(1)));
+        assertEquals(ultima.plusMinutes(60), regla.getUltimoFin());
+    }
+
+    @Test
+    void tieneOcurrenciaCoincideConElRecorrido() {
+        ReservaRecurrente regla = regla("a", INICIO, 60, Frecuencia.DIARIA, 3, INICIO.toLocalDate().plusDays(30));
+        regla.excluir(INICIO.toLocalDate().plusDays(9));
+        List<LocalDateTime> inicios = inicios(regla, LocalDateTime.MIN, INICIO.plusDays(60));
+        for (LocalDate dia = INICIO.toLocalDate().minusDays(5); dia.isBefore(INICIO.toLocalDate().plusDays(40));
+                dia = dia.plusDays(1)) {
+            assertEquals(inicios.contains(dia.atTime(INICIO.toLocalTime())), regla.tieneOcurrencia(dia), dia.toString());
+        }
+        assertEquals(10, inicios.size());
+        assertEquals(30, ChronoUnit.DAYS.between(INICIO, inicios.get(inicios.size() - 1)));
+    }
+
+    /**
+     * Periodos de 97 y 89 días, que solo coinciden una vez cada 8633 días, unos 23 años.
+     */
+    @Test
+    void cruceDePeriodosDistintosLejanoEnElTiempo() {
+        ReservaRecurrente a = regla("a", INICIO, 60, Frecuencia.DIARIA, 97, null);
+        ReservaRecurrente b = regla("b", INICIO.plusDays(5).plusMinutes(30), 60, Frecuencia.DIARIA, 89, null);
+        LocalDateTime cruce = a.buscarCruce(b);
+        assertNotNull(cruce);
+        assertTrue(cruce.isAfter(INICIO.plusYears(5)), "el primer cruce es " + cruce);
+        assertEquals(cruceDirecto(a, b), cruce);
+        assertEquals(cruce.plusMinutes(30), b.buscarCruce(a));
+
+        // Con fin antes de esa fecha ya no se cruzan
+        ReservaRecurrente corta = regla("b", INICIO.plusDays(5).plusMinutes(30), 60, Frecuencia.DIARIA, 89,
+                cruce.toLocalDate().minusDays(1));
+        assertNull(a.buscarCruce(corta));
+        assertNull(corta.buscarCruce(a));
+    }
+
+    @Test
+    void excepcionesDespuesDeLaBaseComunDesplazanElCruce() {
+        ReservaRecurrente a = regla("a", INICIO, 60, Frecuencia.DIARIA, 97, null);
+        ReservaRecurrente b = regla("b", INICIO.plusDays(5).plusMinutes(30), 60, Frecuencia.DIARIA, 89, null);
+        LocalDateTime primero = a.buscarCruce(b);
+        long repeticion = 97L * 89;
+
+        assertTrue(a.excluir(primero.toLocalDate()));
+        LocalDateTime segundo = a.buscarCruce(b);
+        assertEquals(primero.plusDays(repeticion), segundo);
+        assertEquals(cruceDirecto(a, b), segundo);
+
+        // Excluir también el segundo en la otra regla lleva al tercero, otra vuelta después
+        assertTrue(b.excluir(segundo.plusMinutes(30).toLocalDate()));
+        assertEquals(primero.plusDays(2 * repeticion), a.buscarCruce(b));
+        assertEquals(cruceDirecto(a, b), a.buscarCruce(b));
+        assertEquals(cruceDirecto(b, a), b.buscarCruce(a));
+    }
+
+    @Test
+    void reglasSinFinQueNuncaSeCruzan() {
+        // Periodos de 6 y 4 días que empiezan en días de distinta paridad: nunca el mismo día
+        ReservaRecurrente a = regla("a", INICIO, 120, Frecuencia.DIARIA, 6, null);
+        ReservaRecurrente b = regla("b", INICIO.plusDays(1), 120, Frecuencia.DIARIA, 4, null);
+        assertNull(a.buscarCruce(b));
+        assertNull(b.buscarCruce(a));
+
+        // El mismo día pero una termina justo cuando empieza la otra
+        ReservaRecurrente c = regla("c", INICIO.plusDays(2).plusHours(2), 60, Frecuencia.DIARIA, 4, null);
+        assertNull(a.buscarCruce(c));
+        assertNull(c.buscarCruce(a));
+        ReservaRecurrente d = regla("d", INICIO.plusDays(2).plusHours(2).minusMinutes(1), 60, Frecuencia.DIARIA, 4,
+                null);
+        assertEquals(INICIO.plusDays(6), a.buscarCruce(d));
+    }
+
+    /**
+     * La otra regla empieza el mismo día más tarde y cada ocurrencia suya pasa la medianoche:
+     * el primer cruce es con la ocurrencia del día siguiente, una repetición completa después
+     * de la fecha base, donde la ocurrencia de la regla del día anterior aún no existía.
+     */
+    @Test
+    void cruceConOcurrenciasQuePasanLaMedianoche() {
+        LocalDateTime dia = INICIO.toLocalDate().atStartOfDay();
+        ReservaRecurrente a = regla("a", dia.plusHours(1), 60, Frecuencia.DIARIA, 5, null);
+        ReservaRecurrente b = regla("b", dia.plusHours(3), 23 * 60, Frecuencia.DIARIA, 1, null);
+        assertEquals(dia.plusDays(5).plusHours(1), a.buscarCruce(b));
+        assertEquals(cruceDirecto(a, b), a.buscarCruce(b));
+        assertEquals(dia.plusDays(4).plusHours(3), b.buscarCruce(a));
+    }
+
+    /**
+     * Pares de reglas al azar, con y sin fin, con excepciones antes y después de que ambas
+     * empiecen, comparados con el recorrido directo de las ocurrencias.
+     */
+    @Test
+    void buscarCruceCoincideConElRecorridoDirecto() {
+        Random azar = new Random(22L);
+        for (int caso = 0; caso < 400; caso++) {
+            ReservaRecurrente a = reglaAlAzar("a", azar);
+            ReservaRecurrente b = reglaAlAzar("b", azar);
+            assertEquals(cruceDirecto(a, b), a.buscarCruce(b), a + " con " + b);
+            assertEquals(cruceDirecto(b, a), b.buscarCruce(a), b + " con " + a);
+        }
+    }
+
+    private static ReservaRecurrente reglaAlAzar(String id, Random azar) {
+        Frecuencia frecuencia = azar.nextBoolean() ? Frecuencia.DIARIA : Frecuencia.SEMANAL;
+        int intervalo = 1 + azar.nextInt(frecuencia == Frecuencia.DIARIA ? 40 : 6);
+        LocalDateTime inicio = INICIO.plusDays(azar.nextInt(60)).plusMinutes(15L * azar.nextInt(96));
+        long duracion = 15L * (1 + azar.nextInt(12));
+        LocalDate hasta = azar.nextInt(3) == 0 ? null : inicio.toLocalDate().plusDays(azar.nextInt(3000));
+        ReservaRecurrente regla = regla(id, inicio, duracion, frecuencia, intervalo, hasta);
+        for (int i = azar.nextInt(4); i > 0; i--) {
+            regla.excluir(inicio.toLocalDate().plusDays(regla.getPeriodoDias() * azar.nextInt(40)));
+        }
+        return regla;
+    }
+
+    private static ReservaRecurrente regla(String id, LocalDateTime inicio, long minutos, Frecuencia frecuencia,
+                                           int intervalo, LocalDate hasta) {
+        return new ReservaRecurrente(id, null, ZONA, inicio, Duration.ofMinutes(minutos), frecuencia, intervalo, hasta);
+    }
+
+    /**
+     * Inicios de las ocurrencias no excluidas que empiezan en un rango, recorriéndolas una por
+     * una desde la primera.
+     */
+    private static List<LocalDateTime> inicios(ReservaRecurrente regla, LocalDateTime desde, LocalDateTime hasta) {
+        List<LocalDateTime> inicios = new ArrayList<>();
+        for (LocalDateTime inicio = regla.getPrimerInicio(); inicio.isBefore(hasta);
+                inicio = inicio.plusDays(regla.getPeriodoDias())) {
+            if (regla.getHasta() != null && inicio.toLocalDate().isAfter(regla.getHasta())) {
+                break;
+            }
+            if (!inicio.isBefore(desde) && !regla.getExcepciones().contains(inicio.toLocalDate())) {
+                inicios.add(inicio);
+            }
+        }
+        return inicios;
+    }
+
+    /**
+     * Ocurrencias no excluidas que se cruzan con un rango semiabierto, recorriéndolas una por
+     * una.
+     */
+    private static List<LocalDateTime> ocurrenciasDirectas(ReservaRecurrente regla, LocalDateTime desde,
+                                                           LocalDateTime hasta) {
+        List<LocalDateTime> resultado = new ArrayList<>();
+        for (LocalDateTime inicio : inicios(regla, LocalDateTime.MIN, hasta)) {
+            if (inicio.plus(regla.getDuracion()).isAfter(desde)) {
+                resultado.add(inicio);
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Primera ocurrencia de una regla que se cruza con una de la otra, recorriendo las
+     * ocurrencias una por una hasta dos repeticiones completas de ambos periodos después de
+     * que las dos empiezan y de sus excepciones.
+     */
+    private static LocalDateTime cruceDirecto(ReservaRecurrente regla, ReservaRecurrente otra) {
+        LocalDateTime base = regla.getPrimerInicio().isAfter(otra.getPrimerInicio()) ? regla.getPrimerInicio()
+                : otra.getPrimerInicio();
+        for (ReservaRecurrente r : new ReservaRecurrente[] {regla, otra}) {
+            if (!r.getExcepciones().isEmpty() && r.getExcepciones().last().atStartOfDay().isAfter(base)) {
+                base = r.getExcepciones().last().atStartOfDay();
+            }
+        }
+        long periodo = regla.getPeriodoDias() / mcd(regla.getPeriodoDias(), otra.getPeriodoDias())
+                * otra.getPeriodoDias();
+        LocalDateTime horizonte = base.plusDays(2 * periodo + regla.getPeriodoDias() + otra.getPeriodoDias());
+        for (LocalDateTime inicio : inicios(regla, LocalDateTime.MIN, horizonte)) {
+            LocalDateTime fin = inicio.plus(regla.getDuracion());
+            // Las duraciones de las pruebas no pasan de un día
+            LocalDate dia = inicio.toLocalDate().minusDays(1);
+            for (; !dia.isAfter(fin.toLocalDate()); dia = dia.plusDays(1)) {
+                if (otra.tieneOcurrencia(dia)) {
+                    LocalDateTime inicioOtra = dia.atTime(otra.getPrimerInicio().toLocalTime());
+                    if (inicioOtra.isBefore(fin) && inicioOtra.plus(otra.getDuracion()).isAfter(inicio)) {
+                        return inicio;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private static long mcd(long a, long b) {
+        return b == 0 ? a : mcd(b, a % b);
+    }
+}
@@ -0,0 +1,117 @@
+package co.edu.poli.demo.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import co.edu.poli.demo.modelo.Dinero;
+import co.edu.poli.demo.modelo.Reserva;
+import co.edu.poli.demo.modelo.Usuario;
+import co.edu.poli.demo.modelo.UsuarioFrecuente;
+import co.edu.poli.demo.modelo.Zona;
+import java.time.LocalDateTime;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Pruebas de {@link GestorTransacciones} y de la confirmación de {@link Transaccion}.
+ */
+class GestorTransaccionesTest {
+
+    private static final LocalDateTime INICIO = LocalDateTime.of(2026, 3, 2, 9, 0);
+
+    private ImplementacionOperacion operacion;
+    private GestorTransacciones gestor;
+    private UsuarioFrecuente usuario;
+    private Zona zona;
+
+    @BeforeEach
+    void preparar() {
+        operacion = new ImplementacionOperacion();
+        gestor = new GestorTransacciones(operacion);
+        usuario = new UsuarioFrecuente("u1", "Ana", "ana@correo.com", "3001234567", false, 0, 0);
+        zona = new Zona("z1", "Cancha", "Cancha", Dinero.de(10000));
+        operacion.create(usuario);
+        operacion.createZona(zona);
+    }
+
+    @Test
+    void reservarDosHorariosSeguidosDeLaMismaZona() {
+        assertEquals("Transacción confirmada exitosamente.",
+                gestor.reservar(new Reserva("r1", usuario, zona, INICIO, INICIO.plusHours(1)), null));
+        assertEquals("Transacción confirmada exitosamente.",
+                gestor.reservar(new Reserva("r2", usuario, zona, INICIO.plusHours(1), INICIO.plusHours(2)), null));
+        assertEquals(2, operacion.readAllReservas().size());
+        assertTrue(operacion.readZona("z1").isDisponible());
+        assertEquals(2, ((UsuarioFrecuente) operacion.read("u1")).getVisitasTotales());
+    }
+
+    @Test
+    void reservarHorarioOcupadoNoCambiaNada() {
+        gestor.reservar(new Reserva("r1", usuario, zona, INICIO, INICIO.plusHours(2)), null);
+        assertEquals("La zona no está disponible para las fechas solicitadas.",
+                gestor.reservar(new Reserva("r2", usuario, zona, INICIO.plusHours(1), INICIO.plusHours(3)), null));
+        assertNull(operacion.readReserva("r2"));
+        assertEquals(1, ((UsuarioFrecuente) operacion.read("u1")).getVisitasTotales());
+    }
+
+    @Test
+    void crearReservaSinZonaOFechasDevuelveError() {
+        Transaccion transaccion = gestor.iniciar();
+        Reserva sinZona = new Reserva("r1", usuario, zona, INICIO, INICIO.plusHours(1));
+        sinZona.setZona(null);
+        assertEquals("Error: la reserva no tiene zona.", transaccion.crearReserva(sinZona));
+        Reserva sinFin = new Reserva("r2", usuario, zona, INICIO, INICIO.plusHours(1));
+        sinFin.setFechaFin(null);
+        assertEquals("Error: la reserva no tiene fecha de inicio o de fin.", transaccion.crearReserva(sinFin));
+        assertEquals("Transacción confirmada exitosamente.", transaccion.commit());
+        assertEquals(0, operacion.readAllReservas().size());
+    }
+
+    @Test
+    void confirmacionFallidaDeshaceLasEscrituras() {
+        FallaSimulada almacen = new FallaSimulada();
+        almacen.create(usuario);
+        almacen.createZona(zona);
+        Transaccion transaccion = new GestorTransacciones(almacen).iniciar();
+        transaccion.crearReserva(new Reserva("r1", usuario, zona, INICIO, INICIO.plusHours(1)));
+        transaccion.modificarUsuario("u1").setNombre("Ana María");
+        almacen.fallarUsuarios = true;
+        assertEquals("Error: falla simulada.", transaccion.commit());
+        assertNull(almacen.readReserva("r1"));
+    }
+
+    @Test
+    void confirmacionQueNoSePuedeDeshacerInformaEstadoInconsistente() {
+        FallaSimulada almacen = new FallaSimulada();
+        almacen.create(usuario);
+        almacen.createZona(zona);
+        Transaccion transaccion = new GestorTransacciones(almacen).iniciar();
+        transaccion.crearReserva(new Reserva("r1", usuario, zona, INICIO, INICIO.plusHours(1)));
+        transaccion.modificarUsuario("u1").setNombre("Ana María");
+        almacen.fallarUsuarios = true;
+        almacen.fallarEliminaciones = true;
+        String resultado = transaccion.commit();
+        assertTrue(resultado.startsWith(Transaccion.INCONSISTENTE), resultado);
+        assertTrue(resultado.contains("la creación de la reserva r1"), resultado);
+    }
+
+    /**
+     * Almacén que puede fallar al actualizar usuarios y al eliminar reservas.
+     */
+    private static final class FallaSimulada extends ImplementacionOperacion {
+        private static final long serialVersionUID = 1L;
+        private boolean fallarUsuarios;
+        private boolean fallarEliminaciones;
+
+        @Override
+        public String updateSiVersion(Usuario usuario, String idUsuario, long version) {
+            return fallarUsuarios ? "Error: falla simulada." : super.updateSiVersion(usuario, idUsuario, version);
+        }
+
+        @Override
+        public Reserva deleteReserva(String idReserva) {
+            return fallarEliminaciones ? null : super.deleteReserva(idReserva);
+        }
+    }
+}
@@ -0,0 +1,481 @@
+package co.edu.poli.demo.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import co.edu.poli.demo.modelo.Dinero;
+import co.edu.poli.demo.modelo.Reserva;
+import co.edu.poli.demo.modelo.Usuario;
+import co.edu.poli.demo.modelo.UsuarioFrecuente;
+import co.edu.poli.demo.modelo.Zona;
+import java.time.LocalDateTime;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Pruebas de estrés de {@link ImplementacionOperacionConcurrente} con varios hilos escribiendo
+ * a la vez sobre los mismos usuarios, zonas y reservas.
+ */
+class ImplementacionOperacionConcurrenteTest {
+
+    private static final int HILOS = 16;
+    private static final LocalDateTime INICIO = LocalDateTime.of(2026, 1, 1, 8, 0);
+
+    @Test
+    void noSeCreanReservasDespuesDeEliminarLaZona() throws Exception {
+        for (int ronda = 0; ronda < 100; ronda++) {
+            verificarEliminacionDuranteReservas(operacion -> operacion.deleteZona("z"));
+        }
+    }
+
+    @Test
+    void noSeCreanReservasDespuesDeEliminarElUsuario() throws Exception {
+        for (int ronda = 0; ronda < 100; ronda++) {
+            verificarEliminacionDuranteReservas(operacion -> operacion.delete("u"));
+        }
+    }
+
+    @Test
+    void noSeCreanReservasDespuesDeRenombrarLaZona() throws Exception {
+        for (int ronda = 0; ronda < 100; ronda++) {
+            verificarEliminacionDuranteReservas(operacion -> operacion.updateZona(
+                    new Zona("z2", "Cancha", "Cancha", Dinero.de(10)), "z"));
+        }
+    }
+
+    @Test
+    void reservasConcurrentesNoSeSolapan() throws Exception {
+        ImplementacionOperacionConcurrente operacion = new ImplementacionOperacionConcurrente();
+        Usuario usuario = new UsuarioFrecuente("u", "Ana", "ana@correo.com", "3001234567", false, 0, 0);
+        operacion.create(usuario);
+        for (int i = 0; i < 4; i++) {
+            operacion.createZona(new Zona("z" + i, "Cancha", "Cancha", Dinero.de(10)));
+        }
+        AtomicLong ids = new AtomicLong();
+        AtomicInteger creadas = new AtomicInteger();
+        ejecutar(HILOS, hilo -> {
+            ThreadLocalRandom azar = ThreadLocalRandom.current();
+            for (int i = 0; i < 2000; i++) {
+                String idZona = "z" + azar.nextInt(4);
+                LocalDateTime inicio = INICIO.plusMinutes(30L * azar.nextInt(200));
+                if (azar.nextInt(4) == 0) {
+                    List<Reserva> existentes = operacion.readReservasZona(idZona, inicio, inicio.plusHours(1));
+                    if (!existentes.isEmpty()) {
+                        operacion.deleteReserva(existentes.get(0).getIdReserva());
+                    }
+                    continue;
+                }
+                String resultado = operacion.createReserva(new Reserva("r" + ids.incrementAndGet(), usuario,
+                        operacion.readZona(idZona), inicio, inicio.plusMinutes(30L * (1 + azar.nextInt(3)))));
+                if (resultado.startsWith("Reserva creada")) {
+                    creadas.incrementAndGet();
+                }
+            }
+        });
+        assertTrue(creadas.get() > 0);
+        List<Reserva> reservas = operacion.readAllReservas();
+        for (Reserva a : reservas) {
+            for (Reserva b : reservas) {
+                if (a != b && a.getZona().getIdZona().equals(b.getZona().getIdZona())) {
+                    assertFalse(a.getFechaInicio().isBefore(b.getFechaFin()) && b.getFechaInicio().isBefore(a.getFechaFin()),
+                            a.getIdReserva() + " se solapa con " + b.getIdReserva());
+                }
+            }
+            assertFalse(operacion.verificarDisponibilidad(a.getZona().getIdZona(), a.getFechaInicio(), a.getFechaFin()),
+                    "el índice no tiene la reserva " + a.getIdReserva());
+        }
+    }
+
+    @Test
+    void lecturasNoEsperanAUnLoteEnCurso() throws Exception {
+        ImplementacionOperacionConcurrente operacion = new ImplementacionOperacionConcurrente();
+        operacion.create(new UsuarioFrecuente("u0", "Ana", "ana@correo.com", "3001234567", false, 0, 0));
+        CountDownLatch dentro = new CountDownLatch(1);
+        CountDownLatch soltar = new CountDownLatch(1);
+        // Lote que se detiene con el primer usuario ya guardado y el cerrojo de usuarios tomado
+        List<Usuario> lote = new AbstractList<>() {
+            @Override
+            public Usuario get(int indice) {
+                if (indice == 1) {
+                    dentro.countDown();
+                    try {
+                        soltar.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return new UsuarioFrecuente("u" + (indice + 1), "Ana", "ana" + indice + "@correo.com", "300000000" + indice, false, 0, 0);
+            }
+
+            @Override
+            public int size() {
+                return 2;
+            }
+        };
+        Thread escritor = new Thread(() -> operacion.createAll(lote));
+        escritor.start();
+        assertTrue(dentro.await(5, TimeUnit.SECONDS));
+        int[] vistos = new int[2];
+        Thread lector = new Thread(() -> {
+            vistos[0] = operacion.readAllUsuarios().size();
+            // Una escritura de otro tipo publica su corte sin el lote a medias
+            operacion.createZona(new Zona("z", "Cancha", "Cancha", Dinero.de(10)));
+            vistos[1] = operacion.tomarCorte().getUsuarios().tamano();
+        });
+        lector.start();
+        lector.join(5000);
+        boolean esperoAlEscritor = lector.isAlive();
+        soltar.countDown();
+        escritor.join();
+        lector.join();
+        assertFalse(esperoAlEscritor, "la lectura esperó al lote");
+        assertEquals(1, vistos[0]);
+        assertEquals(1, vistos[1]);
+        assertEquals(3, operacion.readAllUsuarios().size());
+        assertEquals(1, operacion.readAllZonas().size());
+    }
+
+    @Test
+    void escriturasSobreLosMismosIdsSonLinealizables() throws Exception {
+        for (int ronda = 0; ronda < 10; ronda++) {
+            ImplementacionOperacionConcurrente operacion = new ImplementacionOperacionConcurrente();
+            Historia historia = new Historia();
+            ejecutar(HILOS, hilo -> {
+                ThreadLocalRandom azar = ThreadLocalRandom.current();
+                for (int i = 0; i < 1500; i++) {
+                    if (azar.nextBoolean()) {
+                        operar(operacion, USUARIOS, historia, azar);
+                    } else {
+                        operar(operacion, ZONAS, historia, azar);
+                    }
+                }
+            });
+            assertTrue(historia.errores.isEmpty(), String.valueOf(historia.errores.peek()));
+            verificarEstadoFinal(operacion, USUARIOS, historia);
+            verificarEstadoFinal(operacion, ZONAS, historia);
+        }
+    }
+
+    /**
+     * Crea, actualiza o elimina una entidad de uno de los pocos identificadores que comparten
+     * todos los hilos, y comprueba que el propio hilo ve enseguida su escritura: ni la lectura
+     * por identificador ni un corte nuevo pueden mostrar el valor que la escritura reemplazó o
+     * eliminó.
+     */
+    private static <T> void operar(ImplementacionOperacionConcurrente operacion, Entidades<T> tipo,
+                                   Historia historia, ThreadLocalRandom azar) {
+        String id = tipo.prefijo() + azar.nextInt(3);
+        Versionado<T> antes = leer(operacion, tipo, historia, id);
+        int accion = azar.nextInt(3);
+        if (accion == 2) {
+            T eliminada = tipo.eliminar(operacion, id);
+            if (eliminada != null) {
+                historia.eliminadas.add(tipo.etiqueta(eliminada));
+                historia.balance.computeIfAbsent(id, clave -> new LongAdder()).decrement();
+                verNoSeVe(operacion, tipo, historia, id, eliminada, "eliminó");
+            }
+            return;
+        }
+        String etiqueta = "e" + historia.etiquetas.incrementAndGet();
+        String resultado = accion == 0 ? tipo.crear(operacion, id, etiqueta) : tipo.actualizar(operacion, id, etiqueta);
+        if (!resultado.endsWith("exitosamente.")) {
+            if (!resultado.contains("ya existe") && !resultado.contains("no encontrad")) {
+                historia.errores.add(resultado);
+            }
+            return;
+        }
+        historia.escritas.put(etiqueta, id);
+        if (accion == 0) {
+            historia.balance.computeIfAbsent(id, clave -> new LongAdder()).increment();
+        }
+        if (antes != null) {
+            Versionado<T> despues = leer(operacion, tipo, historia, id);
+            if (despues != null && despues.getVersion() <= antes.getVersion()) {
+                historia.errores.add(id + ": tras escribir " + etiqueta + " se leyó la versión " + despues.getVersion()
+                        + ", no posterior a la " + antes.getVersion() + " leída antes");
+            }
+            verNoSeVe(operacion, tipo, historia, id, antes.getValor(), "reemplazó");
+        }
+    }
+
+    private static <T> Versionado<T> leer(ImplementacionOperacionConcurrente operacion, Entidades<T> tipo,
+                                          Historia historia, String id) {
+        Versionado<T> leida = tipo.leer(operacion, id);
+        if (leida != null) {
+            historia.leidas.add(tipo.etiqueta(leida.getValor()));
+            historia.versiones.merge(id, leida.getVersion(), Math::max);
+        }
+        return leida;
+    }
+
+    private static <T> void verNoSeVe(ImplementacionOperacionConcurrente operacion, Entidades<T> tipo,
+                                      Historia historia, String id, T valor, String como) {
+        Versionado<T> leida = tipo.leer(operacion, id);
+        if (leida != null && leida.getValor() == valor) {
+            historia.errores.add(id + ": la lectura aún ve " + tipo.etiqueta(valor) + ", que el mismo hilo " + como);
+        }
+        if (buscarEnCorte(operacion.tomarCorte(), tipo, id) == valor) {
+            historia.errores.add(id + ": el corte aún tiene " + tipo.etiqueta(valor) + ", que el mismo hilo " + como);
+        }
+    }
+
+    /**
+     * Comprueba que el estado final corresponde a aplicar en algún orden las escrituras que
+     * tuvieron éxito: por cada identificador, las creaciones menos las eliminaciones dan si
+     * existe; cada eliminación devolvió un valor escrito con éxito y que nadie más eliminó; el
+     * valor final se escribió con éxito, no se eliminó y tiene la versión más nueva que se
+     * leyó. Ningún lector vio un valor cuya escritura falló.
+     */
+    private static <T> void verificarEstadoFinal(ImplementacionOperacionConcurrente operacion, Entidades<T> tipo,
+                                                 Historia historia) {
+        Set<String> eliminadas = new HashSet<>();
+        for (String etiqueta : historia.eliminadas) {
+            assertTrue(eliminadas.add(etiqueta), etiqueta + " se eliminó dos veces");
+            assertTrue(historia.escritas.containsKey(etiqueta), "se eliminó " + etiqueta + ", que no se escribió");
+        }
+        for (String etiqueta : historia.leidas) {
+            assertTrue(historia.escritas.containsKey(etiqueta), "se leyó " + etiqueta + ", que no se escribió");
+        }
+        CorteDatos corte = operacion.tomarCorte();
+        for (int i = 0; i < 3; i++) {
+            String id = tipo.prefijo() + i;
+            Versionado<T> ultima = tipo.leer(operacion, id);
+            LongAdder balance = historia.balance.get(id);
+            long existe = balance == null ? 0 : balance.sum();
+            assertEquals(ultima == null ? 0 : 1, existe, id + ": creaciones menos eliminaciones");
+            assertSame(ultima == null ? null : ultima.getValor(), buscarEnCorte(corte, tipo, id));
+            if (ultima != null) {
+                String etiqueta = tipo.etiqueta(ultima.getValor());
+                assertEquals(id, historia.escritas.get(etiqueta), id + " terminó con " + etiqueta);
+                assertFalse(eliminadas.contains(etiqueta), id + " terminó con " + etiqueta + ", que se eliminó");
+                assertTrue(ultima.getVersion() >= historia.versiones.getOrDefault(id, 0L),
+                        id + " terminó con una versión anterior a otra ya leída");
+            }
+        }
+    }
+
+    private static <T> T buscarEnCorte(CorteDatos corte, Entidades<T> tipo, String id) {
+        for (T entidad : tipo.corte(corte)) {
+            if (tipo.id(entidad).equals(id)) {
+                return entidad;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Lo que observaron los hilos de {@link #escriturasSobreLosMismosIdsSonLinealizables()}.
+     * Cada valor escrito lleva una etiqueta única en su nombre.
+     */
+    private static final class Historia {
+        final AtomicLong etiquetas = new AtomicLong();
+        /** Etiquetas de las escrituras que tuvieron éxito, con su identificador. */
+        final Map<String, String> escritas = new ConcurrentHashMap<>();
+        final ConcurrentLinkedQueue<String> eliminadas = new ConcurrentLinkedQueue<>();
+        final ConcurrentLinkedQueue<String> leidas = new ConcurrentLinkedQueue<>();
+        /** Creaciones menos eliminaciones con éxito de cada identificador. */
+        final Map<String, LongAdder> balance = new ConcurrentHashMap<>();
+        /** Versión más nueva leída de cada identificador. */
+        final Map<String, Long> versiones = new ConcurrentHashMap<>();
+        final ConcurrentLinkedQueue<String> errores = new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * Operaciones de un tipo de entidad, para escribir las mismas pruebas sobre usuarios y
+     * zonas.
+     */
+    private interface Entidades<T> {
+        String prefijo();
+
+        String crear(Operacion operacion, String id, String etiqueta);
+
+        String actualizar(Operacion operacion, String id, String etiqueta);
+
+        T eliminar(Operacion operacion, String id);
+
+        Versionado<T> leer(Operacion operacion, String id);
+
+        Corte<T> corte(CorteDatos corte);
+
+        String id(T entidad);
+
+        String etiqueta(T entidad);
+    }
+
+    private static final Entidades<Usuario> USUARIOS = new Entidades<>() {
+        @Override
+        public String prefijo() {
+            return "u";
+        }
+
+        @Override
+        public String crear(Operacion operacion, String id, String etiqueta) {
+            return operacion.create(nuevo(id, etiqueta));
+        }
+
+        @Override
+        public String actualizar(Operacion operacion, String id, String etiqueta) {
+            return operacion.update(nuevo(id, etiqueta), id);
+        }
+
+        // El correo y el teléfono también son únicos para no chocar con otros usuarios
+        private Usuario nuevo(String id, String etiqueta) {
+            return new UsuarioFrecuente(id, etiqueta, etiqueta + "@correo.com",
+                    String.valueOf(3_000_000_000L + Long.parseLong(etiqueta.substring(1))), false, 0, 0);
+        }
+
+        @Override
+        public Usuario eliminar(Operacion operacion, String id) {
+            return operacion.delete(id);
+        }
+
+        @Override
+        public Versionado<Usuario> leer(Operacion operacion, String id) {
+            return operacion.readVersionado(id);
+        }
+
+        @Override
+        public Corte<Usuario> corte(CorteDatos corte) {
+            return corte.getUsuarios();
+        }
+
+        @Override
+        public String id(Usuario usuario) {
+            return usuario.getIdUsuario();
+        }
+
+        @Override
+        public String etiqueta(Usuario usuario) {
+            return usuario.getNombre();
+        }
+    };
+
+    private static final Entidades<Zona> ZONAS = new Entidades<>() {
+        @Override
+        public String prefijo() {
+            return "z";
+        }
+
+        @Override
+        public String crear(Operacion operacion, String id, String etiqueta) {
+            return operacion.createZona(new Zona(id, etiqueta, "Cancha", Dinero.de(10)));
+        }
+
+        @Override
+        public String actualizar(Operacion operacion, String id, String etiqueta) {
+            return operacion.updateZona(new Zona(id, etiqueta, "Cancha", Dinero.de(10)), id);
+        }
+
+        @Override
+        public Zona eliminar(Operacion operacion, String id) {
+            return operacion.deleteZona(id);
+        }
+
+        @Override
+        public Versionado<Zona> leer(Operacion operacion, String id) {
+            return operacion.readZonaVersionada(id);
+        }
+
+        @Override
+        public Corte<Zona> corte(CorteDatos corte) {
+            return corte.getZonas();
+        }
+
+        @Override
+        public String id(Zona zona) {
+            return zona.getIdZona();
+        }
+
+        @Override
+        public String etiqueta(Zona zona) {
+            return zona.getNombre();
+        }
+    };
+
+    /**
+     * Varios hilos reservan la zona z para el usuario u mientras otro ejecuta el cambio dado,
+     * que deja a z o a u fuera del almacén. Ninguna reserva puede crearse después de que el
+     * cambio termine.
+     */
+    private static void verificarEliminacionDuranteReservas(Consumer<Operacion> cambio) throws Exception {
+        ImplementacionOperacionConcurrente operacion = new ImplementacionOperacionConcurrente();
+        Usuario usuario = new UsuarioFrecuente("u", "Ana", "ana@correo.com", "3001234567", false, 0, 0);
+        Zona zona = new Zona("z", "Cancha", "Cancha", Dinero.de(10));
+        operacion.create(usuario);
+        operacion.createZona(zona);
+        AtomicLong ids = new AtomicLong();
+        AtomicInteger despues = new AtomicInteger(-1);
+        ConcurrentLinkedQueue<String> errores = new ConcurrentLinkedQueue<>();
+        ejecutar(HILOS, hilo -> {
+            if (hilo == 0) {
+                while (operacion.tomarCorte().getReservas().tamano() < 10) {
+                    Thread.yield();
+                }
+                cambio.accept(operacion);
+                despues.set(operacion.tomarCorte().getReservas().tamano());
+                return;
+            }
+            for (int i = 0; i < 60; i++) {
+                long id = ids.incrementAndGet();
+                LocalDateTime inicio = INICIO.plusHours(id);
+                String resultado = operacion.createReserva(new Reserva("r" + id, usuario, zona, inicio, inicio.plusMinutes(30)));
+                if (!resultado.startsWith("Reserva creada") && !resultado.contains("no está registrad")) {
+                    errores.add(resultado);
+                }
+            }
+        });
+        assertTrue(errores.isEmpty(), String.valueOf(errores.peek()));
+        assertTrue(despues.get() >= 10);
+        assertEquals(despues.get(), operacion.tomarCorte().getReservas().tamano(),
+                "se crearon reservas después del cambio");
+    }
+
+    /**
+     * Ejecuta una tarea en varios hilos que empiezan a la vez y espera a que terminen todos.
+     */
+    private static void ejecutar(int hilos, TareaHilo tarea) throws Exception {
+        CyclicBarrier salida = new CyclicBarrier(hilos);
+        ConcurrentLinkedQueue<Throwable> fallos = new ConcurrentLinkedQueue<>();
+        List<Thread> trabajadores = new ArrayList<>();
+        for (int h = 0; h < hilos; h++) {
+            int hilo = h;
+            Thread trabajador = new Thread(() -> {
+                try {
+                    salida.await();
+                    tarea.ejecutar(hilo);
+                } catch (Throwable e) {
+                    fallos.add(e);
+                }
+            });
+            trabajadores.add(trabajador);
+            trabajador.start();
+        }
+        for (Thread trabajador : trabajadores) {
+            trabajador.join();
+        }
+        if (!fallos.isEmpty()) {
+            throw new AssertionError(fallos.peek());
+        }
+    }
+
+    private interface TareaHilo {
+        void ejecutar(int hilo) throws Exception;
+    }
+}
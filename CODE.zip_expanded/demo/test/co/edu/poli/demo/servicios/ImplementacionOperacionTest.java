@@ -0,0 +1,294 @@
+package co.edu.poli.demo.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import co.edu.poli.demo.modelo.Dinero;
+import co.edu.poli.demo.modelo.Empleado;
+import co.edu.poli.demo.modelo.Reserva;
+import co.edu.poli.demo.modelo.Usuario;
+import co.edu.poli.demo.modelo.UsuarioCorporativo;
+import co.edu.poli.demo.modelo.UsuarioFrecuente;
+import co.edu.poli.demo.modelo.Zona;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Pruebas de {@link ImplementacionOperacion}: validación de reservas, carga de archivos y
+ * registro de escritura.
+ */
+class ImplementacionOperacionTest {
+
+    private static final LocalDateTime INICIO = LocalDateTime.of(2026, 3, 2, 9, 0);
+
+    /**
+     * Lista de usuarios guardada con serialización de Java antes de que los importes fueran
+     * {@link Dinero}: un {@link Empleado} con salario 1234567.89 y un
+     * {@link UsuarioInternacional} con tarifa 150.5, ambos como double.
+     */
+    private static final String USUARIOS_ANTERIORES =
+            "rO0ABXNyABNqYXZhLnV0aWwuQXJyYXlMaXN0eIHSHZnHYZ0DAAFJAARzaXpleHAAAAACdwQAAAACc3IAIGNvLmVkdS5wb2xp"
+            + "LmRlbW8ubW9kZWxvLkVtcGxlYWRvAAAAAAAAAAECAANEAAdzYWxhcmlvTAAFY2FyZ290ABJMamF2YS9sYW5nL1N0cmluZztM"
+            + "AA90YXJlYXNBc2lnbmFkYXN0ABBMamF2YS91dGlsL0xpc3Q7eHIAH2NvLmVkdS5wb2xpLmRlbW8ubW9kZWxvLlVzdWFyaW8A"
+            + "AAAAAAAAAQIABVoAB2VzQWRtaW5MAAZjb3JyZW9xAH4AA0wACWlkVXN1YXJpb3EAfgADTAAGbm9tYnJlcQB+AANMAAh0ZWxl"
+            + "Zm9ub3EAfgADeHAAdAAPbHVpc0Bjb3JyZW8uY29tdAACZTF0AARMdWlzdAAKMzAwMTExMjIzM0Ey1ofj1wo9dAAFR3XDrWFz"
+            + "cQB+AAAAAAABdwQAAAABdAAFQWJyaXJ4c3IAL2NvLmVkdS5wb2xpLmRlbW8uc2VydmljaW9zLlVzdWFyaW9JbnRlcm5hY2lv"
+            + "bmFsAAAAAAAAAAECAANaABFyZXF1aWVyZVRyYWR1Y3RvckQAGXRhcmlmYU1vbmVkYUludGVybmFjaW9uYWxMAApwYWlzT3Jp"
+            + "Z2VucQB+AAN4cgAqY28uZWR1LnBvbGkuZGVtby5tb2RlbG8uVXN1YXJpb0NvcnBvcmF0aXZvAAAAAAAAAAECAAJJABJldmVu"
+            + "dG9zT3JnYW5pemFkb3NMAA1ub21icmVFbXByZXNhcQB+AAN4cQB+AAUAdAAObWlhQGNvcnJlby5jb210AAJpMXQAA01pYXQA"
+            + "CjMwMDQ0NDU1NjYAAAACdAAEQWNtZQFAYtAAAAAAAHQABUNoaWxleA==";
+
+    private ImplementacionOperacion operacion;
+    private Usuario usuario;
+    private Zona zona;
+
+    @BeforeEach
+    void preparar() {
+        operacion = new ImplementacionOperacion();
+        usuario = new UsuarioFrecuente("u1", "Ana", "ana@correo.com", "3001234567", false, 0, 0);
+        zona = new Zona("z1", "Cancha", "Cancha", Dinero.de(10000));
+        operacion.create(usuario);
+        operacion.createZona(zona);
+    }
+
+    @Test
+    void reservaSinZonaDevuelveError() {
+        Reserva sinZona = new Reserva("r1", usuario, zona, INICIO, INICIO.plusHours(1));
+        sinZona.setZona(null);
+        assertEquals("Error: la reserva no tiene zona.", operacion.createReserva(sinZona));
+        assertNull(operacion.readReserva("r1"));
+    }
+
+    @Test
+    void reservaSinFechasDevuelveError() {
+        Reserva sinInicio = new Reserva("r1", usuario, zona, INICIO, INICIO.plusHours(1));
+        sinInicio.setFechaInicio(null);
+        assertEquals("Error: la reserva no tiene fecha de inicio o de fin.", operacion.createReserva(sinInicio));
+        Reserva sinFin = new Reserva("r2", usuario, zona, INICIO, INICIO.plusHours(1));
+        sinFin.setFechaFin(null);
+        assertEquals("Error: la reserva no tiene fecha de inicio o de fin.", operacion.createReserva(sinFin));
+        assertEquals(0, operacion.readAllReservas().size());
+    }
+
+    @Test
+    void actualizarConReservaSinZonaDevuelveError() {
+        operacion.createReserva(new Reserva("r1", usuario, zona, INICIO, INICIO.plusHours(1)));
+        Reserva sinZona = new Reserva("r1", usuario, zona, INICIO, INICIO.plusHours(2));
+        sinZona.setZona(null);
+        assertEquals("Error: la reserva no tiene zona.", operacion.updateReserva(sinZona, "r1"));
+        assertEquals(INICIO.plusHours(1), operacion.readReserva("r1").getFechaFin());
+    }
+
+    @Test
+    void repreciarPublicaUnaVersionNueva() {
+        operacion.createReserva(new Reserva("r1", usuario, zona, INICIO, INICIO.plusHours(1)));
+        Versionado<Reserva> antes = operacion.readReservaVersionada("r1");
+        CorteDatos corte = operacion.tomarCorte();
+        assertEquals(1, operacion.repreciarReservas(MotorPrecios.estandar(0).conTarifa("Cancha", Dinero.de(25000)),
+                INICIO, INICIO.plusDays(1)));
+        Versionado<Reserva> despues = operacion.readReservaVersionada("r1");
+        assertTrue(despues.getVersion() > antes.getVersion());
+        assertEquals(Dinero.de(25000), despues.getValor().getCosto());
+        assertEquals(Dinero.de(10000), antes.getValor().getCosto());
+        assertEquals(Dinero.de(10000), corte.getReservas().valores().get(0).getCosto());
+        assertTrue(operacion.updateReservaSiVersion(new Reserva("r1", usuario, zona, INICIO, INICIO.plusHours(2)),
+                "r1", antes.getVersion()).startsWith(Versionado.CONFLICTO));
+    }
+
+    @Test
+    void corteNoCambiaConEscriturasPosteriores() {
+        operacion.create(new UsuarioCorporativo("c1", "Luis", "luis@correo.com", "3007654321", false, "Acme", 1));
+        CorteDatos corte = operacion.tomarCorte();
+        operacion.update(new UsuarioFrecuente("u1", "Ana María", "ana@correo.com", "3001234567", false, 0, 0), "u1");
+        operacion.delete("c1");
+        operacion.create(new UsuarioInternacional("i1", "Mia", "mia@correo.com", "3004445566", false,
+                "Acme", 2, "Chile", true, Dinero.de(10)));
+        assertEquals(2, corte.getUsuarios().tamano());
+        assertEquals("Ana", corte.getUsuarios(UsuarioFrecuente.class).get(0).getNombre());
+        List<UsuarioCorporativo> corporativos = corte.getUsuarios(UsuarioCorporativo.class);
+        assertEquals(1, corporativos.size());
+        assertEquals("c1", corporativos.get(0).getIdUsuario());
+        assertEquals("Ana María", operacion.readAllUsuarios(UsuarioFrecuente.class).get(0).getNombre());
+        assertEquals(List.of("i1"), idsDe(operacion.readAllUsuarios(UsuarioCorporativo.class)));
+    }
+
+    @Test
+    void lecturasPorTipoConservanElOrdenDeInsercion() {
+        operacion.create(new UsuarioCorporativo("c1", "Luis", "luis@correo.com", "3007654321", false, "Acme", 1));
+        operacion.create(new UsuarioFrecuente("u2", "Eva", "eva@correo.com", "3001112233", false, 0, 0));
+        operacion.create(new UsuarioInternacional("i1", "Mia", "mia@correo.com", "3004445566", false,
+                "Acme", 2, "Chile", true, Dinero.de(10)));
+        operacion.update(new UsuarioCorporativo("u1", "Ana", "ana@correo.com", "3001234567", false, "Acme", 0), "u1");
+        assertEquals(List.of("u1", "c1", "i1"), idsDe(operacion.readAllUsuarios(UsuarioCorporativo.class)));
+        assertEquals(List.of("u1", "c1", "u2", "i1"), idsDe(operacion.readAllUsuarios(Usuario.class)));
+        List<Usuario> recorridos = new ArrayList<>();
+        operacion.recorrerUsuarios(UsuarioFrecuente.class, recorridos::add);
+        assertEquals(List.of("u2"), idsDe(recorridos));
+    }
+
+    @Test
+    void repreciarGuardaElSubtotalComoAlCrear() {
+        operacion.createReserva(new Reserva("r1", usuario, zona, INICIO, INICIO.plusHours(2)));
+        // Con la misma tarifa solo cambiarían el impuesto y el descuento, que no son parte del costo
+        assertEquals(0, operacion.repreciarReservas(MotorPrecios.estandar(19), INICIO, INICIO.plusDays(1)));
+        assertEquals(Dinero.de(20000), operacion.readReserva("r1").getCosto());
+        assertEquals(1, operacion.repreciarReservas(MotorPrecios.estandar(19).conTarifa("Cancha", Dinero.de(25000)),
+                INICIO, INICIO.plusDays(1)));
+        assertEquals(Dinero.de(50000), operacion.readReserva("r1").getCosto());
+    }
+
+    @Test
+    void cargarInstantaneaOmiteReservasQueSeCruzan() throws IOException {
+        Path archivo = Files.createTempFile("datos", ".bin");
+        try {
+            ArchivoInstantanea.escribir(archivo, List.of(usuario), List.of(zona), reservasQueSeCruzan());
+            String resultado = operacion.readFromFile(archivo.toString());
+            assertTrue(resultado.startsWith("Datos deserializados exitosamente. Se omitieron 1 reservas"), resultado);
+            verificarCargaSinCruces();
+        } finally {
+            Files.deleteIfExists(archivo);
+        }
+    }
+
+    @Test
+    void zonaSinCostoPorHoraSeRechaza() throws IOException {
+        assertEquals("Error: la zona no tiene costo por hora.",
+                operacion.createZona(new Zona("z2", "Cancha", "Cancha", null)));
+        assertEquals("Error: la zona no tiene costo por hora.",
+                operacion.updateZona(new Zona("z1", "Cancha", "Cancha", null), "z1"));
+        // Un archivo con una zona sin costo se carga sin ella ni sus reservas
+        Zona sinCosto = new Zona("z2", "Salón", "Salón", Dinero.de(5000));
+        Reserva reserva = new Reserva("r1", usuario, sinCosto, INICIO, INICIO.plusHours(1));
+        sinCosto.setCostoPorHora(null);
+        Path archivo = Files.createTempFile("datos", ".bin");
+        try {
+            ArchivoInstantanea.escribir(archivo, List.of(usuario), List.of(zona, sinCosto), List.of(reserva));
+            String resultado = operacion.readFromFile(archivo.toString());
+            assertTrue(resultado.startsWith("Datos deserializados exitosamente. Se omitieron 1 reservas"), resultado);
+            assertNull(operacion.readZona("z2"));
+        } finally {
+            Files.deleteIfExists(archivo);
+        }
+    }
+
+    @Test
+    void streamReservasNoOmiteLasDeUsuariosYZonasNoCargados() throws IOException {
+        operacion.createReserva(new Reserva("r1", usuario, zona, INICIO, INICIO.plusHours(2)));
+        Path archivo = Files.createTempFile("datos", ".bin");
+        try {
+            assertEquals("Archivo de datos creado exitosamente.", operacion.serializar(archivo.toString(), ""));
+            List<Reserva> leidas;
+            try (Stream<Reserva> flujo = new ImplementacionOperacion().streamReservas(archivo.toString(), "")) {
+                leidas = flujo.collect(Collectors.toList());
+            }
+            assertEquals(1, leidas.size());
+            Reserva leida = leidas.get(0);
+            assertTrue(leida.getZona() instanceof ArchivoInstantanea.ZonaNoCargada);
+            assertEquals("z1", leida.getZona().getIdZona());
+            assertTrue(leida.getUsuario() instanceof ArchivoInstantanea.UsuarioNoCargado);
+            assertEquals("u1", leida.getUsuario().getIdUsuario());
+            assertEquals(Dinero.de(20000), leida.getCosto());
+            try (Stream<Reserva> flujo = operacion.streamReservas(archivo.toString(), "")) {
+                assertTrue(flujo.findFirst().get().getZona() == zona);
+            }
+        } finally {
+            Files.deleteIfExists(archivo);
+        }
+    }
+
+    @Test
+    void checkpointFallidoSeReportaEnLaSiguienteEscritura() throws IOException {
+        Path carpeta = Files.createTempDirectory("registro");
+        try {
+            operacion.activarRegistro(carpeta.toString(), PoliticaSincronizacion.porOperacion(), 1);
+            // Un directorio con contenido en lugar del temporal hace fallar el checkpoint
+            Files.createFile(Files.createDirectory(carpeta.resolve("datos.checkpoint.tmp")).resolve("x"));
+            assertEquals("Zona creada exitosamente.",
+                    operacion.createZona(new Zona("z2", "Cancha", "Cancha", Dinero.de(10000))));
+            UncheckedIOException fallo = assertThrows(UncheckedIOException.class,
+                    () -> operacion.createZona(new Zona("z3", "Cancha", "Cancha", Dinero.de(10000))));
+            assertTrue(fallo.getMessage().contains("falló el checkpoint automático"), fallo.getMessage());
+            assertNull(operacion.readZona("z3"));
+            operacion.desactivarRegistro();
+        } finally {
+            try (Stream<Path> archivos = Files.walk(carpeta)) {
+                archivos.sorted(Comparator.reverseOrder()).forEach(archivo -> archivo.toFile().delete());
+            }
+        }
+    }
+
+    @Test
+    void deserializaUsuariosConImportesDouble() throws IOException, ClassNotFoundException {
+        List<?> usuarios;
+        try (ObjectInputStream entrada = new ObjectInputStream(
+                new ByteArrayInputStream(Base64.getDecoder().decode(USUARIOS_ANTERIORES)))) {
+            usuarios = (List<?>) entrada.readObject();
+        }
+        Empleado empleado = (Empleado) usuarios.get(0);
+        assertEquals(Dinero.de(1234567.89), empleado.getSalario());
+        assertEquals("Guía", empleado.getCargo());
+        assertEquals(List.of("Abrir"), empleado.getTareasAsignadas());
+        UsuarioInternacional internacional = (UsuarioInternacional) usuarios.get(1);
+        assertEquals(Dinero.de(150.5), internacional.getTarifaMonedaInternacional());
+        assertEquals("Chile", internacional.getPaisOrigen());
+        assertTrue(internacional.isRequiereTraductor());
+        assertEquals("Acme", internacional.getNombreEmpresa());
+    }
+
+    @Test
+    void serializacionConservaLaMonedaDeLosImportes() throws IOException, ClassNotFoundException {
+        Dinero tarifa = Dinero.interpretar("15.50 USD");
+        UsuarioInternacional original = new UsuarioInternacional("i1", "Mia", "mia@correo.com", "3004445566", false,
+                "Acme", 2, "Chile", true, tarifa);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream salida = new ObjectOutputStream(bytes)) {
+            salida.writeObject(original);
+        }
+        try (ObjectInputStream entrada = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertEquals(tarifa, ((UsuarioInternacional) entrada.readObject()).getTarifaMonedaInternacional());
+        }
+    }
+
+    private static List<String> idsDe(List<? extends Usuario> usuarios) {
+        List<String> ids = new ArrayList<>();
+        for (Usuario usuario : usuarios) {
+            ids.add(usuario.getIdUsuario());
+        }
+        return ids;
+    }
+
+    /**
+     * Tres reservas de la misma zona: r2 empieza dentro de r1 y termina después de r3, que
+     * no se cruza con r1.
+     */
+    private List<Reserva> reservasQueSeCruzan() {
+        return List.of(new Reserva("r1", usuario, zona, INICIO, INICIO.plusHours(2)),
+                new Reserva("r2", usuario, zona, INICIO.plusHours(1), INICIO.plusHours(6)),
+                new Reserva("r3", usuario, zona, INICIO.plusHours(3), INICIO.plusHours(4)));
+    }
+
+    private void verificarCargaSinCruces() {
+        assertNull(operacion.readReserva("r2"));
+        assertEquals(2, operacion.readAllReservas().size());
+        assertFalse(operacion.verificarDisponibilidad("z1", INICIO.plusHours(3), INICIO.plusHours(5)));
+        assertTrue(operacion.verificarDisponibilidad("z1", INICIO.plusHours(4), INICIO.plusHours(6)));
+    }
+}
@@ -0,0 +1,59 @@
+package co.edu.poli.demo.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import co.edu.poli.demo.modelo.Dinero;
+import co.edu.poli.demo.modelo.Reserva;
+import co.edu.poli.demo.modelo.Usuario;
+import co.edu.poli.demo.modelo.UsuarioFrecuente;
+import co.edu.poli.demo.modelo.Zona;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Pruebas de {@link ListaEspera}.
+ */
+class ListaEsperaTest {
+
+    private static final LocalDateTime INICIO = LocalDateTime.of(2026, 3, 2, 9, 0);
+
+    @Test
+    void promocionCuentaAunqueLaReservaSeReemplaceEnseguida() {
+        ReemplazaAlCrear almacen = new ReemplazaAlCrear();
+        Usuario usuario = new UsuarioFrecuente("u1", "Ana", "ana@correo.com", "3001234567", false, 0, 0);
+        Zona zona = new Zona("z1", "Cancha", "Cancha", Dinero.de(10000));
+        almacen.create(usuario);
+        almacen.createZona(zona);
+        almacen.createReserva(new Reserva("r1", usuario, zona, INICIO, INICIO.plusHours(1)));
+        ListaEspera lista = new ListaEspera(almacen);
+        List<Reserva> promovidas = new ArrayList<>();
+        lista.setEscucha(promovidas::add);
+        assertEquals("Reserva inscrita en lista de espera.",
+                lista.inscribir(new Reserva("r2", usuario, zona, INICIO, INICIO.plusHours(1))));
+        lista.cancelarReserva("r1");
+        assertEquals(1, promovidas.size());
+        assertEquals(0, lista.contarEnEspera());
+        assertFalse(almacen.verificarDisponibilidad("z1", INICIO, INICIO.plusHours(1)));
+    }
+
+    /**
+     * Almacén que reemplaza cada reserva creada por una copia, como haría una actualización
+     * de otro hilo justo después de crearla.
+     */
+    private static final class ReemplazaAlCrear extends ImplementacionOperacion {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public String createReserva(Reserva reserva) {
+            String resultado = super.createReserva(reserva);
+            if (resultado.startsWith("Reserva creada")) {
+                super.updateReserva(new Reserva(reserva.getIdReserva(), reserva.getUsuario(), reserva.getZona(),
+                        reserva.getFechaInicio(), reserva.getFechaFin()), reserva.getIdReserva());
+            }
+            return resultado;
+        }
+    }
+}
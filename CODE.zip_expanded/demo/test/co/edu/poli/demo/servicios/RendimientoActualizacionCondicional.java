@@ -0,0 +1,98 @@
+package co.edu.poli.demo.servicios;
+
+import co.edu.poli.demo.modelo.Dinero;
+import co.edu.poli.demo.modelo.Zona;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Mide las actualizaciones por segundo de una misma zona con varios hilos a la vez en
+ * {@link ImplementacionOperacionConcurrente}, comparando las actualizaciones condicionales por
+ * versión con las que sobrescriben sin comparar. No es una prueba: se ejecuta a mano con
+ * {@link #main(String[])}.
+ * <p>
+ * Cada hilo repite leer la zona, sumar una unidad a su costo por hora y guardarla. Con
+ * {@link Operacion#updateZonaSiVersion} un conflicto se reintenta con una lectura nueva, y
+ * al final el costo debe haber subido tantas unidades como actualizaciones confirmadas; con
+ * {@link Operacion#updateZona} la diferencia son las actualizaciones perdidas.
+ * <p>
+ * Argumentos opcionales: milisegundos por medición y la lista de cantidades de hilos
+ * separada por comas. Por ejemplo {@code 1500 1,4,16,32}.
+ */
+public class RendimientoActualizacionCondicional {
+
+    public static void main(String[] args) throws Exception {
+        long milisegundos = args.length > 0 ? Long.parseLong(args[0]) : 1500;
+        String[] hilos = (args.length > 1 ? args[1] : "1,4,16,32").split(",");
+        // Una medición corta sin mostrar para que el compilador JIT optimice antes
+        medir(4, 500, true);
+        medir(4, 500, false);
+        System.out.printf("%8s | %12s %10s %8s | %12s %10s%n", "hilos", "cond./s", "conflictos", "perdidas",
+                "sin comp./s", "perdidas");
+        for (String cantidad : hilos) {
+            int n = Integer.parseInt(cantidad.trim());
+            long[] condicional = medir(n, milisegundos, true);
+            long[] sinComparar = medir(n, milisegundos, false);
+            System.out.printf("%8d | %12.0f %10d %8d | %12.0f %10d%n", n, condicional[0] * 1000.0 / milisegundos,
+                    condicional[1], condicional[2], sinComparar[0] * 1000.0 / milisegundos, sinComparar[2]);
+            if (condicional[2] != 0) {
+                throw new AssertionError("Se perdieron " + condicional[2] + " actualizaciones condicionales con "
+                        + n + " hilos.");
+            }
+        }
+    }
+
+    /**
+     * Ejecuta una medición.
+     *
+     * @return Actualizaciones confirmadas, conflictos y actualizaciones perdidas.
+     */
+    private static long[] medir(int hilos, long milisegundos, boolean condicional) throws Exception {
+        ImplementacionOperacionConcurrente operacion = new ImplementacionOperacionConcurrente();
+        operacion.createZona(new Zona("z", "Cancha", "Cancha", Dinero.deUnidades(0)));
+        LongAdder confirmadas = new LongAdder();
+        LongAdder conflictos = new LongAdder();
+        long[] fin = new long[1];
+        // El plazo se fija en la barrera, antes de soltar a cualquier hilo
+        CyclicBarrier salida = new CyclicBarrier(hilos,
+                () -> fin[0] = System.nanoTime() + milisegundos * 1_000_000);
+        List<Thread> trabajadores = new ArrayList<>(hilos);
+        for (int h = 0; h < hilos; h++) {
+            Thread trabajador = new Thread(() -> {
+                try {
+                    salida.await();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                while (System.nanoTime() < fin[0]) {
+                    if (condicional) {
+                        Versionado<Zona> leida = operacion.readZonaVersionada("z");
+                        String resultado = operacion.updateZonaSiVersion(sumarUnidad(leida.getValor()), "z",
+                                leida.getVersion());
+                        if (resultado.startsWith(Versionado.CONFLICTO)) {
+                            conflictos.increment();
+                            continue;
+                        }
+                    } else {
+                        operacion.updateZona(sumarUnidad(operacion.readZona("z")), "z");
+                    }
+                    confirmadas.increment();
+                }
+            });
+            trabajadores.add(trabajador);
+            trabajador.start();
+        }
+        for (Thread trabajador : trabajadores) {
+            trabajador.join();
+        }
+        long aplicadas = operacion.readZona("z").getCostoPorHora().getUnidades();
+        return new long[] {confirmadas.sum(), conflictos.sum(), confirmadas.sum() - aplicadas};
+    }
+
+    private static Zona sumarUnidad(Zona zona) {
+        return new Zona(zona.getIdZona(), zona.getNombre(), zona.getTipo(),
+                Dinero.deUnidades(zona.getCostoPorHora().getUnidades() + 1));
+    }
+}
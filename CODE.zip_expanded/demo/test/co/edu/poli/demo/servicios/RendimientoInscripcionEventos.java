@@ -0,0 +1,96 @@
+package co.edu.poli.demo.servicios;
+
+import co.edu.poli.demo.modelo.Evento;
+import co.edu.poli.demo.modelo.Usuario;
+import co.edu.poli.demo.modelo.UsuarioFrecuente;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Mide cuántas inscripciones por segundo admite {@link InscripcionEventos} con varios hilos
+ * inscribiendo a la vez en un mismo evento, y verifica que nunca se sobrevenda su capacidad.
+ * No es una prueba: se ejecuta a mano con {@link #main(String[])}.
+ * <p>
+ * Cada ronda abre un evento con la capacidad dada y reparte los intentos entre los hilos,
+ * cada uno con usuarios distintos. Al terminar, los inscritos deben ser exactamente la
+ * capacidad, y el contador de cupos debe coincidir con la lista de asistentes.
+ * <p>
+ * Argumentos opcionales: intentos, capacidad y la lista de cantidades de hilos separada por
+ * comas. Por ejemplo {@code 400000 300000 1,4,16,64}.
+ */
+public class RendimientoInscripcionEventos {
+
+    private static final LocalDateTime INICIO = LocalDateTime.of(2026, 6, 1, 18, 0);
+
+    public static void main(String[] args) throws Exception {
+        int intentos = args.length > 0 ? Integer.parseInt(args[0]) : 400_000;
+        int capacidad = args.length > 1 ? Integer.parseInt(args[1]) : 300_000;
+        String[] hilos = (args.length > 2 ? args[2] : "1,4,16,64,256").split(",");
+        Usuario[] usuarios = new Usuario[intentos];
+        for (int i = 0; i < intentos; i++) {
+            usuarios[i] = new UsuarioFrecuente("u" + i, "Asistente", "asistente@correo.com", "3000000000", false, 0, 0);
+        }
+        // Una ronda sin medir para que el compilador JIT optimice antes de las mediciones
+        medir(usuarios, capacidad, 4, "calentamiento");
+        System.out.printf("%8s %14s %10s %12s%n", "hilos", "intentos/s", "inscritos", "rechazados");
+        for (String cantidad : hilos) {
+            int n = Integer.parseInt(cantidad.trim());
+            medir(usuarios, capacidad, n, "e" + n);
+        }
+    }
+
+    private static void medir(Usuario[] usuarios, int capacidad, int hilos, String idEvento) throws Exception {
+        InscripcionEventos inscripciones = new InscripcionEventos();
+        inscripciones.abrirEvento(new Evento(idEvento, "Concierto", null, INICIO, INICIO.plusHours(3), capacidad));
+        AtomicInteger siguiente = new AtomicInteger();
+        LongAdder inscritos = new LongAdder();
+        LongAdder rechazados = new LongAdder();
+        // La hora de inicio se toma en la barrera, antes de soltar a cualquier hilo
+        long[] inicio = new long[1];
+        CyclicBarrier salida = new CyclicBarrier(hilos + 1, () -> inicio[0] = System.nanoTime());
+        List<Thread> trabajadores = new ArrayList<>(hilos);
+        for (int h = 0; h < hilos; h++) {
+            Thread trabajador = new Thread(() -> {
+                try {
+                    salida.await();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                // Bloques de intentos para no competir por el contador en cada uno
+                int bloque;
+                while ((bloque = siguiente.getAndAdd(256)) < usuarios.length) {
+                    int fin = Math.min(bloque + 256, usuarios.length);
+                    for (int i = bloque; i < fin; i++) {
+                        if (inscripciones.inscribir(idEvento, usuarios[i]).startsWith("Inscripción")) {
+                            inscritos.increment();
+                        } else {
+                            rechazados.increment();
+                        }
+                    }
+                }
+            });
+            trabajadores.add(trabajador);
+            trabajador.start();
+        }
+        salida.await();
+        for (Thread trabajador : trabajadores) {
+            trabajador.join();
+        }
+        long nanos = System.nanoTime() - inicio[0];
+        int esperados = Math.min(capacidad, usuarios.length);
+        if (inscritos.sum() != esperados || inscripciones.contarInscritos(idEvento) != esperados
+                || inscripciones.getAsistentes(idEvento).size() != esperados) {
+            throw new AssertionError("Con " + hilos + " hilos se inscribieron " + inscritos.sum()
+                    + " y la lista tiene " + inscripciones.getAsistentes(idEvento).size() + "; se esperaban "
+                    + esperados + ".");
+        }
+        if (!idEvento.equals("calentamiento")) {
+            System.out.printf("%8d %14.0f %10d %12d%n", hilos, usuarios.length * 1e9 / nanos, inscritos.sum(),
+                    rechazados.sum());
+        }
+    }
+}
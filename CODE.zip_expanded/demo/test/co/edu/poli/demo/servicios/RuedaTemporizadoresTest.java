@@ -0,0 +1,129 @@
+package co.edu.poli.demo.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Pruebas deterministas de {@link RuedaTemporizadores}: cada temporizador debe vencer en el
+ * primer tick cuyo instante alcanza su plazo, ni antes ni más de un tick después, también
+ * cuando baja de nivel al dar la vuelta un nivel superior o cuando su plazo queda más allá
+ * del último nivel.
+ */
+class RuedaTemporizadoresTest {
+
+    /**
+     * Con dos bits por nivel, los niveles dan la vuelta cada 4, 16, 64 y 256 ticks, y los
+     * plazos desde 256 ticks van a la ranura de desborde del último nivel. Se prueban todas las
+     * posiciones de inicio dentro de una vuelta del último nivel.
+     */
+    @Test
+    void ruedaReducidaVenceCadaPlazoEnSuTick() {
+        Random azar = new Random(20L);
+        for (long inicio = 0; inicio < 300; inicio++) {
+            RuedaTemporizadores<Long> rueda = new RuedaTemporizadores<>(1, inicio, 2);
+            Plazos plazos = new Plazos(1);
+            for (long distancia = 1; distancia <= 1100; distancia++) {
+                plazos.programar(rueda, inicio + distancia);
+            }
+            verificar(rueda, plazos, inicio, azar, 1100);
+            assertEquals(0, rueda.tamano());
+        }
+    }
+
+    @Test
+    void plazosQueNoSonMultiplosDelTickSeRedondeanHaciaArriba() {
+        Random azar = new Random(7L);
+        for (long inicio = 0; inicio < 700; inicio += 13) {
+            RuedaTemporizadores<Long> rueda = new RuedaTemporizadores<>(7, inicio, 2);
+            Plazos plazos = new Plazos(7);
+            for (long distancia = 1; distancia <= 7 * 300; distancia += 3) {
+                plazos.programar(rueda, inicio + distancia);
+            }
+            verificar(rueda, plazos, inicio, azar, 7 * 300);
+            assertEquals(0, rueda.tamano());
+        }
+    }
+
+    /**
+     * La rueda real, empezando poco antes de un tick en que dan la vuelta los niveles uno, dos
+     * y tres, con plazos justo alrededor de esas vueltas y otros repartidos hasta 2<sup>25</sup>
+     * ticks.
+     */
+    @Test
+    void ruedaRealVenceAlDarLaVueltaCadaNivel() {
+        long vuelta = 1L << 32;
+        long inicio = vuelta - (1L << 24) - 12_345;
+        RuedaTemporizadores<Long> rueda = new RuedaTemporizadores<>(1, inicio);
+        Plazos plazos = new Plazos(1);
+        for (long borde : new long[] {vuelta - (1L << 24), vuelta - (1L << 16), vuelta - 256, vuelta, vuelta + 256,
+                vuelta + (1L << 16), vuelta + (1L << 24)}) {
+            for (long desvio = -2; desvio <= 2; desvio++) {
+                plazos.programar(rueda, borde + desvio);
+            }
+        }
+        Random azar = new Random(32L);
+        for (int i = 0; i < 5000; i++) {
+            // Distancias repartidas por igual entre los niveles
+            plazos.programar(rueda, inicio + 1 + (azar.nextLong() >>> (64 - 1 - azar.nextInt(25))));
+        }
+        verificar(rueda, plazos, inicio, azar, 1L << 25);
+        assertEquals(0, rueda.tamano());
+    }
+
+    /**
+     * Avanza la rueda hasta vencer todos los temporizadores, deteniéndose justo antes y justo
+     * en el instante en que debe vencer cada grupo: antes no puede haber vencido ninguno, y en
+     * él deben vencer exactamente los de ese grupo. En cada parada se programan además algunos
+     * plazos nuevos, hasta la distancia dada.
+     */
+    private static void verificar(RuedaTemporizadores<Long> rueda, Plazos plazos, long inicio, Random azar,
+                                  long distanciaMaxima) {
+        long ahora = inicio;
+        while (!plazos.esperados.isEmpty()) {
+            if (azar.nextInt(4) == 0) {
+                plazos.programar(rueda, ahora + 1 + (long) (azar.nextDouble() * distanciaMaxima));
+            }
+            Map.Entry<Long, List<Long>> grupo = plazos.esperados.pollFirstEntry();
+            long instante = grupo.getKey();
+            List<Long> antes = rueda.avanzar(instante - 1);
+            assertTrue(antes.isEmpty(), "vencieron antes de su plazo " + antes + " en " + (instante - 1));
+            List<Long> vencidos = new ArrayList<>(rueda.avanzar(instante));
+            Collections.sort(vencidos);
+            List<Long> esperados = grupo.getValue();
+            Collections.sort(esperados);
+            assertEquals(esperados, vencidos, "vencidos en " + instante + " desde " + inicio);
+            ahora = instante;
+        }
+    }
+
+    /**
+     * Temporizadores programados, agrupados por el instante en que deben vencer.
+     */
+    private static final class Plazos {
+        private final long milisPorTick;
+        private final TreeMap<Long, List<Long>> esperados = new TreeMap<>();
+
+        Plazos(long milisPorTick) {
+            this.milisPorTick = milisPorTick;
+        }
+
+        /**
+         * Programa un plazo, cuyo valor es el mismo plazo. Vence en el primer instante múltiplo
+         * del tick que no es anterior al plazo.
+         */
+        void programar(RuedaTemporizadores<Long> rueda, long plazo) {
+            rueda.programar(plazo, plazo);
+            long instante = -Math.floorDiv(-plazo, milisPorTick) * milisPorTick;
+            assertTrue(instante >= plazo && instante - plazo < milisPorTick);
+            esperados.computeIfAbsent(instante, clave -> new ArrayList<>()).add(plazo);
+        }
+    }
+}